@@ -21,8 +21,8 @@ import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteStatement;
-import android.location.Location;
 import android.util.Log;
+import android.util.LongSparseArray;
 
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Envelope;
@@ -38,9 +38,13 @@ import eu.geopaparazzi.core.GeopaparazziApplication;
 import eu.geopaparazzi.core.database.objects.GpsLogInfo;
 import eu.geopaparazzi.core.database.objects.Line;
 import eu.geopaparazzi.core.database.objects.LogMapItem;
+import eu.geopaparazzi.library.codec.GpsLogChunkCodec;
 import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.library.database.GpsLogArchive;
+import eu.geopaparazzi.library.database.GpsLogQuality;
 import eu.geopaparazzi.library.database.IGpsLogDbHelper;
 import eu.geopaparazzi.library.database.TableDescriptions;
+import eu.geopaparazzi.library.geodesy.GeodesyUtilities;
 import eu.geopaparazzi.library.gpx.GpxItem;
 import eu.geopaparazzi.library.gpx.parser.GpxParser.Route;
 import eu.geopaparazzi.library.gpx.parser.GpxParser.TrackSegment;
@@ -51,10 +55,12 @@ import eu.geopaparazzi.library.style.ColorUtilities;
 import eu.geopaparazzi.library.util.TimeUtilities;
 import eu.geopaparazzi.map.GPGeoPoint;
 
+import static eu.geopaparazzi.library.database.TableDescriptions.GpsLogsChunksTableFields;
 import static eu.geopaparazzi.library.database.TableDescriptions.GpsLogsDataTableFields;
 import static eu.geopaparazzi.library.database.TableDescriptions.GpsLogsPropertiesTableFields;
 import static eu.geopaparazzi.library.database.TableDescriptions.GpsLogsTableFields;
 import static eu.geopaparazzi.library.database.TableDescriptions.TABLE_GPSLOGS;
+import static eu.geopaparazzi.library.database.TableDescriptions.TABLE_GPSLOG_CHUNKS;
 import static eu.geopaparazzi.library.database.TableDescriptions.TABLE_GPSLOG_DATA;
 import static eu.geopaparazzi.library.database.TableDescriptions.TABLE_GPSLOG_PROPERTIES;
 import static eu.geopaparazzi.library.util.LibraryConstants.DEFAULT_LOG_WIDTH;
@@ -194,6 +200,16 @@ public class DaoGpsLog implements IGpsLogDbHelper {
             Log.i("DAOGPSLOG", "Create the gpslogs properties table with: \n" + CREATE_TABLE_GPSLOGS_PROPERTIES);
         sqliteDatabase.execSQL(CREATE_TABLE_GPSLOGS_PROPERTIES);
 
+        /*
+         * archived data table
+         */
+        GpsLogArchive.createTables(sqliteDatabase);
+
+        /*
+         * quality data of external receivers
+         */
+        GpsLogQuality.createTables(sqliteDatabase);
+
     }
 
     public SQLiteDatabase getDatabase() throws Exception {
@@ -291,6 +307,8 @@ public class DaoGpsLog implements IGpsLogDbHelper {
             sqlUpdate = sqliteDatabase.compileStatement(query);
             sqlUpdate.execute();
             sqlUpdate.close();
+            GpsLogArchive.deleteLog(sqliteDatabase, id);
+            GpsLogQuality.deleteLog(sqliteDatabase, id);
 
             sqliteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
@@ -720,6 +738,16 @@ public class DaoGpsLog implements IGpsLogDbHelper {
             sqlUpdate.execute();
             sqlUpdate.close();
 
+            ContentValues chunkValues = new ContentValues();
+            chunkValues.put(GpsLogsChunksTableFields.COLUMN_LOGID.getFieldName(), destinationLogId);
+            sqliteDatabase.update(TABLE_GPSLOG_CHUNKS, chunkValues,
+                    GpsLogsChunksTableFields.COLUMN_LOGID.getFieldName() + "=" + logidToRemove, null);
+            GpsLogQuality.moveLog(sqliteDatabase, logidToRemove, destinationLogId);
+            if (GpsLogArchive.isArchived(sqliteDatabase, destinationLogId)) {
+                // the time ranges of the two logs can overlap, so all points are sorted and archived again
+                GpsLogArchive.rebuildLog(sqliteDatabase, destinationLogId, new GpsLogChunkCodec(), GpsLogChunkCodec.DEFAULT_CHUNK_SIZE);
+            }
+
             sqliteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
             GPLog.error("DAOGPSLOG", e.getLocalizedMessage(), e);
@@ -816,33 +844,15 @@ public class DaoGpsLog implements IGpsLogDbHelper {
      */
     public static LinkedHashMap<Long, Line> getLinesMap() throws IOException {
         SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
-        LinkedHashMap<Long, Line> linesMap = new LinkedHashMap<>();
-
-        String[] asColumnsToReturn = {//
-                GpsLogsDataTableFields.COLUMN_LOGID.getFieldName(),//
-                GpsLogsDataTableFields.COLUMN_DATA_LON.getFieldName(),//
-                GpsLogsDataTableFields.COLUMN_DATA_LAT.getFieldName(),//
-                GpsLogsDataTableFields.COLUMN_DATA_ALTIM.getFieldName(),//
-                GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName()//
-        };
-        String strSortOrder = GpsLogsDataTableFields.COLUMN_LOGID.getFieldName() + "," + GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName() + " ASC";
-        try (Cursor c = sqliteDatabase.query(TABLE_GPSLOG_DATA, asColumnsToReturn, null, null, null, null, strSortOrder)) {
-            c.moveToFirst();
-            while (!c.isAfterLast()) {
-                long logid = c.getLong(0);
-                double lon = c.getDouble(1);
-                double lat = c.getDouble(2);
-                double altim = c.getDouble(3);
-                String date = c.getString(4);
-                Line line = linesMap.get(logid);
-                if (line == null) {
-                    line = new Line("log_" + logid);
-                    linesMap.put(logid, line);
-                }
-                line.addPoint(lon, lat, altim, date);
-                c.moveToNext();
+        final LinkedHashMap<Long, Line> linesMap = new LinkedHashMap<>();
+        GpsLogArchive.streamAll(sqliteDatabase, (logId, lon, lat, elev, ts) -> {
+            Line line = linesMap.get(logId);
+            if (line == null) {
+                line = new Line("log_" + logId);
+                linesMap.put(logId, line);
             }
-        }
+            line.addPoint(lon, lat, elev, String.valueOf(ts));
+        });
         return linesMap;
     }
 
@@ -860,51 +870,25 @@ public class DaoGpsLog implements IGpsLogDbHelper {
     public static STRtree getGpsLogInfoTree(double n, double s, double e, double w) throws IOException {
         SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
 
-        String idField1 = GpsLogsDataTableFields.COLUMN_LOGID.getFieldName();
-        String lonField = GpsLogsDataTableFields.COLUMN_DATA_LON.getFieldName();
-        String latField = GpsLogsDataTableFields.COLUMN_DATA_LAT.getFieldName();
-        String altimField = GpsLogsDataTableFields.COLUMN_DATA_ALTIM.getFieldName();
-        String tsField = GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName();
-
-        String idField = GpsLogsTableFields.COLUMN_ID.getFieldName();
-        String nameField = GpsLogsTableFields.COLUMN_LOG_TEXT.getFieldName();
-
-        String idField2 = GpsLogsPropertiesTableFields.COLUMN_LOGID.getFieldName();
-        String colorField = GpsLogsPropertiesTableFields.COLUMN_PROPERTIES_COLOR.getFieldName();
-        String visibleField = GpsLogsPropertiesTableFields.COLUMN_PROPERTIES_VISIBLE.getFieldName();
-
-
-        String sql = "select d." + lonField + ", d." + latField + ", d." + altimField + ", d." + tsField +
-                ", g." + nameField + ", p." + colorField + ", p." + visibleField +
-                " from " + TableDescriptions.TABLE_GPSLOG_DATA + " d, " + TableDescriptions.TABLE_GPSLOGS +
-                " g, " + TableDescriptions.TABLE_GPSLOG_PROPERTIES + " p where " +
-                "d." + idField1 + "=g." + idField + " and p." + idField2 + "=g." + idField + " and " +
-                "d." + lonField + " > " + w + " and d." + lonField + " < " + e + " and " +
-                "d." + latField + " > " + s + " and d." + latField + " < " + n;
-
-        STRtree tree = new STRtree();
-        try (Cursor c = sqliteDatabase.rawQuery(sql, null)) {
-            c.moveToFirst();
-            while (!c.isAfterLast()) {
-                int i = 0;
-                double lon = c.getDouble(i++);
-                double lat = c.getDouble(i++);
-                double altim = c.getDouble(i++);
-                long ts = c.getLong(i++);
-                String name = c.getString(i++);
-                String color = c.getString(i++);
-                int visible = c.getInt(i++);
-                if (visible == 1) {
-                    GpsLogInfo gli = new GpsLogInfo();
-                    gli.pointXYZ = new Coordinate(lon, lat, altim);
-                    gli.timestamp = ts;
-                    gli.logName = name;
-                    gli.color = color;
-                    tree.insert(new Envelope(gli.pointXYZ), gli);
-                }
-                c.moveToNext();
+        final LongSparseArray<LogMapItem> visibleLogs = new LongSparseArray<>();
+        for (LogMapItem logMapItem : getGpslogs()) {
+            if (logMapItem.isVisible()) {
+                visibleLogs.put(logMapItem.getId(), logMapItem);
             }
         }
+
+        final STRtree tree = new STRtree();
+        GpsLogArchive.streamInBounds(sqliteDatabase, n, s, e, w, (logId, lon, lat, elev, ts) -> {
+            LogMapItem logMapItem = visibleLogs.get(logId);
+            if (logMapItem != null) {
+                GpsLogInfo gli = new GpsLogInfo();
+                gli.pointXYZ = new Coordinate(lon, lat, elev);
+                gli.timestamp = ts;
+                gli.logName = logMapItem.getName();
+                gli.color = logMapItem.getColor();
+                tree.insert(new Envelope(gli.pointXYZ), gli);
+            }
+        });
         return tree;
     }
 
@@ -920,40 +904,20 @@ public class DaoGpsLog implements IGpsLogDbHelper {
     public static Line getGpslogAsLine(long logId, int pointsNum) throws IOException {
         SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
 
-        String[] asColumnsToReturn = {//
-                GpsLogsDataTableFields.COLUMN_DATA_LON.getFieldName(), //
-                GpsLogsDataTableFields.COLUMN_DATA_LAT.getFieldName(), //
-                GpsLogsDataTableFields.COLUMN_DATA_ALTIM.getFieldName(),//
-                GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName()//
-        };
-        String strSortOrder = GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName() + " ASC";
-        String strWhere = GpsLogsDataTableFields.COLUMN_LOGID.getFieldName() + "=" + logId;
-        try (Cursor c = sqliteDatabase.query(TABLE_GPSLOG_DATA, asColumnsToReturn, strWhere, null, null, null, strSortOrder)) {
-            int count = c.getCount();
-            int jump = 0;
-            if (pointsNum != -1 && count > pointsNum) {
-                jump = (int) Math.ceil((double) count / pointsNum);
-            }
-
-            c.moveToFirst();
-            Line line = new Line("log_" + logId);
-            while (!c.isAfterLast()) {
-                double lon = c.getDouble(0);
-                double lat = c.getDouble(1);
-
-                double altim = c.getDouble(2);
-                String date = c.getString(3);
-                line.addPoint(lon, lat, altim, date);
-                c.moveToNext();
-                for (int i = 1; i < jump; i++) {
-                    c.moveToNext();
-                    if (c.isAfterLast()) {
-                        break;
-                    }
-                }
-            }
-            return line;
+        int count = GpsLogArchive.countPoints(sqliteDatabase, logId);
+        int jump = 1;
+        if (pointsNum != -1 && count > pointsNum) {
+            jump = (int) Math.ceil((double) count / pointsNum);
         }
+        final int step = jump;
+        final int[] index = {0};
+        final Line line = new Line("log_" + logId);
+        GpsLogArchive.streamLog(sqliteDatabase, logId, (id, lon, lat, elev, ts) -> {
+            if (index[0]++ % step == 0) {
+                line.addPoint(lon, lat, elev, String.valueOf(ts));
+            }
+        });
+        return line;
     }
 
     /**
@@ -965,24 +929,13 @@ public class DaoGpsLog implements IGpsLogDbHelper {
      */
     public static double[] getGpslogFirstPoint(long logId) throws IOException {
         SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
-
-        String[] asColumnsToReturn = {//
-                GpsLogsDataTableFields.COLUMN_DATA_LON.getFieldName(), //
-                GpsLogsDataTableFields.COLUMN_DATA_LAT.getFieldName(), //
-                GpsLogsDataTableFields.COLUMN_DATA_ALTIM.getFieldName(), //
-                GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName() //
-        };
-        String strSortOrder = GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName() + " ASC";
-        String strWhere = GpsLogsDataTableFields.COLUMN_LOGID.getFieldName() + "=" + logId;
-        try (Cursor c = sqliteDatabase.query(TABLE_GPSLOG_DATA, asColumnsToReturn, strWhere, null, null, null, strSortOrder, "1")) {
-            c.moveToFirst();
-            double[] lonLat = new double[2];
-            if (!c.isAfterLast()) {
-                lonLat[0] = c.getDouble(0);
-                lonLat[1] = c.getDouble(1);
-            }
-            return lonLat;
+        double[] lonLat = new double[2];
+        double[] point = GpsLogArchive.getEdgePoint(sqliteDatabase, logId, true);
+        if (point != null) {
+            lonLat[0] = point[0];
+            lonLat[1] = point[1];
         }
+        return lonLat;
     }
 
     /**
@@ -994,25 +947,13 @@ public class DaoGpsLog implements IGpsLogDbHelper {
      */
     public static double[] getGpslogLastPoint(long logId) throws IOException {
         SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
-
-        String[] asColumnsToReturn = {//
-                GpsLogsDataTableFields.COLUMN_DATA_LON.getFieldName(), //
-                GpsLogsDataTableFields.COLUMN_DATA_LAT.getFieldName(), //
-                GpsLogsDataTableFields.COLUMN_DATA_ALTIM.getFieldName(), //
-                GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName() //
-        };
-        String strSortOrder = GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName() + " DESC";
-        String strWhere = GpsLogsDataTableFields.COLUMN_LOGID.getFieldName() + "=" + logId;
-        try (Cursor c = sqliteDatabase.query(TABLE_GPSLOG_DATA, asColumnsToReturn, strWhere, null, null, null, strSortOrder, "1")) {
-            c.moveToFirst();
-            double[] lonLat = new double[2];
-            while (!c.isAfterLast()) {
-                lonLat[0] = c.getDouble(0);
-                lonLat[1] = c.getDouble(1);
-                break;
-            }
-            return lonLat;
+        double[] lonLat = new double[2];
+        double[] point = GpsLogArchive.getEdgePoint(sqliteDatabase, logId, false);
+        if (point != null) {
+            lonLat[0] = point[0];
+            lonLat[1] = point[1];
         }
+        return lonLat;
     }
 
     /**
@@ -1227,60 +1168,28 @@ public class DaoGpsLog implements IGpsLogDbHelper {
         try {
             // get the log data, sum up the distances
             SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
-            String[] asColumnsToReturn = { //
-                    GpsLogsDataTableFields.COLUMN_DATA_LON.getFieldName(), //
-                    GpsLogsDataTableFields.COLUMN_DATA_LAT.getFieldName(), //
-                    GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName() //
-            };
-            String strSortOrder = GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName() + " ASC";
-            String strWhere = GpsLogsDataTableFields.COLUMN_LOGID.getFieldName() + "=" + logId;
-            Cursor c = null;
-            double summedDistance = 0.0;
-            double lon = 0.0;
-            double lat = 0.0;
-            double prevLon = 0.0;
-            double prevLat = 0.0;
-
-            if (GPLog.LOG_ABSURD)
-                GPLog.addLogEntry("DAOGPSLOG", strWhere);
-            try {
-                c = sqliteDatabase.query(TABLE_GPSLOG_DATA, asColumnsToReturn, strWhere, null, null, null, strSortOrder);
-                c.moveToFirst();
-                while (!c.isAfterLast()) {
-                    lon = c.getDouble(0);
-                    lat = c.getDouble(1);
-
-                    Location newLoc = new Location("tempLoc1"); //$NON-NLS-1$
-                    newLoc.setLongitude(lon);
-                    newLoc.setLatitude(lat);
-                    Location prevLoc = new Location("tempLoc2"); //$NON-NLS-1$
-
-                    if (GPLog.LOG_ABSURD) {
-                        GPLog.addLogEntry("DAOGPSLOG", "lon: " + lon);
-                        GPLog.addLogEntry("DAOGPSLOG", "lat: " + lat);
-                        GPLog.addLogEntry("DAOGPSLOG", "prevlon: " + prevLon);
-                        GPLog.addLogEntry("DAOGPSLOG", "prevlat: " + prevLat);
-                    }
-                    if (prevLon == 0.0) {
-                        prevLon = lon;
-                        prevLat = lat;
-                    }
-                    prevLoc.setLongitude(prevLon);
-                    prevLoc.setLatitude(prevLat);
-                    double lastDistance = newLoc.distanceTo(prevLoc);
-                    if (GPLog.LOG_ABSURD) {
-                        GPLog.addLogEntry("DAOGPSLOG", "distance: " + lastDistance);
-                    }
-                    summedDistance = summedDistance + lastDistance;
-                    prevLon = lon;
-                    prevLat = lat;
-
-                    c.moveToNext();
+            // [summed distance, previous lon, previous lat]
+            final double[] state = {0.0, 0.0, 0.0};
+            GpsLogArchive.streamLog(sqliteDatabase, logId, (id, lon, lat, elev, ts) -> {
+                if (GPLog.LOG_ABSURD) {
+                    GPLog.addLogEntry("DAOGPSLOG", "lon: " + lon);
+                    GPLog.addLogEntry("DAOGPSLOG", "lat: " + lat);
+                    GPLog.addLogEntry("DAOGPSLOG", "prevlon: " + state[1]);
+                    GPLog.addLogEntry("DAOGPSLOG", "prevlat: " + state[2]);
                 }
-            } finally {
-                if (c != null)
-                    c.close();
-            }
+                if (state[1] == 0.0) {
+                    state[1] = lon;
+                    state[2] = lat;
+                }
+                double lastDistance = GeodesyUtilities.vincenty(lon, lat, state[1], state[2]);
+                if (GPLog.LOG_ABSURD) {
+                    GPLog.addLogEntry("DAOGPSLOG", "distance: " + lastDistance);
+                }
+                state[0] = state[0] + lastDistance;
+                state[1] = lon;
+                state[2] = lat;
+            });
+            double summedDistance = state[0];
 
             // update the gpslogs table with the summed distance
             sqliteDatabase.beginTransaction();
@@ -1298,4 +1207,49 @@ public class DaoGpsLog implements IGpsLogDbHelper {
             throw new IOException(e.getLocalizedMessage());
         }
     }
+
+    /**
+     * Move the points of all logs into the compressed archive table.
+     *
+     * <p>This is safe also while a log is being recorded, points that arrive
+     * in the meanwhile stay in the data table.</p>
+     *
+     * <p>Archived points are no longer in the gpslogsdata table, so tools reading the
+     * database directly see the logs empty. They are put back with {@link #expandGpsLogs()}
+     * before the database leaves the device.</p>
+     *
+     * @param vacuum if <code>true</code>, the database is vacuumed afterwards to give the space back.
+     * @return the number of archived points.
+     * @throws IOException if something goes wrong.
+     */
+    public static int archiveGpsLogs(boolean vacuum) throws IOException {
+        SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
+        GpsLogChunkCodec codec = new GpsLogChunkCodec();
+        int archived = 0;
+        for (long logId : GpsLogArchive.getLogsWithPlainPoints(sqliteDatabase)) {
+            archived += GpsLogArchive.archiveLog(sqliteDatabase, logId, codec, GpsLogChunkCodec.DEFAULT_CHUNK_SIZE);
+        }
+        if (vacuum && archived > 0) {
+            try {
+                sqliteDatabase.execSQL("VACUUM");
+            } catch (Exception e) {
+                GPLog.error("DAOGPSLOG", e.getLocalizedMessage(), e);
+            }
+        }
+        return archived;
+    }
+
+    /**
+     * Move the archived points of all logs back into the data table.
+     *
+     * <p>To be called before the database file is handed to something else than this
+     * application, since other tools only read the points from the gpslogsdata table.</p>
+     *
+     * @return the number of expanded points.
+     * @throws IOException if something goes wrong.
+     */
+    public static int expandGpsLogs() throws IOException {
+        SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
+        return GpsLogArchive.expandAll(sqliteDatabase);
+    }
 }
@@ -23,6 +23,8 @@ import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
 
+import org.json.JSONException;
+
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -32,6 +34,7 @@ import eu.geopaparazzi.core.database.objects.Note;
 import eu.geopaparazzi.library.database.ANote;
 import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.database.INotesDbHelper;
+import eu.geopaparazzi.library.database.NotesAttributesIndex;
 import eu.geopaparazzi.library.util.LibraryConstants;
 
 import static eu.geopaparazzi.library.database.TableDescriptions.NotesTableFields;
@@ -104,6 +107,7 @@ public class DaoNotes implements INotesDbHelper {
             sqliteDatabase.execSQL(CREATE_INDEX_NOTES_TS);
             sqliteDatabase.execSQL(CREATE_INDEX_NOTES_X_BY_Y);
             sqliteDatabase.execSQL(CREATE_INDEX_NOTES_ISDIRTY);
+            NotesAttributesIndex.createTables(sqliteDatabase);
 
             sqliteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
@@ -154,6 +158,9 @@ public class DaoNotes implements INotesDbHelper {
     /**
      * Add a note without transaction (for fast insert of many).
      *
+     * <p>The values of the form are also added to the {@link NotesAttributesIndex}. A form that
+     * can't be parsed is logged and the note is added anyway.</p>
+     *
      * @param lon            lon
      * @param lat            lat
      * @param altim          elevation
@@ -179,7 +186,15 @@ public class DaoNotes implements INotesDbHelper {
         if (style != null)
             values.put(NotesTableFields.COLUMN_STYLE.getFieldName(), style);
         values.put(NotesTableFields.COLUMN_ISDIRTY.getFieldName(), 1);
-        return sqliteDatabase.insertOrThrow(TABLE_NOTES, null, values);
+        long noteId = sqliteDatabase.insertOrThrow(TABLE_NOTES, null, values);
+        if (form != null && form.length() > 0) {
+            try {
+                NotesAttributesIndex.indexNote(sqliteDatabase, noteId, form);
+            } catch (JSONException e) {
+                GPLog.error("DAONOTES", "Unable to index the form of note: " + noteId, e);
+            }
+        }
+        return noteId;
     }
 
     /**
@@ -196,6 +211,7 @@ public class DaoNotes implements INotesDbHelper {
             String query = "delete from " + TABLE_NOTES + " where " + NotesTableFields.COLUMN_ID.getFieldName() + " = " + id;
             SQLiteStatement sqlUpdate = sqliteDatabase.compileStatement(query);
             sqlUpdate.execute();
+            NotesAttributesIndex.removeNote(sqliteDatabase, id);
 
             sqliteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
@@ -240,6 +256,7 @@ public class DaoNotes implements INotesDbHelper {
             String query = "delete from " + TABLE_NOTES + " where " + NotesTableFields.COLUMN_DESCRIPTION.getFieldName() + " = " + LibraryConstants.OSM;
             SQLiteStatement sqlUpdate = sqliteDatabase.compileStatement(query);
             sqlUpdate.execute();
+            NotesAttributesIndex.removeOrphans(sqliteDatabase);
 
             sqliteDatabase.setTransactionSuccessful();
         } catch (Exception e) {
@@ -252,7 +269,7 @@ public class DaoNotes implements INotesDbHelper {
 
 
     /**
-     * Update the form of a note.
+     * Update the form of a note, together with its indexed values.
      *
      * @param id       the note id.
      * @param noteText the note text.
@@ -270,8 +287,32 @@ public class DaoNotes implements INotesDbHelper {
         String[] whereArgs = null;
 
         SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
+        sqliteDatabase.beginTransaction();
+        try {
+            sqliteDatabase.update(TABLE_NOTES, updatedValues, where, whereArgs);
+            NotesAttributesIndex.indexNote(sqliteDatabase, id, jsonStr);
 
-        sqliteDatabase.update(TABLE_NOTES, updatedValues, where, whereArgs);
+            sqliteDatabase.setTransactionSuccessful();
+        } catch (Exception e) {
+            GPLog.error("DAONOTES", e.getLocalizedMessage(), e);
+            throw new IOException(e.getLocalizedMessage());
+        } finally {
+            sqliteDatabase.endTransaction();
+        }
+    }
+
+    /**
+     * Get the ids of the notes that have a form item with a given value.
+     *
+     * @param section the section name or <code>null</code> to search all sections.
+     * @param key     the key of the form item.
+     * @param value   the value.
+     * @return the ids of the matching notes.
+     * @throws IOException if something goes wrong.
+     */
+    public static List<Long> getNoteIdsByFormValue(String section, String key, String value) throws IOException {
+        SQLiteDatabase sqliteDatabase = GeopaparazziApplication.getInstance().getDatabase();
+        return NotesAttributesIndex.getNoteIds(sqliteDatabase, section, key, value);
     }
 
     /**
@@ -28,6 +28,9 @@ import java.util.Locale;
 
 import eu.geopaparazzi.library.core.ResourcesManager;
 import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.library.database.GpsLogArchive;
+import eu.geopaparazzi.library.database.GpsLogQuality;
+import eu.geopaparazzi.library.database.NotesAttributesIndex;
 import eu.geopaparazzi.library.database.TableDescriptions;
 import eu.geopaparazzi.library.util.Utilities;
 import eu.geopaparazzi.library.util.debug.Debug;
@@ -140,6 +143,13 @@ public class DatabaseManager {
                     } else {
                         cursor.close();
                     }
+                    // archived gpslogs table, added later on
+                    GpsLogArchive.createTables(db);
+                    // quality data of external receivers, added later on
+                    GpsLogQuality.createTables(db);
+                    // notes form values index, added later on, filled from the existing notes
+                    if (NotesAttributesIndex.createTables(db))
+                        NotesAttributesIndex.rebuild(db);
                 } catch (Exception e) {
                     Log.e("DATABASEMANAGER", "Error while creating the metadata/log tables", e);
                 }
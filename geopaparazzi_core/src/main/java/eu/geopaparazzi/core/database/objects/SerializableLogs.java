@@ -17,12 +17,22 @@
  */
 package eu.geopaparazzi.core.database.objects;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.List;
+
+import eu.geopaparazzi.library.codec.GpsLogCodec;
+import eu.geopaparazzi.library.codec.GpsLogData;
+import eu.geopaparazzi.library.util.DynamicDoubleArray;
+import eu.geopaparazzi.library.util.Utilities;
 
 /**
  * A set of serializable logs and log data.
  *
+ * <p>For transfer the logs are encoded through the compact {@link GpsLogCodec}
+ * format, java serialization is only supported for reading old data.</p>
+ *
  * @author Andrea Antonello (www.hydrologis.com)
  */
 public class SerializableLogs implements Serializable {
@@ -49,4 +59,73 @@ public class SerializableLogs implements Serializable {
     public int getSize() {
         return size;
     }
+
+    /**
+     * Encode the logs in the compact binary transfer format.
+     *
+     * @param lossy    if <code>true</code>, the coordinates are quantized to the default codec resolutions.
+     * @param compress if <code>true</code>, the data are also deflated.
+     * @return the encoded bytes.
+     */
+    public byte[] toBytes(boolean lossy, boolean compress) {
+        List<GpsLogData> logsData = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            LogMapItem log = logs.get(i);
+            Line line = logDatas.get(i);
+            DynamicDoubleArray lonList = line.getLonList();
+            DynamicDoubleArray latList = line.getLatList();
+            DynamicDoubleArray altimList = line.getAltimList();
+            List<String> dateList = line.getDateList();
+            int count = lonList.size();
+            GpsLogData logData = new GpsLogData(log.getName(), log.getColor(), log.getWidth(), log.getStartTime(), log.getEndTime(), count);
+            System.arraycopy(lonList.getInternalArray(), 0, logData.lons, 0, count);
+            System.arraycopy(latList.getInternalArray(), 0, logData.lats, 0, count);
+            System.arraycopy(altimList.getInternalArray(), 0, logData.elevs, 0, count);
+            for (int j = 0; j < count; j++) {
+                logData.times[j] = Long.parseLong(dateList.get(j));
+            }
+            logsData.add(logData);
+        }
+        GpsLogCodec codec;
+        if (lossy) {
+            codec = new GpsLogCodec(GpsLogCodec.DEFAULT_XY_RESOLUTION, GpsLogCodec.DEFAULT_Z_RESOLUTION, compress);
+        } else {
+            codec = new GpsLogCodec(compress);
+        }
+        return codec.encode(logsData);
+    }
+
+    /**
+     * Read logs from bytes, either in the binary transfer format or java serialized.
+     *
+     * @param bytes the data.
+     * @return the logs.
+     * @throws Exception if the data could not be read.
+     */
+    public static SerializableLogs fromBytes(byte[] bytes) throws Exception {
+        if (!GpsLogCodec.isEncoded(bytes)) {
+            return Utilities.deserializeObject(bytes, SerializableLogs.class);
+        }
+        List<GpsLogData> logsData = GpsLogCodec.decode(bytes);
+        SerializableLogs serializableLogs = new SerializableLogs();
+        for (GpsLogData logData : logsData) {
+            int count = logData.count;
+            DynamicDoubleArray lonList = new DynamicDoubleArray(count);
+            DynamicDoubleArray latList = new DynamicDoubleArray(count);
+            DynamicDoubleArray altimList = new DynamicDoubleArray(count);
+            List<String> dateList = new ArrayList<>(count);
+            for (int j = 0; j < count; j++) {
+                lonList.add(logData.lons[j]);
+                latList.add(logData.lats[j]);
+                altimList.add(logData.elevs[j]);
+                dateList.add(String.valueOf(logData.times[j]));
+            }
+            Line line = new Line(logData.name, lonList, latList, altimList, dateList);
+            line.setStyle(logData.width, logData.color);
+            LogMapItem log = new LogMapItem(-1, logData.name, logData.color, logData.width, true,
+                    logData.startTime, logData.endTime, 0);
+            serializableLogs.addLog(log, line);
+        }
+        return serializableLogs;
+    }
 }
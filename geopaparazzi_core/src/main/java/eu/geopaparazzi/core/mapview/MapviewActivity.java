@@ -78,8 +78,11 @@ import eu.geopaparazzi.library.core.dialogs.InsertCoordinatesDialogFragment;
 import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.forms.FormInfoHolder;
 import eu.geopaparazzi.library.gps.GpsLoggingStatus;
+import eu.geopaparazzi.library.gps.GpsPosition;
+import eu.geopaparazzi.library.gps.GpsPositionBus;
 import eu.geopaparazzi.library.gps.GpsServiceStatus;
 import eu.geopaparazzi.library.gps.GpsServiceUtilities;
+import eu.geopaparazzi.library.gps.IGpsPositionListener;
 import eu.geopaparazzi.library.network.NetworkUtilities;
 import eu.geopaparazzi.library.share.ShareUtilities;
 import eu.geopaparazzi.library.style.ColorUtilities;
@@ -96,7 +99,7 @@ import eu.geopaparazzi.map.GPMapPosition;
 import eu.geopaparazzi.map.GPMapView;
 import eu.geopaparazzi.map.MapsSupportService;
 import eu.geopaparazzi.map.features.Feature;
-import eu.geopaparazzi.map.features.FeatureUtilities;
+import eu.geopaparazzi.map.features.FeatureSessionStore;
 import eu.geopaparazzi.map.features.editing.EditManager;
 import eu.geopaparazzi.map.features.editing.EditingView;
 import eu.geopaparazzi.map.features.tools.MapTool;
@@ -140,13 +143,22 @@ public class MapviewActivity extends AppCompatActivity implements IActivitySuppo
     private static final String ARE_BUTTONSVISIBLE_OPEN = "ARE_BUTTONSVISIBLE_OPEN"; //$NON-NLS-1$
     public static final String MAPSCALE_X = "MAPSCALE_X"; //$NON-NLS-1$
     public static final String MAPSCALE_Y = "MAPSCALE_Y"; //$NON-NLS-1$
+    /**
+     * Minimum interval between gps updates of the map, about the screen refresh rate.
+     */
+    private static final long GPS_UPDATE_INTERVAL_MILLIS = 16;
     private DecimalFormat formatter = new DecimalFormat("00"); //$NON-NLS-1$
     private GPMapView mapView;
     private SharedPreferences mPeferences;
 
 
-    private BroadcastReceiver gpsServiceBroadcastReceiver;
+    private final IGpsPositionListener gpsPositionListener = this::onGpsPositionUpdate;
     private double[] lastGpsPosition;
+    // reused for every fix, to not allocate at screen rate
+    private final double[] gpsPositionBuffer = new double[3];
+    private final float[] gpsPositionExtrasBuffer = new float[3];
+    private final int[] gpsStatusExtrasBuffer = new int[3];
+    private int lastCenterOnGpsIconId = -1;
 
     private TextView zoomLevelText;
     private BroadcastReceiver batteryReceiver = new BroadcastReceiver() {
@@ -190,12 +202,6 @@ public class MapviewActivity extends AppCompatActivity implements IActivitySuppo
         registerReceiver(mapsSupportBroadcastReceiver, new IntentFilter(
                 MapsSupportService.MAPSSUPPORT_SERVICE_BROADCAST_NOTIFICATION));
 
-        gpsServiceBroadcastReceiver = new BroadcastReceiver() {
-            public void onReceive(Context context, Intent intent) {
-                onGpsServiceUpdate(intent);
-            }
-        };
-
         mPeferences = PreferenceManager.getDefaultSharedPreferences(this);
         boolean useOnly2d = mPeferences.getBoolean(Constants.PREFS_KEY_ONLY2D, false);
 
@@ -302,7 +308,8 @@ public class MapviewActivity extends AppCompatActivity implements IActivitySuppo
         EditManager.INSTANCE.setEditingView(editingView, editingToolsLayout);
         mapView.setEditingView(editingView);
 
-        GpsServiceUtilities.registerForBroadcasts(this, gpsServiceBroadcastReceiver);
+        GpsPositionBus.INSTANCE.subscribe(gpsPositionListener, GpsPositionBus.MAIN_THREAD_EXECUTOR, GPS_UPDATE_INTERVAL_MILLIS);
+        // have the service publish its current status, also if it has no new fix
         GpsServiceUtilities.triggerBroadcast(this);
 
 
@@ -357,6 +364,7 @@ public class MapviewActivity extends AppCompatActivity implements IActivitySuppo
 
     @Override
     protected void onPause() {
+        // the editing session is kept until stopped, the layers are created again on resume
         if (mapView != null) {
             LayerManager.INSTANCE.onPause(mapView);
             mapView.onPause();
@@ -364,6 +372,14 @@ public class MapviewActivity extends AppCompatActivity implements IActivitySuppo
         super.onPause();
     }
 
+    @Override
+    protected void onStop() {
+        // the process can be killed once in the background, so the edits of the session are written now
+        if (!isChangingConfigurations())
+            EditManager.INSTANCE.commitEditJournal(getApplicationContext(), false, null);
+        super.onStop();
+    }
+
     @Override
     protected void onResume() {
         if (mapView != null) {
@@ -375,7 +391,7 @@ public class MapviewActivity extends AppCompatActivity implements IActivitySuppo
         }
         checkLabelButton();
 
-        disableEditing();
+        disableEditing(false);
 
         super.onResume();
     }
@@ -419,8 +435,7 @@ public class MapviewActivity extends AppCompatActivity implements IActivitySuppo
             unregisterReceiver(mapsSupportBroadcastReceiver);
         }
 
-        if (gpsServiceBroadcastReceiver != null)
-            GpsServiceUtilities.unregisterFromBroadcasts(this, gpsServiceBroadcastReceiver);
+        GpsPositionBus.INSTANCE.unsubscribe(gpsPositionListener);
 
 
         try {
@@ -651,19 +666,25 @@ public class MapviewActivity extends AppCompatActivity implements IActivitySuppo
                 }
                 break;
             }
-            case (MapUtilities.SELECTED_FEATURES_UPDATED_RETURN_CODE):
-                if (resultCode == Activity.RESULT_OK) {
-                    ToolGroup activeToolGroup = EditManager.INSTANCE.getActiveToolGroup();
-                    if (activeToolGroup != null) {
+            case (MapUtilities.SELECTED_FEATURES_UPDATED_RETURN_CODE): {
+                Bundle extras = data != null ? data.getExtras() : null;
+                try {
+                    if (resultCode == Activity.RESULT_OK && FeatureSessionStore.INSTANCE.hasFeatures(extras)) {
+                        ToolGroup activeToolGroup = EditManager.INSTANCE.getActiveToolGroup();
                         if (activeToolGroup instanceof OnSelectionToolGroup) {
-                            Bundle extras = data.getExtras();
-                            ArrayList<Feature> featuresList = extras.getParcelableArrayList(FeatureUtilities.KEY_FEATURESLIST);
-                            OnSelectionToolGroup selectionGroup = (OnSelectionToolGroup) activeToolGroup;
-                            selectionGroup.setSelectedFeatures(featuresList);
+                            ArrayList<Feature> featuresList = FeatureSessionStore.INSTANCE.getFeatures(extras);
+                            if (featuresList != null) {
+                                OnSelectionToolGroup selectionGroup = (OnSelectionToolGroup) activeToolGroup;
+                                selectionGroup.setSelectedFeatures(featuresList);
+                            }
                         }
                     }
+                } finally {
+                    // the features are no longer needed, whatever tool is active
+                    FeatureSessionStore.INSTANCE.release(extras);
                 }
                 break;
+            }
         }
     }
 
@@ -776,34 +797,48 @@ public class MapviewActivity extends AppCompatActivity implements IActivitySuppo
         batteryText.setText(sb.toString());
     }
 
-    private void onGpsServiceUpdate(Intent intent) {
-        GpsServiceStatus lastGpsServiceStatus = GpsServiceUtilities.getGpsServiceStatus(intent);
-        GpsLoggingStatus lastGpsLoggingStatus = GpsServiceUtilities.getGpsLoggingStatus(intent);
-        lastGpsPosition = GpsServiceUtilities.getPosition(intent);
-
+    private void onGpsPositionUpdate(GpsPosition position) {
+        GpsServiceStatus lastGpsServiceStatus = position.getStatus();
+        GpsLoggingStatus lastGpsLoggingStatus = position.getLoggingStatus();
 
+        int iconId;
         if (lastGpsServiceStatus == GpsServiceStatus.GPS_OFF) {
-            centerOnGps.setImageDrawable(Compat.getDrawable(this, R.drawable.ic_mapview_center_gps_red_24dp));
+            iconId = R.drawable.ic_mapview_center_gps_red_24dp;
         } else {
             if (lastGpsLoggingStatus == GpsLoggingStatus.GPS_DATABASELOGGING_ON) {
-                centerOnGps.setImageDrawable(Compat.getDrawable(this, R.drawable.ic_mapview_center_gps_blue_24dp));
+                iconId = R.drawable.ic_mapview_center_gps_blue_24dp;
             } else {
                 if (lastGpsServiceStatus == GpsServiceStatus.GPS_FIX) {
-                    centerOnGps.setImageDrawable(Compat.getDrawable(this, R.drawable.ic_mapview_center_gps_green_24dp));
+                    iconId = R.drawable.ic_mapview_center_gps_green_24dp;
                 } else {
-                    centerOnGps.setImageDrawable(Compat.getDrawable(this, R.drawable.ic_mapview_center_gps_orange_24dp));
+                    iconId = R.drawable.ic_mapview_center_gps_orange_24dp;
                 }
             }
         }
-        if (lastGpsPosition == null) {
+        if (iconId != lastCenterOnGpsIconId) {
+            centerOnGps.setImageDrawable(Compat.getDrawable(this, iconId));
+            lastCenterOnGpsIconId = iconId;
+        }
+        if (!position.hasPosition()) {
+            lastGpsPosition = null;
             return;
         }
 
-        float[] lastGpsPositionExtras = GpsServiceUtilities.getPositionExtras(intent);
-        int[] lastGpsStatusExtras = GpsServiceUtilities.getGpsStatusExtras(intent);
+        // the map keeps the last fix position, so the buffers are only reused for fixes
+        boolean hasFix = lastGpsServiceStatus == GpsServiceStatus.GPS_FIX;
+        lastGpsPosition = hasFix ? gpsPositionBuffer : new double[3];
+        float[] lastGpsPositionExtras = hasFix ? gpsPositionExtrasBuffer : new float[3];
+        int[] lastGpsStatusExtras = hasFix ? gpsStatusExtrasBuffer : new int[3];
+        position.fillPosition(lastGpsPosition);
+        position.fillPositionExtras(lastGpsPositionExtras);
+        if (!position.fillGpsStatusExtras(lastGpsStatusExtras)) {
+            lastGpsStatusExtras = null;
+        }
 
         mapView.setGpsStatus(lastGpsServiceStatus, lastGpsPosition, lastGpsPositionExtras, lastGpsStatusExtras, lastGpsLoggingStatus);
 
+        if (GPLog.LOG_ABSURD)
+            GPLog.addLogEntry(this, "Gps fix to map update latency [ms]: " + (System.nanoTime() - position.getPublishNanos()) / 1000000.0); //$NON-NLS-1$
 
         if (mapView.getViewportWidth() <= 0 || mapView.getViewportWidth() <= 0) {
             return;
@@ -1031,7 +1066,7 @@ public class MapviewActivity extends AppCompatActivity implements IActivitySuppo
         checkLabelButton();
 
         if (isEditing) {
-            disableEditing();
+            disableEditing(true);
             mapView.releaseMapBlock();
         } else {
             toggleEditingButton.setImageDrawable(Compat.getDrawable(this, R.drawable.ic_mapview_toggle_editing_on_24dp));
@@ -1059,7 +1094,12 @@ public class MapviewActivity extends AppCompatActivity implements IActivitySuppo
 
     }
 
-    private void disableEditing() {
+    /**
+     * Leave the editing mode.
+     *
+     * @param endSession if <code>true</code>, the edits of the session are written and it ends.
+     */
+    private void disableEditing(boolean endSession) {
         toggleEditingButton.setImageDrawable(Compat.getDrawable(this, R.drawable.ic_mapview_toggle_editing_off_24dp));
         Tool activeTool = EditManager.INSTANCE.getActiveTool();
         if (activeTool != null) {
@@ -1072,6 +1112,9 @@ public class MapviewActivity extends AppCompatActivity implements IActivitySuppo
             EditManager.INSTANCE.setActiveToolGroup(null);
         }
         setLeftButtoonsEnablement(true);
+
+        if (endSession)
+            EditManager.INSTANCE.commitEditJournal(this, true, null);
     }
 
     private void setLeftButtoonsEnablement(boolean enable) {
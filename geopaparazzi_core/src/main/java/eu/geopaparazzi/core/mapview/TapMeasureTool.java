@@ -26,7 +26,6 @@ import android.graphics.Path;
 import android.graphics.Point;
 import android.graphics.Rect;
 import android.graphics.Typeface;
-import android.location.Location;
 import androidx.preference.PreferenceManager;
 import android.util.TypedValue;
 import android.view.MotionEvent;
@@ -38,6 +37,7 @@ import eu.geopaparazzi.core.GeopaparazziApplication;
 import eu.geopaparazzi.core.R;
 import eu.geopaparazzi.core.utilities.Constants;
 import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.library.geodesy.GeodesyUtilities;
 import eu.geopaparazzi.map.GPMapView;
 import eu.geopaparazzi.map.features.editing.EditManager;
 import eu.geopaparazzi.map.features.editing.EditingView;
@@ -192,14 +192,7 @@ public class TapMeasureTool extends MapTool {
                 // the measurement
                 Coordinate previousGeoPoint = projection.fromPixels(round(lastX), round(lastY));
 
-                Location l1 = new Location("gps"); //$NON-NLS-1$
-                l1.setLatitude(previousGeoPoint.x);
-                l1.setLongitude(previousGeoPoint.y);
-                Location l2 = new Location("gps"); //$NON-NLS-1$
-                l2.setLatitude(currentGeoPoint.x);
-                l2.setLongitude(currentGeoPoint.y);
-
-                float distanceTo = l1.distanceTo(l2);
+                float distanceTo = (float) GeodesyUtilities.vincenty(previousGeoPoint.x, previousGeoPoint.y, currentGeoPoint.x, currentGeoPoint.y);
                 lastX = currentX;
                 lastY = currentY;
                 measuredDistance = measuredDistance + distanceTo;
@@ -18,8 +18,6 @@
 package eu.geopaparazzi.core.ui.activities;
 
 import android.app.Activity;
-import android.content.BroadcastReceiver;
-import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.SharedPreferences.Editor;
@@ -45,8 +43,6 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 import androidx.preference.PreferenceManager;
 
-import org.json.JSONObject;
-
 import java.io.File;
 import java.io.IOException;
 import java.util.Set;
@@ -65,8 +61,11 @@ import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.forms.FormActivity;
 import eu.geopaparazzi.library.forms.FormInfoHolder;
 import eu.geopaparazzi.library.forms.TagsManager;
+import eu.geopaparazzi.library.gps.GpsPositionBus;
+import eu.geopaparazzi.library.gps.GpsService;
 import eu.geopaparazzi.library.gps.GpsServiceStatus;
 import eu.geopaparazzi.library.gps.GpsServiceUtilities;
+import eu.geopaparazzi.library.gps.IGpsPositionListener;
 import eu.geopaparazzi.library.images.ImageUtilities;
 import eu.geopaparazzi.library.profiles.ProfilesHandler;
 import eu.geopaparazzi.library.sketch.SketchUtilities;
@@ -97,7 +96,7 @@ public class AddNotesActivity extends AppCompatActivity implements NoteDialogFra
     private String[] tagNamesArray;
     private double[] gpsLocation;
     private Switch togglePositionTypeButtonGps;
-    private BroadcastReceiver broadcastReceiver;
+    private IGpsPositionListener gpsPositionListener;
 
     public static String PREFS_KEY_GUITEXTSIZEFACTOR = "PREFS_KEY_GUI_TEXTSIZE_FACTOR"; //$NON-NLS-1$
     public static String PREFS_KEY_RETURNTOVIEWAFTERNOTE = "PREFS_KEY_RETURNTOVIEWAFTERNOTE"; //$NON-NLS-1$
@@ -159,27 +158,27 @@ public class AddNotesActivity extends AppCompatActivity implements NoteDialogFra
         }
         mapCenterElevation = 0.0;
 
-        broadcastReceiver = new BroadcastReceiver() {
-            public void onReceive(Context context, Intent intent) {
-                GpsServiceStatus gpsServiceStatus = GpsServiceUtilities.getGpsServiceStatus(intent);
-                if (gpsServiceStatus == GpsServiceStatus.GPS_FIX) {
-                    gpsLocation = GpsServiceUtilities.getPosition(intent);
-                    boolean useMapCenterPosition = preferences.getBoolean(FormActivity.USE_MAPCENTER_POSITION, false);
-                    if (useMapCenterPosition) {
-                        togglePositionTypeButtonGps.setChecked(false);
-                    } else {
-                        togglePositionTypeButtonGps.setChecked(true);
-                    }
-                } else {
+        gpsPositionListener = position -> {
+            GpsServiceStatus gpsServiceStatus = position.getStatus();
+            if (gpsServiceStatus == GpsServiceStatus.GPS_FIX && position.hasPosition()) {
+                gpsLocation = new double[3];
+                position.fillPosition(gpsLocation);
+                boolean useMapCenterPosition = preferences.getBoolean(FormActivity.USE_MAPCENTER_POSITION, false);
+                if (useMapCenterPosition) {
                     togglePositionTypeButtonGps.setChecked(false);
-                    togglePositionTypeButtonGps.setEnabled(false);
-                    Editor edit = preferences.edit();
-                    edit.putBoolean(FormActivity.USE_MAPCENTER_POSITION, true);
-                    edit.apply();
+                } else {
+                    togglePositionTypeButtonGps.setChecked(true);
                 }
+            } else {
+                togglePositionTypeButtonGps.setChecked(false);
+                togglePositionTypeButtonGps.setEnabled(false);
+                Editor edit = preferences.edit();
+                edit.putBoolean(FormActivity.USE_MAPCENTER_POSITION, true);
+                edit.apply();
             }
         };
-        GpsServiceUtilities.registerForBroadcasts(this, broadcastReceiver);
+        GpsPositionBus.INSTANCE.subscribe(gpsPositionListener, GpsPositionBus.MAIN_THREAD_EXECUTOR, GpsService.BROADCAST_INTERVAL_MILLIS);
+        // have the service publish its current status, also if it has no new fix
         GpsServiceUtilities.triggerBroadcast(this);
 
         buttonGridView = findViewById(R.id.osmgridview);
@@ -230,8 +229,9 @@ public class AddNotesActivity extends AppCompatActivity implements NoteDialogFra
 
                             // insert note and then work on it
                             try {
-                                JSONObject sectionObject = TagsManager.getInstance(AddNotesActivity.this).getSectionByName(sectionName);
-                                String sectionObjectString = sectionObject.toString();
+                                String sectionObjectString = TagsManager.getInstance(AddNotesActivity.this).getSectionJsonByName(sectionName);
+                                if (sectionObjectString == null)
+                                    throw new IllegalArgumentException("Missing section: " + sectionName);
                                 long noteId = DaoNotes.addNote(longitude, latitude, elevation, new java.util.Date().getTime(), sectionName, "POI", sectionObjectString, null);
 
                                 // launch form activity
@@ -279,8 +279,8 @@ public class AddNotesActivity extends AppCompatActivity implements NoteDialogFra
 
     @Override
     protected void onDestroy() {
-        if (broadcastReceiver != null)
-            GpsServiceUtilities.unregisterFromBroadcasts(this, broadcastReceiver);
+        if (gpsPositionListener != null)
+            GpsPositionBus.INSTANCE.unsubscribe(gpsPositionListener);
         super.onDestroy();
     }
 
@@ -36,6 +36,7 @@ import java.io.File;
 import java.util.List;
 
 import eu.geopaparazzi.core.R;
+import eu.geopaparazzi.core.database.DaoGpsLog;
 import eu.geopaparazzi.library.core.ResourcesManager;
 import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.plugin.ExtensionPoints;
@@ -158,6 +159,12 @@ public class ExportActivity extends AppCompatActivity implements
 
     @Override
     public Uri[] createBeamUris(NfcEvent nfcEvent) {
+        try {
+            // the receiving side might not know the archived logs
+            DaoGpsLog.expandGpsLogs();
+        } catch (Exception e) {
+            GPLog.error(this, null, e);
+        }
         GPLog.addLogEntry(this, "URI SENT: " + mFileUris[0]); //NON-NLS
         return mFileUris;
     }
@@ -66,7 +66,7 @@ import eu.geopaparazzi.library.style.ColorUtilities;
 import eu.geopaparazzi.library.util.DynamicDoubleArray;
 import eu.geopaparazzi.library.util.GPDialogs;
 import eu.geopaparazzi.library.util.LibraryConstants;
-import eu.geopaparazzi.library.util.Utilities;
+import eu.geopaparazzi.library.util.StringAsyncTask;
 import eu.geopaparazzi.map.MapsSupportService;
 
 /**
@@ -86,6 +86,7 @@ public class GpsDataListActivity extends AppCompatActivity implements
     private String logSendingMimeType = "application/eu.geopaparazzi.gpsdatalog_msg";//NON-NLS
     private SharedPreferences mPeferences;
     private ListView mListView;
+    private StringAsyncTask compactTask;
 
     public void onCreate(Bundle icicle) {
         super.onCreate(icicle);
@@ -139,7 +140,7 @@ public class GpsDataListActivity extends AppCompatActivity implements
 
         final byte[] nfcBytes = ndefRecord.getPayload();
         try {
-            final SerializableLogs logs = Utilities.deserializeObject(nfcBytes, SerializableLogs.class);
+            final SerializableLogs logs = SerializableLogs.fromBytes(nfcBytes);
             for (int i = 0; i < logs.getSize(); i++) {
                 LogMapItem log = logs.getLogAt(i);
                 Line logData = logs.getLogDataAt(i);
@@ -195,7 +196,7 @@ public class GpsDataListActivity extends AppCompatActivity implements
                     logs.addLog(logMapItem, line);
                 }
             }
-            byte[] logBytes = Utilities.serializeObject(logs);
+            byte[] logBytes = logs.toBytes(false, true);
 
             return new NdefMessage(NdefRecord.createMime(
                     logSendingMimeType, logBytes)
@@ -353,6 +354,8 @@ public class GpsDataListActivity extends AppCompatActivity implements
             } catch (Exception e) {
                 GPLog.error(this, e.getLocalizedMessage(), e);
             }
+        } else if (item.getItemId() == R.id.action_compact) {
+            compactLogs();
         }
         return super.onOptionsItemSelected(item);
     }
@@ -390,6 +393,37 @@ public class GpsDataListActivity extends AppCompatActivity implements
         }, null);
     }
 
+    private void compactLogs() {
+        GPDialogs.yesNoMessageDialog(this, getString(R.string.compact_logs_prompt), () -> runOnUiThread(() -> {
+            compactTask = new StringAsyncTask(GpsDataListActivity.this) {
+                protected String doBackgroundWork() {
+                    try {
+                        int archived = DaoGpsLog.archiveGpsLogs(true);
+                        return getString(R.string.compacted_log_points) + archived;
+                    } catch (Exception e) {
+                        GPLog.error(this, null, e); //$NON-NLS-1$
+                        return "ERROR: " + e.getLocalizedMessage();
+                    }
+                }
+
+                protected void doUiPostWork(String response) {
+                    dispose();
+                    GPDialogs.infoDialog(GpsDataListActivity.this, response, null);
+                    refreshList(true);
+                }
+            };
+            compactTask.setProgressDialog(null, getString(R.string.compacting_logs), false, null);
+            compactTask.execute();
+        }), null);
+    }
+
+    @Override
+    protected void onDestroy() {
+        if (compactTask != null) compactTask.dispose();
+
+        super.onDestroy();
+    }
+
     @Override
     protected void onPause() {
         try {
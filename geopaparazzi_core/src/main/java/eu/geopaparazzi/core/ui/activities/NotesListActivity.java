@@ -51,7 +51,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import eu.geopaparazzi.core.GeopaparazziApplication;
 import eu.geopaparazzi.core.R;
@@ -259,12 +261,25 @@ public class NotesListActivity extends AppCompatActivity {
         try {
             collectAllNotes();
             visibleNotesList.clear();
-            filterText = filterText.toLowerCase();
-            for (ANote note : allNotesList) {
-                String name = note.getName();
-                String nameLower = name.toLowerCase();
-                if (nameLower.contains(filterText)) {
-                    visibleNotesList.add(note);
+            int equalsIndex = filterText.indexOf('=');
+            if (equalsIndex > 0) {
+                // key=value filters on the form values of the notes
+                String key = filterText.substring(0, equalsIndex).trim();
+                String value = filterText.substring(equalsIndex + 1).trim();
+                Set<Long> noteIds = new HashSet<>(DaoNotes.getNoteIdsByFormValue(null, key, value));
+                for (ANote note : allNotesList) {
+                    if (note instanceof Note && noteIds.contains(note.getId())) {
+                        visibleNotesList.add(note);
+                    }
+                }
+            } else {
+                filterText = filterText.toLowerCase();
+                for (ANote note : allNotesList) {
+                    String name = note.getName();
+                    String nameLower = name.toLowerCase();
+                    if (nameLower.contains(filterText)) {
+                        visibleNotesList.add(note);
+                    }
                 }
             }
         } catch (IOException e) {
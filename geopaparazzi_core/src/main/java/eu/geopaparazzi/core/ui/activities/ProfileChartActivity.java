@@ -19,17 +19,19 @@
 package eu.geopaparazzi.core.ui.activities;
 
 import android.app.Activity;
+import android.content.SharedPreferences;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Paint.Align;
 import android.graphics.PointF;
-import android.location.Location;
 import android.os.Build;
 import android.os.Bundle;
 import android.view.MotionEvent;
 import android.view.View;
 import android.widget.TextView;
 
+import androidx.preference.PreferenceManager;
+
 import com.androidplot.ui.AnchorPosition;
 import com.androidplot.ui.DynamicTableModel;
 import com.androidplot.ui.SizeLayoutType;
@@ -39,28 +41,28 @@ import com.androidplot.ui.YLayoutStyle;
 import com.androidplot.util.PixelUtils;
 import com.androidplot.xy.BoundaryMode;
 import com.androidplot.xy.LineAndPointFormatter;
-import com.androidplot.xy.SimpleXYSeries;
 import com.androidplot.xy.XYGraphWidget;
 import com.androidplot.xy.XYLegendWidget;
 import com.androidplot.xy.XYPlot;
 import com.androidplot.xy.XYSeries;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
-import org.locationtech.jts.geom.Coordinate;
-
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 
 import eu.geopaparazzi.core.R;
 import eu.geopaparazzi.core.database.DaoGpsLog;
 import eu.geopaparazzi.core.database.objects.Line;
 import eu.geopaparazzi.core.utilities.Constants;
-import eu.geopaparazzi.core.utilities.FeatureSlidingAverage;
+import eu.geopaparazzi.library.chart.DownsampledXYSeries;
 import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.library.geodesy.GeodesyUtilities;
+import eu.geopaparazzi.library.smoothing.ESmoothers;
+import eu.geopaparazzi.library.smoothing.ISeriesSmoother;
 import eu.geopaparazzi.library.util.Compat;
 import eu.geopaparazzi.library.util.DynamicDoubleArray;
 import eu.geopaparazzi.library.util.GPDialogs;
+import eu.geopaparazzi.library.util.LibraryConstants;
 import eu.geopaparazzi.library.util.StringAsyncTask;
 
 /**
@@ -73,7 +75,7 @@ public class ProfileChartActivity extends Activity implements View.OnTouchListen
     private XYPlot xyPlotSpeed, xyPlotElev;
     private LineAndPointFormatter seriesSpeedFormat, seriesElevFormat;
 
-    XYSeries seriesSpeed, seriesElev;
+    DownsampledXYSeries seriesSpeed, seriesElev;
     private Line line;
     private PointF minXYSpeed;
     private PointF maxXYSpeed;
@@ -332,6 +334,9 @@ public class ProfileChartActivity extends Activity implements View.OnTouchListen
         }
 
         // Add series to each plot as needed.
+        int maxPoints = getMaxChartPoints();
+        seriesSpeed.resampleAll(maxPoints);
+        seriesElev.resampleAll(maxPoints);
         xyPlotSpeed.addSeries(seriesSpeed, seriesSpeedFormat);
         xyPlotElev.addSeries(seriesElev, seriesElevFormat);
 
@@ -375,79 +380,59 @@ public class ProfileChartActivity extends Activity implements View.OnTouchListen
         DynamicDoubleArray elevArray = line.getAltimList();
         List<String> dates = line.getDateList();
 
-        double previousLat = 0;
-        double previousLon = 0;
-        double summedDistance = 0.0;
+        int size = lonArray.size();
+        double[] finalXArray = GeodesyUtilities.cumulativeDistances(lonArray.getInternalArray(),
+                latArray.getInternalArray(), size, true, null);
+        double[] speedArray = new double[size];
         long previousTime = 0;
-
-        List<Coordinate> elevList = new ArrayList<>(lonArray.size());
-        List<Coordinate> speedList = new ArrayList<>(lonArray.size());
-
-        for (int i = 0; i < lonArray.size(); i++) {
-            double elev = elevArray.get(i);
-            double lat = latArray.get(i);
-            double lon = lonArray.get(i);
-            String dateStr = dates.get(i);
-            long time = Long.parseLong(dateStr);
-
-            double distance = 0.0;
-            double speedKmH = 0.0;
+        for (int i = 0; i < size; i++) {
+            long time = Long.parseLong(dates.get(i));
             if (i > 0) {
-                Location thisLoc = new Location("dummy1"); //$NON-NLS-1$
-                thisLoc.setLongitude(lon);
-                thisLoc.setLatitude(lat);
-                Location thatLoc = new Location("dummy2"); //$NON-NLS-1$
-                thatLoc.setLongitude(previousLon);
-                thatLoc.setLatitude(previousLat);
-                distance = thisLoc.distanceTo(thatLoc);
-
+                double distance = finalXArray[i] - finalXArray[i - 1];
                 double timeSeconds = (time - previousTime) / 1000.0;
-                speedKmH = 3.6 * distance / timeSeconds;
+                speedArray[i] = timeSeconds > 0 ? 3.6 * distance / timeSeconds : speedArray[i - 1];
             }
-
-            previousLat = lat;
-            previousLon = lon;
             previousTime = time;
-
-            summedDistance = summedDistance + distance;
-
-            elevList.add(new Coordinate(summedDistance, elev));
-            speedList.add(new Coordinate(summedDistance, speedKmH));
         }
 
-        int lookAhead = 20;
-        double slide = 1;
-        FeatureSlidingAverage fsaElev = new FeatureSlidingAverage(elevList);
-        List<Coordinate> smoothedElev = fsaElev.smooth(lookAhead, false, slide);
-        FeatureSlidingAverage fsaSpeed = new FeatureSlidingAverage(speedList);
-        List<Coordinate> smoothedSpeed = fsaSpeed.smooth(lookAhead, false, slide);
-
-        int size = lonArray.size();
-        List<Double> finalYList1 = new ArrayList<>(size);
-        List<Double> finalYList2 = new ArrayList<>(lonArray.size());
-        List<Double> finalXList1 = new ArrayList<>(lonArray.size());
+        int window = 21;
+        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(this);
+        String smootherName = preferences.getString(LibraryConstants.PREFS_KEY_PROFILE_SMOOTHER, ESmoothers.MOVING_AVERAGE.name());
+        ESmoothers smootherType = ESmoothers.forName(smootherName, ESmoothers.MOVING_AVERAGE);
+        ISeriesSmoother smoother = smootherType.create(window);
+        double[] finalElevArray = smoother.smooth(elevArray.getInternalArray(), size, null);
+        double[] finalSpeedArray = smoother.smooth(speedArray, size, null);
 
         elevDifference = 0;
-        double previousElev = 0;
-        for (int i = 0; i < size; i++) {
-            Coordinate elev = smoothedElev.get(i);
-            Coordinate speed = smoothedSpeed.get(i);
+        for (int i = 1; i < size; i++) {
+            double diff = finalElevArray[i] - finalElevArray[i - 1];
+            if (diff > 0)
+                elevDifference = elevDifference + diff;
+        }
 
-            finalXList1.add(elev.x);
-            finalYList1.add(elev.y);
-            finalYList2.add(speed.y);
+        // Setup the Series
+        seriesElev = new DownsampledXYSeries(finalXArray, finalElevArray, size, getString(R.string.chart_elev));
+        seriesSpeed = new DownsampledXYSeries(finalXArray, finalSpeedArray, size, getString(R.string.chart_speed));
+    }
 
-            if (i > 0) {
-                double diff = elev.y - previousElev;
-                if (diff > 0)
-                    elevDifference = elevDifference + diff;
-            }
-            previousElev = elev.y;
+    /**
+     * @return the maximum number of points to show in the charts, i.e. twice the plot width.
+     */
+    private int getMaxChartPoints() {
+        int width = xyPlotSpeed.getWidth();
+        if (width <= 0) {
+            width = getResources().getDisplayMetrics().widthPixels;
         }
+        return 2 * width;
+    }
 
-        // Setup the Series
-        seriesElev = new SimpleXYSeries(finalXList1, finalYList1, getString(R.string.chart_elev));
-        seriesSpeed = new SimpleXYSeries(finalXList1, finalYList2, getString(R.string.chart_speed));
+    /**
+     * Resample the series so that full detail is shown in the visible domain window.
+     */
+    private void resampleVisibleSeries() {
+        int maxPoints = getMaxChartPoints();
+        seriesSpeed.resample(minXYSpeed.x, maxXYSpeed.x, maxPoints);
+        seriesElev.resample(minXYElevation.x, maxXYElevation.x, maxPoints);
     }
 
     // Definition of the touch states
@@ -497,6 +482,7 @@ public class ProfileChartActivity extends Activity implements View.OnTouchListen
                                 BoundaryMode.FIXED);
                         xyPlotElev.setDomainBoundaries(minXYElevation.x, maxXYElevation.x,
                                 BoundaryMode.FIXED);
+                        resampleVisibleSeries();
                         xyPlotSpeed.redraw();
                         xyPlotElev.redraw();
 
@@ -509,6 +495,7 @@ public class ProfileChartActivity extends Activity implements View.OnTouchListen
                                 BoundaryMode.FIXED);
                         xyPlotElev.setDomainBoundaries(minXYElevation.x, maxXYElevation.x,
                                 BoundaryMode.FIXED);
+                        resampleVisibleSeries();
                         xyPlotSpeed.redraw();
                         xyPlotElev.redraw();
                     }
@@ -529,9 +516,8 @@ public class ProfileChartActivity extends Activity implements View.OnTouchListen
         minXYSpeed.x = domainMidPoint - offset;
         maxXYSpeed.x = domainMidPoint + offset;
 
-        minXYSpeed.x = Math.min(minXYSpeed.x, seriesSpeed.getX(seriesSpeed.size() - 3)
-                .floatValue());
-        maxXYSpeed.x = Math.max(maxXYSpeed.x, seriesSpeed.getX(1).floatValue());
+        minXYSpeed.x = Math.min(minXYSpeed.x, (float) seriesSpeed.getFullX(seriesSpeed.getFullSize() - 3));
+        maxXYSpeed.x = Math.max(maxXYSpeed.x, (float) seriesSpeed.getFullX(1));
         clampToDomainBoundsElev(domainSpan);
     }
 
@@ -543,9 +529,8 @@ public class ProfileChartActivity extends Activity implements View.OnTouchListen
         minXYElevation.x = domainMidPoint - offset;
         maxXYElevation.x = domainMidPoint + offset;
 
-        minXYElevation.x = Math.min(minXYElevation.x, seriesElev.getX(seriesElev.size() - 3)
-                .floatValue());
-        maxXYElevation.x = Math.max(maxXYElevation.x, seriesElev.getX(1).floatValue());
+        minXYElevation.x = Math.min(minXYElevation.x, (float) seriesElev.getFullX(seriesElev.getFullSize() - 3));
+        maxXYElevation.x = Math.max(maxXYElevation.x, (float) seriesElev.getFullX(1));
         clampToDomainBoundsSpeed(domainSpan);
     }
 
@@ -568,26 +553,26 @@ public class ProfileChartActivity extends Activity implements View.OnTouchListen
     }
 
     private void clampToDomainBoundsElev(float domainSpan) {
-        float leftBoundary = seriesSpeed.getX(0).floatValue();
-        float rightBoundary = seriesSpeed.getX(seriesSpeed.size() - 1).floatValue();
+        float leftBoundary = (float) seriesSpeed.getFullMinX();
+        float rightBoundary = (float) seriesSpeed.getFullMaxX();
         // enforce left scroll boundary:
         if (minXYSpeed.x < leftBoundary) {
             minXYSpeed.x = leftBoundary;
             maxXYSpeed.x = leftBoundary + domainSpan;
-        } else if (maxXYSpeed.x > seriesSpeed.getX(seriesSpeed.size() - 1).floatValue()) {
+        } else if (maxXYSpeed.x > (float) seriesSpeed.getFullMaxX()) {
             maxXYSpeed.x = rightBoundary;
             minXYSpeed.x = rightBoundary - domainSpan;
         }
     }
 
     private void clampToDomainBoundsSpeed(float domainSpan) {
-        float leftBoundary = seriesElev.getX(0).floatValue();
-        float rightBoundary = seriesElev.getX(seriesElev.size() - 1).floatValue();
+        float leftBoundary = (float) seriesElev.getFullMinX();
+        float rightBoundary = (float) seriesElev.getFullMaxX();
         // enforce left scroll boundary:
         if (minXYElevation.x < leftBoundary) {
             minXYElevation.x = leftBoundary;
             maxXYElevation.x = leftBoundary + domainSpan;
-        } else if (maxXYElevation.x > seriesElev.getX(seriesElev.size() - 1).floatValue()) {
+        } else if (maxXYElevation.x > (float) seriesElev.getFullMaxX()) {
             maxXYElevation.x = rightBoundary;
             minXYElevation.x = rightBoundary - domainSpan;
         }
@@ -601,12 +586,15 @@ public class ProfileChartActivity extends Activity implements View.OnTouchListen
 
     @Override
     public void onClick(View v) {
-        minXYSpeed.x = seriesSpeed.getX(0).floatValue();
-        maxXYSpeed.x = seriesSpeed.getX(seriesSpeed.size() - 1).floatValue();
+        minXYSpeed.x = (float) seriesSpeed.getFullMinX();
+        maxXYSpeed.x = (float) seriesSpeed.getFullMaxX();
         xyPlotSpeed.setDomainBoundaries(minXYSpeed.x, maxXYSpeed.x, BoundaryMode.FIXED);
-        minXYElevation.x = seriesElev.getX(0).floatValue();
-        maxXYElevation.x = seriesElev.getX(seriesElev.size() - 1).floatValue();
+        minXYElevation.x = (float) seriesElev.getFullMinX();
+        maxXYElevation.x = (float) seriesElev.getFullMaxX();
         xyPlotElev.setDomainBoundaries(minXYElevation.x, maxXYSpeed.x, BoundaryMode.FIXED);
+        int maxPoints = getMaxChartPoints();
+        seriesSpeed.resampleAll(maxPoints);
+        seriesElev.resampleAll(maxPoints);
 
         xyPlotElev.redraw();
         xyPlotSpeed.redraw();
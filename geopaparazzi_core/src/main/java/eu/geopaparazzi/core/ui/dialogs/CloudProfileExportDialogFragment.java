@@ -29,6 +29,7 @@ import android.widget.ProgressBar;
 import androidx.fragment.app.DialogFragment;
 
 import eu.geopaparazzi.core.R;
+import eu.geopaparazzi.core.database.DaoGpsLog;
 import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.webprofile.WebProfileManager;
 
@@ -111,6 +112,8 @@ public class CloudProfileExportDialogFragment extends DialogFragment {
         new AsyncTask<String, Void, String>() {
             protected String doInBackground(String... params) {
                 try {
+                    // the server reads the logs from the gpslogsdata table
+                    DaoGpsLog.expandGpsLogs();
                     return WebProfileManager.INSTANCE.uploadProfile(getActivity(), serverUrl, user, pwd);
                 } catch (Exception e) {
                     GPLog.error(this, e.getLocalizedMessage(), e);
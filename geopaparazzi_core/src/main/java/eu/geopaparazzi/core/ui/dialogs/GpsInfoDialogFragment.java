@@ -20,7 +20,6 @@ package eu.geopaparazzi.core.ui.dialogs;
 
 import android.app.AlertDialog;
 import android.app.Dialog;
-import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.hardware.SensorManager;
@@ -36,8 +35,11 @@ import java.util.Date;
 
 import eu.geopaparazzi.core.R;
 import eu.geopaparazzi.library.gps.GpsLoggingStatus;
+import eu.geopaparazzi.library.gps.GpsPosition;
+import eu.geopaparazzi.library.gps.GpsPositionBus;
+import eu.geopaparazzi.library.gps.GpsService;
 import eu.geopaparazzi.library.gps.GpsServiceStatus;
-import eu.geopaparazzi.library.gps.GpsServiceUtilities;
+import eu.geopaparazzi.library.gps.IGpsPositionListener;
 import eu.geopaparazzi.library.sensors.OrientationSensor;
 import eu.geopaparazzi.library.util.TimeUtilities;
 
@@ -50,7 +52,7 @@ import eu.geopaparazzi.library.util.TimeUtilities;
 public class GpsInfoDialogFragment extends DialogFragment {
     private TextView gpsInfoTextview;
     private OrientationSensor orientationSensor;
-    private BroadcastReceiver gpsServiceBroadcastReceiver;
+    private final IGpsPositionListener gpsPositionListener = this::onGpsPositionUpdate;
 
     @Override
     public Dialog onCreateDialog(Bundle bundle) {
@@ -82,13 +84,7 @@ public class GpsInfoDialogFragment extends DialogFragment {
         orientationSensor = new OrientationSensor(sensorManager, null);
         orientationSensor.register(getActivity(), SensorManager.SENSOR_DELAY_NORMAL);
 
-        gpsServiceBroadcastReceiver = new BroadcastReceiver() {
-            public void onReceive(Context context, Intent intent) {
-                onGpsServiceUpdate(intent);
-            }
-        };
-        GpsServiceUtilities.registerForBroadcasts(getActivity(), gpsServiceBroadcastReceiver);
-        GpsServiceUtilities.triggerBroadcast(getActivity());
+        GpsPositionBus.INSTANCE.subscribe(gpsPositionListener, GpsPositionBus.MAIN_THREAD_EXECUTOR, GpsService.BROADCAST_INTERVAL_MILLIS);
     }
 
     @Override
@@ -96,18 +92,32 @@ public class GpsInfoDialogFragment extends DialogFragment {
         super.onDetach();
 
         orientationSensor.unregister();
-        GpsServiceUtilities.unregisterFromBroadcasts(getActivity(), gpsServiceBroadcastReceiver);
+        GpsPositionBus.INSTANCE.unsubscribe(gpsPositionListener);
     }
 
-    private void onGpsServiceUpdate(Intent intent) {
-        GpsServiceStatus lastGpsServiceStatus = GpsServiceUtilities.getGpsServiceStatus(intent);
-        GpsLoggingStatus lastGpsLoggingStatus = GpsServiceUtilities.getGpsLoggingStatus(intent);
-        double[] lastGpsPosition = GpsServiceUtilities.getPosition(intent);
-        float[] lastGpsPositionExtras = GpsServiceUtilities.getPositionExtras(intent);
-        int[] lastGpsStatusExtras = GpsServiceUtilities.getGpsStatusExtras(intent);
-        long lastPositiontime = GpsServiceUtilities.getPositionTime(intent);
-
+    private void onGpsPositionUpdate(GpsPosition position) {
         Context context = getActivity();
+        if (context == null) return;
+        GpsServiceStatus lastGpsServiceStatus = position.getStatus();
+        GpsLoggingStatus lastGpsLoggingStatus = position.getLoggingStatus();
+        double[] lastGpsPosition = new double[3];
+        float[] lastGpsPositionExtras = new float[3];
+        if (!position.fillPosition(lastGpsPosition)) {
+            lastGpsPosition = null;
+            lastGpsPositionExtras = null;
+        } else {
+            position.fillPositionExtras(lastGpsPositionExtras);
+        }
+        int[] lastGpsStatusExtras = new int[3];
+        if (!position.fillGpsStatusExtras(lastGpsStatusExtras)) {
+            lastGpsStatusExtras = null;
+        }
+        long lastPositiontime = position.getTime();
+        double[] lastSmoothedPosition = null;
+        if (position.hasSmoothed()) {
+            lastSmoothedPosition = new double[]{position.getSmoothedElevation(), position.getSmoothedSpeed()};
+        }
+
         String timeString = context.getString(R.string.utctime);
         String lonString = context.getString(R.string.lon);
         String latString = context.getString(R.string.lat);
@@ -181,6 +191,14 @@ public class GpsInfoDialogFragment extends DialogFragment {
             sb.append(indent).append(altimString);
             sb.append(" ").append(elev).append(gpsUnits); //$NON-NLS-1$
             sb.append("\n");
+            if (lastSmoothedPosition != null) {
+                sb.append(indent).append(context.getString(R.string.smoothed_altim));
+                sb.append(" ").append((int) lastSmoothedPosition[0]).append(gpsUnits); //$NON-NLS-1$
+                sb.append("\n");
+                sb.append(indent).append(context.getString(R.string.smoothed_speed));
+                sb.append(" ").append((int) (lastSmoothedPosition[1] * 3.6)).append(" km/h"); //$NON-NLS-1$
+                sb.append("\n");
+            }
             sb.append(indent).append(loggingString);
             sb.append(": ").append(lastGpsLoggingStatus == GpsLoggingStatus.GPS_DATABASELOGGING_ON); //$NON-NLS-1$
             sb.append("\n");
@@ -31,6 +31,7 @@ import androidx.annotation.NonNull;
 import androidx.fragment.app.DialogFragment;
 
 import eu.geopaparazzi.core.R;
+import eu.geopaparazzi.core.database.DaoGpsLog;
 import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.webproject.WebProjectManager;
 
@@ -113,6 +114,8 @@ public class StageExportDialogFragment extends DialogFragment {
         new AsyncTask<String, Void, String>() {
             protected String doInBackground(String... params) {
                 try {
+                    // the server reads the logs from the gpslogsdata table
+                    DaoGpsLog.expandGpsLogs();
                     return WebProjectManager.INSTANCE.uploadProject(getActivity(), serverUrl, user, pwd);
                 } catch (Exception e) {
                     GPLog.error(this, e.getLocalizedMessage(), e);
@@ -35,25 +35,33 @@
 package eu.geopaparazzi.library.bluetooth;
 
 import android.bluetooth.BluetoothSocket;
-import android.os.SystemClock;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.PrintStream;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.library.gps.nmea.GgaSentence;
+import eu.geopaparazzi.library.gps.nmea.GsaSentence;
+import eu.geopaparazzi.library.gps.nmea.GstSentence;
+import eu.geopaparazzi.library.gps.nmea.INmeaListener;
+import eu.geopaparazzi.library.gps.nmea.NmeaParser;
+import eu.geopaparazzi.library.gps.nmea.NmeaSentence;
+import eu.geopaparazzi.library.gps.nmea.RmcSentence;
 
 /**
  * A utility class used to manage the communication with the bluetooth GPS whn the connection has been established.
  * It is used to read NMEA data from the GPS or to send SIRF III binary commands or SIRF III NMEA commands to the GPS.
  * You should run the main read loop in one thread and send the commands in a separate one.
  *
+ * <p>The read loop blocks on the stream and feeds the bytes to a {@link NmeaParser}. Parsed
+ * sentences go to the {@link INmeaListener}s without creating strings, the string based
+ * {@link IBluetoothListener}s get each sentence as string only if there are any registered.</p>
+ *
  * @author Herbert von Broeuschmeul
  * @author Andrea Antonello (www.hydrologis.com)
  */
@@ -84,6 +92,12 @@ public class NmeaGpsDevice implements IBluetoothIOHandler {
     private boolean enabled;
 
     private List<IBluetoothListener> bluetoothListeners = new ArrayList<>();
+    private final List<INmeaListener> nmeaListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Size of the buffer the stream is read into.
+     */
+    private static final int READ_BUFFER_SIZE = 1024;
 
     /* (non-Javadoc)
      * @see eu.geopaparazzi.library.bluetooth_tmp.IBluetoothDevice#prepare(android.bluetooth.BluetoothSocket, eu.geopaparazzi.library.bluetooth_tmp.BluetoothEnablementHandler)
@@ -142,47 +156,81 @@ public class NmeaGpsDevice implements IBluetoothIOHandler {
     }
 
     public void run() {
+        NmeaParser parser = new NmeaParser(nmeaDispatcher);
+        byte[] readBuffer = new byte[READ_BUFFER_SIZE];
         try {
-            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
-            String s;
-            long now = SystemClock.uptimeMillis();
-            long lastRead = now;
-            while ((enabled) && (now < lastRead + 5000)) {
-                if (reader.ready()) {
-                    s = reader.readLine();
-                    // if (Debug.D)
-                    // Logger.i(LOG_TAG, "data: " + System.currentTimeMillis() + " " + s);
-                    notifySentence(s + "\r\n");
-                    ready = true;
-                    lastRead = SystemClock.uptimeMillis();
-                } else {
-                    // if (Debug.D)
-                    // Logger.d(LOG_TAG, "data: not ready " + System.currentTimeMillis());
-                    SystemClock.sleep(50);
-                }
-                now = SystemClock.uptimeMillis();
+            int read;
+            // the read blocks until data arrive, closing the socket unblocks it
+            while (enabled && (read = in.read(readBuffer)) != -1) {
+                parser.parse(readBuffer, 0, read, System.currentTimeMillis());
             }
         } catch (IOException e) {
-            error("error while getting data", e);
+            if (enabled)
+                error("error while getting data", e);
         } finally {
+            if (GPLog.LOG_HEAVY)
+                log("nmea sentences: " + parser.getSentenceCount() + ", checksum errors: " + parser.getChecksumErrorCount()
+                        + ", too long: " + parser.getOverflowCount());
             // cleanly closing everything...
             this.close();
         }
     }
 
+    private final INmeaListener nmeaDispatcher = new INmeaListener() {
+        @Override
+        public void onSentence(NmeaSentence sentence) {
+            ready = true;
+            if (!enabled) return;
+            for (INmeaListener listener : nmeaListeners) {
+                listener.onSentence(sentence);
+            }
+            if (bluetoothListeners.size() > 0) {
+                notifySentence(sentence.getTimestamp(), sentence.toString() + "\r\n");
+            }
+        }
+
+        @Override
+        public void onGga(GgaSentence gga) {
+            if (!enabled) return;
+            for (INmeaListener listener : nmeaListeners) {
+                listener.onGga(gga);
+            }
+        }
+
+        @Override
+        public void onRmc(RmcSentence rmc) {
+            if (!enabled) return;
+            for (INmeaListener listener : nmeaListeners) {
+                listener.onRmc(rmc);
+            }
+        }
+
+        @Override
+        public void onGsa(GsaSentence gsa) {
+            if (!enabled) return;
+            for (INmeaListener listener : nmeaListeners) {
+                listener.onGsa(gsa);
+            }
+        }
+
+        @Override
+        public void onGst(GstSentence gst) {
+            if (!enabled) return;
+            for (INmeaListener listener : nmeaListeners) {
+                listener.onGst(gst);
+            }
+        }
+    };
+
     /**
      * Notifies the reception of a string from the bluetooth device to registered {@link IBluetoothListener}s.
      *
-     * @param sentence the complete NMEA sentence received from the bluetooth GPS (i.e. $....*XY where XY is the checksum)
+     * @param timestamp the time the sentence was received.
+     * @param sentence  the complete NMEA sentence received from the bluetooth GPS (i.e. $....*XY where XY is the checksum)
      */
-    private void notifySentence(final String sentence) {
-        if (enabled) {
-            final long timestamp = System.currentTimeMillis();
-            if (sentence != null) {
-                for (final IBluetoothListener listener : bluetoothListeners) {
-                    listener.onDataReceived(timestamp, sentence);
-                }
-            }
+    private void notifySentence(long timestamp, String sentence) {
+        for (final IBluetoothListener listener : bluetoothListeners) {
+            listener.onDataReceived(timestamp, sentence);
         }
     }
 
@@ -251,6 +299,7 @@ public class NmeaGpsDevice implements IBluetoothIOHandler {
                 }
             }
             bluetoothListeners.clear();
+            nmeaListeners.clear();
         }
     }
 
@@ -274,6 +323,31 @@ public class NmeaGpsDevice implements IBluetoothIOHandler {
         bluetoothListeners.remove(listener);
     }
 
+    /**
+     * Add a listener of the parsed NMEA sentences.
+     *
+     * <p>The listener is called from the reading thread.</p>
+     *
+     * @param listener the listener to add.
+     * @return <code>true</code> if the listener was added.
+     */
+    public boolean addNmeaListener(INmeaListener listener) {
+        if (!nmeaListeners.contains(listener)) {
+            nmeaListeners.add(listener);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Remove a listener of the parsed NMEA sentences.
+     *
+     * @param listener the listener to remove.
+     */
+    public void removeNmeaListener(INmeaListener listener) {
+        nmeaListeners.remove(listener);
+    }
+
     @Override
     public String checkRequirements() {
         return null;
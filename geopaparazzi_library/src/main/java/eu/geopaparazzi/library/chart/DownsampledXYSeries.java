@@ -0,0 +1,141 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.chart;
+
+import com.androidplot.xy.XYSeries;
+
+/**
+ * An {@link XYSeries} backed by primitive arrays that exposes only a downsampled
+ * view of the data in the currently visible domain window.
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class DownsampledXYSeries implements XYSeries {
+
+    private final String title;
+    private final double[] x;
+    private final double[] y;
+    private final int count;
+
+    private double[] visibleX = new double[0];
+    private double[] visibleY = new double[0];
+    private int visibleCount = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param x     the full x values, sorted ascending.
+     * @param y     the full y values.
+     * @param count the number of valid values in the arrays.
+     * @param title the series title.
+     */
+    public DownsampledXYSeries(double[] x, double[] y, int count, String title) {
+        this.x = x;
+        this.y = y;
+        this.count = count;
+        this.title = title;
+    }
+
+    /**
+     * Resample the series for the given domain window.
+     *
+     * <p>One point outside of the window is kept on each side, so that the
+     * line reaches the plot borders.</p>
+     *
+     * @param minX      the visible minimum x.
+     * @param maxX      the visible maximum x.
+     * @param maxPoints the maximum number of points to expose, usually about twice the plot width in pixels.
+     */
+    public synchronized void resample(double minX, double maxX, int maxPoints) {
+        if (count == 0) {
+            visibleCount = 0;
+            return;
+        }
+        int from = LttbDownsampler.floorIndex(x, count, minX);
+        int to = Math.min(count, LttbDownsampler.floorIndex(x, count, maxX) + 2);
+        if (visibleX.length < maxPoints) {
+            visibleX = new double[maxPoints];
+            visibleY = new double[maxPoints];
+        }
+        visibleCount = LttbDownsampler.downsample(x, y, from, to, maxPoints, visibleX, visibleY);
+    }
+
+    /**
+     * Resample the series over the whole domain.
+     *
+     * @param maxPoints the maximum number of points to expose.
+     */
+    public void resampleAll(int maxPoints) {
+        if (count == 0) {
+            visibleCount = 0;
+            return;
+        }
+        resample(x[0], x[count - 1], maxPoints);
+    }
+
+    /**
+     * @return the number of points of the full series.
+     */
+    public int getFullSize() {
+        return count;
+    }
+
+    /**
+     * @return the first x value of the full series.
+     */
+    public double getFullMinX() {
+        return x[0];
+    }
+
+    /**
+     * @return the last x value of the full series.
+     */
+    public double getFullMaxX() {
+        return x[count - 1];
+    }
+
+    /**
+     * Get an x value of the full series.
+     *
+     * @param index the index.
+     * @return the x value.
+     */
+    public double getFullX(int index) {
+        return x[index];
+    }
+
+    @Override
+    public String getTitle() {
+        return title;
+    }
+
+    @Override
+    public synchronized int size() {
+        return visibleCount;
+    }
+
+    @Override
+    public synchronized Number getX(int index) {
+        return visibleX[index];
+    }
+
+    @Override
+    public synchronized Number getY(int index) {
+        return visibleY[index];
+    }
+}
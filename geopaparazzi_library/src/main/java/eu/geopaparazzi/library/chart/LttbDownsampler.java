@@ -0,0 +1,133 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.chart;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling of xy series held in primitive arrays.
+ *
+ * <p>See: Sveinn Steinarsson, Downsampling Time Series for Visual Representation, 2013.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public final class LttbDownsampler {
+
+    private LttbDownsampler() {
+    }
+
+    /**
+     * Downsample a range of a series.
+     *
+     * <p>The x values are supposed to be sorted ascending. The first and
+     * last point of the range are always kept.</p>
+     *
+     * @param x         the x values.
+     * @param y         the y values.
+     * @param from      the first index of the range (inclusive).
+     * @param to        the last index of the range (exclusive).
+     * @param threshold the maximum number of points to produce.
+     * @param outX      the array to fill with the resulting x values, at least <code>threshold</code> long.
+     * @param outY      the array to fill with the resulting y values, at least <code>threshold</code> long.
+     * @return the number of points written to the output arrays.
+     */
+    public static int downsample(double[] x, double[] y, int from, int to, int threshold, double[] outX, double[] outY) {
+        int count = to - from;
+        if (count <= 0) {
+            return 0;
+        }
+        if (threshold >= count || threshold < 3) {
+            int n = Math.min(count, outX.length);
+            System.arraycopy(x, from, outX, 0, n);
+            System.arraycopy(y, from, outY, 0, n);
+            return n;
+        }
+
+        double every = (double) (count - 2) / (threshold - 2);
+        int a = from;
+        int index = 0;
+        outX[index] = x[a];
+        outY[index] = y[a];
+        index++;
+
+        for (int i = 0; i < threshold - 2; i++) {
+            // average of the next bucket, used as third triangle vertex
+            int avgStart = from + (int) Math.floor((i + 1) * every) + 1;
+            int avgEnd = from + (int) Math.floor((i + 2) * every) + 1;
+            if (avgEnd > to) avgEnd = to;
+            double avgX = 0;
+            double avgY = 0;
+            int avgLength = avgEnd - avgStart;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += x[j];
+                avgY += y[j];
+            }
+            if (avgLength > 0) {
+                avgX /= avgLength;
+                avgY /= avgLength;
+            } else {
+                avgX = x[to - 1];
+                avgY = y[to - 1];
+            }
+
+            // the point of the current bucket that builds the largest triangle
+            int rangeStart = from + (int) Math.floor(i * every) + 1;
+            int rangeEnd = from + (int) Math.floor((i + 1) * every) + 1;
+            double ax = x[a];
+            double ay = y[a];
+            double maxArea = -1;
+            int next = rangeStart;
+            for (int j = rangeStart; j < rangeEnd; j++) {
+                double area = Math.abs((ax - avgX) * (y[j] - ay) - (ax - x[j]) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = j;
+                }
+            }
+            outX[index] = x[next];
+            outY[index] = y[next];
+            index++;
+            a = next;
+        }
+
+        outX[index] = x[to - 1];
+        outY[index] = y[to - 1];
+        index++;
+        return index;
+    }
+
+    /**
+     * Find the index of the last x value that is smaller or equal to the given value.
+     *
+     * @param x     the sorted x values.
+     * @param count the number of valid values.
+     * @param value the value to search.
+     * @return the index, 0 if the value is before the first x.
+     */
+    public static int floorIndex(double[] x, int count, double value) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (x[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return Math.max(0, high);
+    }
+}
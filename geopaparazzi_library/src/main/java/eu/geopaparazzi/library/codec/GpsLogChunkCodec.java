@@ -0,0 +1,216 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.codec;
+
+import java.io.IOException;
+
+/**
+ * Codec for chunks of gps log points, as stored in the archive table.
+ *
+ * <p>Layout:
+ * <pre>
+ * version (1 byte) | flags (1 byte) | [xy resolution, z resolution (doubles), if quantized]
+ * | point count (varint) | [uncompressed payload size (varint), if compressed] | points (see {@link PointsCodec})
+ * </pre>
+ * </p>
+ *
+ * <p>An instance keeps its decoding buffers between calls, so that a whole log can be
+ * streamed chunk by chunk without allocating per point. Instances are not thread safe.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class GpsLogChunkCodec {
+    /**
+     * The current chunk format version.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The default number of points per chunk.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    private static final int FLAG_QUANTIZED = 1;
+    private static final int FLAG_COMPRESSED = 2;
+
+    private final double xyResolution;
+    private final double zResolution;
+    private final boolean compress;
+
+    private final VarIntOutput payload = new VarIntOutput(DEFAULT_CHUNK_SIZE * 8);
+    private final VarIntInput input = new VarIntInput(new byte[0], 0, 0);
+    private byte[] inflated = new byte[0];
+
+    private int count = 0;
+    private double[] lons = new double[0];
+    private double[] lats = new double[0];
+    private double[] elevs = new double[0];
+    private long[] times = new long[0];
+
+    /**
+     * Create a codec with the default archive settings, i.e. lossless and deflated.
+     *
+     * <p>The archive replaces the original points, so it must not lose precision. Quantization,
+     * for example to {@link GpsLogCodec#DEFAULT_XY_RESOLUTION} and {@link GpsLogCodec#DEFAULT_Z_RESOLUTION},
+     * has to be asked explicitly through {@link #GpsLogChunkCodec(double, double, boolean)}.</p>
+     */
+    public GpsLogChunkCodec() {
+        this(-1, -1, true);
+    }
+
+    /**
+     * Create a codec.
+     *
+     * @param xyResolution the resolution in degrees to quantize lon/lat to. If <= 0, no quantization is done.
+     * @param zResolution  the resolution in meters to quantize the elevation to. If <= 0, no quantization is done.
+     * @param compress     if <code>true</code>, the points are deflated.
+     */
+    public GpsLogChunkCodec(double xyResolution, double zResolution, boolean compress) {
+        this.xyResolution = xyResolution;
+        this.zResolution = zResolution;
+        this.compress = compress;
+    }
+
+    /**
+     * Encode a range of points into a chunk.
+     *
+     * @param lons  the longitudes.
+     * @param lats  the latitudes.
+     * @param elevs the elevations.
+     * @param times the timestamps.
+     * @param from  the index of the first point.
+     * @param count the number of points.
+     * @return the encoded chunk.
+     */
+    public byte[] encode(double[] lons, double[] lats, double[] elevs, long[] times, int from, int count) {
+        payload.reset();
+        PointsCodec.encode(payload, lons, lats, elevs, times, from, count, xyResolution, zResolution);
+
+        boolean quantized = xyResolution > 0 || zResolution > 0;
+        int flags = 0;
+        if (quantized) flags |= FLAG_QUANTIZED;
+        if (compress) flags |= FLAG_COMPRESSED;
+
+        VarIntOutput out = new VarIntOutput(payload.size() / 2 + 32);
+        out.writeByte(VERSION);
+        out.writeByte(flags);
+        if (quantized) {
+            out.writeDouble(xyResolution);
+            out.writeDouble(zResolution);
+        }
+        out.writeVarLong(count);
+        if (compress) {
+            out.writeVarLong(payload.size());
+            GpsLogCodec.deflate(payload.getInternalBuffer(), 0, payload.size(), out);
+        } else {
+            out.writeBytes(payload.getInternalBuffer(), 0, payload.size());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode a chunk into the internal buffers.
+     *
+     * <p>The points are then available through {@link #getCount()} and the array getters,
+     * until the next call.</p>
+     *
+     * @param chunk the encoded chunk.
+     * @return the number of decoded points.
+     * @throws IOException if the data are of an unsupported version or corrupted.
+     */
+    public int decode(byte[] chunk) throws IOException {
+        VarIntInput in = input;
+        in.reset(chunk, 0, chunk.length);
+        int version = in.readByte();
+        if (version > VERSION) {
+            throw new IOException("Unsupported gps log chunk version: " + version);
+        }
+        int flags = in.readByte();
+        double xyRes = -1;
+        double zRes = -1;
+        if ((flags & FLAG_QUANTIZED) != 0) {
+            xyRes = in.readDouble();
+            zRes = in.readDouble();
+        }
+        long pointsCount = in.readVarLong();
+        if (pointsCount < 0 || pointsCount > Integer.MAX_VALUE) {
+            throw new IOException("Invalid points count: " + pointsCount);
+        }
+        if ((flags & FLAG_COMPRESSED) != 0) {
+            long size = in.readVarLong();
+            if (size < 0 || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid payload size: " + size);
+            }
+            if (inflated.length < size) {
+                inflated = new byte[(int) size];
+            }
+            int start = in.getPosition();
+            GpsLogCodec.inflate(chunk, start, chunk.length - start, inflated, (int) size);
+            in.reset(inflated, 0, (int) size);
+        }
+
+        ensureCapacity((int) pointsCount);
+        PointsCodec.decode(in, lons, lats, elevs, times, 0, (int) pointsCount, xyRes, zRes);
+        count = (int) pointsCount;
+        return count;
+    }
+
+    private void ensureCapacity(int size) {
+        if (lons.length < size) {
+            lons = new double[size];
+            lats = new double[size];
+            elevs = new double[size];
+            times = new long[size];
+        }
+    }
+
+    /**
+     * @return the number of points of the last decoded chunk.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the longitudes of the last decoded chunk, valid up to {@link #getCount()}.
+     */
+    public double[] getLons() {
+        return lons;
+    }
+
+    /**
+     * @return the latitudes of the last decoded chunk, valid up to {@link #getCount()}.
+     */
+    public double[] getLats() {
+        return lats;
+    }
+
+    /**
+     * @return the elevations of the last decoded chunk, valid up to {@link #getCount()}.
+     */
+    public double[] getElevs() {
+        return elevs;
+    }
+
+    /**
+     * @return the timestamps of the last decoded chunk, valid up to {@link #getCount()}.
+     */
+    public long[] getTimes() {
+        return times;
+    }
+}
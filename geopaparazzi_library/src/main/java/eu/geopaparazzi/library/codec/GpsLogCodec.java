@@ -0,0 +1,273 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.codec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact, versioned binary format for the interchange of gps logs.
+ *
+ * <p>Layout:
+ * <pre>
+ * magic "GPLG" | version (1 byte) | flags (1 byte) | [xy resolution, z resolution (doubles), if quantized]
+ * | [uncompressed payload size (varint), if compressed] | payload
+ *
+ * payload: log count (varint), then for each log:
+ * name | color | width | start time | end time - start time | point count | points (see {@link PointsCodec})
+ * </pre>
+ * </p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class GpsLogCodec {
+    /**
+     * The current format version.
+     */
+    public static final int VERSION = 1;
+
+    private static final byte[] MAGIC = {'G', 'P', 'L', 'G'};
+    private static final int FLAG_QUANTIZED = 1;
+    private static final int FLAG_COMPRESSED = 2;
+
+    /**
+     * The max size of decoded data, to reject corrupted sizes before allocating.
+     */
+    static final int MAX_DECODED_BYTES = 64 * 1024 * 1024;
+
+    /**
+     * The max ratio of the deflate compression.
+     */
+    static final int MAX_COMPRESSION_RATIO = 1032;
+
+    // the min encoded size of a log header, with empty strings, and of a point
+    private static final int MIN_LOG_BYTES = 9;
+    private static final int MIN_POINT_BYTES = 4;
+
+    /**
+     * Lossy resolution for lon/lat, about 1 cm at the equator.
+     */
+    public static final double DEFAULT_XY_RESOLUTION = 1E-7;
+    /**
+     * Lossy resolution for the elevation.
+     */
+    public static final double DEFAULT_Z_RESOLUTION = 0.01;
+
+    private final double xyResolution;
+    private final double zResolution;
+    private final boolean compress;
+
+    /**
+     * Create a lossless codec.
+     *
+     * @param compress if <code>true</code>, the payload is deflated.
+     */
+    public GpsLogCodec(boolean compress) {
+        this(-1, -1, compress);
+    }
+
+    /**
+     * Create a codec.
+     *
+     * @param xyResolution the resolution in degrees to quantize lon/lat to. If <= 0, no quantization is done.
+     * @param zResolution  the resolution in meters to quantize the elevation to. If <= 0, no quantization is done.
+     * @param compress     if <code>true</code>, the payload is deflated.
+     */
+    public GpsLogCodec(double xyResolution, double zResolution, boolean compress) {
+        this.xyResolution = xyResolution;
+        this.zResolution = zResolution;
+        this.compress = compress;
+    }
+
+    /**
+     * Check if the data start with the format's magic.
+     *
+     * @param bytes the data.
+     * @return <code>true</code> if the data are in this format.
+     */
+    public static boolean isEncoded(byte[] bytes) {
+        if (bytes == null || bytes.length < MAGIC.length + 2) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (bytes[i] != MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Encode logs.
+     *
+     * @param logs the logs to encode.
+     * @return the encoded bytes.
+     */
+    public byte[] encode(List<GpsLogData> logs) {
+        int pointsCount = 0;
+        for (GpsLogData log : logs) {
+            pointsCount += log.count;
+        }
+        VarIntOutput payload = new VarIntOutput(64 + pointsCount * 8);
+        payload.writeVarLong(logs.size());
+        for (GpsLogData log : logs) {
+            payload.writeString(log.name);
+            payload.writeString(log.color);
+            payload.writeFloat(log.width);
+            payload.writeSignedVarLong(log.startTime);
+            payload.writeSignedVarLong(log.endTime - log.startTime);
+            payload.writeVarLong(log.count);
+            PointsCodec.encode(payload, log.lons, log.lats, log.elevs, log.times, 0, log.count, xyResolution, zResolution);
+        }
+
+        boolean quantized = xyResolution > 0 || zResolution > 0;
+        int flags = 0;
+        if (quantized) flags |= FLAG_QUANTIZED;
+        if (compress) flags |= FLAG_COMPRESSED;
+
+        VarIntOutput out = new VarIntOutput(payload.size() + 32);
+        out.writeBytes(MAGIC, 0, MAGIC.length);
+        out.writeByte(VERSION);
+        out.writeByte(flags);
+        if (quantized) {
+            out.writeDouble(xyResolution);
+            out.writeDouble(zResolution);
+        }
+        if (compress) {
+            out.writeVarLong(payload.size());
+            deflate(payload.getInternalBuffer(), 0, payload.size(), out);
+        } else {
+            out.writeBytes(payload.getInternalBuffer(), 0, payload.size());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode logs. The quantization and compression are read from the data.
+     *
+     * @param bytes the encoded data.
+     * @return the list of decoded logs.
+     * @throws IOException if the data are not in this format, of an unsupported version or corrupted.
+     */
+    public static List<GpsLogData> decode(byte[] bytes) throws IOException {
+        if (!isEncoded(bytes)) {
+            throw new IOException("The data are not in gps log format.");
+        }
+        VarIntInput in = new VarIntInput(bytes, MAGIC.length, bytes.length - MAGIC.length);
+        int version = in.readByte();
+        if (version > VERSION) {
+            throw new IOException("Unsupported gps log format version: " + version);
+        }
+        int flags = in.readByte();
+        double xyRes = -1;
+        double zRes = -1;
+        if ((flags & FLAG_QUANTIZED) != 0) {
+            xyRes = in.readDouble();
+            zRes = in.readDouble();
+        }
+        if ((flags & FLAG_COMPRESSED) != 0) {
+            long size = in.readVarLong();
+            int start = in.getPosition();
+            long maxSize = Math.min(MAX_DECODED_BYTES, (long) (bytes.length - start) * MAX_COMPRESSION_RATIO);
+            if (size < 0 || size > maxSize) {
+                throw new IOException("Invalid payload size: " + size);
+            }
+            byte[] payload = new byte[(int) size];
+            inflate(bytes, start, bytes.length - start, payload, payload.length);
+            in.reset(payload, 0, payload.length);
+        }
+
+        long logsCount = in.readVarLong();
+        if (logsCount < 0 || logsCount > in.getRemaining() / MIN_LOG_BYTES) {
+            throw new IOException("Invalid logs count: " + logsCount);
+        }
+        List<GpsLogData> logs = new ArrayList<>((int) logsCount);
+        for (int i = 0; i < logsCount; i++) {
+            String name = in.readString();
+            String color = in.readString();
+            float width = in.readFloat();
+            long startTime = in.readSignedVarLong();
+            long endTime = startTime + in.readSignedVarLong();
+            long count = in.readVarLong();
+            if (count < 0 || count > in.getRemaining() / MIN_POINT_BYTES) {
+                throw new IOException("Invalid points count: " + count);
+            }
+            GpsLogData log = new GpsLogData(name, color, width, startTime, endTime, (int) count);
+            PointsCodec.decode(in, log.lons, log.lats, log.elevs, log.times, 0, log.count, xyRes, zRes);
+            logs.add(log);
+        }
+        return logs;
+    }
+
+    /**
+     * Deflate a range of bytes, appending the result to an output.
+     *
+     * @param bytes  the data to compress.
+     * @param offset the offset of the data.
+     * @param length the length of the data.
+     * @param out    the output to write to.
+     */
+    static void deflate(byte[] bytes, int offset, int length, VarIntOutput out) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(bytes, offset, length);
+            deflater.finish();
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                out.writeBytes(chunk, 0, n);
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Inflate data into a buffer.
+     *
+     * @param bytes  the compressed data.
+     * @param offset the offset of the compressed data.
+     * @param length the length of the compressed data.
+     * @param target the buffer to fill.
+     * @param size   the expected uncompressed size.
+     * @throws IOException if the data are corrupted or shorter than expected.
+     */
+    static void inflate(byte[] bytes, int offset, int length, byte[] target, int size) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, offset, length);
+            int read = 0;
+            while (read < size && !inflater.finished()) {
+                int n = inflater.inflate(target, read, size - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != size) {
+                throw new IOException("Truncated gps log data.");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e.getLocalizedMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+}
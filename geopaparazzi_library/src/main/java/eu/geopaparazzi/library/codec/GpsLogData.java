@@ -0,0 +1,60 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.codec;
+
+/**
+ * A gps log with its properties and points held in primitive arrays.
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class GpsLogData {
+    public String name;
+    public String color;
+    public float width;
+    public long startTime;
+    public long endTime;
+
+    public int count;
+    public double[] lons;
+    public double[] lats;
+    public double[] elevs;
+    public long[] times;
+
+    /**
+     * Create a log with arrays for the given number of points.
+     *
+     * @param name      the log name.
+     * @param color     the log color.
+     * @param width     the log width.
+     * @param startTime the log start timestamp.
+     * @param endTime   the log end timestamp.
+     * @param count     the number of points.
+     */
+    public GpsLogData(String name, String color, float width, long startTime, long endTime, int count) {
+        this.name = name;
+        this.color = color;
+        this.width = width;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.count = count;
+        lons = new double[count];
+        lats = new double[count];
+        elevs = new double[count];
+        times = new long[count];
+    }
+}
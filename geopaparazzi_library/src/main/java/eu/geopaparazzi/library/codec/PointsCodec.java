@@ -0,0 +1,146 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.codec;
+
+import java.io.IOException;
+
+/**
+ * Delta/varint encoding of gps points (lon, lat, elev, timestamp).
+ *
+ * <p>Coordinates are encoded either:
+ * <ul>
+ * <li>lossless, writing the xor of the double bits with the previous value, or</li>
+ * <li>quantized to a given resolution, writing the difference with the previous quantized value.</li>
+ * </ul>
+ * Timestamps are always lossless, written as difference of consecutive deltas, which
+ * is 0 for a regular logging interval.</p>
+ *
+ * <p>The point count and the quantization are not written, they need to be
+ * stored by the caller.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public final class PointsCodec {
+
+    private PointsCodec() {
+    }
+
+    /**
+     * Encode a range of points.
+     *
+     * @param out          the output to write to.
+     * @param lons         the longitudes.
+     * @param lats         the latitudes.
+     * @param elevs        the elevations.
+     * @param times        the timestamps in milliseconds.
+     * @param from         the index of the first point to encode.
+     * @param count        the number of points to encode.
+     * @param xyResolution the resolution for lon/lat in degrees, if <= 0 the coordinates are encoded lossless.
+     * @param zResolution  the resolution for the elevation in meters, if <= 0 the elevation is encoded lossless.
+     */
+    public static void encode(VarIntOutput out, double[] lons, double[] lats, double[] elevs, long[] times,
+                              int from, int count, double xyResolution, double zResolution) {
+        long prevLon = 0;
+        long prevLat = 0;
+        long prevElev = 0;
+        long prevTime = 0;
+        long prevTimeDelta = 0;
+        for (int i = from; i < from + count; i++) {
+            long lon = toLong(lons[i], xyResolution);
+            long lat = toLong(lats[i], xyResolution);
+            long elev = toLong(elevs[i], zResolution);
+            writeDelta(out, lon, prevLon, xyResolution);
+            writeDelta(out, lat, prevLat, xyResolution);
+            writeDelta(out, elev, prevElev, zResolution);
+            prevLon = lon;
+            prevLat = lat;
+            prevElev = elev;
+
+            long time = times[i];
+            long timeDelta = time - prevTime;
+            out.writeSignedVarLong(timeDelta - prevTimeDelta);
+            prevTime = time;
+            prevTimeDelta = timeDelta;
+        }
+    }
+
+    /**
+     * Decode points.
+     *
+     * @param in           the input to read from.
+     * @param lons         the array to fill with the longitudes.
+     * @param lats         the array to fill with the latitudes.
+     * @param elevs        the array to fill with the elevations.
+     * @param times        the array to fill with the timestamps.
+     * @param offset       the index at which to start filling the arrays.
+     * @param count        the number of points to decode.
+     * @param xyResolution the resolution used when encoding.
+     * @param zResolution  the resolution used when encoding.
+     * @throws IOException if the data are corrupted.
+     */
+    public static void decode(VarIntInput in, double[] lons, double[] lats, double[] elevs, long[] times,
+                              int offset, int count, double xyResolution, double zResolution) throws IOException {
+        long prevLon = 0;
+        long prevLat = 0;
+        long prevElev = 0;
+        long prevTime = 0;
+        long prevTimeDelta = 0;
+        for (int i = offset; i < offset + count; i++) {
+            prevLon = readDelta(in, prevLon, xyResolution);
+            prevLat = readDelta(in, prevLat, xyResolution);
+            prevElev = readDelta(in, prevElev, zResolution);
+            lons[i] = toDouble(prevLon, xyResolution);
+            lats[i] = toDouble(prevLat, xyResolution);
+            elevs[i] = toDouble(prevElev, zResolution);
+
+            long timeDelta = prevTimeDelta + in.readSignedVarLong();
+            prevTime = prevTime + timeDelta;
+            prevTimeDelta = timeDelta;
+            times[i] = prevTime;
+        }
+    }
+
+    private static long toLong(double value, double resolution) {
+        if (resolution > 0) {
+            return Math.round(value / resolution);
+        }
+        return Double.doubleToLongBits(value);
+    }
+
+    private static double toDouble(long value, double resolution) {
+        if (resolution > 0) {
+            return value * resolution;
+        }
+        return Double.longBitsToDouble(value);
+    }
+
+    private static void writeDelta(VarIntOutput out, long value, long previous, double resolution) {
+        if (resolution > 0) {
+            out.writeSignedVarLong(value - previous);
+        } else {
+            out.writeVarLong(value ^ previous);
+        }
+    }
+
+    private static long readDelta(VarIntInput in, long previous, double resolution) throws IOException {
+        if (resolution > 0) {
+            return previous + in.readSignedVarLong();
+        }
+        return previous ^ in.readVarLong();
+    }
+}
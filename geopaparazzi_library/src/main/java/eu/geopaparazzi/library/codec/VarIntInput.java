@@ -0,0 +1,157 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.codec;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Reader for data written by {@link VarIntOutput}.
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class VarIntInput {
+    private byte[] buffer;
+    private int position;
+    private int limit;
+
+    /**
+     * Constructor.
+     *
+     * @param buffer the buffer to read.
+     * @param offset the offset to start reading from.
+     * @param length the number of readable bytes.
+     */
+    public VarIntInput(byte[] buffer, int offset, int length) {
+        reset(buffer, offset, length);
+    }
+
+    /**
+     * Point the reader to a new buffer, so that it can be reused.
+     *
+     * @param buffer the buffer to read.
+     * @param offset the offset to start reading from.
+     * @param length the number of readable bytes.
+     */
+    public void reset(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    private void check(int needed) throws EOFException {
+        if (position + needed > limit) {
+            throw new EOFException("Unexpected end of data at position " + position);
+        }
+    }
+
+    /**
+     * @return the next unsigned byte.
+     * @throws IOException if the data end was reached.
+     */
+    public int readByte() throws IOException {
+        check(1);
+        return buffer[position++] & 0xFF;
+    }
+
+    /**
+     * @return the next unsigned variable length long.
+     * @throws IOException if the data are corrupted.
+     */
+    public long readVarLong() throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            check(1);
+            byte b = buffer[position++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed variable length integer.");
+    }
+
+    /**
+     * @return the next signed variable length long.
+     * @throws IOException if the data are corrupted.
+     */
+    public long readSignedVarLong() throws IOException {
+        long raw = readVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    /**
+     * @return the next float.
+     * @throws IOException if the data end was reached.
+     */
+    public float readFloat() throws IOException {
+        check(4);
+        int bits = ((buffer[position] & 0xFF) << 24) | ((buffer[position + 1] & 0xFF) << 16)
+                | ((buffer[position + 2] & 0xFF) << 8) | (buffer[position + 3] & 0xFF);
+        position += 4;
+        return Float.intBitsToFloat(bits);
+    }
+
+    /**
+     * @return the next double.
+     * @throws IOException if the data end was reached.
+     */
+    public double readDouble() throws IOException {
+        check(8);
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits = (bits << 8) | (buffer[position++] & 0xFF);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    /**
+     * @return the next length prefixed UTF-8 string.
+     * @throws IOException if the data are corrupted.
+     */
+    public String readString() throws IOException {
+        long length = readVarLong();
+        if (length < 0 || length > limit - position) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        String value = new String(buffer, position, (int) length, VarIntOutput.UTF8);
+        position += (int) length;
+        return value;
+    }
+
+    /**
+     * @return the current read position.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * @return the number of bytes left to read.
+     */
+    public int getRemaining() {
+        return limit - position;
+    }
+
+    /**
+     * @return <code>true</code> if there are more bytes to read.
+     */
+    public boolean hasMore() {
+        return position < limit;
+    }
+}
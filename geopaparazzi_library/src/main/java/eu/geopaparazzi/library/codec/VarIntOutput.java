@@ -0,0 +1,167 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.codec;
+
+import java.nio.charset.Charset;
+
+/**
+ * A growable byte buffer with variable length integer writers.
+ *
+ * <p>Unsigned values are written as base 128 varints, signed values are
+ * zigzag encoded first, so that small negative numbers stay small.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class VarIntOutput {
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private byte[] buffer;
+    private int position = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param initialSize the initial buffer size.
+     */
+    public VarIntOutput(int initialSize) {
+        buffer = new byte[Math.max(16, initialSize)];
+    }
+
+    private void ensure(int more) {
+        if (position + more > buffer.length) {
+            byte[] newBuffer = new byte[Math.max(buffer.length * 2, position + more)];
+            System.arraycopy(buffer, 0, newBuffer, 0, position);
+            buffer = newBuffer;
+        }
+    }
+
+    /**
+     * Write a single byte.
+     *
+     * @param b the byte.
+     */
+    public void writeByte(int b) {
+        ensure(1);
+        buffer[position++] = (byte) b;
+    }
+
+    /**
+     * Write raw bytes.
+     *
+     * @param bytes  the bytes.
+     * @param offset the offset in the array.
+     * @param length the number of bytes to write.
+     */
+    public void writeBytes(byte[] bytes, int offset, int length) {
+        ensure(length);
+        System.arraycopy(bytes, offset, buffer, position, length);
+        position += length;
+    }
+
+    /**
+     * Write an unsigned variable length long.
+     *
+     * @param value the value, interpreted as unsigned.
+     */
+    public void writeVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    /**
+     * Write a signed variable length long.
+     *
+     * @param value the value.
+     */
+    public void writeSignedVarLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Write a float as 4 bytes.
+     *
+     * @param value the value.
+     */
+    public void writeFloat(float value) {
+        int bits = Float.floatToIntBits(value);
+        ensure(4);
+        buffer[position++] = (byte) (bits >>> 24);
+        buffer[position++] = (byte) (bits >>> 16);
+        buffer[position++] = (byte) (bits >>> 8);
+        buffer[position++] = (byte) bits;
+    }
+
+    /**
+     * Write a double as 8 bytes.
+     *
+     * @param value the value.
+     */
+    public void writeDouble(double value) {
+        long bits = Double.doubleToLongBits(value);
+        ensure(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (bits >>> shift);
+        }
+    }
+
+    /**
+     * Write a length prefixed UTF-8 string. <code>null</code> is written as empty string.
+     *
+     * @param value the string.
+     */
+    public void writeString(String value) {
+        if (value == null) value = "";
+        byte[] bytes = value.getBytes(UTF8);
+        writeVarLong(bytes.length);
+        writeBytes(bytes, 0, bytes.length);
+    }
+
+    /**
+     * @return the number of bytes written.
+     */
+    public int size() {
+        return position;
+    }
+
+    /**
+     * Reset the buffer to be reused.
+     */
+    public void reset() {
+        position = 0;
+    }
+
+    /**
+     * @return the internal buffer, valid up to {@link #size()}.
+     */
+    public byte[] getInternalBuffer() {
+        return buffer;
+    }
+
+    /**
+     * @return a copy of the written bytes.
+     */
+    public byte[] toByteArray() {
+        byte[] result = new byte[position];
+        System.arraycopy(buffer, 0, result, 0, position);
+        return result;
+    }
+}
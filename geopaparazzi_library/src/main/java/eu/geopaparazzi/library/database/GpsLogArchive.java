@@ -0,0 +1,519 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import eu.geopaparazzi.library.codec.GpsLogChunkCodec;
+
+import static eu.geopaparazzi.library.database.TableDescriptions.GpsLogsChunksTableFields;
+import static eu.geopaparazzi.library.database.TableDescriptions.GpsLogsDataTableFields;
+import static eu.geopaparazzi.library.database.TableDescriptions.TABLE_GPSLOGS;
+import static eu.geopaparazzi.library.database.TableDescriptions.TABLE_GPSLOG_CHUNKS;
+import static eu.geopaparazzi.library.database.TableDescriptions.TABLE_GPSLOG_DATA;
+
+/**
+ * Archive storage for gps log points.
+ *
+ * <p>Points of finished logs can be moved from the one row per point
+ * {@link TableDescriptions#TABLE_GPSLOG_DATA} table into chunks of delta encoded
+ * points (see {@link GpsLogChunkCodec}) stored as blobs in the
+ * {@link TableDescriptions#TABLE_GPSLOG_CHUNKS} table. Each chunk carries its
+ * bounding box and time range, so that spatial and temporal queries can skip
+ * chunks without decoding them.</p>
+ *
+ * <p>A log can be in both tables at the same time, for example when logging is continued on
+ * an archived log. Its points are then the archived ones, followed by the ones still in the
+ * data table. All the readers here take care of that.</p>
+ *
+ * <p>The archive is a format of this application only. Tools that read the project database
+ * directly only know the data table, so archived logs look empty to them until they are
+ * expanded back with {@link #expandAll(SQLiteDatabase)}, as done before the database is
+ * sent away.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@SuppressWarnings("nls")
+public final class GpsLogArchive {
+
+    /**
+     * Handler of streamed gps log points.
+     */
+    public interface IPointsHandler {
+        /**
+         * Called for each point, in time order for each log.
+         *
+         * @param logId the id of the log the point belongs to.
+         * @param lon   the longitude.
+         * @param lat   the latitude.
+         * @param elev  the elevation.
+         * @param ts    the UTC timestamp.
+         */
+        void onPoint(long logId, double lon, double lat, double elev, long ts);
+    }
+
+    private static final String[] CHUNK_DATA_COLUMNS = { //
+            GpsLogsChunksTableFields.COLUMN_LOGID.getFieldName(), //
+            GpsLogsChunksTableFields.COLUMN_CHUNK_DATA.getFieldName() //
+    };
+
+    private static final String[] POINT_COLUMNS = { //
+            GpsLogsDataTableFields.COLUMN_LOGID.getFieldName(), //
+            GpsLogsDataTableFields.COLUMN_DATA_LON.getFieldName(), //
+            GpsLogsDataTableFields.COLUMN_DATA_LAT.getFieldName(), //
+            GpsLogsDataTableFields.COLUMN_DATA_ALTIM.getFieldName(), //
+            GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName() //
+    };
+
+    private GpsLogArchive() {
+    }
+
+    /**
+     * Create the archive table, if it doesn't exist.
+     *
+     * @param sqliteDatabase the db to use.
+     */
+    public static void createTables(SQLiteDatabase sqliteDatabase) {
+        StringBuilder sB = new StringBuilder();
+        sB.append("CREATE TABLE IF NOT EXISTS ");
+        sB.append(TABLE_GPSLOG_CHUNKS);
+        sB.append(" (");
+        sB.append(GpsLogsChunksTableFields.COLUMN_ID.getFieldName()).append(" INTEGER PRIMARY KEY AUTOINCREMENT, ");
+        sB.append(GpsLogsChunksTableFields.COLUMN_LOGID.getFieldName()).append(" INTEGER NOT NULL, ");
+        sB.append(GpsLogsChunksTableFields.COLUMN_CHUNK_COUNT.getFieldName()).append(" INTEGER NOT NULL, ");
+        sB.append(GpsLogsChunksTableFields.COLUMN_CHUNK_MINLON.getFieldName()).append(" REAL NOT NULL, ");
+        sB.append(GpsLogsChunksTableFields.COLUMN_CHUNK_MINLAT.getFieldName()).append(" REAL NOT NULL, ");
+        sB.append(GpsLogsChunksTableFields.COLUMN_CHUNK_MAXLON.getFieldName()).append(" REAL NOT NULL, ");
+        sB.append(GpsLogsChunksTableFields.COLUMN_CHUNK_MAXLAT.getFieldName()).append(" REAL NOT NULL, ");
+        sB.append(GpsLogsChunksTableFields.COLUMN_CHUNK_STARTTS.getFieldName()).append(" LONG NOT NULL, ");
+        sB.append(GpsLogsChunksTableFields.COLUMN_CHUNK_ENDTS.getFieldName()).append(" LONG NOT NULL, ");
+        sB.append(GpsLogsChunksTableFields.COLUMN_CHUNK_DATA.getFieldName()).append(" BLOB NOT NULL");
+        sB.append(");");
+        String CREATE_TABLE_GPSLOG_CHUNKS = sB.toString();
+
+        sB = new StringBuilder();
+        sB.append("CREATE INDEX IF NOT EXISTS gpslogchunks_logid_ts_idx ON ");
+        sB.append(TABLE_GPSLOG_CHUNKS);
+        sB.append(" ( ");
+        sB.append(GpsLogsChunksTableFields.COLUMN_LOGID.getFieldName());
+        sB.append(", ");
+        sB.append(GpsLogsChunksTableFields.COLUMN_CHUNK_STARTTS.getFieldName());
+        sB.append(" );");
+        String CREATE_INDEX_GPSLOG_CHUNKS = sB.toString();
+
+        if (GPLog.LOG_ANDROID)
+            Log.i("GPSLOGARCHIVE", "Create the gpslog chunks table with: \n" + CREATE_TABLE_GPSLOG_CHUNKS);
+        sqliteDatabase.execSQL(CREATE_TABLE_GPSLOG_CHUNKS);
+        sqliteDatabase.execSQL(CREATE_INDEX_GPSLOG_CHUNKS);
+    }
+
+    /**
+     * Move the points of a log from the data table to the archive.
+     *
+     * <p>Everything happens in a single transaction. Points added to the log while this
+     * runs stay in the data table.</p>
+     *
+     * @param sqliteDatabase the db to use.
+     * @param logId          the id of the log to archive.
+     * @param codec          the codec to use to encode the chunks.
+     * @param chunkSize      the max number of points per chunk.
+     * @return the number of archived points.
+     * @throws IOException if something goes wrong.
+     */
+    public static int archiveLog(SQLiteDatabase sqliteDatabase, long logId, GpsLogChunkCodec codec, int chunkSize) throws IOException {
+        String logIdField = GpsLogsDataTableFields.COLUMN_LOGID.getFieldName();
+        String idField = GpsLogsDataTableFields.COLUMN_ID.getFieldName();
+        sqliteDatabase.beginTransaction();
+        try {
+            long maxId;
+            int count;
+            String sql = "select max(" + idField + "), count(*) from " + TABLE_GPSLOG_DATA + " where " + logIdField + "=" + logId;
+            try (Cursor c = sqliteDatabase.rawQuery(sql, null)) {
+                if (!c.moveToFirst() || c.getInt(1) == 0) {
+                    sqliteDatabase.setTransactionSuccessful();
+                    return 0;
+                }
+                maxId = c.getLong(0);
+                count = c.getInt(1);
+            }
+
+            double[] lons = new double[count];
+            double[] lats = new double[count];
+            double[] elevs = new double[count];
+            long[] times = new long[count];
+            String where = logIdField + "=" + logId + " and " + idField + "<=" + maxId;
+            String orderBy = GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName() + " ASC";
+            int index = 0;
+            try (Cursor c = sqliteDatabase.query(TABLE_GPSLOG_DATA, POINT_COLUMNS, where, null, null, null, orderBy)) {
+                while (c.moveToNext() && index < count) {
+                    lons[index] = c.getDouble(1);
+                    lats[index] = c.getDouble(2);
+                    elevs[index] = c.getDouble(3);
+                    times[index] = c.getLong(4);
+                    index++;
+                }
+            }
+            count = index;
+
+            insertChunks(sqliteDatabase, logId, codec, chunkSize, lons, lats, elevs, times, count);
+
+            sqliteDatabase.delete(TABLE_GPSLOG_DATA, where, null);
+            sqliteDatabase.setTransactionSuccessful();
+            return count;
+        } catch (Exception e) {
+            GPLog.error("GPSLOGARCHIVE", e.getLocalizedMessage(), e);
+            throw new IOException(e.getLocalizedMessage());
+        } finally {
+            sqliteDatabase.endTransaction();
+        }
+    }
+
+    /**
+     * Rewrite all the points of a log, archived and not, into new chunks sorted by time.
+     *
+     * <p>Needed when the points of the log don't come in time order any more, as after
+     * merging two logs whose time ranges overlap.</p>
+     *
+     * @param sqliteDatabase the db to use.
+     * @param logId          the id of the log to rebuild.
+     * @param codec          the codec to use to encode the chunks.
+     * @param chunkSize      the max number of points per chunk.
+     * @return the number of archived points.
+     * @throws IOException if something goes wrong.
+     */
+    public static int rebuildLog(SQLiteDatabase sqliteDatabase, long logId, GpsLogChunkCodec codec, int chunkSize) throws IOException {
+        sqliteDatabase.beginTransaction();
+        try {
+            int count = countPoints(sqliteDatabase, logId);
+            final double[] lons = new double[count];
+            final double[] lats = new double[count];
+            final double[] elevs = new double[count];
+            final long[] times = new long[count];
+            final int[] read = {0};
+            streamLog(sqliteDatabase, logId, (id, lon, lat, elev, ts) -> {
+                int index = read[0];
+                if (index < lons.length) {
+                    lons[index] = lon;
+                    lats[index] = lat;
+                    elevs[index] = elev;
+                    times[index] = ts;
+                    read[0] = index + 1;
+                }
+            });
+            count = read[0];
+
+            // stable merge sort on the time, the archived and plain runs are already sorted
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> times[a] < times[b] ? -1 : (times[a] == times[b] ? 0 : 1));
+            double[] sortedLons = new double[count];
+            double[] sortedLats = new double[count];
+            double[] sortedElevs = new double[count];
+            long[] sortedTimes = new long[count];
+            for (int i = 0; i < count; i++) {
+                int index = order[i];
+                sortedLons[i] = lons[index];
+                sortedLats[i] = lats[index];
+                sortedElevs[i] = elevs[index];
+                sortedTimes[i] = times[index];
+            }
+
+            deleteLog(sqliteDatabase, logId);
+            sqliteDatabase.delete(TABLE_GPSLOG_DATA, GpsLogsDataTableFields.COLUMN_LOGID.getFieldName() + "=" + logId, null);
+            insertChunks(sqliteDatabase, logId, codec, chunkSize, sortedLons, sortedLats, sortedElevs, sortedTimes, count);
+            sqliteDatabase.setTransactionSuccessful();
+            return count;
+        } catch (Exception e) {
+            GPLog.error("GPSLOGARCHIVE", e.getLocalizedMessage(), e);
+            throw new IOException(e.getLocalizedMessage());
+        } finally {
+            sqliteDatabase.endTransaction();
+        }
+    }
+
+    private static void insertChunks(SQLiteDatabase sqliteDatabase, long logId, GpsLogChunkCodec codec, int chunkSize,
+                                     double[] lons, double[] lats, double[] elevs, long[] times, int count) {
+        ContentValues values = new ContentValues();
+        for (int from = 0; from < count; from += chunkSize) {
+            int n = Math.min(chunkSize, count - from);
+            double minLon = Double.POSITIVE_INFINITY;
+            double minLat = Double.POSITIVE_INFINITY;
+            double maxLon = Double.NEGATIVE_INFINITY;
+            double maxLat = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < from + n; i++) {
+                minLon = Math.min(minLon, lons[i]);
+                minLat = Math.min(minLat, lats[i]);
+                maxLon = Math.max(maxLon, lons[i]);
+                maxLat = Math.max(maxLat, lats[i]);
+            }
+            values.clear();
+            values.put(GpsLogsChunksTableFields.COLUMN_LOGID.getFieldName(), logId);
+            values.put(GpsLogsChunksTableFields.COLUMN_CHUNK_COUNT.getFieldName(), n);
+            values.put(GpsLogsChunksTableFields.COLUMN_CHUNK_MINLON.getFieldName(), minLon);
+            values.put(GpsLogsChunksTableFields.COLUMN_CHUNK_MINLAT.getFieldName(), minLat);
+            values.put(GpsLogsChunksTableFields.COLUMN_CHUNK_MAXLON.getFieldName(), maxLon);
+            values.put(GpsLogsChunksTableFields.COLUMN_CHUNK_MAXLAT.getFieldName(), maxLat);
+            values.put(GpsLogsChunksTableFields.COLUMN_CHUNK_STARTTS.getFieldName(), times[from]);
+            values.put(GpsLogsChunksTableFields.COLUMN_CHUNK_ENDTS.getFieldName(), times[from + n - 1]);
+            values.put(GpsLogsChunksTableFields.COLUMN_CHUNK_DATA.getFieldName(), codec.encode(lons, lats, elevs, times, from, n));
+            sqliteDatabase.insertOrThrow(TABLE_GPSLOG_CHUNKS, null, values);
+        }
+    }
+
+    /**
+     * Move all the archived points back into the data table, one row per point.
+     *
+     * <p>Everything happens in a single transaction. Afterwards the database can be read by
+     * tools that don't know the archive.</p>
+     *
+     * @param sqliteDatabase the db to use.
+     * @return the number of expanded points.
+     * @throws IOException if something goes wrong.
+     */
+    public static int expandAll(SQLiteDatabase sqliteDatabase) throws IOException {
+        sqliteDatabase.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            int count = 0;
+            String chunksOrder = GpsLogsChunksTableFields.COLUMN_LOGID.getFieldName() + ", " +
+                    GpsLogsChunksTableFields.COLUMN_CHUNK_STARTTS.getFieldName() + " ASC";
+            GpsLogChunkCodec codec = new GpsLogChunkCodec();
+            try (Cursor c = sqliteDatabase.query(TABLE_GPSLOG_CHUNKS, CHUNK_DATA_COLUMNS, null, null, null, null, chunksOrder)) {
+                while (c.moveToNext()) {
+                    long logId = c.getLong(0);
+                    int n = codec.decode(c.getBlob(1));
+                    for (int i = 0; i < n; i++) {
+                        values.clear();
+                        values.put(GpsLogsDataTableFields.COLUMN_LOGID.getFieldName(), logId);
+                        values.put(GpsLogsDataTableFields.COLUMN_DATA_LON.getFieldName(), codec.getLons()[i]);
+                        values.put(GpsLogsDataTableFields.COLUMN_DATA_LAT.getFieldName(), codec.getLats()[i]);
+                        values.put(GpsLogsDataTableFields.COLUMN_DATA_ALTIM.getFieldName(), codec.getElevs()[i]);
+                        values.put(GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName(), codec.getTimes()[i]);
+                        sqliteDatabase.insertOrThrow(TABLE_GPSLOG_DATA, null, values);
+                    }
+                    count += n;
+                }
+            }
+            sqliteDatabase.delete(TABLE_GPSLOG_CHUNKS, null, null);
+            sqliteDatabase.setTransactionSuccessful();
+            return count;
+        } catch (Exception e) {
+            GPLog.error("GPSLOGARCHIVE", e.getLocalizedMessage(), e);
+            throw new IOException(e.getLocalizedMessage());
+        } finally {
+            sqliteDatabase.endTransaction();
+        }
+    }
+
+    /**
+     * Delete the archived points of a log.
+     *
+     * @param sqliteDatabase the db to use.
+     * @param logId          the id of the log.
+     */
+    public static void deleteLog(SQLiteDatabase sqliteDatabase, long logId) {
+        sqliteDatabase.delete(TABLE_GPSLOG_CHUNKS, GpsLogsChunksTableFields.COLUMN_LOGID.getFieldName() + "=" + logId, null);
+    }
+
+    /**
+     * Check if a log has archived points.
+     *
+     * @param sqliteDatabase the db to use.
+     * @param logId          the id of the log.
+     * @return <code>true</code> if at least one chunk exists for the log.
+     */
+    public static boolean isArchived(SQLiteDatabase sqliteDatabase, long logId) {
+        String sql = "select 1 from " + TABLE_GPSLOG_CHUNKS + " where " + GpsLogsChunksTableFields.COLUMN_LOGID.getFieldName() + "=" + logId + " limit 1";
+        try (Cursor c = sqliteDatabase.rawQuery(sql, null)) {
+            return c.moveToFirst();
+        }
+    }
+
+    /**
+     * Count the points of a log, archived and not.
+     *
+     * @param sqliteDatabase the db to use.
+     * @param logId          the id of the log.
+     * @return the number of points.
+     */
+    public static int countPoints(SQLiteDatabase sqliteDatabase, long logId) {
+        int count = 0;
+        String sql = "select sum(" + GpsLogsChunksTableFields.COLUMN_CHUNK_COUNT.getFieldName() + ") from " + TABLE_GPSLOG_CHUNKS
+                + " where " + GpsLogsChunksTableFields.COLUMN_LOGID.getFieldName() + "=" + logId;
+        try (Cursor c = sqliteDatabase.rawQuery(sql, null)) {
+            if (c.moveToFirst()) count += c.getInt(0);
+        }
+        sql = "select count(*) from " + TABLE_GPSLOG_DATA + " where " + GpsLogsDataTableFields.COLUMN_LOGID.getFieldName() + "=" + logId;
+        try (Cursor c = sqliteDatabase.rawQuery(sql, null)) {
+            if (c.moveToFirst()) count += c.getInt(0);
+        }
+        return count;
+    }
+
+    /**
+     * Stream the points of a log in time order.
+     *
+     * @param sqliteDatabase the db to use.
+     * @param logId          the id of the log.
+     * @param handler        the handler of the points.
+     * @throws IOException if an archived chunk can't be decoded.
+     */
+    public static void streamLog(SQLiteDatabase sqliteDatabase, long logId, IPointsHandler handler) throws IOException {
+        String chunksWhere = GpsLogsChunksTableFields.COLUMN_LOGID.getFieldName() + "=" + logId;
+        String pointsWhere = GpsLogsDataTableFields.COLUMN_LOGID.getFieldName() + "=" + logId;
+        stream(sqliteDatabase, chunksWhere, pointsWhere, null, handler);
+    }
+
+    /**
+     * Stream the points of all logs.
+     *
+     * <p>The points of each log are delivered in time order, but the logs can be interleaved,
+     * since archived points are delivered before the ones still in the data table.</p>
+     *
+     * @param sqliteDatabase the db to use.
+     * @param handler        the handler of the points.
+     * @throws IOException if an archived chunk can't be decoded.
+     */
+    public static void streamAll(SQLiteDatabase sqliteDatabase, IPointsHandler handler) throws IOException {
+        stream(sqliteDatabase, null, null, null, handler);
+    }
+
+    /**
+     * Stream the points of all logs that fall inside the given bounds.
+     *
+     * <p>Archived chunks whose bounding box doesn't touch the bounds are not decoded.</p>
+     *
+     * @param sqliteDatabase the db to use.
+     * @param n              north bound.
+     * @param s              south bound.
+     * @param e              east bound.
+     * @param w              west bound.
+     * @param handler        the handler of the points.
+     * @throws IOException if an archived chunk can't be decoded.
+     */
+    public static void streamInBounds(SQLiteDatabase sqliteDatabase, double n, double s, double e, double w, IPointsHandler handler)
+            throws IOException {
+        String chunksWhere = GpsLogsChunksTableFields.COLUMN_CHUNK_MAXLON.getFieldName() + " > " + w + " and " +
+                GpsLogsChunksTableFields.COLUMN_CHUNK_MINLON.getFieldName() + " < " + e + " and " +
+                GpsLogsChunksTableFields.COLUMN_CHUNK_MAXLAT.getFieldName() + " > " + s + " and " +
+                GpsLogsChunksTableFields.COLUMN_CHUNK_MINLAT.getFieldName() + " < " + n;
+        String lonField = GpsLogsDataTableFields.COLUMN_DATA_LON.getFieldName();
+        String latField = GpsLogsDataTableFields.COLUMN_DATA_LAT.getFieldName();
+        String pointsWhere = lonField + " > " + w + " and " + lonField + " < " + e + " and " +
+                latField + " > " + s + " and " + latField + " < " + n;
+        stream(sqliteDatabase, chunksWhere, pointsWhere, new double[]{n, s, e, w}, handler);
+    }
+
+    private static void stream(SQLiteDatabase sqliteDatabase, String chunksWhere, String pointsWhere, double[] nsew,
+                               IPointsHandler handler) throws IOException {
+        GpsLogChunkCodec codec = new GpsLogChunkCodec();
+        String chunksOrder = GpsLogsChunksTableFields.COLUMN_LOGID.getFieldName() + ", " +
+                GpsLogsChunksTableFields.COLUMN_CHUNK_STARTTS.getFieldName() + " ASC";
+        try (Cursor c = sqliteDatabase.query(TABLE_GPSLOG_CHUNKS, CHUNK_DATA_COLUMNS, chunksWhere, null, null, null, chunksOrder)) {
+            while (c.moveToNext()) {
+                long logId = c.getLong(0);
+                int count = codec.decode(c.getBlob(1));
+                double[] lons = codec.getLons();
+                double[] lats = codec.getLats();
+                double[] elevs = codec.getElevs();
+                long[] times = codec.getTimes();
+                for (int i = 0; i < count; i++) {
+                    if (nsew != null && !(lons[i] > nsew[3] && lons[i] < nsew[2] && lats[i] > nsew[1] && lats[i] < nsew[0])) {
+                        continue;
+                    }
+                    handler.onPoint(logId, lons[i], lats[i], elevs[i], times[i]);
+                }
+            }
+        }
+
+        String pointsOrder = GpsLogsDataTableFields.COLUMN_LOGID.getFieldName() + ", " +
+                GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName() + " ASC";
+        try (Cursor c = sqliteDatabase.query(TABLE_GPSLOG_DATA, POINT_COLUMNS, pointsWhere, null, null, null, pointsOrder)) {
+            while (c.moveToNext()) {
+                handler.onPoint(c.getLong(0), c.getDouble(1), c.getDouble(2), c.getDouble(3), c.getLong(4));
+            }
+        }
+    }
+
+    /**
+     * Get the first or last point of a log.
+     *
+     * @param sqliteDatabase the db to use.
+     * @param logId          the id of the log.
+     * @param first          if <code>true</code> the first point is returned, else the last.
+     * @return the point as [lon, lat, elev, ts] or <code>null</code>, if the log has no points.
+     * @throws IOException if an archived chunk can't be decoded.
+     */
+    public static double[] getEdgePoint(SQLiteDatabase sqliteDatabase, long logId, boolean first) throws IOException {
+        String direction = first ? " ASC" : " DESC";
+        String pointsWhere = GpsLogsDataTableFields.COLUMN_LOGID.getFieldName() + "=" + logId;
+        String pointsOrder = GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName() + direction;
+        // archived points come before the ones in the data table
+        double[] rawPoint = null;
+        try (Cursor c = sqliteDatabase.query(TABLE_GPSLOG_DATA, POINT_COLUMNS, pointsWhere, null, null, null, pointsOrder, "1")) {
+            if (c.moveToFirst()) {
+                rawPoint = new double[]{c.getDouble(1), c.getDouble(2), c.getDouble(3), c.getLong(4)};
+            }
+        }
+        if (rawPoint != null && !first) {
+            return rawPoint;
+        }
+
+        String chunksWhere = GpsLogsChunksTableFields.COLUMN_LOGID.getFieldName() + "=" + logId;
+        String chunksOrder = GpsLogsChunksTableFields.COLUMN_CHUNK_STARTTS.getFieldName() + direction;
+        try (Cursor c = sqliteDatabase.query(TABLE_GPSLOG_CHUNKS, CHUNK_DATA_COLUMNS, chunksWhere, null, null, null, chunksOrder, "1")) {
+            if (c.moveToFirst()) {
+                GpsLogChunkCodec codec = new GpsLogChunkCodec();
+                int count = codec.decode(c.getBlob(1));
+                if (count > 0) {
+                    int i = first ? 0 : count - 1;
+                    return new double[]{codec.getLons()[i], codec.getLats()[i], codec.getElevs()[i], codec.getTimes()[i]};
+                }
+            }
+        }
+        return rawPoint;
+    }
+
+    /**
+     * Get the ids of the logs that have points in the data table.
+     *
+     * @param sqliteDatabase the db to use.
+     * @return the log ids.
+     */
+    public static long[] getLogsWithPlainPoints(SQLiteDatabase sqliteDatabase) {
+        String logIdField = GpsLogsDataTableFields.COLUMN_LOGID.getFieldName();
+        String sql = "select distinct " + logIdField + " from " + TABLE_GPSLOG_DATA + " where " + logIdField +
+                " in (select " + TableDescriptions.GpsLogsTableFields.COLUMN_ID.getFieldName() + " from " + TABLE_GPSLOGS + ")";
+        try (Cursor c = sqliteDatabase.rawQuery(sql, null)) {
+            long[] ids = new long[c.getCount()];
+            int i = 0;
+            while (c.moveToNext()) {
+                ids[i++] = c.getLong(0);
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import static eu.geopaparazzi.library.database.TableDescriptions.GpsLogsDataTableFields;
+import static eu.geopaparazzi.library.database.TableDescriptions.GpsLogsQualityTableFields;
+import static eu.geopaparazzi.library.database.TableDescriptions.TABLE_GPSLOG_DATA;
+import static eu.geopaparazzi.library.database.TableDescriptions.TABLE_GPSLOG_QUALITY;
+
+/**
+ * Quality data of the gps log points recorded from external receivers.
+ *
+ * <p>The data are kept in the {@link TableDescriptions#TABLE_GPSLOG_QUALITY} table, joined to the
+ * points by log id and timestamp. Being separate from the data table, they are not touched by
+ * the {@link GpsLogArchive} and logs recorded from the android location provider simply have
+ * no rows in it.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@SuppressWarnings("nls")
+public final class GpsLogQuality {
+
+    /**
+     * Insert of a point in the data table, to be used with {@link #insert}.
+     */
+    public static final String INSERT_DATA_SQL = "INSERT INTO " + TABLE_GPSLOG_DATA + " (" + //
+            GpsLogsDataTableFields.COLUMN_LOGID.getFieldName() + ", " + //
+            GpsLogsDataTableFields.COLUMN_DATA_LON.getFieldName() + ", " + //
+            GpsLogsDataTableFields.COLUMN_DATA_LAT.getFieldName() + ", " + //
+            GpsLogsDataTableFields.COLUMN_DATA_ALTIM.getFieldName() + ", " + //
+            GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName() + //
+            ") VALUES (?, ?, ?, ?, ?)";
+
+    /**
+     * Insert of the quality of a point, to be used with {@link #insert}.
+     */
+    public static final String INSERT_QUALITY_SQL = "INSERT INTO " + TABLE_GPSLOG_QUALITY + " (" + //
+            GpsLogsQualityTableFields.COLUMN_LOGID.getFieldName() + ", " + //
+            GpsLogsQualityTableFields.COLUMN_TS.getFieldName() + ", " + //
+            GpsLogsQualityTableFields.COLUMN_FIXQUALITY.getFieldName() + ", " + //
+            GpsLogsQualityTableFields.COLUMN_SATELLITES.getFieldName() + ", " + //
+            GpsLogsQualityTableFields.COLUMN_HDOP.getFieldName() + ", " + //
+            GpsLogsQualityTableFields.COLUMN_CORRECTIONAGE.getFieldName() + ", " + //
+            GpsLogsQualityTableFields.COLUMN_HORIZONTALERROR.getFieldName() + //
+            ") VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private GpsLogQuality() {
+    }
+
+    /**
+     * Create the quality table, if it doesn't exist.
+     *
+     * @param sqliteDatabase the db to use.
+     */
+    public static void createTables(SQLiteDatabase sqliteDatabase) {
+        StringBuilder sB = new StringBuilder();
+        sB.append("CREATE TABLE IF NOT EXISTS ");
+        sB.append(TABLE_GPSLOG_QUALITY);
+        sB.append(" (");
+        sB.append(GpsLogsQualityTableFields.COLUMN_LOGID.getFieldName()).append(" INTEGER NOT NULL, ");
+        sB.append(GpsLogsQualityTableFields.COLUMN_TS.getFieldName()).append(" LONG NOT NULL, ");
+        sB.append(GpsLogsQualityTableFields.COLUMN_FIXQUALITY.getFieldName()).append(" INTEGER NOT NULL, ");
+        sB.append(GpsLogsQualityTableFields.COLUMN_SATELLITES.getFieldName()).append(" INTEGER, ");
+        sB.append(GpsLogsQualityTableFields.COLUMN_HDOP.getFieldName()).append(" REAL, ");
+        sB.append(GpsLogsQualityTableFields.COLUMN_CORRECTIONAGE.getFieldName()).append(" REAL, ");
+        sB.append(GpsLogsQualityTableFields.COLUMN_HORIZONTALERROR.getFieldName()).append(" REAL");
+        sB.append(");");
+        String CREATE_TABLE_GPSLOG_QUALITY = sB.toString();
+
+        sB = new StringBuilder();
+        sB.append("CREATE INDEX IF NOT EXISTS gpslogsquality_logid_ts_idx ON ");
+        sB.append(TABLE_GPSLOG_QUALITY);
+        sB.append(" ( ");
+        sB.append(GpsLogsQualityTableFields.COLUMN_LOGID.getFieldName());
+        sB.append(", ");
+        sB.append(GpsLogsQualityTableFields.COLUMN_TS.getFieldName());
+        sB.append(" );");
+        String CREATE_INDEX_GPSLOG_QUALITY = sB.toString();
+
+        if (GPLog.LOG_ANDROID)
+            Log.i("GPSLOGQUALITY", "Create the gpslog quality table with: \n" + CREATE_TABLE_GPSLOG_QUALITY);
+        sqliteDatabase.execSQL(CREATE_TABLE_GPSLOG_QUALITY);
+        sqliteDatabase.execSQL(CREATE_INDEX_GPSLOG_QUALITY);
+    }
+
+    /**
+     * Insert a point and its quality.
+     *
+     * <p>This doesn't open a transaction, the statements are meant to be reused for a batch
+     * of points inside one.</p>
+     *
+     * @param dataStatement    the statement compiled from {@link #INSERT_DATA_SQL}.
+     * @param qualityStatement the statement compiled from {@link #INSERT_QUALITY_SQL}.
+     * @param logId            the id of the log.
+     * @param timestamp        the UTC timestamp.
+     * @param lon              the longitude.
+     * @param lat              the latitude.
+     * @param elev             the elevation.
+     * @param fixQuality       the receiver fix quality.
+     * @param satellites       the number of satellites or -1.
+     * @param hdop             the hdop or NaN.
+     * @param correctionAge    the age of the corrections in seconds or NaN.
+     * @param horizontalError  the estimated horizontal error in meters or NaN.
+     */
+    public static void insert(SQLiteStatement dataStatement, SQLiteStatement qualityStatement, long logId, long timestamp,
+                              double lon, double lat, double elev, int fixQuality, int satellites, double hdop,
+                              double correctionAge, double horizontalError) {
+        dataStatement.clearBindings();
+        dataStatement.bindLong(1, logId);
+        dataStatement.bindDouble(2, lon);
+        dataStatement.bindDouble(3, lat);
+        dataStatement.bindDouble(4, elev);
+        dataStatement.bindLong(5, timestamp);
+        dataStatement.executeInsert();
+
+        qualityStatement.clearBindings();
+        qualityStatement.bindLong(1, logId);
+        qualityStatement.bindLong(2, timestamp);
+        qualityStatement.bindLong(3, fixQuality);
+        if (satellites >= 0) {
+            qualityStatement.bindLong(4, satellites);
+        } else {
+            qualityStatement.bindNull(4);
+        }
+        bindDoubleOrNull(qualityStatement, 5, hdop);
+        bindDoubleOrNull(qualityStatement, 6, correctionAge);
+        bindDoubleOrNull(qualityStatement, 7, horizontalError);
+        qualityStatement.executeInsert();
+    }
+
+    private static void bindDoubleOrNull(SQLiteStatement statement, int index, double value) {
+        if (Double.isNaN(value)) {
+            statement.bindNull(index);
+        } else {
+            statement.bindDouble(index, value);
+        }
+    }
+
+    /**
+     * Delete the quality data of a log.
+     *
+     * @param sqliteDatabase the db to use.
+     * @param logId          the id of the log.
+     */
+    public static void deleteLog(SQLiteDatabase sqliteDatabase, long logId) {
+        sqliteDatabase.delete(TABLE_GPSLOG_QUALITY, GpsLogsQualityTableFields.COLUMN_LOGID.getFieldName() + "=" + logId, null);
+    }
+
+    /**
+     * Move the quality data of a log to another log, as when logs are merged.
+     *
+     * @param sqliteDatabase the db to use.
+     * @param fromLogId      the id of the log the data belong to.
+     * @param toLogId        the id of the log to move them to.
+     */
+    public static void moveLog(SQLiteDatabase sqliteDatabase, long fromLogId, long toLogId) {
+        sqliteDatabase.execSQL("UPDATE " + TABLE_GPSLOG_QUALITY + " SET " + GpsLogsQualityTableFields.COLUMN_LOGID.getFieldName()
+                + "=" + toLogId + " WHERE " + GpsLogsQualityTableFields.COLUMN_LOGID.getFieldName() + "=" + fromLogId);
+    }
+}
@@ -0,0 +1,409 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import eu.geopaparazzi.library.forms.FormUtilities;
+
+import static eu.geopaparazzi.library.database.TableDescriptions.NotesAttributesTableFields;
+import static eu.geopaparazzi.library.database.TableDescriptions.NotesTableFields;
+import static eu.geopaparazzi.library.database.TableDescriptions.TABLE_NOTES;
+import static eu.geopaparazzi.library.database.TableDescriptions.TABLE_NOTES_ATTRIBUTES;
+
+/**
+ * Index of the form values of the notes.
+ *
+ * <p>The form of a note is kept as a json string in the notes table. To be able to query
+ * notes by their form values without parsing every form, the values are also extracted
+ * to the {@link TableDescriptions#TABLE_NOTES_ATTRIBUTES} table, one row per item, with
+ * the value as text and, for numeric and boolean items, as number.</p>
+ *
+ * <p>The index is maintained by the notes dao whenever a form is written. Multiple choice
+ * items get one row per selected value.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@SuppressWarnings("nls")
+public final class NotesAttributesIndex {
+
+    private static final String MULTIPLECHOICE_SEPARATOR = ";";
+
+    private static final String INSERT_SQL = "INSERT INTO " + TABLE_NOTES_ATTRIBUTES + " (" + //
+            NotesAttributesTableFields.COLUMN_NOTEID.getFieldName() + ", " + //
+            NotesAttributesTableFields.COLUMN_SECTION.getFieldName() + ", " + //
+            NotesAttributesTableFields.COLUMN_FORM.getFieldName() + ", " + //
+            NotesAttributesTableFields.COLUMN_KEY.getFieldName() + ", " + //
+            NotesAttributesTableFields.COLUMN_TYPE.getFieldName() + ", " + //
+            NotesAttributesTableFields.COLUMN_TEXTVALUE.getFieldName() + ", " + //
+            NotesAttributesTableFields.COLUMN_NUMVALUE.getFieldName() + //
+            ") VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private NotesAttributesIndex() {
+    }
+
+    /**
+     * Create the attributes table and its indexes, if they don't exist.
+     *
+     * <p>All indexes lead with the item key, since queries always filter on it, while
+     * the section is optional.</p>
+     *
+     * @param sqliteDatabase the db to use.
+     * @return <code>true</code> if the table was created, in which case it needs to be
+     * filled with {@link #rebuild(SQLiteDatabase)} for an existing db.
+     */
+    public static boolean createTables(SQLiteDatabase sqliteDatabase) {
+        boolean exists;
+        String sql = "SELECT name FROM sqlite_master WHERE type ='table' AND name='" + TABLE_NOTES_ATTRIBUTES + "';";
+        try (Cursor cursor = sqliteDatabase.rawQuery(sql, null)) {
+            exists = cursor.moveToFirst();
+        }
+
+        if (!exists) {
+            StringBuilder sB = new StringBuilder();
+            sB.append("CREATE TABLE ");
+            sB.append(TABLE_NOTES_ATTRIBUTES);
+            sB.append(" (");
+            sB.append(NotesAttributesTableFields.COLUMN_NOTEID.getFieldName()).append(" INTEGER NOT NULL, ");
+            sB.append(NotesAttributesTableFields.COLUMN_SECTION.getFieldName()).append(" TEXT NOT NULL, ");
+            sB.append(NotesAttributesTableFields.COLUMN_FORM.getFieldName()).append(" TEXT NOT NULL, ");
+            sB.append(NotesAttributesTableFields.COLUMN_KEY.getFieldName()).append(" TEXT NOT NULL, ");
+            sB.append(NotesAttributesTableFields.COLUMN_TYPE.getFieldName()).append(" TEXT NOT NULL, ");
+            sB.append(NotesAttributesTableFields.COLUMN_TEXTVALUE.getFieldName()).append(" TEXT NOT NULL, ");
+            sB.append(NotesAttributesTableFields.COLUMN_NUMVALUE.getFieldName()).append(" REAL");
+            sB.append(");");
+            String CREATE_TABLE_NOTES_ATTRIBUTES = sB.toString();
+
+            if (GPLog.LOG_ANDROID)
+                Log.i("NOTESATTRIBUTESINDEX", "Create the notes attributes table with: \n" + CREATE_TABLE_NOTES_ATTRIBUTES);
+            sqliteDatabase.execSQL(CREATE_TABLE_NOTES_ATTRIBUTES);
+        }
+
+        // the first indexes led with the section, which is not given when searching all sections
+        sqliteDatabase.execSQL("DROP INDEX IF EXISTS notesattributes_text_idx;");
+        sqliteDatabase.execSQL("DROP INDEX IF EXISTS notesattributes_num_idx;");
+
+        StringBuilder sB = new StringBuilder();
+        sB.append("CREATE INDEX IF NOT EXISTS notesattributes_keytext_idx ON ");
+        sB.append(TABLE_NOTES_ATTRIBUTES);
+        sB.append(" ( ");
+        sB.append(NotesAttributesTableFields.COLUMN_KEY.getFieldName());
+        sB.append(", ");
+        sB.append(NotesAttributesTableFields.COLUMN_TEXTVALUE.getFieldName());
+        sB.append(", ");
+        sB.append(NotesAttributesTableFields.COLUMN_SECTION.getFieldName());
+        sB.append(" );");
+        String CREATE_INDEX_TEXT = sB.toString();
+
+        sB = new StringBuilder();
+        sB.append("CREATE INDEX IF NOT EXISTS notesattributes_keynum_idx ON ");
+        sB.append(TABLE_NOTES_ATTRIBUTES);
+        sB.append(" ( ");
+        sB.append(NotesAttributesTableFields.COLUMN_KEY.getFieldName());
+        sB.append(", ");
+        sB.append(NotesAttributesTableFields.COLUMN_NUMVALUE.getFieldName());
+        sB.append(", ");
+        sB.append(NotesAttributesTableFields.COLUMN_SECTION.getFieldName());
+        sB.append(" );");
+        String CREATE_INDEX_NUM = sB.toString();
+
+        sB = new StringBuilder();
+        sB.append("CREATE INDEX IF NOT EXISTS notesattributes_noteid_idx ON ");
+        sB.append(TABLE_NOTES_ATTRIBUTES);
+        sB.append(" ( ");
+        sB.append(NotesAttributesTableFields.COLUMN_NOTEID.getFieldName());
+        sB.append(" );");
+        String CREATE_INDEX_NOTEID = sB.toString();
+
+        sqliteDatabase.execSQL(CREATE_INDEX_TEXT);
+        sqliteDatabase.execSQL(CREATE_INDEX_NUM);
+        sqliteDatabase.execSQL(CREATE_INDEX_NOTEID);
+        return !exists;
+    }
+
+    /**
+     * Replace the indexed values of a note.
+     *
+     * <p>This doesn't open a transaction, it is meant to run inside the one that writes the note.</p>
+     *
+     * @param sqliteDatabase the db to use.
+     * @param noteId         the id of the note.
+     * @param form           the json form of the note. If <code>null</code> or empty, the note is only removed from the index.
+     * @throws JSONException if the form can't be parsed.
+     */
+    public static void indexNote(SQLiteDatabase sqliteDatabase, long noteId, String form) throws JSONException {
+        removeNote(sqliteDatabase, noteId);
+        if (form == null || form.trim().length() == 0) {
+            return;
+        }
+        SQLiteStatement insertStatement = sqliteDatabase.compileStatement(INSERT_SQL);
+        try {
+            insertValues(insertStatement, noteId, form);
+        } finally {
+            insertStatement.close();
+        }
+    }
+
+    /**
+     * Remove the indexed values of a note.
+     *
+     * @param sqliteDatabase the db to use.
+     * @param noteId         the id of the note.
+     */
+    public static void removeNote(SQLiteDatabase sqliteDatabase, long noteId) {
+        sqliteDatabase.delete(TABLE_NOTES_ATTRIBUTES, NotesAttributesTableFields.COLUMN_NOTEID.getFieldName() + "=" + noteId, null);
+    }
+
+    /**
+     * Remove the indexed values of notes that don't exist anymore.
+     *
+     * @param sqliteDatabase the db to use.
+     */
+    public static void removeOrphans(SQLiteDatabase sqliteDatabase) {
+        String where = NotesAttributesTableFields.COLUMN_NOTEID.getFieldName() + " NOT IN (SELECT " + //
+                NotesTableFields.COLUMN_ID.getFieldName() + " FROM " + TABLE_NOTES + ")";
+        sqliteDatabase.delete(TABLE_NOTES_ATTRIBUTES, where, null);
+    }
+
+    /**
+     * Rebuild the whole index from the forms in the notes table.
+     *
+     * <p>Notes with a form that can't be parsed are skipped and logged.</p>
+     *
+     * @param sqliteDatabase the db to use.
+     * @return the number of indexed notes.
+     */
+    public static int rebuild(SQLiteDatabase sqliteDatabase) {
+        long start = System.currentTimeMillis();
+        String query = "SELECT " + NotesTableFields.COLUMN_ID.getFieldName() + ", " + NotesTableFields.COLUMN_FORM.getFieldName() + //
+                " FROM " + TABLE_NOTES + //
+                " WHERE " + NotesTableFields.COLUMN_FORM.getFieldName() + " IS NOT NULL AND length(" + NotesTableFields.COLUMN_FORM.getFieldName() + ") > 0";
+
+        int count = 0;
+        sqliteDatabase.beginTransaction();
+        SQLiteStatement insertStatement = sqliteDatabase.compileStatement(INSERT_SQL);
+        try {
+            sqliteDatabase.delete(TABLE_NOTES_ATTRIBUTES, null, null);
+            try (Cursor c = sqliteDatabase.rawQuery(query, null)) {
+                while (c.moveToNext()) {
+                    long noteId = c.getLong(0);
+                    try {
+                        insertValues(insertStatement, noteId, c.getString(1));
+                        count++;
+                    } catch (JSONException e) {
+                        GPLog.error("NOTESATTRIBUTESINDEX", "Unable to index the form of note: " + noteId, e);
+                    }
+                }
+            }
+            sqliteDatabase.setTransactionSuccessful();
+        } finally {
+            insertStatement.close();
+            sqliteDatabase.endTransaction();
+        }
+        if (GPLog.LOG_HEAVY)
+            GPLog.addLogEntry("NOTESATTRIBUTESINDEX", "Indexed the forms of " + count + " notes in " + (System.currentTimeMillis() - start) + " ms");
+        return count;
+    }
+
+    private static void insertValues(SQLiteStatement insertStatement, long noteId, String form) throws JSONException {
+        JSONObject sectionObject = new JSONObject(form);
+        String sectionName = sectionObject.optString(FormUtilities.ATTR_SECTIONNAME, "");
+        JSONArray formsArray = sectionObject.optJSONArray(FormUtilities.ATTR_FORMS);
+        if (formsArray == null) {
+            return;
+        }
+        for (int i = 0; i < formsArray.length(); i++) {
+            JSONObject formObject = formsArray.getJSONObject(i);
+            String formName = formObject.optString(FormUtilities.ATTR_FORMNAME, "");
+            JSONArray formItems = formObject.optJSONArray(FormUtilities.TAG_FORMITEMS);
+            if (formItems == null) {
+                continue;
+            }
+            for (int j = 0; j < formItems.length(); j++) {
+                JSONObject formItem = formItems.getJSONObject(j);
+                if (!formItem.has(FormUtilities.TAG_KEY) || !formItem.has(FormUtilities.TAG_VALUE)) {
+                    continue;
+                }
+                String type = formItem.optString(FormUtilities.TAG_TYPE, FormUtilities.TYPE_STRING).trim();
+                if (!isIndexed(type)) {
+                    continue;
+                }
+                String key = formItem.getString(FormUtilities.TAG_KEY).trim();
+                String value = formItem.getString(FormUtilities.TAG_VALUE).trim();
+                if (value.length() == 0) {
+                    continue;
+                }
+                if (type.equals(FormUtilities.TYPE_STRINGMULTIPLECHOICE)) {
+                    for (String choice : value.split(MULTIPLECHOICE_SEPARATOR)) {
+                        choice = choice.trim();
+                        if (choice.length() > 0)
+                            insertValue(insertStatement, noteId, sectionName, formName, key, type, choice);
+                    }
+                } else {
+                    insertValue(insertStatement, noteId, sectionName, formName, key, type, value);
+                }
+            }
+        }
+    }
+
+    private static void insertValue(SQLiteStatement insertStatement, long noteId, String section, String form, String key,
+                                    String type, String value) {
+        insertStatement.clearBindings();
+        insertStatement.bindLong(1, noteId);
+        insertStatement.bindString(2, section);
+        insertStatement.bindString(3, form);
+        insertStatement.bindString(4, key);
+        insertStatement.bindString(5, type);
+        insertStatement.bindString(6, value);
+        Double number = toNumber(type, value);
+        if (number != null) {
+            insertStatement.bindDouble(7, number);
+        } else {
+            insertStatement.bindNull(7);
+        }
+        insertStatement.executeInsert();
+    }
+
+    private static boolean isIndexed(String type) {
+        switch (type) {
+            case FormUtilities.TYPE_LABEL:
+            case FormUtilities.TYPE_LABELWITHLINE:
+            case FormUtilities.TYPE_PICTURES:
+            case FormUtilities.TYPE_SKETCH:
+            case FormUtilities.TYPE_MAP:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    private static Double toNumber(String type, String value) {
+        switch (type) {
+            case FormUtilities.TYPE_DOUBLE:
+            case FormUtilities.TYPE_INTEGER:
+                try {
+                    return Double.parseDouble(value);
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            case FormUtilities.TYPE_BOOLEAN:
+                return Boolean.parseBoolean(value) ? 1.0 : 0.0;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Get the ids of the notes that have a form item with a given value.
+     *
+     * @param sqliteDatabase the db to use.
+     * @param section        the section name or <code>null</code> to search all sections.
+     * @param key            the key of the form item.
+     * @param value          the value, compared as text.
+     * @return the ids of the matching notes.
+     */
+    public static List<Long> getNoteIds(SQLiteDatabase sqliteDatabase, String section, String key, String value) {
+        String where = NotesAttributesTableFields.COLUMN_KEY.getFieldName() + "=? AND " + //
+                NotesAttributesTableFields.COLUMN_TEXTVALUE.getFieldName() + "=?";
+        String[] args;
+        if (section != null) {
+            where = NotesAttributesTableFields.COLUMN_SECTION.getFieldName() + "=? AND " + where;
+            args = new String[]{section, key, value};
+        } else {
+            args = new String[]{key, value};
+        }
+        return queryNoteIds(sqliteDatabase, where, args);
+    }
+
+    /**
+     * Get the ids of the notes that have a numeric or boolean form item within a range.
+     *
+     * @param sqliteDatabase the db to use.
+     * @param section        the section name or <code>null</code> to search all sections.
+     * @param key            the key of the form item.
+     * @param min            the minimum value, inclusive.
+     * @param max            the maximum value, inclusive.
+     * @return the ids of the matching notes.
+     */
+    public static List<Long> getNoteIds(SQLiteDatabase sqliteDatabase, String section, String key, double min, double max) {
+        String where = NotesAttributesTableFields.COLUMN_KEY.getFieldName() + "=? AND " + //
+                NotesAttributesTableFields.COLUMN_NUMVALUE.getFieldName() + " BETWEEN ? AND ?";
+        String[] args;
+        if (section != null) {
+            where = NotesAttributesTableFields.COLUMN_SECTION.getFieldName() + "=? AND " + where;
+            args = new String[]{section, key, String.valueOf(min), String.valueOf(max)};
+        } else {
+            args = new String[]{key, String.valueOf(min), String.valueOf(max)};
+        }
+        return queryNoteIds(sqliteDatabase, where, args);
+    }
+
+    private static List<Long> queryNoteIds(SQLiteDatabase sqliteDatabase, String where, String[] args) {
+        String query = "SELECT DISTINCT " + NotesAttributesTableFields.COLUMN_NOTEID.getFieldName() + //
+                " FROM " + TABLE_NOTES_ATTRIBUTES + " WHERE " + where;
+        List<Long> ids = new ArrayList<>();
+        try (Cursor c = sqliteDatabase.rawQuery(query, args)) {
+            while (c.moveToNext()) {
+                ids.add(c.getLong(0));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Get the distinct values of a form item with the number of notes that have them,
+     * for example to build a style legend.
+     *
+     * @param sqliteDatabase the db to use.
+     * @param section        the section name or <code>null</code> to search all sections.
+     * @param key            the key of the form item.
+     * @return the map of values to note counts, most used first.
+     */
+    public static LinkedHashMap<String, Integer> getValueCounts(SQLiteDatabase sqliteDatabase, String section, String key) {
+        String textValue = NotesAttributesTableFields.COLUMN_TEXTVALUE.getFieldName();
+        String where = NotesAttributesTableFields.COLUMN_KEY.getFieldName() + "=?";
+        String[] args;
+        if (section != null) {
+            where = NotesAttributesTableFields.COLUMN_SECTION.getFieldName() + "=? AND " + where;
+            args = new String[]{section, key};
+        } else {
+            args = new String[]{key};
+        }
+        String query = "SELECT " + textValue + ", count(DISTINCT " + NotesAttributesTableFields.COLUMN_NOTEID.getFieldName() + ") AS c" + //
+                " FROM " + TABLE_NOTES_ATTRIBUTES + " WHERE " + where + //
+                " GROUP BY " + textValue + " ORDER BY c DESC, " + textValue;
+        LinkedHashMap<String, Integer> counts = new LinkedHashMap<>();
+        try (Cursor c = sqliteDatabase.rawQuery(query, args)) {
+            while (c.moveToNext()) {
+                counts.put(c.getString(0), c.getInt(1));
+            }
+        }
+        return counts;
+    }
+}
@@ -53,6 +53,18 @@ public class TableDescriptions {
      * gpslog properties table name.
      */
     public static final String TABLE_GPSLOG_PROPERTIES = "gpslogsproperties";
+    /**
+     * gpslog archived (compressed) data table name.
+     */
+    public static final String TABLE_GPSLOG_CHUNKS = "gpslogschunks";
+    /**
+     * gpslog point quality table name.
+     */
+    public static final String TABLE_GPSLOG_QUALITY = "gpslogsquality";
+    /**
+     * notes form attributes table name.
+     */
+    public static final String TABLE_NOTES_ATTRIBUTES = "notesattributes";
 
     public enum MetadataTableFields {
         /**
@@ -419,4 +431,160 @@ public class TableDescriptions {
             return fieldClass;
         }
     }
+
+    @SuppressWarnings("HardCodedStringLiteral")
+    public static enum GpsLogsChunksTableFields {
+        /**
+         * id of the chunk, Generated by the db.
+         */
+        COLUMN_ID("_id", Long.class),
+        /**
+         * the id of the parent gps log.
+         */
+        COLUMN_LOGID("logid", Long.class),
+        /**
+         * the number of points in the chunk.
+         */
+        COLUMN_CHUNK_COUNT("count", Integer.class),
+        /**
+         * the minimum longitude of the chunk points.
+         */
+        COLUMN_CHUNK_MINLON("minlon", Double.class),
+        /**
+         * the minimum latitude of the chunk points.
+         */
+        COLUMN_CHUNK_MINLAT("minlat", Double.class),
+        /**
+         * the maximum longitude of the chunk points.
+         */
+        COLUMN_CHUNK_MAXLON("maxlon", Double.class),
+        /**
+         * the maximum latitude of the chunk points.
+         */
+        COLUMN_CHUNK_MAXLAT("maxlat", Double.class),
+        /**
+         * the UTC timestamp of the first point.
+         */
+        COLUMN_CHUNK_STARTTS("startts", Long.class),
+        /**
+         * the UTC timestamp of the last point.
+         */
+        COLUMN_CHUNK_ENDTS("endts", Long.class),
+        /**
+         * the encoded points.
+         */
+        COLUMN_CHUNK_DATA("data", byte[].class);
+
+        private String fieldName;
+        private Class fieldClass;
+
+        GpsLogsChunksTableFields(String fieldName, Class fieldClass) {
+            this.fieldName = fieldName;
+            this.fieldClass = fieldClass;
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        public Class getFieldClass() {
+            return fieldClass;
+        }
+    }
+
+    @SuppressWarnings("HardCodedStringLiteral")
+    public static enum NotesAttributesTableFields {
+        /**
+         * the id of the note the attribute belongs to.
+         */
+        COLUMN_NOTEID("noteid", Long.class),
+        /**
+         * the name of the form section.
+         */
+        COLUMN_SECTION("section", String.class),
+        /**
+         * the name of the form.
+         */
+        COLUMN_FORM("form", String.class),
+        /**
+         * the key of the form item.
+         */
+        COLUMN_KEY("key", String.class),
+        /**
+         * the type of the form item.
+         */
+        COLUMN_TYPE("type", String.class),
+        /**
+         * the value as text.
+         */
+        COLUMN_TEXTVALUE("textvalue", String.class),
+        /**
+         * the value as number, for numeric and boolean items.
+         */
+        COLUMN_NUMVALUE("numvalue", Double.class);
+
+        private String fieldName;
+        private Class fieldClass;
+
+        NotesAttributesTableFields(String fieldName, Class fieldClass) {
+            this.fieldName = fieldName;
+            this.fieldClass = fieldClass;
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        public Class getFieldClass() {
+            return fieldClass;
+        }
+    }
+
+    @SuppressWarnings("HardCodedStringLiteral")
+    public static enum GpsLogsQualityTableFields {
+        /**
+         * the id of the parent gps log.
+         */
+        COLUMN_LOGID("logid", Long.class),
+        /**
+         * the UTC timestamp of the point, as in the data table.
+         */
+        COLUMN_TS("ts", Long.class),
+        /**
+         * the receiver fix quality, as in the NMEA GGA sentence.
+         */
+        COLUMN_FIXQUALITY("fixquality", Integer.class),
+        /**
+         * the number of satellites used in the fix.
+         */
+        COLUMN_SATELLITES("satellites", Integer.class),
+        /**
+         * the horizontal dilution of precision.
+         */
+        COLUMN_HDOP("hdop", Double.class),
+        /**
+         * the age of the differential corrections in seconds.
+         */
+        COLUMN_CORRECTIONAGE("correctionage", Double.class),
+        /**
+         * the estimated horizontal error in meters.
+         */
+        COLUMN_HORIZONTALERROR("horizontalerror", Double.class);
+
+        private String fieldName;
+        private Class fieldClass;
+
+        GpsLogsQualityTableFields(String fieldName, Class fieldClass) {
+            this.fieldName = fieldName;
+            this.fieldClass = fieldClass;
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        public Class getFieldClass() {
+            return fieldClass;
+        }
+    }
 }
@@ -121,6 +121,7 @@ public class FormActivity extends AppCompatActivity implements IFragmentListSupp
 
                 if (formNames4Section.size() > 0) {
                     FormInfoHolder formInfoHolder = new FormInfoHolder();
+                    formInfoHolder.sectionName = mSectionName;
                     if (formInfoHolder.formName == null)
                         formInfoHolder.formName = formNames4Section.get(0);
                     mFormName = formInfoHolder.formName;
@@ -178,9 +179,8 @@ public class FormActivity extends AppCompatActivity implements IFragmentListSupp
 
         try {
             if (formInfo.sectionObjectString == null) {
-                sectionObject = TagsManager.getInstance(this).getSectionByName(mSectionName);
                 // copy the section object, which will be kept around along the activity
-                formInfo.sectionObjectString = sectionObject.toString();
+                formInfo.sectionObjectString = TagsManager.getInstance(this).getSectionJsonByName(mSectionName);
             }
 
             sectionObject = new JSONObject(formInfo.sectionObjectString);
@@ -28,6 +28,8 @@ import android.view.WindowManager;
 import android.widget.LinearLayout;
 
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -35,8 +37,8 @@ import org.json.JSONObject;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 
@@ -46,8 +48,24 @@ import eu.geopaparazzi.library.database.DefaultHelperClasses;
 import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.database.IImagesDbHelper;
 import eu.geopaparazzi.library.forms.constraints.Constraints;
+import eu.geopaparazzi.library.forms.schema.FormItemSchema;
+import eu.geopaparazzi.library.forms.schema.FormSchema;
+import eu.geopaparazzi.library.forms.views.GAutocompleteTextView;
+import eu.geopaparazzi.library.forms.views.GBooleanView;
+import eu.geopaparazzi.library.forms.views.GComboView;
+import eu.geopaparazzi.library.forms.views.GDateView;
+import eu.geopaparazzi.library.forms.views.GDynamicEditTextView;
+import eu.geopaparazzi.library.forms.views.GEditTextView;
 import eu.geopaparazzi.library.forms.views.GMapView;
+import eu.geopaparazzi.library.forms.views.GMultiComboView;
 import eu.geopaparazzi.library.forms.views.GNfcUidView;
+import eu.geopaparazzi.library.forms.views.GOneToManyConnectedComboView;
+import eu.geopaparazzi.library.forms.views.GPictureView;
+import eu.geopaparazzi.library.forms.views.GSketchView;
+import eu.geopaparazzi.library.forms.views.GTextView;
+import eu.geopaparazzi.library.forms.views.GTimeView;
+import eu.geopaparazzi.library.forms.views.GTwoAutoCompleteConnectedTextView;
+import eu.geopaparazzi.library.forms.views.GTwoConnectedComboView;
 import eu.geopaparazzi.library.forms.views.GView;
 import eu.geopaparazzi.library.images.ImageUtilities;
 import eu.geopaparazzi.library.util.LibraryConstants;
@@ -91,14 +109,23 @@ import static eu.geopaparazzi.library.forms.FormUtilities.TYPE_TIME;
 public class FormDetailFragment extends Fragment {
     public static final String ARGS_FORMINFO = "args_forminfo";
 
-    private HashMap<String, GView> key2WidgetMap = new HashMap<>();
+    private static final int FIRST_REQUEST_CODE = 666;
+
+    /**
+     * The item types with a widget, the index being the kind of widget used to recycle the rows.
+     */
+    private static final List<String> WIDGET_TYPES = Arrays.asList(TYPE_STRING, TYPE_DYNAMICSTRING, TYPE_STRINGAREA,
+            TYPE_DOUBLE, TYPE_INTEGER, TYPE_DATE, TYPE_TIME, TYPE_LABEL, TYPE_LABELWITHLINE, TYPE_BOOLEAN,
+            TYPE_STRINGCOMBO, TYPE_AUTOCOMPLETESTRINGCOMBO, TYPE_CONNECTEDSTRINGCOMBO, TYPE_AUTOCOMPLETECONNECTEDSTRINGCOMBO,
+            TYPE_ONETOMANYSTRINGCOMBO, TYPE_STRINGMULTIPLECHOICE, TYPE_PICTURES, TYPE_SKETCH, TYPE_MAP, TYPE_NFCUID);
+
+    private List<FormItemState> itemStates = new ArrayList<>();
     private SparseArray<GView> requestCodes2WidgetMap = new SparseArray<>();
-    private HashMap<String, Constraints> key2ConstraintsMap = new HashMap<>();
-    private List<String> keyList = new ArrayList<>();
     private String selectedFormName;
     private JSONObject sectionObject;
     private FormInfoHolder mFormInfoHolder;
-    private LinearLayout mainView;
+    private RecyclerView formRecyclerView;
+    private FormItemsAdapter formItemsAdapter;
 
     public static FormDetailFragment newInstance(FormInfoHolder formInfoHolder) {
         FormDetailFragment f = new FormDetailFragment();
@@ -125,7 +152,8 @@ public class FormDetailFragment extends Fragment {
         try {
 
             view = inflater.inflate(R.layout.fragment_form_detail, container, false);
-            mainView = view.findViewById(R.id.form_linear);
+            formRecyclerView = view.findViewById(R.id.form_list);
+            formRecyclerView.setLayoutManager(new LinearLayoutManager(getActivity()));
 
             refreshView(mFormInfoHolder);
         } catch (Exception e) {
@@ -135,8 +163,9 @@ public class FormDetailFragment extends Fragment {
     }
 
     public void refreshView(FormInfoHolder formInfoHolder) throws Exception {
-        if (mainView == null) return;
+        if (formRecyclerView == null) return;
 
+        long startNanos = System.nanoTime();
         mFormInfoHolder = formInfoHolder;
         long noteId = -1;
         double longitude;
@@ -151,18 +180,16 @@ public class FormDetailFragment extends Fragment {
             return;
         }
 
-        mainView.removeAllViews();
+        itemStates = new ArrayList<>();
+        requestCodes2WidgetMap.clear();
 
         if (selectedFormName != null) {
             Activity activity = getActivity();
             JSONObject formObject = TagsManager.getForm4Name(selectedFormName, sectionObject);
+            // the compiled form of the current tags, if the note has one
+            FormSchema formSchema = TagsManager.getInstance(activity).getTagsSchema().getForm(mFormInfoHolder.sectionName, selectedFormName);
 
-            key2WidgetMap.clear();
-            requestCodes2WidgetMap.clear();
-            int requestCode = 666;
-            keyList.clear();
-            key2ConstraintsMap.clear();
-
+            int requestCode = FIRST_REQUEST_CODE;
             JSONArray formItemsArray = TagsManager.getFormItems(formObject);
 
             int length = formItemsArray.length();
@@ -192,149 +219,314 @@ public class FormDetailFragment extends Fragment {
                     readonly = Boolean.parseBoolean(readonlyStr);
                 }
 
+                FormItemSchema itemSchema = formSchema != null ? formSchema.getItem(key) : null;
+                if (itemSchema != null && !itemSchema.isCompatible(jsonObject)) {
+                    itemSchema = null;
+                }
+
                 Constraints constraints = new Constraints();
                 FormUtilities.handleConstraints(jsonObject, constraints);
-                key2ConstraintsMap.put(key, constraints);
-                String constraintDescription = constraints.getDescription();
-
-                GView addedView = null;
-                switch (type) {
-                    case TYPE_STRING:
-                        addedView = FormUtilities.addEditText(activity, mainView, label, value, 0, 0, constraintDescription,
-                                readonly);
-                        break;
-                    case TYPE_DYNAMICSTRING:
-                        addedView = FormUtilities.addDynamicEditText(activity, mainView, label, value, 0, constraintDescription,
-                                readonly);
-                        break;
-                    case TYPE_STRINGAREA:
-                        addedView = FormUtilities.addEditText(activity, mainView, label, value, 0, 7, constraintDescription,
-                                readonly);
-                        break;
-                    case TYPE_DOUBLE:
-                        addedView = FormUtilities.addEditText(activity, mainView, label, value, 1, 0, constraintDescription,
-                                readonly);
-                        break;
-                    case TYPE_INTEGER:
-                        addedView = FormUtilities.addEditText(activity, mainView, label, value, 4, 0, constraintDescription,
-                                readonly);
-                        break;
-                    case TYPE_DATE:
-                        addedView = FormUtilities.addDateView(FormDetailFragment.this, mainView, label, value, constraintDescription,
-                                readonly);
-                        break;
-                    case TYPE_TIME:
-                        addedView = FormUtilities.addTimeView(FormDetailFragment.this, mainView, label, value, constraintDescription,
-                                readonly);
-                        break;
-                    case TYPE_LABEL: {
-                        String size = "20"; //$NON-NLS-1$
-
-                        if (jsonObject.has(TAG_SIZE))
-                            size = jsonObject.getString(TAG_SIZE);
-                        String url = null;
-                        if (jsonObject.has(TAG_URL))
-                            url = jsonObject.getString(TAG_URL);
-                        addedView = FormUtilities.addTextView(activity, mainView, value, size, false, url);
-                        break;
-                    }
-                    case TYPE_LABELWITHLINE: {
-                        String size = "20"; //$NON-NLS-1$
-
-                        if (jsonObject.has(TAG_SIZE))
-                            size = jsonObject.getString(TAG_SIZE);
-                        String url = null;
-                        if (jsonObject.has(TAG_URL))
-                            url = jsonObject.getString(TAG_URL);
-                        addedView = FormUtilities.addTextView(activity, mainView, value, size, true, url);
-                        break;
-                    }
-                    case TYPE_BOOLEAN:
-                        addedView = FormUtilities.addBooleanView(activity, mainView, label, value, constraintDescription, readonly);
-                        break;
-                    case TYPE_STRINGCOMBO: {
-                        JSONArray comboItems = TagsManager.getComboItems(jsonObject);
-                        String[] itemsArray = TagsManager.comboItems2StringArray(comboItems);
-                        addedView = FormUtilities.addComboView(activity, mainView, label, value, itemsArray, constraintDescription);
-                        break;
-                    }
-                    case TYPE_AUTOCOMPLETESTRINGCOMBO: {
-                        JSONArray comboItems = TagsManager.getComboItems(jsonObject);
-                        String[] itemsArray = TagsManager.comboItems2StringArray(comboItems);
-                        addedView = FormUtilities.addAutocompleteComboView(activity, mainView, label, value, itemsArray, constraintDescription);
-                        break;
-                    }
-                    case TYPE_CONNECTEDSTRINGCOMBO: {
-                        LinkedHashMap<String, List<String>> valuesMap = TagsManager.extractComboValuesMap(jsonObject);
-                        addedView = FormUtilities.addConnectedComboView(activity, mainView, label, value, valuesMap,
-                                constraintDescription);
-                        break;
-                    }
-                    case TYPE_AUTOCOMPLETECONNECTEDSTRINGCOMBO: {
-                        LinkedHashMap<String, List<String>> valuesMap = TagsManager.extractComboValuesMap(jsonObject);
-                        addedView = FormUtilities.addAutoCompleteConnectedComboView(activity, mainView, label, value, valuesMap,
-                                constraintDescription);
-                        break;
-                    }
-                    case TYPE_ONETOMANYSTRINGCOMBO:
-                        LinkedHashMap<String, List<NamedList<String>>> oneToManyValuesMap = TagsManager.extractOneToManyComboValuesMap(jsonObject);
-                        addedView = FormUtilities.addOneToManyConnectedComboView(activity, mainView, label, value, oneToManyValuesMap,
-                                constraintDescription);
-                        break;
-                    case TYPE_STRINGMULTIPLECHOICE: {
-                        JSONArray comboItems = TagsManager.getComboItems(jsonObject);
-                        String[] itemsArray = TagsManager.comboItems2StringArray(comboItems);
-                        addedView = FormUtilities.addMultiSelectionView(activity, mainView, label, value, itemsArray,
-                                constraintDescription);
-                        break;
+
+                if (type.equals(TYPE_MAP) && value.length() <= 0) {
+                    // the map image is added to the note as soon as the form is opened, not when the item is shown
+                    File tempDir = ResourcesManager.getInstance(activity).getTempDir();
+                    File tmpImage = new File(tempDir, LibraryConstants.TMPPNGIMAGENAME);
+                    if (tmpImage.exists()) {
+                        byte[][] imageAndThumbnailFromPath = ImageUtilities.getImageAndThumbnailFromPath(tmpImage.getAbsolutePath(), 1);
+                        Date date = new Date();
+                        String mapImageName = ImageUtilities.getMapImageName(date);
+
+                        IImagesDbHelper imageHelper = DefaultHelperClasses.getDefaulfImageHelper();
+                        long imageId = imageHelper.addImage(longitude, latitude, -1.0, -1.0, date.getTime(), mapImageName, imageAndThumbnailFromPath[0], imageAndThumbnailFromPath[1], noteId);
+                        value = "" + imageId;
+                        FormUtilities.update(formItemsArray, key, value);
                     }
-                    case TYPE_PICTURES:
-                        addedView = FormUtilities.addPictureView(noteId, this, requestCode, mainView, label, value, constraintDescription);
-                        break;
-                    case TYPE_SKETCH:
-                        addedView = FormUtilities.addSketchView(noteId, this, requestCode, mainView, label, value, constraintDescription);
-                        break;
-                    case TYPE_MAP:
-                        if (value.length() <= 0) {
-                            // need to read image
-                            File tempDir = ResourcesManager.getInstance(activity).getTempDir();
-                            File tmpImage = new File(tempDir, LibraryConstants.TMPPNGIMAGENAME);
-                            if (tmpImage.exists()) {
-                                byte[][] imageAndThumbnailFromPath = ImageUtilities.getImageAndThumbnailFromPath(tmpImage.getAbsolutePath(), 1);
-                                Date date = new Date();
-                                String mapImageName = ImageUtilities.getMapImageName(date);
-
-                                IImagesDbHelper imageHelper = DefaultHelperClasses.getDefaulfImageHelper();
-                                long imageId = imageHelper.addImage(longitude, latitude, -1.0, -1.0, date.getTime(), mapImageName, imageAndThumbnailFromPath[0], imageAndThumbnailFromPath[1], noteId);
-                                value = "" + imageId;
-                            }
-                        }
-                        addedView = FormUtilities.addMapView(activity, mainView, label, value, constraintDescription);
-                        break;
-                    case TYPE_NFCUID:
-                        addedView = new GNfcUidView(this, null, requestCode, mainView, label, value, constraintDescription);
-                        break;
-                    case TYPE_HIDDEN:
-                        break;
-                    default:
-                        GPLog.addLogEntry(this, null, null, "Type non implemented yet: " + type);
-                        break;
                 }
-                key2WidgetMap.put(key, addedView);
-                keyList.add(key);
-                requestCodes2WidgetMap.put(requestCode, addedView);
+
+                itemStates.add(new FormItemState(key, label, type, value, readonly, constraints, requestCode, jsonObject, itemSchema));
                 requestCode++;
             }
+        }
+
+        final long noteIdFinal = noteId;
+        formItemsAdapter = new FormItemsAdapter(itemStates, new FormItemsAdapter.IWidgetFactory() {
+            @Override
+            public int getWidgetKind(FormItemState item) {
+                int kind = WIDGET_TYPES.indexOf(item.type);
+                // hidden and unknown items have no widget
+                return kind != -1 ? kind : WIDGET_TYPES.size();
+            }
+
+            @Override
+            public GView createWidget(FormItemState item, LinearLayout container) {
+                GView widget = null;
+                try {
+                    widget = FormDetailFragment.this.createWidget(noteIdFinal, item, container);
+                } catch (Exception e) {
+                    GPLog.error(FormDetailFragment.this, null, e);
+                }
+                if (widget != null)
+                    requestCodes2WidgetMap.put(item.requestCode, widget);
+                return widget;
+            }
+
+            @Override
+            public void bindWidget(GView widget, FormItemState item) {
+                try {
+                    FormDetailFragment.this.bindWidget(noteIdFinal, item, widget);
+                } catch (Exception e) {
+                    GPLog.error(FormDetailFragment.this, null, e);
+                }
+                requestCodes2WidgetMap.put(item.requestCode, widget);
+            }
+
+            @Override
+            public void unbindWidget(GView widget, FormItemState item) {
+                requestCodes2WidgetMap.remove(item.requestCode);
+            }
+        });
+        formRecyclerView.setAdapter(formItemsAdapter);
+
+        if (GPLog.LOG_HEAVY) {
+            final int itemsCount = itemStates.size();
+            formRecyclerView.post(() -> GPLog.addLogEntry(FormDetailFragment.this,
+                    "Form " + selectedFormName + " with " + itemsCount + " items shown in ms: " + (System.nanoTime() - startNanos) / 1000000)); //$NON-NLS-1$
+        }
+    }
+
+    private GView createWidget(long noteId, FormItemState item, LinearLayout container) throws Exception {
+        Activity activity = getActivity();
+        String label = item.label;
+        String value = item.getValue();
+        String constraintDescription = item.constraintDescription;
+        boolean readonly = item.readonly;
+        JSONObject jsonObject = item.jsonItem;
+        FormItemSchema itemSchema = item.itemSchema;
+        int requestCode = item.requestCode;
+
+        GView addedView = null;
+        switch (item.type) {
+            case TYPE_STRING:
+                addedView = FormUtilities.addEditText(activity, container, label, value, 0, 0, constraintDescription,
+                        readonly);
+                break;
+            case TYPE_DYNAMICSTRING:
+                addedView = FormUtilities.addDynamicEditText(activity, container, label, value, 0, constraintDescription,
+                        readonly);
+                break;
+            case TYPE_STRINGAREA:
+                addedView = FormUtilities.addEditText(activity, container, label, value, 0, 7, constraintDescription,
+                        readonly);
+                break;
+            case TYPE_DOUBLE:
+                addedView = FormUtilities.addEditText(activity, container, label, value, 1, 0, constraintDescription,
+                        readonly);
+                break;
+            case TYPE_INTEGER:
+                addedView = FormUtilities.addEditText(activity, container, label, value, 4, 0, constraintDescription,
+                        readonly);
+                break;
+            case TYPE_DATE:
+                addedView = FormUtilities.addDateView(FormDetailFragment.this, container, label, value, constraintDescription,
+                        readonly);
+                break;
+            case TYPE_TIME:
+                addedView = FormUtilities.addTimeView(FormDetailFragment.this, container, label, value, constraintDescription,
+                        readonly);
+                break;
+            case TYPE_LABEL: {
+                String size = "20"; //$NON-NLS-1$
+
+                if (jsonObject.has(TAG_SIZE))
+                    size = jsonObject.getString(TAG_SIZE);
+                String url = null;
+                if (jsonObject.has(TAG_URL))
+                    url = jsonObject.getString(TAG_URL);
+                addedView = FormUtilities.addTextView(activity, container, value, size, false, url);
+                break;
+            }
+            case TYPE_LABELWITHLINE: {
+                String size = "20"; //$NON-NLS-1$
+
+                if (jsonObject.has(TAG_SIZE))
+                    size = jsonObject.getString(TAG_SIZE);
+                String url = null;
+                if (jsonObject.has(TAG_URL))
+                    url = jsonObject.getString(TAG_URL);
+                addedView = FormUtilities.addTextView(activity, container, value, size, true, url);
+                break;
+            }
+            case TYPE_BOOLEAN:
+                addedView = FormUtilities.addBooleanView(activity, container, label, value, constraintDescription, readonly);
+                break;
+            case TYPE_STRINGCOMBO: {
+                String[] itemsArray = getComboItems(itemSchema, jsonObject);
+                addedView = FormUtilities.addComboView(activity, container, label, value, itemsArray, constraintDescription);
+                break;
+            }
+            case TYPE_AUTOCOMPLETESTRINGCOMBO: {
+                String[] itemsArray = getComboItems(itemSchema, jsonObject);
+                addedView = FormUtilities.addAutocompleteComboView(activity, container, label, value, itemsArray, constraintDescription);
+                break;
+            }
+            case TYPE_CONNECTEDSTRINGCOMBO: {
+                LinkedHashMap<String, List<String>> valuesMap = getComboValuesMap(itemSchema, jsonObject);
+                addedView = FormUtilities.addConnectedComboView(activity, container, label, value, valuesMap,
+                        constraintDescription);
+                break;
+            }
+            case TYPE_AUTOCOMPLETECONNECTEDSTRINGCOMBO: {
+                LinkedHashMap<String, List<String>> valuesMap = getComboValuesMap(itemSchema, jsonObject);
+                addedView = FormUtilities.addAutoCompleteConnectedComboView(activity, container, label, value, valuesMap,
+                        constraintDescription);
+                break;
+            }
+            case TYPE_ONETOMANYSTRINGCOMBO:
+                LinkedHashMap<String, List<NamedList<String>>> oneToManyValuesMap = getOneToManyValuesMap(itemSchema, jsonObject);
+                addedView = FormUtilities.addOneToManyConnectedComboView(activity, container, label, value, oneToManyValuesMap,
+                        constraintDescription);
+                break;
+            case TYPE_STRINGMULTIPLECHOICE: {
+                String[] itemsArray = getComboItems(itemSchema, jsonObject);
+                addedView = FormUtilities.addMultiSelectionView(activity, container, label, value, itemsArray,
+                        constraintDescription);
+                break;
+            }
+            case TYPE_PICTURES:
+                addedView = FormUtilities.addPictureView(noteId, this, requestCode, container, label, value, constraintDescription);
+                break;
+            case TYPE_SKETCH:
+                addedView = FormUtilities.addSketchView(noteId, this, requestCode, container, label, value, constraintDescription);
+                break;
+            case TYPE_MAP:
+                addedView = FormUtilities.addMapView(activity, container, label, value, constraintDescription);
+                break;
+            case TYPE_NFCUID:
+                addedView = new GNfcUidView(this, null, requestCode, container, label, value, constraintDescription);
+                break;
+            case TYPE_HIDDEN:
+                break;
+            default:
+                GPLog.addLogEntry(this, null, null, "Type non implemented yet: " + item.type);
+                break;
+        }
+        return addedView;
+    }
 
+    /**
+     * Show an item in a widget created by {@link #createWidget(long, FormItemState, LinearLayout)}
+     * for another item of the same type.
+     */
+    private void bindWidget(long noteId, FormItemState item, GView widget) throws Exception {
+        String label = item.label;
+        String value = item.getValue();
+        String constraintDescription = item.constraintDescription;
+        boolean readonly = item.readonly;
+        JSONObject jsonObject = item.jsonItem;
+        FormItemSchema itemSchema = item.itemSchema;
+        int requestCode = item.requestCode;
+
+        switch (item.type) {
+            case TYPE_STRING:
+            case TYPE_STRINGAREA:
+            case TYPE_DOUBLE:
+            case TYPE_INTEGER:
+                ((GEditTextView) widget).bind(label, value, constraintDescription, readonly);
+                break;
+            case TYPE_DYNAMICSTRING:
+                ((GDynamicEditTextView) widget).bind(label, value, 0, constraintDescription, readonly);
+                break;
+            case TYPE_DATE:
+                ((GDateView) widget).bind(label, value, constraintDescription, readonly);
+                break;
+            case TYPE_TIME:
+                ((GTimeView) widget).bind(label, value, constraintDescription, readonly);
+                break;
+            case TYPE_LABEL:
+            case TYPE_LABELWITHLINE: {
+                String size = "20"; //$NON-NLS-1$
+
+                if (jsonObject.has(TAG_SIZE))
+                    size = jsonObject.getString(TAG_SIZE);
+                String url = null;
+                if (jsonObject.has(TAG_URL))
+                    url = jsonObject.getString(TAG_URL);
+                ((GTextView) widget).bind(value, size, url);
+                break;
+            }
+            case TYPE_BOOLEAN:
+                ((GBooleanView) widget).bind(label, value, constraintDescription, readonly);
+                break;
+            case TYPE_STRINGCOMBO:
+                ((GComboView) widget).bind(label, value, getComboItems(itemSchema, jsonObject), constraintDescription);
+                break;
+            case TYPE_AUTOCOMPLETESTRINGCOMBO:
+                ((GAutocompleteTextView) widget).bind(label, value, getComboItems(itemSchema, jsonObject), constraintDescription);
+                break;
+            case TYPE_CONNECTEDSTRINGCOMBO:
+                ((GTwoConnectedComboView) widget).bind(label, value, getComboValuesMap(itemSchema, jsonObject), constraintDescription);
+                break;
+            case TYPE_AUTOCOMPLETECONNECTEDSTRINGCOMBO:
+                ((GTwoAutoCompleteConnectedTextView) widget).bind(label, value, getComboValuesMap(itemSchema, jsonObject),
+                        constraintDescription);
+                break;
+            case TYPE_ONETOMANYSTRINGCOMBO:
+                ((GOneToManyConnectedComboView) widget).bind(label, value, getOneToManyValuesMap(itemSchema, jsonObject),
+                        constraintDescription);
+                break;
+            case TYPE_STRINGMULTIPLECHOICE:
+                ((GMultiComboView) widget).bind(label, value, getComboItems(itemSchema, jsonObject), constraintDescription);
+                break;
+            case TYPE_PICTURES:
+                ((GPictureView) widget).bind(noteId, requestCode, label, value, constraintDescription);
+                break;
+            case TYPE_SKETCH:
+                ((GSketchView) widget).bind(noteId, requestCode, label, value, constraintDescription);
+                break;
+            case TYPE_MAP:
+                ((GMapView) widget).bind(label, value, constraintDescription);
+                break;
+            case TYPE_NFCUID:
+                ((GNfcUidView) widget).bind(requestCode, label, value, constraintDescription);
+                break;
+            default:
+                break;
         }
     }
 
+    private static String[] getComboItems(FormItemSchema itemSchema, JSONObject formItem) throws JSONException {
+        if (itemSchema != null && itemSchema.getComboItems() != null) {
+            return itemSchema.getComboItems();
+        }
+        JSONArray comboItems = TagsManager.getComboItems(formItem);
+        return TagsManager.comboItems2StringArray(comboItems);
+    }
+
+    private static LinkedHashMap<String, List<String>> getComboValuesMap(FormItemSchema itemSchema, JSONObject formItem) throws JSONException {
+        if (itemSchema != null && itemSchema.getComboValuesMap() != null) {
+            return itemSchema.getComboValuesMap();
+        }
+        return TagsManager.extractComboValuesMap(formItem);
+    }
+
+    private static LinkedHashMap<String, List<NamedList<String>>> getOneToManyValuesMap(FormItemSchema itemSchema, JSONObject formItem) throws JSONException {
+        if (itemSchema != null && itemSchema.getOneToManyValuesMap() != null) {
+            return itemSchema.getOneToManyValuesMap();
+        }
+        return TagsManager.extractOneToManyComboValuesMap(formItem);
+    }
+
     public void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
         if (resultCode == Activity.RESULT_OK) {
             GView gView = requestCodes2WidgetMap.get(requestCode);
             if (gView != null) {
                 gView.setOnActivityResult(data);
+                // the widget might have been scrolled away meanwhile
+                int index = requestCode - FIRST_REQUEST_CODE;
+                if (index >= 0 && index < itemStates.size()) {
+                    itemStates.get(index).setValue(gView.getValue());
+                }
             }
         }
     }
@@ -381,24 +573,23 @@ public class FormDetailFragment extends Fragment {
         JSONObject form4Name = TagsManager.getForm4Name(selectedFormName, sectionObject);
         JSONArray formItems = TagsManager.getFormItems(form4Name);
 
-        // update the items
-        for (String key : keyList) {
-            Constraints constraints = key2ConstraintsMap.get(key);
-
-            GView view = key2WidgetMap.get(key);
-            if (view != null) {
-                String text = view.getValue();
-                if (doConstraintsCheck && !constraints.isValid(text)) {
-                    return key;
-                }
+        if (formItemsAdapter != null)
+            formItemsAdapter.saveValues();
 
-                try {
-                    if (text != null)
-                        FormUtilities.update(formItems, key, text);
-                } catch (JSONException e) {
-                    GPLog.error(this, e.getLocalizedMessage(), e);
-                    e.printStackTrace();
-                }
+        // update the items, the ones never shown keep their value
+        for (FormItemState item : itemStates) {
+            String text = item.getValue();
+            if (doConstraintsCheck && !item.constraints.isValid(text)) {
+                return item.key;
+            }
+            if (!item.isChanged()) {
+                continue;
+            }
+            try {
+                FormUtilities.update(formItems, item.key, text);
+            } catch (JSONException e) {
+                GPLog.error(this, e.getLocalizedMessage(), e);
+                e.printStackTrace();
             }
         }
 
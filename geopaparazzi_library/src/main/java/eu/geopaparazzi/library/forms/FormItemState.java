@@ -0,0 +1,90 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.forms;
+
+import org.json.JSONObject;
+
+import eu.geopaparazzi.library.forms.constraints.Constraints;
+import eu.geopaparazzi.library.forms.schema.FormItemSchema;
+
+/**
+ * The state of a form item shown in the {@link FormDetailFragment}.
+ *
+ * <p>The widgets of the form exist only for the visible rows and are reused across
+ * items of the same kind, so the current value of every item lives here and is handed
+ * over from and to the widgets as they are bound and recycled.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+class FormItemState {
+    final String key;
+    final String label;
+    final String type;
+    final boolean readonly;
+    final Constraints constraints;
+    final String constraintDescription;
+    final int requestCode;
+    /**
+     * The json item, used to read the less common attributes and the combo values
+     * when there is no compatible compiled item.
+     */
+    final JSONObject jsonItem;
+    final FormItemSchema itemSchema;
+
+    private final String initialValue;
+    private String value;
+
+    FormItemState(String key, String label, String type, String value, boolean readonly, Constraints constraints,
+                  int requestCode, JSONObject jsonItem, FormItemSchema itemSchema) {
+        this.key = key;
+        this.label = label;
+        this.type = type;
+        this.initialValue = value;
+        this.value = value;
+        this.readonly = readonly;
+        this.constraints = constraints;
+        this.constraintDescription = constraints.getDescription();
+        this.requestCode = requestCode;
+        this.jsonItem = jsonItem;
+        this.itemSchema = itemSchema;
+    }
+
+    /**
+     * @return the current value.
+     */
+    String getValue() {
+        return value;
+    }
+
+    /**
+     * Set the value as read from the widget.
+     *
+     * @param value the value. <code>null</code> values are ignored.
+     */
+    void setValue(String value) {
+        if (value != null)
+            this.value = value;
+    }
+
+    /**
+     * @return <code>true</code> if the value differs from the one the form was opened with.
+     */
+    boolean isChanged() {
+        return !value.equals(initialValue);
+    }
+}
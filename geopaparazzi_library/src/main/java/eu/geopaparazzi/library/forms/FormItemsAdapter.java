@@ -0,0 +1,171 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.forms;
+
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import eu.geopaparazzi.library.forms.views.GView;
+
+/**
+ * Adapter that creates the widgets of a form only once their items are scrolled to.
+ *
+ * <p>Items with the same kind of widget share a view type, so a recycled row keeps its
+ * widget and is bound to the next item of that kind, instead of building the widget again.
+ * Before a row is recycled or bound to another item, the value of its widget is saved to the
+ * {@link FormItemState}, which holds the values of all items.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+class FormItemsAdapter extends RecyclerView.Adapter<FormItemsAdapter.ItemHolder> {
+
+    /**
+     * Factory for the widgets of the items.
+     */
+    interface IWidgetFactory {
+        /**
+         * Get the kind of widget of an item.
+         *
+         * <p>The widget of an item can be bound to any other item of the same kind.</p>
+         *
+         * @param item the item.
+         * @return the kind of widget.
+         */
+        int getWidgetKind(FormItemState item);
+
+        /**
+         * Create the widget of an item.
+         *
+         * @param item      the item.
+         * @param container the row to add the widget to.
+         * @return the widget or <code>null</code> for items that have none.
+         */
+        GView createWidget(FormItemState item, LinearLayout container);
+
+        /**
+         * Show an item in the widget created for another item of the same kind.
+         *
+         * @param widget the widget.
+         * @param item   the item.
+         */
+        void bindWidget(GView widget, FormItemState item);
+
+        /**
+         * Notify that a widget doesn't show its item anymore.
+         *
+         * @param widget the widget.
+         * @param item   the item it showed.
+         */
+        void unbindWidget(GView widget, FormItemState item);
+    }
+
+    private final List<FormItemState> items;
+    private final IWidgetFactory widgetFactory;
+    private final List<ItemHolder> boundHolders = new ArrayList<>();
+
+    FormItemsAdapter(List<FormItemState> items, IWidgetFactory widgetFactory) {
+        this.items = items;
+        this.widgetFactory = widgetFactory;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return widgetFactory.getWidgetKind(items.get(position));
+    }
+
+    @NonNull
+    @Override
+    public ItemHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        LinearLayout container = new LinearLayout(parent.getContext());
+        container.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        container.setOrientation(LinearLayout.VERTICAL);
+        // the widget needs the values of an item, so it is created at the first bind
+        return new ItemHolder(container);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ItemHolder holder, int position) {
+        FormItemState item = items.get(position);
+        if (holder.item == item)
+            return;
+        if (holder.item != null) {
+            unbind(holder);
+        }
+
+        holder.item = item;
+        if (holder.widget == null) {
+            LinearLayout container = (LinearLayout) holder.itemView;
+            container.removeAllViews();
+            holder.widget = widgetFactory.createWidget(item, container);
+        } else {
+            widgetFactory.bindWidget(holder.widget, item);
+        }
+        if (!boundHolders.contains(holder))
+            boundHolders.add(holder);
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull ItemHolder holder) {
+        if (holder.item != null) {
+            unbind(holder);
+        }
+        boundHolders.remove(holder);
+    }
+
+    private void unbind(ItemHolder holder) {
+        holder.saveValue();
+        if (holder.widget != null)
+            widgetFactory.unbindWidget(holder.widget, holder.item);
+        holder.item = null;
+    }
+
+    @Override
+    public int getItemCount() {
+        return items.size();
+    }
+
+    /**
+     * Save the values of the widgets currently on screen to the items.
+     */
+    void saveValues() {
+        for (ItemHolder holder : boundHolders) {
+            holder.saveValue();
+        }
+    }
+
+    static class ItemHolder extends RecyclerView.ViewHolder {
+        FormItemState item;
+        GView widget;
+
+        ItemHolder(LinearLayout container) {
+            super(container);
+        }
+
+        void saveValue() {
+            if (item != null && widget != null) {
+                item.setValue(widget.getValue());
+            }
+        }
+    }
+}
@@ -34,6 +34,9 @@ import java.util.List;
 import java.util.Set;
 
 import eu.geopaparazzi.library.core.ResourcesManager;
+import eu.geopaparazzi.library.forms.schema.SectionSchema;
+import eu.geopaparazzi.library.forms.schema.TagsSchema;
+import eu.geopaparazzi.library.forms.schema.TagsSchemaCache;
 import eu.geopaparazzi.library.profiles.Profile;
 import eu.geopaparazzi.library.profiles.ProfilesHandler;
 import eu.geopaparazzi.library.util.FileUtilities;
@@ -42,8 +45,6 @@ import eu.geopaparazzi.library.util.debug.Debug;
 
 import static eu.geopaparazzi.library.forms.FormUtilities.ATTR_FORMNAME;
 import static eu.geopaparazzi.library.forms.FormUtilities.ATTR_FORMS;
-import static eu.geopaparazzi.library.forms.FormUtilities.ATTR_SECTIONDESCRIPTION;
-import static eu.geopaparazzi.library.forms.FormUtilities.ATTR_SECTIONNAME;
 import static eu.geopaparazzi.library.forms.FormUtilities.TAG_FORMITEMS;
 import static eu.geopaparazzi.library.forms.FormUtilities.TAG_FORMS;
 import static eu.geopaparazzi.library.forms.FormUtilities.TAG_ITEM;
@@ -112,8 +113,13 @@ public class TagsManager {
      */
     public static String TAGSFILENAME_ENDPATTERN = "tags.json";
 
-    private LinkedHashMap<String, JSONObject> sectionsMap = null;
-    private HashMap<String, String> sectionsDescriptionMap = null;
+    /**
+     * The name of the folder, inside the application cache folder, holding the compiled tags.
+     */
+    public static final String SCHEMA_CACHE_FOLDERNAME = "formschemas";
+
+    private TagsSchema tagsSchema = null;
+    private final HashMap<String, JSONObject> sectionsMap = new HashMap<>();
 
     private static TagsManager tagsManager;
 
@@ -146,10 +152,6 @@ public class TagsManager {
      * @throws Exception
      */
     private void getFileTags(Context context) throws Exception {
-        if (sectionsMap == null) {
-            sectionsMap = new LinkedHashMap<>();
-            sectionsDescriptionMap = new HashMap<>();
-        }
         File[] tagsFileArray = null;
         Profile activeProfile = ProfilesHandler.INSTANCE.getActiveProfile();
         if (activeProfile != null) {
@@ -180,46 +182,67 @@ public class TagsManager {
             }
         }
 
-        sectionsMap.clear();
-        sectionsDescriptionMap.clear();
+        TagsSchemaCache schemaCache = new TagsSchemaCache(new File(context.getCacheDir(), SCHEMA_CACHE_FOLDERNAME));
+        List<SectionSchema> sections = new ArrayList<>();
         for (File tagsFile : tagsFileArray) {
             if (!tagsFile.exists()) continue;
-            String tagsFileString = FileUtilities.readfile(tagsFile);
-            JSONArray sectionsArrayObj = new JSONArray(tagsFileString);
-            int tagsNum = sectionsArrayObj.length();
-            for (int i = 0; i < tagsNum; i++) {
-                JSONObject jsonObject = sectionsArrayObj.getJSONObject(i);
-                if (jsonObject.has(ATTR_SECTIONNAME)) {
-                    String sectionName = jsonObject.getString(ATTR_SECTIONNAME);
-                    sectionsMap.put(sectionName, jsonObject);
-                    if (jsonObject.has(ATTR_SECTIONDESCRIPTION)) {
-                        String descr = jsonObject.getString(ATTR_SECTIONDESCRIPTION);
-                        sectionsDescriptionMap.put(sectionName, descr);
-                    }
-                }
-            }
+            sections.addAll(schemaCache.load(tagsFile).getSections());
         }
+        tagsSchema = new TagsSchema(sections);
+        sectionsMap.clear();
     }
 
     /**
      * @return the section names.
      */
     public Set<String> getSectionNames() {
-        return sectionsMap.keySet();
+        return tagsSchema.getSectionNames();
     }
 
     /**
      * get a section obj by name.
      *
+     * <p>The json is parsed on first access. To copy the section into a new note
+     * use {@link #getSectionJsonByName(String)}, which doesn't need any parsing.</p>
+     *
      * @param name thename.
      * @return the section object.
+     * @throws JSONException if something goes wrong.
      */
-    public JSONObject getSectionByName(String name) {
-        return sectionsMap.get(name);
+    public synchronized JSONObject getSectionByName(String name) throws JSONException {
+        JSONObject sectionObject = sectionsMap.get(name);
+        if (sectionObject == null) {
+            SectionSchema section = tagsSchema.getSection(name);
+            if (section == null) return null;
+            sectionObject = new JSONObject(section.getJson());
+            sectionsMap.put(name, sectionObject);
+        }
+        return sectionObject;
+    }
+
+    /**
+     * Get the json definition of a section.
+     *
+     * @param name the section name.
+     * @return the section json or <code>null</code>.
+     */
+    public String getSectionJsonByName(String name) {
+        SectionSchema section = tagsSchema.getSection(name);
+        if (section == null) return null;
+        return section.getJson();
     }
 
     public String getSectionDescriptionByName(String sectionName) {
-        return sectionsDescriptionMap.get(sectionName);
+        SectionSchema section = tagsSchema.getSection(sectionName);
+        if (section == null) return null;
+        return section.getDescription();
+    }
+
+    /**
+     * @return the compiled tags.
+     */
+    public TagsSchema getTagsSchema() {
+        return tagsSchema;
     }
 
     /**
@@ -0,0 +1,149 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.forms.schema;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.geopaparazzi.library.util.NamedList;
+
+import static eu.geopaparazzi.library.forms.FormUtilities.TAG_ITEMS;
+import static eu.geopaparazzi.library.forms.FormUtilities.TAG_TYPE;
+import static eu.geopaparazzi.library.forms.FormUtilities.TAG_VALUES;
+
+/**
+ * The compiled, immutable definition of a single form item.
+ *
+ * <p>The combo values are extracted once at compile time. The returned arrays, maps
+ * and lists are shared between all the forms that use the item, so they must not
+ * be modified.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public final class FormItemSchema {
+    private final String key;
+    private final String label;
+    private final String type;
+    private final boolean readonly;
+    private final String[] comboItems;
+    private final LinkedHashMap<String, List<String>> comboValuesMap;
+    private final LinkedHashMap<String, List<NamedList<String>>> oneToManyValuesMap;
+
+    FormItemSchema(String key, String label, String type, boolean readonly, String[] comboItems,
+                   LinkedHashMap<String, List<String>> comboValuesMap,
+                   LinkedHashMap<String, List<NamedList<String>>> oneToManyValuesMap) {
+        this.key = key;
+        this.label = label;
+        this.type = type;
+        this.readonly = readonly;
+        this.comboItems = comboItems;
+        this.comboValuesMap = comboValuesMap;
+        this.oneToManyValuesMap = oneToManyValuesMap;
+    }
+
+    /**
+     * @return the trimmed item key.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return the label, which defaults to the key.
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return the item type.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return <code>true</code> if the item is readonly.
+     */
+    public boolean isReadonly() {
+        return readonly;
+    }
+
+    /**
+     * @return the items of a simple combo or <code>null</code>.
+     */
+    public String[] getComboItems() {
+        return comboItems;
+    }
+
+    /**
+     * @return the values map of a connected combo or <code>null</code>.
+     */
+    public LinkedHashMap<String, List<String>> getComboValuesMap() {
+        return comboValuesMap;
+    }
+
+    /**
+     * @return the values map of a one to many combo or <code>null</code>.
+     */
+    public LinkedHashMap<String, List<NamedList<String>>> getOneToManyValuesMap() {
+        return oneToManyValuesMap;
+    }
+
+    /**
+     * Checks if the compiled item can stand in for a json form item.
+     *
+     * <p>Forms of existing notes are copies of the tags taken at creation time, so they
+     * might differ from the current tags. This is a cheap check on the type and the
+     * size of the combo values, which doesn't compare the single entries.</p>
+     *
+     * @param formItem the json form item.
+     * @return <code>true</code> if the compiled values can be used for the item.
+     */
+    public boolean isCompatible(JSONObject formItem) {
+        try {
+            String itemType = formItem.has(TAG_TYPE) ? formItem.getString(TAG_TYPE).trim() : null;
+            if (itemType != null && !itemType.equals(type)) {
+                return false;
+            }
+            JSONObject valuesObj = formItem.optJSONObject(TAG_VALUES);
+            if (comboItems != null) {
+                if (valuesObj == null || !valuesObj.has(TAG_ITEMS)) return false;
+                return valuesObj.getJSONArray(TAG_ITEMS).length() == comboItems.length;
+            }
+            Map<String, ? extends List<?>> valuesMap = comboValuesMap != null ? comboValuesMap : oneToManyValuesMap;
+            if (valuesMap != null) {
+                if (valuesObj == null || valuesObj.length() != valuesMap.size()) return false;
+                for (Map.Entry<String, ? extends List<?>> entry : valuesMap.entrySet()) {
+                    JSONArray itemsArray = valuesObj.optJSONArray(entry.getKey());
+                    if (itemsArray == null || itemsArray.length() != entry.getValue().size()) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        } catch (JSONException e) {
+            return false;
+        }
+    }
+}
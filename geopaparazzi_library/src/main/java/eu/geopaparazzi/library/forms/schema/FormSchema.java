@@ -0,0 +1,68 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.forms.schema;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The compiled, immutable definition of a form, i.e. one of the tabs of a section.
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public final class FormSchema {
+    private final String name;
+    private final List<FormItemSchema> items;
+    private final HashMap<String, FormItemSchema> itemsByKey = new HashMap<>();
+
+    FormSchema(String name, List<FormItemSchema> items) {
+        this.name = name;
+        this.items = Collections.unmodifiableList(items);
+        for (FormItemSchema item : items) {
+            // same as the json lookups, the first item with a key wins
+            if (!itemsByKey.containsKey(item.getKey())) {
+                itemsByKey.put(item.getKey(), item);
+            }
+        }
+    }
+
+    /**
+     * @return the form name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the non empty form items, in definition order.
+     */
+    public List<FormItemSchema> getItems() {
+        return items;
+    }
+
+    /**
+     * Get an item by its key.
+     *
+     * @param key the trimmed key.
+     * @return the item or <code>null</code>.
+     */
+    public FormItemSchema getItem(String key) {
+        return itemsByKey.get(key);
+    }
+}
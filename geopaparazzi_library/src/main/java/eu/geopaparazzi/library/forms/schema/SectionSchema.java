@@ -0,0 +1,100 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.forms.schema;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The compiled, immutable definition of a section, i.e. a note type with its forms.
+ *
+ * <p>Next to the compiled forms, the section keeps its json definition, which is
+ * the template copied into new notes.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public final class SectionSchema {
+    private final String name;
+    private final String description;
+    private final String json;
+    private final List<FormSchema> forms;
+    private final List<String> formNames;
+    private final HashMap<String, FormSchema> formsByName = new HashMap<>();
+
+    SectionSchema(String name, String description, String json, List<FormSchema> forms) {
+        this.name = name;
+        this.description = description;
+        this.json = json;
+        this.forms = Collections.unmodifiableList(forms);
+        List<String> names = new ArrayList<>(forms.size());
+        for (FormSchema form : forms) {
+            names.add(form.getName());
+            if (!formsByName.containsKey(form.getName())) {
+                formsByName.put(form.getName(), form);
+            }
+        }
+        formNames = Collections.unmodifiableList(names);
+    }
+
+    /**
+     * @return the section name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the section description or <code>null</code>.
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return the json definition of the section.
+     */
+    public String getJson() {
+        return json;
+    }
+
+    /**
+     * @return the forms, in definition order.
+     */
+    public List<FormSchema> getForms() {
+        return forms;
+    }
+
+    /**
+     * @return the form names, in definition order.
+     */
+    public List<String> getFormNames() {
+        return formNames;
+    }
+
+    /**
+     * Get a form by its name.
+     *
+     * @param formName the form name.
+     * @return the form or <code>null</code>.
+     */
+    public FormSchema getForm(String formName) {
+        return formsByName.get(formName);
+    }
+}
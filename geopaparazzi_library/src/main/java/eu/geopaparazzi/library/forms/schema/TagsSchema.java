@@ -0,0 +1,217 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.forms.schema;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+import eu.geopaparazzi.library.forms.FormUtilities;
+import eu.geopaparazzi.library.forms.TagsManager;
+import eu.geopaparazzi.library.util.NamedList;
+
+import static eu.geopaparazzi.library.forms.FormUtilities.ATTR_FORMNAME;
+import static eu.geopaparazzi.library.forms.FormUtilities.ATTR_FORMS;
+import static eu.geopaparazzi.library.forms.FormUtilities.ATTR_SECTIONDESCRIPTION;
+import static eu.geopaparazzi.library.forms.FormUtilities.ATTR_SECTIONNAME;
+import static eu.geopaparazzi.library.forms.FormUtilities.TAG_FORMITEMS;
+import static eu.geopaparazzi.library.forms.FormUtilities.TAG_KEY;
+import static eu.geopaparazzi.library.forms.FormUtilities.TAG_LABEL;
+import static eu.geopaparazzi.library.forms.FormUtilities.TAG_READONLY;
+import static eu.geopaparazzi.library.forms.FormUtilities.TAG_TYPE;
+
+/**
+ * The compiled, immutable definition of a tags file, indexed by section name.
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@SuppressWarnings("nls")
+public final class TagsSchema {
+    private final LinkedHashMap<String, SectionSchema> sectionsByName = new LinkedHashMap<>();
+
+    /**
+     * Create a schema from compiled sections.
+     *
+     * <p>If more sections have the same name, the last one wins, keeping the position
+     * of the first.</p>
+     *
+     * @param sections the sections.
+     */
+    public TagsSchema(Collection<SectionSchema> sections) {
+        for (SectionSchema section : sections) {
+            sectionsByName.put(section.getName(), section);
+        }
+    }
+
+    /**
+     * @return the section names, in definition order.
+     */
+    public Set<String> getSectionNames() {
+        return Collections.unmodifiableSet(sectionsByName.keySet());
+    }
+
+    /**
+     * @return the sections, in definition order.
+     */
+    public Collection<SectionSchema> getSections() {
+        return Collections.unmodifiableCollection(sectionsByName.values());
+    }
+
+    /**
+     * Get a section by name.
+     *
+     * @param sectionName the section name.
+     * @return the section or <code>null</code>.
+     */
+    public SectionSchema getSection(String sectionName) {
+        return sectionsByName.get(sectionName);
+    }
+
+    /**
+     * Get a form by section and form name.
+     *
+     * @param sectionName the section name.
+     * @param formName    the form name.
+     * @return the form or <code>null</code>.
+     */
+    public FormSchema getForm(String sectionName, String formName) {
+        SectionSchema section = sectionsByName.get(sectionName);
+        if (section == null) return null;
+        return section.getForm(formName);
+    }
+
+    /**
+     * Get an item by section, form and key.
+     *
+     * @param sectionName the section name.
+     * @param formName    the form name.
+     * @param key         the item key.
+     * @return the item or <code>null</code>.
+     */
+    public FormItemSchema getItem(String sectionName, String formName, String key) {
+        FormSchema form = getForm(sectionName, formName);
+        if (form == null) return null;
+        return form.getItem(key);
+    }
+
+    /**
+     * Compile the content of a tags file.
+     *
+     * @param tagsJson the json array of sections.
+     * @return the compiled schema.
+     * @throws JSONException if the json is not a valid tags definition.
+     */
+    public static TagsSchema compile(String tagsJson) throws JSONException {
+        JSONArray sectionsArrayObj = new JSONArray(tagsJson);
+        int sectionsNum = sectionsArrayObj.length();
+        List<SectionSchema> sections = new ArrayList<>(sectionsNum);
+        for (int i = 0; i < sectionsNum; i++) {
+            JSONObject sectionObj = sectionsArrayObj.getJSONObject(i);
+            if (sectionObj.has(ATTR_SECTIONNAME)) {
+                sections.add(compileSection(sectionObj));
+            }
+        }
+        return new TagsSchema(sections);
+    }
+
+    private static SectionSchema compileSection(JSONObject sectionObj) throws JSONException {
+        String sectionName = sectionObj.getString(ATTR_SECTIONNAME);
+        String description = null;
+        if (sectionObj.has(ATTR_SECTIONDESCRIPTION)) {
+            description = sectionObj.getString(ATTR_SECTIONDESCRIPTION);
+        }
+
+        List<FormSchema> forms = new ArrayList<>();
+        JSONArray formsArray = sectionObj.optJSONArray(ATTR_FORMS);
+        if (formsArray != null) {
+            for (int i = 0; i < formsArray.length(); i++) {
+                JSONObject formObj = formsArray.getJSONObject(i);
+                if (formObj.has(ATTR_FORMNAME)) {
+                    forms.add(compileForm(formObj));
+                }
+            }
+        }
+        return new SectionSchema(sectionName, description, sectionObj.toString(), forms);
+    }
+
+    private static FormSchema compileForm(JSONObject formObj) throws JSONException {
+        String formName = formObj.getString(ATTR_FORMNAME);
+        List<FormItemSchema> items = new ArrayList<>();
+        JSONArray formItemsArray = formObj.optJSONArray(TAG_FORMITEMS);
+        if (formItemsArray != null) {
+            for (int i = 0; i < formItemsArray.length(); i++) {
+                JSONObject formItem = formItemsArray.getJSONObject(i);
+                if (formItem.length() == 0) continue;
+                items.add(compileItem(formItem));
+            }
+        }
+        return new FormSchema(formName, items);
+    }
+
+    private static FormItemSchema compileItem(JSONObject formItem) throws JSONException {
+        String key = "-";
+        if (formItem.has(TAG_KEY))
+            key = formItem.getString(TAG_KEY).trim();
+        String label = key;
+        if (formItem.has(TAG_LABEL))
+            label = formItem.getString(TAG_LABEL).trim();
+        String type = FormUtilities.TYPE_STRING;
+        if (formItem.has(TAG_TYPE))
+            type = formItem.getString(TAG_TYPE).trim();
+        boolean readonly = false;
+        if (formItem.has(TAG_READONLY))
+            readonly = Boolean.parseBoolean(formItem.getString(TAG_READONLY).trim());
+
+        String[] comboItems = null;
+        LinkedHashMap<String, List<String>> comboValuesMap = null;
+        LinkedHashMap<String, List<NamedList<String>>> oneToManyValuesMap = null;
+        try {
+            switch (type) {
+                case FormUtilities.TYPE_STRINGCOMBO:
+                case FormUtilities.TYPE_AUTOCOMPLETESTRINGCOMBO:
+                case FormUtilities.TYPE_STRINGMULTIPLECHOICE:
+                    JSONArray jsonComboItems = TagsManager.getComboItems(formItem);
+                    if (jsonComboItems != null)
+                        comboItems = TagsManager.comboItems2StringArray(jsonComboItems);
+                    break;
+                case FormUtilities.TYPE_CONNECTEDSTRINGCOMBO:
+                case FormUtilities.TYPE_AUTOCOMPLETECONNECTEDSTRINGCOMBO:
+                    comboValuesMap = TagsManager.extractComboValuesMap(formItem);
+                    break;
+                case FormUtilities.TYPE_ONETOMANYSTRINGCOMBO:
+                    oneToManyValuesMap = TagsManager.extractOneToManyComboValuesMap(formItem);
+                    break;
+                default:
+                    break;
+            }
+        } catch (JSONException e) {
+            // malformed values, leave them to the json path, which reports the error when the form is opened
+            comboItems = null;
+            comboValuesMap = null;
+            oneToManyValuesMap = null;
+        }
+        return new FormItemSchema(key, label, type, readonly, comboItems, comboValuesMap, oneToManyValuesMap);
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.forms.schema;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.library.util.FileUtilities;
+import eu.geopaparazzi.library.util.NamedList;
+
+/**
+ * Binary cache of compiled {@link TagsSchema}s, one cache file per tags file.
+ *
+ * <p>A cache file is used as long as the tags file has the same modification time and
+ * size. If those changed, the SHA-1 of the tags file is compared with the stored one,
+ * so that a file that was just touched or copied over doesn't need a new compile.
+ * In any other case the tags are compiled from the json and the cache is rewritten.</p>
+ *
+ * <p>Layout:
+ * <pre>
+ * magic (int) | version (int) | tags path | mtime (long) | size (long) | sha1 (20 bytes)
+ * | section count | sections
+ * </pre>
+ * Strings are written as length prefixed UTF-8, so that also large section definitions fit.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@SuppressWarnings("nls")
+public class TagsSchemaCache {
+    /**
+     * The current cache format version. Caches of other versions are recompiled.
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x47505453;
+    private static final int HASH_SIZE = 20;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int COMBO_NONE = 0;
+    private static final int COMBO_ITEMS = 1;
+    private static final int COMBO_CONNECTED = 2;
+    private static final int COMBO_ONETOMANY = 3;
+
+    private final File cacheFolder;
+
+    /**
+     * Create a cache.
+     *
+     * @param cacheFolder the folder to keep the cache files in.
+     */
+    public TagsSchemaCache(File cacheFolder) {
+        this.cacheFolder = cacheFolder;
+    }
+
+    /**
+     * Get the compiled schema of a tags file, from the cache if it is still valid.
+     *
+     * @param tagsFile the tags file.
+     * @return the compiled schema.
+     * @throws Exception if the tags file can't be read or compiled.
+     */
+    public TagsSchema load(File tagsFile) throws Exception {
+        File cacheFile = getCacheFile(tagsFile);
+        long mtime = tagsFile.lastModified();
+        long size = tagsFile.length();
+
+        byte[] hash = null;
+        if (cacheFile.exists()) {
+            TagsSchema schema = null;
+            boolean attributesChanged = false;
+            // no length or count read from the cache can be larger than the cache itself
+            long limit = cacheFile.length();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+                if (in.readInt() == MAGIC && in.readInt() == VERSION && readString(in, limit).equals(tagsFile.getAbsolutePath())) {
+                    long cachedMtime = in.readLong();
+                    long cachedSize = in.readLong();
+                    byte[] cachedHash = new byte[HASH_SIZE];
+                    in.readFully(cachedHash);
+                    boolean isValid = cachedMtime == mtime && cachedSize == size;
+                    if (!isValid) {
+                        // the file might have just been touched or copied over
+                        hash = sha1(FileUtilities.readFileToByte(tagsFile));
+                        isValid = attributesChanged = Arrays.equals(hash, cachedHash);
+                    }
+                    if (isValid) {
+                        schema = readSchema(in, limit);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // corrupted or truncated, drop it so that it is rebuilt below
+                GPLog.error(this, "Discarding form schema cache: " + cacheFile, e);
+                schema = null;
+                attributesChanged = false;
+                if (!cacheFile.delete())
+                    GPLog.addLogEntry(this, "Unable to delete the form schema cache: " + cacheFile);
+            }
+            if (schema != null) {
+                if (attributesChanged) {
+                    try {
+                        write(cacheFile, tagsFile, mtime, size, hash, schema);
+                    } catch (IOException e) {
+                        GPLog.error(this, "Unable to write the form schema cache: " + cacheFile, e);
+                    }
+                }
+                if (GPLog.LOG_HEAVY)
+                    GPLog.addLogEntry(this, "Form schema cache hit: " + tagsFile.getName());
+                return schema;
+            }
+        }
+
+        if (hash == null) {
+            hash = sha1(FileUtilities.readFileToByte(tagsFile));
+        }
+        long start = System.currentTimeMillis();
+        TagsSchema schema = TagsSchema.compile(FileUtilities.readfile(tagsFile));
+        if (GPLog.LOG_HEAVY)
+            GPLog.addLogEntry(this, "Compiled form schema of " + tagsFile.getName() + " in " + (System.currentTimeMillis() - start) + " ms");
+        try {
+            write(cacheFile, tagsFile, mtime, size, hash, schema);
+        } catch (IOException e) {
+            // the cache is an optimization only
+            GPLog.error(this, "Unable to write the form schema cache: " + cacheFile, e);
+        }
+        return schema;
+    }
+
+    /**
+     * Get the cache file used for a tags file.
+     *
+     * @param tagsFile the tags file.
+     * @return the cache file.
+     */
+    public File getCacheFile(File tagsFile) {
+        String path = tagsFile.getAbsolutePath();
+        return new File(cacheFolder, "formschema_" + Integer.toHexString(path.hashCode()) + ".bin");
+    }
+
+    private void write(File cacheFile, File tagsFile, long mtime, long size, byte[] hash, TagsSchema schema) throws IOException {
+        if (!cacheFolder.exists() && !cacheFolder.mkdirs()) {
+            throw new IOException("Unable to create folder: " + cacheFolder);
+        }
+        File tmpFile = new File(cacheFolder, cacheFile.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, tagsFile.getAbsolutePath());
+            out.writeLong(mtime);
+            out.writeLong(size);
+            out.write(hash);
+            writeSchema(out, schema);
+        }
+        if (cacheFile.exists() && !cacheFile.delete() || !tmpFile.renameTo(cacheFile)) {
+            //noinspection ResultOfMethodCallIgnored
+            tmpFile.delete();
+            throw new IOException("Unable to replace cache file: " + cacheFile);
+        }
+    }
+
+    private static void writeSchema(DataOutputStream out, TagsSchema schema) throws IOException {
+        out.writeInt(schema.getSections().size());
+        for (SectionSchema section : schema.getSections()) {
+            writeString(out, section.getName());
+            out.writeBoolean(section.getDescription() != null);
+            if (section.getDescription() != null)
+                writeString(out, section.getDescription());
+            writeString(out, section.getJson());
+            out.writeInt(section.getForms().size());
+            for (FormSchema form : section.getForms()) {
+                writeString(out, form.getName());
+                out.writeInt(form.getItems().size());
+                for (FormItemSchema item : form.getItems()) {
+                    writeItem(out, item);
+                }
+            }
+        }
+    }
+
+    private static void writeItem(DataOutputStream out, FormItemSchema item) throws IOException {
+        writeString(out, item.getKey());
+        writeString(out, item.getLabel());
+        writeString(out, item.getType());
+        out.writeBoolean(item.isReadonly());
+        if (item.getComboItems() != null) {
+            out.writeByte(COMBO_ITEMS);
+            String[] comboItems = item.getComboItems();
+            out.writeInt(comboItems.length);
+            for (String comboItem : comboItems) {
+                writeString(out, comboItem);
+            }
+        } else if (item.getComboValuesMap() != null) {
+            out.writeByte(COMBO_CONNECTED);
+            LinkedHashMap<String, List<String>> valuesMap = item.getComboValuesMap();
+            out.writeInt(valuesMap.size());
+            for (String name : valuesMap.keySet()) {
+                writeString(out, name);
+                writeStrings(out, valuesMap.get(name));
+            }
+        } else if (item.getOneToManyValuesMap() != null) {
+            out.writeByte(COMBO_ONETOMANY);
+            LinkedHashMap<String, List<NamedList<String>>> valuesMap = item.getOneToManyValuesMap();
+            out.writeInt(valuesMap.size());
+            for (String name : valuesMap.keySet()) {
+                writeString(out, name);
+                List<NamedList<String>> namedLists = valuesMap.get(name);
+                out.writeInt(namedLists.size());
+                for (NamedList<String> namedList : namedLists) {
+                    writeString(out, namedList.name);
+                    writeStrings(out, namedList.items);
+                }
+            }
+        } else {
+            out.writeByte(COMBO_NONE);
+        }
+    }
+
+    private static TagsSchema readSchema(DataInputStream in, long limit) throws IOException {
+        int sectionsCount = readCount(in, limit);
+        List<SectionSchema> sections = new ArrayList<>(sectionsCount);
+        for (int i = 0; i < sectionsCount; i++) {
+            String sectionName = readString(in, limit);
+            String description = in.readBoolean() ? readString(in, limit) : null;
+            String json = readString(in, limit);
+            int formsCount = readCount(in, limit);
+            List<FormSchema> forms = new ArrayList<>(formsCount);
+            for (int j = 0; j < formsCount; j++) {
+                String formName = readString(in, limit);
+                int itemsCount = readCount(in, limit);
+                List<FormItemSchema> items = new ArrayList<>(itemsCount);
+                for (int k = 0; k < itemsCount; k++) {
+                    items.add(readItem(in, limit));
+                }
+                forms.add(new FormSchema(formName, items));
+            }
+            sections.add(new SectionSchema(sectionName, description, json, forms));
+        }
+        return new TagsSchema(sections);
+    }
+
+    private static FormItemSchema readItem(DataInputStream in, long limit) throws IOException {
+        String key = readString(in, limit);
+        String label = readString(in, limit);
+        String type = readString(in, limit);
+        boolean readonly = in.readBoolean();
+        String[] comboItems = null;
+        LinkedHashMap<String, List<String>> comboValuesMap = null;
+        LinkedHashMap<String, List<NamedList<String>>> oneToManyValuesMap = null;
+        int comboType = in.readByte();
+        switch (comboType) {
+            case COMBO_NONE:
+                break;
+            case COMBO_ITEMS: {
+                int count = readCount(in, limit);
+                comboItems = new String[count];
+                for (int i = 0; i < count; i++) {
+                    comboItems[i] = readString(in, limit);
+                }
+                break;
+            }
+            case COMBO_CONNECTED: {
+                int count = readCount(in, limit);
+                comboValuesMap = new LinkedHashMap<>();
+                for (int i = 0; i < count; i++) {
+                    String name = readString(in, limit);
+                    comboValuesMap.put(name, readStrings(in, limit));
+                }
+                break;
+            }
+            case COMBO_ONETOMANY: {
+                int count = readCount(in, limit);
+                oneToManyValuesMap = new LinkedHashMap<>();
+                for (int i = 0; i < count; i++) {
+                    String name = readString(in, limit);
+                    int listsCount = readCount(in, limit);
+                    List<NamedList<String>> namedLists = new ArrayList<>(listsCount);
+                    for (int j = 0; j < listsCount; j++) {
+                        NamedList<String> namedList = new NamedList<>();
+                        namedList.name = readString(in, limit);
+                        namedList.items = readStrings(in, limit);
+                        namedLists.add(namedList);
+                    }
+                    oneToManyValuesMap.put(name, namedLists);
+                }
+                break;
+            }
+            default:
+                throw new IOException("Unknown combo type: " + comboType);
+        }
+        return new FormItemSchema(key, label, type, readonly, comboItems, comboValuesMap, oneToManyValuesMap);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            writeString(out, string);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in, long limit) throws IOException {
+        int count = readCount(in, limit);
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            strings.add(readString(in, limit));
+        }
+        return strings;
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in, long limit) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > limit) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    private static int readCount(DataInputStream in, long limit) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > limit) {
+            throw new IOException("Invalid count: " + count);
+        }
+        return count;
+    }
+
+    private static byte[] sha1(byte[] bytes) throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e.getLocalizedMessage());
+        }
+    }
+}
@@ -43,7 +43,9 @@ import static eu.geopaparazzi.library.forms.FormUtilities.UNDERSCORE;
  */
 public class GAutocompleteTextView extends View implements GView {
 
+    private TextView textView;
     private AutoCompleteTextView autoCompleteTextView;
+    private ArrayAdapter<String> arrayAdapter;
     private String selectedComboEntry;
 
     /**
@@ -84,21 +86,13 @@ public class GAutocompleteTextView extends View implements GView {
         textLayout.setOrientation(LinearLayout.VERTICAL);
         parentView.addView(textLayout);
 
-        TextView textView = new TextView(context);
+        textView = new TextView(context);
         textView.setLayoutParams(new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
         textView.setPadding(2, 2, 2, 2);
-        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
         textView.setTextColor(Compat.getColor(context, R.color.formcolor));
         textLayout.addView(textView);
 
         autoCompleteTextView = new AutoCompleteTextView(context);
-        final ArrayAdapter<String> arrayAdapter = new ArrayAdapter<>(
-                context, android.R.layout.simple_dropdown_item_1line, itemsArray);
-        autoCompleteTextView.setAdapter(arrayAdapter);
-        if (value != null) {
-            autoCompleteTextView.setText(value);
-            selectedComboEntry = value;
-        }
         autoCompleteTextView.setOnClickListener(arg0 -> autoCompleteTextView.showDropDown());
         autoCompleteTextView.setOnItemClickListener((parent, view, position, id) -> selectedComboEntry = arrayAdapter.getItem(position));
         autoCompleteTextView.addTextChangedListener(new TextWatcher() {
@@ -150,6 +144,25 @@ public class GAutocompleteTextView extends View implements GView {
 //        }
 
         textLayout.addView(autoCompleteTextView);
+
+        bind(label, value, itemsArray, constraintDescription);
+    }
+
+    /**
+     * Show an item, as when the widget is reused for another item of the same type.
+     *
+     * @param label                 label
+     * @param value                 value
+     * @param itemsArray            the items.
+     * @param constraintDescription constraints
+     */
+    public void bind(String label, String value, String[] itemsArray, String constraintDescription) {
+        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
+        arrayAdapter = new ArrayAdapter<>(getContext(), android.R.layout.simple_dropdown_item_1line, itemsArray);
+        autoCompleteTextView.setAdapter(arrayAdapter);
+        // the text watcher resets the selection, so the entry is set after the text
+        autoCompleteTextView.setText(value != null ? value : "");
+        selectedComboEntry = value;
     }
 
     public String getValue() {
@@ -40,6 +40,7 @@ import static eu.geopaparazzi.library.forms.FormUtilities.UNDERSCORE;
 @SuppressWarnings("ALL")
 public class GBooleanView extends View implements GView {
 
+    private TextView textView;
     private CheckBox checkbox;
 
     /**
@@ -80,10 +81,9 @@ public class GBooleanView extends View implements GView {
         textLayout.setOrientation(LinearLayout.VERTICAL);
         parentView.addView(textLayout);
 
-        TextView textView = new TextView(context);
+        textView = new TextView(context);
         textView.setLayoutParams(new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
         textView.setPadding(2, 2, 2, 2);
-        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
         textView.setTextColor(Compat.getColor(context, R.color.formcolor));
 
         textLayout.addView(textView);
@@ -91,16 +91,23 @@ public class GBooleanView extends View implements GView {
         checkbox = new CheckBox(context);
         checkbox.setLayoutParams(new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
         checkbox.setPadding(15, 5, 15, 5);
+        textLayout.addView(checkbox);
+
+        bind(label, value, constraintDescription, readonly);
+    }
 
-        if (value != null) {
-            if (value.trim().toLowerCase().equals("true")) { //$NON-NLS-1$
-                checkbox.setChecked(true);
-            } else {
-                checkbox.setChecked(false);
-            }
-        }
+    /**
+     * Show an item, as when the widget is reused for another item of the same type.
+     *
+     * @param label                 label
+     * @param value                 value
+     * @param constraintDescription constraints
+     * @param readonly              if <code>false</code>, the item is disabled for editing.
+     */
+    public void bind(String label, String value, String constraintDescription, boolean readonly) {
+        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
+        checkbox.setChecked(value != null && value.trim().toLowerCase().equals("true")); //$NON-NLS-1$
         checkbox.setEnabled(!readonly);
-        textLayout.addView(checkbox);
     }
 
     public String getValue() {
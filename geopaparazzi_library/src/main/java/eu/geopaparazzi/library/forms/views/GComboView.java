@@ -41,6 +41,7 @@ import static eu.geopaparazzi.library.forms.FormUtilities.UNDERSCORE;
  */
 public class GComboView extends View implements GView {
 
+    private TextView textView;
     private Spinner spinner;
 
     /**
@@ -81,10 +82,9 @@ public class GComboView extends View implements GView {
         textLayout.setOrientation(LinearLayout.VERTICAL);
         parentView.addView(textLayout);
 
-        TextView textView = new TextView(context);
+        textView = new TextView(context);
         textView.setLayoutParams(new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
         textView.setPadding(2, 2, 2, 2);
-        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
         textView.setTextColor(Compat.getColor(context, R.color.formcolor));
         textLayout.addView(textView);
 
@@ -106,8 +106,23 @@ public class GComboView extends View implements GView {
             minHeight = (int) (ret - 1 * metrics.density);
         }
         spinner.setMinimumHeight(minHeight);
+        textLayout.addView(spinner);
+
+        bind(label, value, itemsArray, constraintDescription);
+    }
+
+    /**
+     * Show an item, as when the widget is reused for another item of the same type.
+     *
+     * @param label                 label
+     * @param value                 value
+     * @param itemsArray            the items.
+     * @param constraintDescription constraints
+     */
+    public void bind(String label, String value, String[] itemsArray, String constraintDescription) {
+        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
 
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(context, android.R.layout.simple_spinner_dropdown_item, itemsArray);
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(getContext(), android.R.layout.simple_spinner_dropdown_item, itemsArray);
         adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         spinner.setAdapter(adapter);
         if (value != null) {
@@ -118,8 +133,6 @@ public class GComboView extends View implements GView {
                 }
             }
         }
-
-        textLayout.addView(spinner);
     }
 
     public String getValue() {
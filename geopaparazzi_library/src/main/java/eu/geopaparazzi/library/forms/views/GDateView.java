@@ -51,6 +51,7 @@ import static eu.geopaparazzi.library.forms.FormUtilities.UNDERSCORE;
  */
 public class GDateView extends View implements GView {
 
+    private TextView textView;
     private Button button;
 
     /**
@@ -93,10 +94,9 @@ public class GDateView extends View implements GView {
         textLayout.setOrientation(LinearLayout.VERTICAL);
         parentView.addView(textLayout);
 
-        TextView textView = new TextView(context);
+        textView = new TextView(context);
         textView.setLayoutParams(new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
         textView.setPadding(2, 2, 2, 2);
-        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
         textView.setTextColor(Compat.getColor(context, R.color.formcolor));
         textLayout.addView(textView);
 
@@ -104,12 +104,6 @@ public class GDateView extends View implements GView {
         StyleHelper.styleButton(context, button);
 
         final SimpleDateFormat dateFormatter = TimeUtilities.INSTANCE.DATEONLY_FORMATTER;
-        if (value == null || value.length() == 0) {
-            String dateStr = dateFormatter.format(new Date());
-            button.setText(dateStr);
-        } else {
-            button.setText(value);
-        }
         button.setOnClickListener(new OnClickListener() {
             public void onClick(View v) {
                 String dateStr = button.getText().toString();
@@ -131,9 +125,28 @@ public class GDateView extends View implements GView {
                 newFragment.show(fragment.getFragmentManager(), "datePicker"); //NON-NLS
             }
         });
-        button.setEnabled(!readonly);
 
         textLayout.addView(button);
+
+        bind(label, value, constraintDescription, readonly);
+    }
+
+    /**
+     * Show an item, as when the widget is reused for another item of the same type.
+     *
+     * @param label                 label
+     * @param value                 value
+     * @param constraintDescription constraints
+     * @param readonly              if <code>false</code>, the item is disabled for editing.
+     */
+    public void bind(String label, String value, String constraintDescription, boolean readonly) {
+        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
+        if (value == null || value.length() == 0) {
+            button.setText(TimeUtilities.INSTANCE.DATEONLY_FORMATTER.format(new Date()));
+        } else {
+            button.setText(value);
+        }
+        button.setEnabled(!readonly);
     }
 
     public String getValue() {
@@ -46,9 +46,12 @@ import static eu.geopaparazzi.library.forms.FormUtilities.UNDERSCORE;
  */
 public class GDynamicEditTextView extends View implements GView {
 
+    private TextView textView;
     private Button addTextButton;
     private List<EditText> editViewList;
     private LinearLayout mainLayout;
+    private int type;
+    private boolean readonly;
 
     /**
      * @param context  the context to use.
@@ -77,8 +80,8 @@ public class GDynamicEditTextView extends View implements GView {
      * @param constraintDescription constraints
      * @param readonly              if <code>false</code>, the item is disabled for editing.
      */
-    public GDynamicEditTextView(final Context context, AttributeSet attrs, LinearLayout parentView, String label, String value, final int type,
-                                String constraintDescription, final boolean readonly) {
+    public GDynamicEditTextView(final Context context, AttributeSet attrs, LinearLayout parentView, String label, String value, int type,
+                                String constraintDescription, boolean readonly) {
         super(context, attrs);
 
         editViewList = new ArrayList<>();
@@ -91,41 +94,62 @@ public class GDynamicEditTextView extends View implements GView {
         mainLayout.setOrientation(LinearLayout.VERTICAL);
         parentView.addView(mainLayout);
 
-        TextView textView = new TextView(context);
+        textView = new TextView(context);
         textView.setLayoutParams(new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
         textView.setPadding(2, 2, 2, 2);
-        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
         textView.setTextColor(Compat.getColor(context, R.color.formcolor));
 
         mainLayout.addView(textView);
 
-        String[] valuesSplit = value.trim().split(";");
-        if (valuesSplit.length == 0) {
-            valuesSplit = new String[]{" "};
-        }
-
-        for (String singleValue : valuesSplit) {
-            addSingleEditText(context, mainLayout, singleValue.trim(), readonly, type);
-        }
-
         float minTouch = context.getResources().getDimension(R.dimen.min_touch_size);
         addTextButton = new Button(context);
         addTextButton.setLayoutParams(new LinearLayout.LayoutParams((int) minTouch, (int) minTouch));
         addTextButton.setPadding(5, 5, 5, 5);
 //        addTextButton.setText("+");
         addTextButton.setBackground(Compat.getDrawable(context, R.drawable.ic_add_primary_24dp));
-        mainLayout.addView(addTextButton);
 
         addTextButton.setOnClickListener(v -> {
             mainLayout.removeView(addTextButton);
 
-            addSingleEditText(context, mainLayout, "", readonly, type);
+            addSingleEditText(context, mainLayout, "", this.readonly, this.type);
 
             // add the button back
             mainLayout.addView(addTextButton);
         });
 
+        bind(label, value, type, constraintDescription, readonly);
+    }
 
+    /**
+     * Show an item, as when the widget is reused for another item of the same type.
+     *
+     * @param label                 label
+     * @param value                 value
+     * @param type                  the text type.
+     * @param constraintDescription constraints
+     * @param readonly              if <code>false</code>, the item is disabled for editing.
+     */
+    public void bind(String label, String value, int type, String constraintDescription, boolean readonly) {
+        this.type = type;
+        this.readonly = readonly;
+        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
+
+        for (EditText editText : editViewList) {
+            mainLayout.removeView(editText);
+        }
+        editViewList.clear();
+        mainLayout.removeView(addTextButton);
+
+        String[] valuesSplit = value.trim().split(";");
+        if (valuesSplit.length == 0) {
+            valuesSplit = new String[]{" "};
+        }
+
+        for (String singleValue : valuesSplit) {
+            addSingleEditText(getContext(), mainLayout, singleValue.trim(), readonly, type);
+        }
+
+        mainLayout.addView(addTextButton);
     }
 
     private void addSingleEditText(Context context, LinearLayout mainLayout, String singleValue, boolean readonly, int type) {
@@ -42,6 +42,7 @@ import static eu.geopaparazzi.library.forms.FormUtilities.UNDERSCORE;
  */
 public class GEditTextView extends View implements GView {
 
+    private TextView textView;
     private EditText editView;
 
     /**
@@ -84,10 +85,9 @@ public class GEditTextView extends View implements GView {
         textLayout.setOrientation(LinearLayout.VERTICAL);
         parentView.addView(textLayout);
 
-        TextView textView = new TextView(context);
+        textView = new TextView(context);
         textView.setLayoutParams(new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
         textView.setPadding(2, 2, 2, 2);
-        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
         textView.setTextColor(Compat.getColor(context, R.color.formcolor));
 
         textLayout.addView(textView);
@@ -97,8 +97,6 @@ public class GEditTextView extends View implements GView {
         params.setMargins(15, 25, 15, 15);
         editView.setLayoutParams(params);
 //        editView.setPadding(15, 5, 15, 5);
-        editView.setText(value);
-        editView.setEnabled(!readonly);
 
         switch (type) {
             case 1:
@@ -123,6 +121,22 @@ public class GEditTextView extends View implements GView {
         }
 
         textLayout.addView(editView);
+
+        bind(label, value, constraintDescription, readonly);
+    }
+
+    /**
+     * Show an item, as when the widget is reused for another item of the same type.
+     *
+     * @param label                 label
+     * @param value                 value
+     * @param constraintDescription constraints
+     * @param readonly              if <code>false</code>, the item is disabled for editing.
+     */
+    public void bind(String label, String value, String constraintDescription, boolean readonly) {
+        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
+        editView.setText(value);
+        editView.setEnabled(!readonly);
     }
 
     public String getValue() {
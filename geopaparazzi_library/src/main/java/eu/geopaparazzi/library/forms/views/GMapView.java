@@ -19,7 +19,6 @@ package eu.geopaparazzi.library.forms.views;
 
 import android.content.Context;
 import android.content.Intent;
-import android.graphics.Bitmap;
 import android.net.Uri;
 import android.util.AttributeSet;
 import android.view.View;
@@ -51,7 +50,10 @@ import static eu.geopaparazzi.library.forms.FormUtilities.UNDERSCORE;
 public class GMapView extends View implements GView {
 
     private LinearLayout mainLayout;
+    private TextView textView;
+    private ImageView imageView;
     private String value;
+    private long imageId;
 
     /**
      * @param context  the context to use.
@@ -81,76 +83,87 @@ public class GMapView extends View implements GView {
     public GMapView(final Context context, AttributeSet attrs, LinearLayout parentView, String label, String value,
                     String constraintDescription) {
         super(context, attrs);
-        this.value = value;
 
-        try {
-            mainLayout = new LinearLayout(context);
-            LinearLayout.LayoutParams layoutParams = new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT,
-                    LayoutParams.WRAP_CONTENT);
-            layoutParams.setMargins(10, 10, 10, 10);
-            mainLayout.setLayoutParams(layoutParams);
-            mainLayout.setOrientation(LinearLayout.VERTICAL);
-            parentView.addView(mainLayout);
-
-            TextView textView = new TextView(context);
-            textView.setLayoutParams(new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
-            textView.setPadding(2, 2, 2, 2);
-            textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
-            textView.setTextColor(Compat.getColor(context, R.color.formcolor));
-            mainLayout.addView(textView);
-
-            final long imageId = Long.parseLong(value.trim());
-
-            final IImagesDbHelper imagesDbHelper = DefaultHelperClasses.getDefaulfImageHelper();
-
-            byte[] imageThumbnail = imagesDbHelper.getImageThumbnail(imageId);
-            Bitmap thumbnail = ImageUtilities.getImageFromImageData(imageThumbnail);
-
-            ImageView imageView = new ImageView(context);
-            LinearLayout.LayoutParams lp = new LinearLayout.LayoutParams(150, 150);
-            lp.setMargins(10, 10, 10, 10);
-            imageView.setLayoutParams(lp);
-            imageView.setPadding(5, 5, 5, 5);
-            imageView.setImageBitmap(thumbnail);
-            imageView.setBackground(Compat.getDrawable(context, R.drawable.border_black_1px));
-            imageView.setOnClickListener(new OnClickListener() {
-                public void onClick(View v) {
-                    // the old way
-                    // Intent intent = new Intent();
-                    // intent.setAction(android.content.Intent.ACTION_VIEW);
-                    //                    intent.setDataAndType(Uri.fromFile(image), "image/*"); //$NON-NLS-1$
-                    // context.startActivity(intent);
+        mainLayout = new LinearLayout(context);
+        LinearLayout.LayoutParams layoutParams = new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT,
+                LayoutParams.WRAP_CONTENT);
+        layoutParams.setMargins(10, 10, 10, 10);
+        mainLayout.setLayoutParams(layoutParams);
+        mainLayout.setOrientation(LinearLayout.VERTICAL);
+        parentView.addView(mainLayout);
+
+        textView = new TextView(context);
+        textView.setLayoutParams(new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
+        textView.setPadding(2, 2, 2, 2);
+        textView.setTextColor(Compat.getColor(context, R.color.formcolor));
+        mainLayout.addView(textView);
+
+        final IImagesDbHelper imagesDbHelper = DefaultHelperClasses.getDefaulfImageHelper();
+
+        imageView = new ImageView(context);
+        LinearLayout.LayoutParams lp = new LinearLayout.LayoutParams(150, 150);
+        lp.setMargins(10, 10, 10, 10);
+        imageView.setLayoutParams(lp);
+        imageView.setPadding(5, 5, 5, 5);
+        imageView.setBackground(Compat.getDrawable(context, R.drawable.border_black_1px));
+        imageView.setOnClickListener(new OnClickListener() {
+            public void onClick(View v) {
+                // the old way
+                // Intent intent = new Intent();
+                // intent.setAction(android.content.Intent.ACTION_VIEW);
+                //                    intent.setDataAndType(Uri.fromFile(image), "image/*"); //$NON-NLS-1$
+                // context.startActivity(intent);
 //
 //                        /*
 //                         * open in markers to edit it
 //                         */
 //                    SketchUtilities.launchOnImage(context, image);
 
-                    try {
-                        Intent intent = new Intent();
-                        intent.setAction(Intent.ACTION_VIEW);
-                        Image image = imagesDbHelper.getImage(imageId);
-                        File tempDir = ResourcesManager.getInstance(context).getTempDir();
-                        String ext = ".jpg";
-                        if (image.getName().endsWith(".png"))
-                            ext = ".png";
-                        File imageFile = new File(tempDir, ImageUtilities.getTempImageName(ext));
-                        byte[] imageData = imagesDbHelper.getImageData(image.getId());
-                        ImageUtilities.writeImageDataToFile(imageData, imageFile.getAbsolutePath());
-
-                        intent.setDataAndType(Uri.fromFile(imageFile), "image/*"); //$NON-NLS-1$
-                        context.startActivity(intent);
-                    } catch (Exception e) {
-                        GPLog.error(this, null, e);
-                    }
+                try {
+                    Intent intent = new Intent();
+                    intent.setAction(Intent.ACTION_VIEW);
+                    Image image = imagesDbHelper.getImage(imageId);
+                    File tempDir = ResourcesManager.getInstance(context).getTempDir();
+                    String ext = ".jpg";
+                    if (image.getName().endsWith(".png"))
+                        ext = ".png";
+                    File imageFile = new File(tempDir, ImageUtilities.getTempImageName(ext));
+                    byte[] imageData = imagesDbHelper.getImageData(image.getId());
+                    ImageUtilities.writeImageDataToFile(imageData, imageFile.getAbsolutePath());
+
+                    intent.setDataAndType(Uri.fromFile(imageFile), "image/*"); //$NON-NLS-1$
+                    context.startActivity(intent);
+                } catch (Exception e) {
+                    GPLog.error(this, null, e);
                 }
+            }
+
+        });
+        mainLayout.addView(imageView);
+
+        bind(label, value, constraintDescription);
+    }
+
+    /**
+     * Show an item, as when the widget is reused for another item of the same type.
+     *
+     * @param label                 label
+     * @param value                 value
+     * @param constraintDescription constraints
+     */
+    public void bind(String label, String value, String constraintDescription) {
+        this.value = value;
+        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
 
-            });
-            mainLayout.addView(imageView);
+        imageView.setImageDrawable(null);
+        try {
+            imageId = Long.parseLong(value.trim());
+            ThumbnailLoader.load(imageId, imageView);
+            imageView.setVisibility(View.VISIBLE);
         } catch (Exception e) {
             GPLog.error(this, null, e);
+            imageView.setVisibility(View.GONE);
         }
-
     }
 
     public void refresh(final Context context) {
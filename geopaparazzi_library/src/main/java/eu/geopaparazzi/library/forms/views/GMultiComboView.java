@@ -43,7 +43,9 @@ import static eu.geopaparazzi.library.forms.FormUtilities.UNDERSCORE;
  */
 public class GMultiComboView extends View implements GView {
 
+    private TextView textView;
     private Button button;
+    private String[] itemsArray;
 
     /**
      * @param context  the context to use.
@@ -72,7 +74,7 @@ public class GMultiComboView extends View implements GView {
      * @param constraintDescription constraints
      */
     public GMultiComboView(final Context context, AttributeSet attrs, LinearLayout parentView, String label, String value,
-                           final String[] itemsArray, String constraintDescription) {
+                           String[] itemsArray, String constraintDescription) {
         super(context, attrs);
 
         LinearLayout textLayout = new LinearLayout(context);
@@ -83,10 +85,9 @@ public class GMultiComboView extends View implements GView {
         textLayout.setOrientation(LinearLayout.VERTICAL);
         parentView.addView(textLayout);
 
-        TextView textView = new TextView(context);
+        textView = new TextView(context);
         textView.setLayoutParams(new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
         textView.setPadding(2, 2, 2, 2);
-        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
         textView.setTextColor(Compat.getColor(context, R.color.formcolor));
         textLayout.addView(textView);
 
@@ -94,18 +95,32 @@ public class GMultiComboView extends View implements GView {
         button.setTransformationMethod(null); // to avoid all caps
         StyleHelper.styleButton(context, button);
 
-        if (value == null || value.length() == 0) {
-            button.setText("...");
-        } else {
-            button.setText(value);
-        }
         button.setOnClickListener(v -> {
             MultipleChoiceDialog dialog = new MultipleChoiceDialog();
-            dialog.open(context, button, itemsArray);
+            dialog.open(context, button, this.itemsArray);
         });
 
         textLayout.addView(button);
 
+        bind(label, value, itemsArray, constraintDescription);
+    }
+
+    /**
+     * Show an item, as when the widget is reused for another item of the same type.
+     *
+     * @param label                 label
+     * @param value                 value
+     * @param itemsArray            the items.
+     * @param constraintDescription constraints
+     */
+    public void bind(String label, String value, String[] itemsArray, String constraintDescription) {
+        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
+        this.itemsArray = itemsArray;
+        if (value == null || value.length() == 0) {
+            button.setText("...");
+        } else {
+            button.setText(value);
+        }
     }
 
     public String getValue() {
@@ -47,8 +47,10 @@ import static eu.geopaparazzi.library.forms.FormUtilities.UNDERSCORE;
 public class GNfcUidView extends View implements GView {
 
     private String _value;
+    private TextView textView;
     private EditText uidText;
     private FormDetailFragment fragmentDetail;
+    private int requestCode;
 
     /**
      * @param context  the context to use.
@@ -99,10 +101,8 @@ public class GNfcUidView extends View implements GView {
         handleView(fragmentDetail.getActivity(), requestCode, parentView, label, value, constraintDescription);
     }
 
-    private void handleView(final Activity activity, final int requestCode, LinearLayout parentView, String label, String value,
+    private void handleView(final Activity activity, int requestCode, LinearLayout parentView, String label, String value,
                             String constraintDescription) {
-        _value = value;
-
         LinearLayout textLayout = new LinearLayout(activity);
         LinearLayout.LayoutParams layoutParams = new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT,
                 LayoutParams.WRAP_CONTENT);
@@ -111,10 +111,9 @@ public class GNfcUidView extends View implements GView {
         textLayout.setOrientation(LinearLayout.VERTICAL);
         parentView.addView(textLayout);
 
-        TextView textView = new TextView(activity);
+        textView = new TextView(activity);
         textView.setLayoutParams(new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
         textView.setPadding(2, 2, 2, 2);
-        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
         textView.setTextColor(Compat.getColor(activity, R.color.formcolor));
         textLayout.addView(textView);
 
@@ -127,7 +126,6 @@ public class GNfcUidView extends View implements GView {
         uidText.setLayoutParams(new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
         uidText.setPadding(2, 2, 2, 2);
         uidText.setEnabled(false);
-        uidText.setText(value);
         uidText.setTextColor(Compat.getColor(activity, R.color.main_text_color_neutral));
         uidText.setKeyListener(null);
         textLayout.addView(uidText);
@@ -135,11 +133,28 @@ public class GNfcUidView extends View implements GView {
         button.setOnClickListener(v -> {
             Intent nfcIntent = new Intent(activity, NfcIdReaderActivity.class);
             if (fragmentDetail != null) {
-                fragmentDetail.startActivityForResult(nfcIntent, requestCode);
+                fragmentDetail.startActivityForResult(nfcIntent, this.requestCode);
             } else {
-                activity.startActivityForResult(nfcIntent, requestCode);
+                activity.startActivityForResult(nfcIntent, this.requestCode);
             }
         });
+
+        bind(requestCode, label, value, constraintDescription);
+    }
+
+    /**
+     * Show an item, as when the widget is reused for another item of the same type.
+     *
+     * @param requestCode           the request code for the activity return.
+     * @param label                 label
+     * @param value                 value
+     * @param constraintDescription constraints
+     */
+    public void bind(int requestCode, String label, String value, String constraintDescription) {
+        this.requestCode = requestCode;
+        _value = value;
+        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
+        uidText.setText(value);
     }
 
     public String getValue() {
@@ -55,6 +55,13 @@ public class GOneToManyConnectedComboView extends View implements GView, OnItemS
     private ArrayList<Spinner> orderedSubCombosList;
     private ArrayList<TextView> orderedSubTextviewsList;
     private LinkedHashMap<String, List<NamedList<String>>> dataMap;
+    private TextView textView;
+    private LinearLayout combosLayout;
+    private int minHeight;
+    /**
+     * The main combo entry the sub combos were loaded for.
+     */
+    private String subCombosKey = "";
 
     /**
      * @param context  the context to use.
@@ -85,34 +92,16 @@ public class GOneToManyConnectedComboView extends View implements GView, OnItemS
     public GOneToManyConnectedComboView(Context context, AttributeSet attrs, LinearLayout parentView, String label, String value,
                                         LinkedHashMap<String, List<NamedList<String>>> dataMap, String constraintDescription) {
         super(context, attrs);
-        this.dataMap = dataMap;
 
-        if (value == null)
-            value = "";
-
-        String[] valueSplit = value.split(SEP, -1);
-        String _mainComboValue;
-        List<String> _comboValues = new ArrayList<>();
-        if (valueSplit.length > 1) {
-            _mainComboValue = valueSplit[0];
-            _comboValues.addAll(Arrays.asList(valueSplit).subList(1, valueSplit.length));
-        } else {
-            _mainComboValue = "";
-            for (int i = 1; i < dataMap.size(); i++) {
-                _comboValues.add("");
-            }
-        }
-
-        TextView textView = new TextView(context);
+        textView = new TextView(context);
         LinearLayout.LayoutParams textViewParams = new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT);
         textViewParams.setMargins(15, 25, 15, 15);
         textView.setLayoutParams(textViewParams);
         textView.setPadding(2, 2, 2, 2);
-        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
         textView.setTextColor(Compat.getColor(context, R.color.formcolor));
         parentView.addView(textView);
 
-        LinearLayout combosLayout = new LinearLayout(context);
+        combosLayout = new LinearLayout(context);
         LinearLayout.LayoutParams layoutParams = new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT,
                 LayoutParams.WRAP_CONTENT);
         layoutParams.setMargins(10, 10, 10, 10);
@@ -125,27 +114,75 @@ public class GOneToManyConnectedComboView extends View implements GView, OnItemS
         LinearLayout.LayoutParams titleSpinnerParams = new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT);
         titleSpinnerParams.setMargins(15, 25, 15, 15);
         mainComboSpinner.setLayoutParams(titleSpinnerParams);
+        mainComboSpinner.setPopupBackgroundDrawable(Compat.getDrawable(context, R.drawable.thin_background_frame));
+        mainComboSpinner.setBackground(Compat.getDrawable(context, R.drawable.thin_background_frame));
+        minHeight = getMinComboHeight(context);
+        mainComboSpinner.setMinimumHeight(minHeight);
+        combosLayout.addView(mainComboSpinner);
+
+        orderedSubCombosList = new ArrayList<>();
+        orderedSubTextviewsList = new ArrayList<>();
+
+        bind(label, value, dataMap, constraintDescription);
+
+        mainComboSpinner.setOnItemSelectedListener(this);
+    }
+
+    /**
+     * Show an item, as when the widget is reused for another item of the same type.
+     *
+     * <p>The sub combos are built again, since their number depends on the data.</p>
+     *
+     * @param label                 label
+     * @param value                 _value
+     * @param dataMap               the map of the data.
+     * @param constraintDescription constraints
+     */
+    public void bind(String label, String value, LinkedHashMap<String, List<NamedList<String>>> dataMap, String constraintDescription) {
+        Context context = getContext();
+        this.dataMap = dataMap;
+        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
+
+        if (value == null)
+            value = "";
+
+        String[] valueSplit = value.split(SEP, -1);
+        String _mainComboValue;
+        List<String> _comboValues = new ArrayList<>();
+        if (valueSplit.length > 1) {
+            _mainComboValue = valueSplit[0];
+            _comboValues.addAll(Arrays.asList(valueSplit).subList(1, valueSplit.length));
+        } else {
+            _mainComboValue = "";
+            for (int i = 1; i < dataMap.size(); i++) {
+                _comboValues.add("");
+            }
+        }
+
         Set<String> mainNamesSet = dataMap.keySet();
         ArrayList<String> mainComboItems = new ArrayList<>(mainNamesSet);
         mainComboItems.add(0, "");
         ArrayAdapter<String> titleListAdapter = new ArrayAdapter<>(context, android.R.layout.simple_spinner_dropdown_item, mainComboItems);
         titleListAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         mainComboSpinner.setAdapter(titleListAdapter);
-        mainComboSpinner.setPopupBackgroundDrawable(Compat.getDrawable(context, R.drawable.thin_background_frame));
-        mainComboSpinner.setBackground(Compat.getDrawable(context, R.drawable.thin_background_frame));
-        int minHeight = getMinComboHeight(context);
-        mainComboSpinner.setMinimumHeight(minHeight);
 
+        subCombosKey = "";
         if (_mainComboValue.length() > 0) {
             int indexOf = mainComboItems.indexOf(_mainComboValue.trim());
             if (indexOf != -1) {
                 mainComboSpinner.setSelection(indexOf, false);
+                subCombosKey = mainComboItems.get(indexOf);
             }
         }
-        combosLayout.addView(mainComboSpinner);
 
-        orderedSubCombosList = new ArrayList<>();
-        orderedSubTextviewsList = new ArrayList<>();
+        for (TextView subTextView : orderedSubTextviewsList) {
+            combosLayout.removeView(subTextView);
+        }
+        for (Spinner subSpinner : orderedSubCombosList) {
+            combosLayout.removeView(subSpinner);
+        }
+        orderedSubTextviewsList.clear();
+        orderedSubCombosList.clear();
 
         List<NamedList<String>> namedLists = dataMap.get(_mainComboValue);
         if (namedLists == null) {
@@ -191,9 +228,6 @@ public class GOneToManyConnectedComboView extends View implements GView, OnItemS
                 subSpinner.setSelection(position, false);
             }
         }
-
-
-        mainComboSpinner.setOnItemSelectedListener(this);
     }
 
     private int getMinComboHeight(Context context) {
@@ -238,6 +272,11 @@ public class GOneToManyConnectedComboView extends View implements GView, OnItemS
     public void onItemSelected(AdapterView<?> parent, View callingView, int pos, long arg3) {
         if (parent == mainComboSpinner) {
             String mainComboItem = mainComboSpinner.getSelectedItem().toString();
+            if (mainComboItem.equals(subCombosKey)) {
+                // the selection notified after a bind, keep the sub combo values
+                return;
+            }
+            subCombosKey = mainComboItem;
 
             List<NamedList<String>> namedLists = new ArrayList<>();
             if (mainComboItem.length() != 0) {
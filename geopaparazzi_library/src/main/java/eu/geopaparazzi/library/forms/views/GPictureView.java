@@ -21,7 +21,6 @@ package eu.geopaparazzi.library.forms.views;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.graphics.Bitmap;
 import android.net.Uri;
 import android.util.AttributeSet;
 import android.view.View;
@@ -75,6 +74,12 @@ public class GPictureView extends View implements GView {
 
     private LinearLayout imageLayout;
 
+    private TextView textView;
+
+    private long noteId;
+
+    private int requestCode;
+
     /**
      * @param context  the context to use.
      * @param attrs    attributes.
@@ -102,12 +107,10 @@ public class GPictureView extends View implements GView {
      * @param value                 in case of pictures, the value are the ids of the image, semicolonseparated.
      * @param constraintDescription constraints
      */
-    public GPictureView(final long noteId, final FormDetailFragment fragmentDetail, AttributeSet attrs, final int requestCode, LinearLayout parentView, String label, String value,
+    public GPictureView(long noteId, final FormDetailFragment fragmentDetail, AttributeSet attrs, int requestCode, LinearLayout parentView, String label, String value,
                         String constraintDescription) {
         super(fragmentDetail.getActivity(), attrs);
 
-        _value = value;
-
         final FragmentActivity activity = fragmentDetail.getActivity();
         LinearLayout textLayout = new LinearLayout(activity);
         LinearLayout.LayoutParams layoutParams = new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT,
@@ -117,10 +120,9 @@ public class GPictureView extends View implements GView {
         textLayout.setOrientation(LinearLayout.VERTICAL);
         parentView.addView(textLayout);
 
-        TextView textView = new TextView(activity);
+        textView = new TextView(activity);
         textView.setLayoutParams(new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
         textView.setPadding(2, 2, 2, 2);
-        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
         textView.setTextColor(Compat.getColor(activity, R.color.formcolor));
         textLayout.addView(textView);
 
@@ -137,13 +139,13 @@ public class GPictureView extends View implements GView {
                 String imageName = ImageUtilities.getCameraImageName(null);
                 Intent cameraIntent = new Intent(activity, CameraNoteActivity.class);
                 cameraIntent.putExtra(LibraryConstants.PREFS_KEY_CAMERA_IMAGENAME, imageName);
-                cameraIntent.putExtra(LibraryConstants.DATABASE_ID, noteId);
+                cameraIntent.putExtra(LibraryConstants.DATABASE_ID, GPictureView.this.noteId);
                 if (gpsLocation != null) {
                     cameraIntent.putExtra(LibraryConstants.LATITUDE, gpsLocation[1]);
                     cameraIntent.putExtra(LibraryConstants.LONGITUDE, gpsLocation[0]);
                     cameraIntent.putExtra(LibraryConstants.ELEVATION, gpsLocation[2]);
                 }
-                fragmentDetail.startActivityForResult(cameraIntent, requestCode);
+                fragmentDetail.startActivityForResult(cameraIntent, GPictureView.this.requestCode);
             }
         });
 
@@ -161,13 +163,40 @@ public class GPictureView extends View implements GView {
         imageLayout.setOrientation(LinearLayout.HORIZONTAL);
         scrollView.addView(imageLayout);
 
+        bind(noteId, requestCode, label, value, constraintDescription);
+    }
+
+    /**
+     * Show an item, as when the widget is reused for another item of the same type.
+     *
+     * @param noteId                the id of the note this image belows to.
+     * @param requestCode           the code for starting the activity with result.
+     * @param label                 label
+     * @param value                 in case of pictures, the value are the ids of the image, semicolonseparated.
+     * @param constraintDescription constraints
+     */
+    public void bind(long noteId, int requestCode, String label, String value, String constraintDescription) {
+        this.noteId = noteId;
+        this.requestCode = requestCode;
+        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
+
+        unbind();
+        _value = value;
         try {
-            refresh(activity);
+            refresh(getContext());
         } catch (Exception e) {
             GPLog.error(this, null, e);
         }
     }
 
+    /**
+     * Drop the thumbnails of the item shown so far.
+     */
+    public void unbind() {
+        imageLayout.removeAllViews();
+        addedImages.clear();
+    }
+
     public void refresh(final Context context) throws Exception {
         log("Entering refresh....");
 
@@ -194,15 +223,12 @@ public class GPictureView extends View implements GView {
                 }
                 final long imageIdLong = Long.parseLong(imageId);
 
-                byte[] imageThumbnail = imagesDbHelper.getImageThumbnail(imageIdLong);
-                Bitmap thumbnail = ImageUtilities.getImageFromImageData(imageThumbnail);
-
                 ImageView imageView = new ImageView(context);
                 LinearLayout.LayoutParams lp = new LinearLayout.LayoutParams(150, 150);
                 lp.setMargins(10, 10, 10, 10);
                 imageView.setLayoutParams(lp);
                 imageView.setPadding(5, 5, 5, 5);
-                imageView.setImageBitmap(thumbnail);
+                ThumbnailLoader.load(imageIdLong, imageView);
                 imageView.setBackground(Compat.getDrawable(context, R.drawable.border_black_1px));
                 imageView.setOnClickListener(new OnClickListener() {
                     public void onClick(View v) {
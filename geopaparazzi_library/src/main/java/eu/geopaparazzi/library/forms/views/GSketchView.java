@@ -21,7 +21,6 @@ package eu.geopaparazzi.library.forms.views;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.graphics.Bitmap;
 import android.util.AttributeSet;
 import android.view.View;
 import android.view.ViewGroup.LayoutParams;
@@ -72,6 +71,10 @@ public class GSketchView extends View implements GView {
 
     private LinearLayout imageLayout;
 
+    private TextView textView;
+
+    private int requestCode;
+
     /**
      * @param context  the context to use.
      * @param attrs    attributes.
@@ -99,12 +102,9 @@ public class GSketchView extends View implements GView {
      * @param value                 value
      * @param constraintDescription constraints
      */
-    public GSketchView(final long noteId, final FormDetailFragment fragmentDetail, AttributeSet attrs, final int requestCode, LinearLayout parentView, String label, String value,
+    public GSketchView(long noteId, final FormDetailFragment fragmentDetail, AttributeSet attrs, int requestCode, LinearLayout parentView, String label, String value,
                        String constraintDescription) {
         super(fragmentDetail.getActivity(), attrs);
-        this.noteId = noteId;
-
-        _value = value;
 
         final FragmentActivity activity = fragmentDetail.getActivity();
         LinearLayout textLayout = new LinearLayout(activity);
@@ -115,10 +115,9 @@ public class GSketchView extends View implements GView {
         textLayout.setOrientation(LinearLayout.VERTICAL);
         parentView.addView(textLayout);
 
-        TextView textView = new TextView(activity);
+        textView = new TextView(activity);
         textView.setLayoutParams(new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
         textView.setPadding(2, 2, 2, 2);
-        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
         textView.setTextColor(Compat.getColor(activity, R.color.formcolor));
         textLayout.addView(textView);
 
@@ -142,7 +141,7 @@ public class GSketchView extends View implements GView {
                     /*
                      * open markers for new sketch
                      */
-                    SketchUtilities.launch(fragmentDetail, sketchFile, gpsLocation, requestCode);
+                    SketchUtilities.launch(fragmentDetail, sketchFile, gpsLocation, GSketchView.this.requestCode);
                 } catch (Exception e) {
                     GPLog.error(this, null, e);
                 }
@@ -164,13 +163,40 @@ public class GSketchView extends View implements GView {
         scrollView.addView(imageLayout);
         // scrollView.setFillViewport(true);
 
+        bind(noteId, requestCode, label, value, constraintDescription);
+    }
+
+    /**
+     * Show an item, as when the widget is reused for another item of the same type.
+     *
+     * @param noteId                the id of the note this image belows to.
+     * @param requestCode           the code for starting the activity with result.
+     * @param label                 label
+     * @param value                 value
+     * @param constraintDescription constraints
+     */
+    public void bind(long noteId, int requestCode, String label, String value, String constraintDescription) {
+        this.noteId = noteId;
+        this.requestCode = requestCode;
+        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
+
+        unbind();
+        _value = value;
         try {
-            refresh(activity);
+            refresh(getContext());
         } catch (Exception e) {
             GPLog.error(this, null, e);
         }
     }
 
+    /**
+     * Drop the thumbnails of the item shown so far.
+     */
+    public void unbind() {
+        imageLayout.removeAllViews();
+        addedImages.clear();
+    }
+
     public void refresh(final Context context) throws Exception {
         log("Entering refresh....");
 
@@ -198,15 +224,12 @@ public class GSketchView extends View implements GView {
                     continue;
                 }
 
-                byte[] imageThumbnail = imagesDbHelper.getImageThumbnail(imageIdLong);
-                Bitmap thumbnail = ImageUtilities.getImageFromImageData(imageThumbnail);
-
                 ImageView imageView = new ImageView(context);
                 LinearLayout.LayoutParams lp = new LinearLayout.LayoutParams(150, 150);
                 lp.setMargins(10, 10, 10, 10);
                 imageView.setLayoutParams(lp);
                 imageView.setPadding(5, 5, 5, 5);
-                imageView.setImageBitmap(thumbnail);
+                ThumbnailLoader.load(imageIdLong, imageView);
                 imageView.setBackground(Compat.getDrawable(context, R.drawable.border_black_1px));
                 imageView.setOnClickListener(new OnClickListener() {
                     public void onClick(View v) {
@@ -40,6 +40,7 @@ import eu.geopaparazzi.library.util.Compat;
 public class GTextView extends View implements GView {
 
     private TextView textView;
+    private String url;
 
     /**
      * @param context  the context to use.
@@ -68,7 +69,7 @@ public class GTextView extends View implements GView {
      * @param url      url support.
      */
     public GTextView(final Context context, AttributeSet attrs, LinearLayout mainView, String value, String size,
-                     boolean withLine, final String url) {
+                     boolean withLine, String url) {
         super(context, attrs);
 
         LinearLayout textLayout = new LinearLayout(context);
@@ -84,6 +85,29 @@ public class GTextView extends View implements GView {
         params.setMargins(15, 25, 15, 15);
         textView.setLayoutParams(params);
         textView.setPadding(2, 2, 2, 2);
+        textLayout.addView(textView);
+
+        if (withLine) {
+            View view = new View(context);
+            view.setLayoutParams(new LayoutParams(LayoutParams.MATCH_PARENT, 2));
+            view.setBackgroundColor(Compat.getColor(context, R.color.formcolor));
+
+            textLayout.addView(view);
+        }
+
+        bind(value, size, url);
+    }
+
+    /**
+     * Show an item, as when the widget is reused for another item of the same type.
+     *
+     * @param value value
+     * @param size  size
+     * @param url   url support.
+     */
+    public void bind(String value, String size, String url) {
+        Context context = getContext();
+        this.url = url;
         textView.setText(value);
 
         size = size.trim();
@@ -102,22 +126,16 @@ public class GTextView extends View implements GView {
             textView.setMovementMethod(LinkMovementMethod.getInstance());
             textView.setOnClickListener(new OnClickListener() {
                 public void onClick(View v) {
-                    Uri uri = Uri.parse(url);
+                    Uri uri = Uri.parse(GTextView.this.url);
                     Intent intent = new Intent(Intent.ACTION_VIEW, uri);
-                    context.startActivity(intent);
+                    getContext().startActivity(intent);
                 }
             });
+        } else {
+            textView.setMovementMethod(null);
+            textView.setOnClickListener(null);
+            textView.setClickable(false);
         }
-        textLayout.addView(textView);
-
-        if (withLine) {
-            View view = new View(context);
-            view.setLayoutParams(new LayoutParams(LayoutParams.MATCH_PARENT, 2));
-            view.setBackgroundColor(Compat.getColor(context, R.color.formcolor));
-
-            textLayout.addView(view);
-        }
-
     }
 
     public String getValue() {
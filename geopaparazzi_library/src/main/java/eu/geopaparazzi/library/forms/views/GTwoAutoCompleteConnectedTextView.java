@@ -59,7 +59,9 @@ public class GTwoAutoCompleteConnectedTextView extends View implements GView, On
     private String selectedCombo1Entry;
     private String selectedCombo2Entry;
     private AutoCompleteTextView autoCompleteTextView2;
+    private ArrayAdapter<String> combo1ArrayAdapter;
     private ArrayAdapter<String> combo2ArrayAdapter;
+    private TextView textView;
 
     /**
      * @param context  the context to use.
@@ -90,31 +92,12 @@ public class GTwoAutoCompleteConnectedTextView extends View implements GView, On
     public GTwoAutoCompleteConnectedTextView(Context context, AttributeSet attrs, LinearLayout parentView, String label, String value,
                                              LinkedHashMap<String, List<String>> dataMap, String constraintDescription) {
         super(context, attrs);
-        this.dataMap = dataMap;
-
-        if (value == null)
-            value = "";
-
-        String[] valueSplit = value.split(SEP);
-        String _combo1Value;
-        String _combo2Value;
-        if (valueSplit.length == 2) {
-            _combo1Value = valueSplit[0];
-            _combo2Value = valueSplit[1];
-        } else {
-            _combo1Value = "";
-            _combo2Value = "";
-        }
-
-        selectedCombo1Entry = _combo1Value;
-        selectedCombo2Entry = _combo2Value;
 
-        TextView textView = new TextView(context);
+        textView = new TextView(context);
         LinearLayout.LayoutParams textViewParams = new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT);
         textViewParams.setMargins(15, 25, 15, 15);
         textView.setLayoutParams(textViewParams);
         textView.setPadding(2, 2, 2, 2);
-        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
         textView.setTextColor(Compat.getColor(context, R.color.formcolor));
         parentView.addView(textView);
 
@@ -127,27 +110,67 @@ public class GTwoAutoCompleteConnectedTextView extends View implements GView, On
         combosLayout.setBackground(Compat.getDrawable(context, R.drawable.thin_background_frame));
         parentView.addView(combosLayout);
 
-        createCombo1(context, _combo1Value, dataMap);
-
-        List<String> combo2ItemsList = new ArrayList<>();
-        if (_combo1Value.length() > 0) {
-            combo2ItemsList = dataMap.get(_combo1Value);
-        }
-
-        createCombo2(context, _combo2Value, combo2ItemsList);
+        createCombo1(context);
+        createCombo2(context);
 
         combosLayout.addView(autoCompleteTextView1);
         combosLayout.addView(autoCompleteTextView2);
+
+        bind(label, value, dataMap, constraintDescription);
     }
 
-    private void createCombo2(Context context, String _combo2Value, List<String> combo2ItemsList) {
-        autoCompleteTextView2 = new AutoCompleteTextView(context);
+    /**
+     * Show an item, as when the widget is reused for another item of the same type.
+     *
+     * @param label                 label
+     * @param value                 _value
+     * @param dataMap               the map of the data.
+     * @param constraintDescription constraints
+     */
+    public void bind(String label, String value, LinkedHashMap<String, List<String>> dataMap, String constraintDescription) {
+        Context context = getContext();
+        this.dataMap = dataMap;
+        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
 
+        if (value == null)
+            value = "";
+
+        String[] valueSplit = value.split(SEP);
+        String _combo1Value;
+        String _combo2Value;
+        if (valueSplit.length == 2) {
+            _combo1Value = valueSplit[0];
+            _combo2Value = valueSplit[1];
+        } else {
+            _combo1Value = "";
+            _combo2Value = "";
+        }
+
+        Set<String> titlesSet = dataMap.keySet();
+        ArrayList<String> combo1Items = new ArrayList<>(titlesSet);
+        combo1Items.add(0, "");
+        combo1ArrayAdapter = new ArrayAdapter<>(
+                context, android.R.layout.simple_dropdown_item_1line, combo1Items);
+        autoCompleteTextView1.setAdapter(combo1ArrayAdapter);
+
+        List<String> combo2ItemsList = new ArrayList<>();
+        if (_combo1Value.length() > 0 && dataMap.containsKey(_combo1Value)) {
+            combo2ItemsList = dataMap.get(_combo1Value);
+        }
         combo2ArrayAdapter = new ArrayAdapter<>(
                 context, android.R.layout.simple_dropdown_item_1line, combo2ItemsList);
         autoCompleteTextView2.setAdapter(combo2ArrayAdapter);
-        if (_combo2Value != null)
-            autoCompleteTextView2.setText(_combo2Value);
+
+        // the text watchers reset the selections, so the entries are set after the texts
+        autoCompleteTextView1.setText(_combo1Value);
+        autoCompleteTextView2.setText(_combo2Value);
+        selectedCombo1Entry = _combo1Value;
+        selectedCombo2Entry = _combo2Value;
+    }
+
+    private void createCombo2(Context context) {
+        autoCompleteTextView2 = new AutoCompleteTextView(context);
+
         autoCompleteTextView2.setOnClickListener(arg0 -> autoCompleteTextView2.showDropDown());
         autoCompleteTextView2.setOnItemClickListener((parent, view, position, id) -> selectedCombo2Entry = combo2ArrayAdapter.getItem(position));
         autoCompleteTextView2.addTextChangedListener(new TextWatcher() {
@@ -172,19 +195,11 @@ public class GTwoAutoCompleteConnectedTextView extends View implements GView, On
     }
 
     @NonNull
-    private void createCombo1(Context context, String _combo1Value, final LinkedHashMap<String, List<String>> dataMap) {
+    private void createCombo1(Context context) {
         autoCompleteTextView1 = new AutoCompleteTextView(context);
-        Set<String> titlesSet = dataMap.keySet();
-        ArrayList<String> combo1Items = new ArrayList<>(titlesSet);
-        combo1Items.add(0, "");
-        final ArrayAdapter<String> arrayAdapter = new ArrayAdapter<>(
-                context, android.R.layout.simple_dropdown_item_1line, combo1Items);
-        autoCompleteTextView1.setAdapter(arrayAdapter);
-        if (_combo1Value != null)
-            autoCompleteTextView1.setText(_combo1Value);
         autoCompleteTextView1.setOnClickListener(arg0 -> autoCompleteTextView1.showDropDown());
         autoCompleteTextView1.setOnItemClickListener((parent, view, position, id) -> {
-            selectedCombo1Entry = arrayAdapter.getItem(position);
+            selectedCombo1Entry = combo1ArrayAdapter.getItem(position);
 
             List<String> valuesList = new ArrayList<>();
             if (selectedCombo1Entry.length() != 0) {
@@ -52,6 +52,11 @@ public class GTwoConnectedComboView extends View implements GView, OnItemSelecte
     private Spinner combo1Spinner;
     private Spinner combo2Spinner;
     private LinkedHashMap<String, List<String>> dataMap;
+    private TextView textView;
+    /**
+     * The combo1 entry the items of combo2 were loaded for.
+     */
+    private String combo2Key = "";
 
     /**
      * @param context  the context to use.
@@ -82,28 +87,12 @@ public class GTwoConnectedComboView extends View implements GView, OnItemSelecte
     public GTwoConnectedComboView(Context context, AttributeSet attrs, LinearLayout parentView, String label, String value,
                                   LinkedHashMap<String, List<String>> dataMap, String constraintDescription) {
         super(context, attrs);
-        this.dataMap = dataMap;
-
-        if (value == null)
-            value = "";
-
-        String[] valueSplit = value.split(SEP);
-        String _combo1Value;
-        String _combo2Value;
-        if (valueSplit.length == 2) {
-            _combo1Value = valueSplit[0];
-            _combo2Value = valueSplit[1];
-        } else {
-            _combo1Value = "";
-            _combo2Value = "";
-        }
 
-        TextView textView = new TextView(context);
+        textView = new TextView(context);
         LinearLayout.LayoutParams textViewParams = new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT);
         textViewParams.setMargins(15, 25, 15, 15);
         textView.setLayoutParams(textViewParams);
         textView.setPadding(2, 2, 2, 2);
-        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
         textView.setTextColor(Compat.getColor(context, R.color.formcolor));
         parentView.addView(textView);
 
@@ -120,12 +109,6 @@ public class GTwoConnectedComboView extends View implements GView, OnItemSelecte
         LinearLayout.LayoutParams titleSpinnerParams = new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT);
         titleSpinnerParams.setMargins(15, 25, 15, 15);
         combo1Spinner.setLayoutParams(titleSpinnerParams);
-        Set<String> titlesSet = dataMap.keySet();
-        ArrayList<String> combo1Items = new ArrayList<>(titlesSet);
-        combo1Items.add(0, "");
-        ArrayAdapter<String> titleListAdapter = new ArrayAdapter<>(context, android.R.layout.simple_spinner_dropdown_item, combo1Items);
-        titleListAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-        combo1Spinner.setAdapter(titleListAdapter);
         combo1Spinner.setPopupBackgroundDrawable(Compat.getDrawable(context, R.drawable.thin_background_frame));
         combo1Spinner.setBackground(Compat.getDrawable(context, R.drawable.thin_background_frame));
         int minHeight = getMinComboHeight(context);
@@ -139,27 +122,68 @@ public class GTwoConnectedComboView extends View implements GView, OnItemSelecte
         combo2Spinner.setBackground(Compat.getDrawable(context, R.drawable.thin_background_frame));
         combo2Spinner.setMinimumHeight(minHeight);
 
+        combosLayout.addView(combo1Spinner);
+        combosLayout.addView(combo2Spinner);
+
+        bind(label, value, dataMap, constraintDescription);
+
+        combo1Spinner.setOnItemSelectedListener(this);
+    }
+
+    /**
+     * Show an item, as when the widget is reused for another item of the same type.
+     *
+     * @param label                 label
+     * @param value                 _value
+     * @param dataMap               the map of the data.
+     * @param constraintDescription constraints
+     */
+    public void bind(String label, String value, LinkedHashMap<String, List<String>> dataMap, String constraintDescription) {
+        Context context = getContext();
+        this.dataMap = dataMap;
+        textView.setText(label.replace(UNDERSCORE, " ").replace(COLON, " ") + " " + constraintDescription);
+
+        if (value == null)
+            value = "";
+
+        String[] valueSplit = value.split(SEP);
+        String _combo1Value;
+        String _combo2Value;
+        if (valueSplit.length == 2) {
+            _combo1Value = valueSplit[0];
+            _combo2Value = valueSplit[1];
+        } else {
+            _combo1Value = "";
+            _combo2Value = "";
+        }
+
+        Set<String> titlesSet = dataMap.keySet();
+        ArrayList<String> combo1Items = new ArrayList<>(titlesSet);
+        combo1Items.add(0, "");
+        ArrayAdapter<String> titleListAdapter = new ArrayAdapter<>(context, android.R.layout.simple_spinner_dropdown_item, combo1Items);
+        titleListAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        combo1Spinner.setAdapter(titleListAdapter);
+
         List<String> combo2ItemsList = new ArrayList<>();
+        combo2Key = "";
         if (_combo1Value.length() > 0) {
             combo2ItemsList = dataMap.get(_combo1Value);
             int indexOf = combo1Items.indexOf(_combo1Value.trim());
             if (indexOf != -1) {
                 combo1Spinner.setSelection(indexOf, false);
+                combo2Key = combo1Items.get(indexOf);
             }
         }
+        if (combo2ItemsList == null)
+            combo2ItemsList = new ArrayList<>();
         ArrayAdapter<String> combo2ListAdapter = new ArrayAdapter<>(context, android.R.layout.simple_spinner_dropdown_item, combo2ItemsList);
         combo2ListAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         combo2Spinner.setAdapter(combo2ListAdapter);
 
-        combosLayout.addView(combo1Spinner);
-        combosLayout.addView(combo2Spinner);
-
         if (_combo2Value.length() > 0) {
             int position = combo2ListAdapter.getPosition(_combo2Value);
             combo2Spinner.setSelection(position, false);
         }
-
-        combo1Spinner.setOnItemSelectedListener(this);
     }
 
     private int getMinComboHeight(Context context) {
@@ -200,6 +224,11 @@ public class GTwoConnectedComboView extends View implements GView, OnItemSelecte
     public void onItemSelected(AdapterView<?> parent, View callingView, int pos, long arg3) {
         if (parent == combo1Spinner) {
             String combo1Item = combo1Spinner.getSelectedItem().toString();
+            if (combo1Item.equals(combo2Key)) {
+                // the selection notified after a bind, keep the combo2 value
+                return;
+            }
+            combo2Key = combo1Item;
             List<String> valuesList = new ArrayList<>();
             if (combo1Item.length() != 0) {
                 valuesList = dataMap.get(combo1Item);
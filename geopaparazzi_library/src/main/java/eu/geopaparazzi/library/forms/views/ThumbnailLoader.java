@@ -0,0 +1,73 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.forms.views;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.ImageView;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import eu.geopaparazzi.library.database.DefaultHelperClasses;
+import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.library.database.IImagesDbHelper;
+import eu.geopaparazzi.library.images.ImageUtilities;
+
+/**
+ * Loads the thumbnails of the form images off the UI thread.
+ *
+ * <p>The image views are laid out with their final size right away, the bitmap
+ * is set once read from the database and decoded.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+final class ThumbnailLoader {
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    private ThumbnailLoader() {
+    }
+
+    /**
+     * Load the thumbnail of an image into a view.
+     *
+     * <p>If the view is given another image before the thumbnail is read, the stale thumbnail is dropped.</p>
+     *
+     * @param imageId   the id of the image.
+     * @param imageView the view to set the thumbnail in.
+     */
+    static void load(final long imageId, final ImageView imageView) {
+        imageView.setTag(imageId);
+        EXECUTOR.execute(() -> {
+            try {
+                IImagesDbHelper imagesDbHelper = DefaultHelperClasses.getDefaulfImageHelper();
+                byte[] imageThumbnail = imagesDbHelper.getImageThumbnail(imageId);
+                final Bitmap thumbnail = ImageUtilities.getImageFromImageData(imageThumbnail);
+                MAIN_HANDLER.post(() -> {
+                    if (Long.valueOf(imageId).equals(imageView.getTag())) {
+                        imageView.setImageBitmap(thumbnail);
+                    }
+                });
+            } catch (Exception e) {
+                GPLog.error("ThumbnailLoader", "Unable to load thumbnail of image: " + imageId, e); //NON-NLS
+            }
+        });
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.geodesy;
+
+/**
+ * Geodesic distance computations on primitive values.
+ *
+ * <p>This class has no Android dependency, so that it can be used (and tested)
+ * on a plain JVM. None of the methods allocate objects per point.</p>
+ *
+ * <p>The Vincenty methods reproduce the WGS84 inverse solution used by
+ * <code>android.location.Location#distanceTo</code>, the haversine ones are
+ * a faster spherical approximation. Where the Vincenty iteration doesn't converge,
+ * for nearly antipodal points, the distance is found by splitting the geodesic.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public final class GeodesyUtilities {
+
+    /**
+     * WGS84 semi-major axis in meters.
+     */
+    public static final double WGS84_A = 6378137.0;
+    /**
+     * WGS84 semi-minor axis in meters.
+     */
+    public static final double WGS84_B = 6356752.3142;
+    /**
+     * WGS84 flattening.
+     */
+    public static final double WGS84_F = (WGS84_A - WGS84_B) / WGS84_A;
+    /**
+     * Mean earth radius in meters, used by the spherical formulas.
+     */
+    public static final double EARTH_MEAN_RADIUS = 6371008.8;
+
+    private static final int VINCENTY_MAX_ITERATIONS = 20;
+    private static final double VINCENTY_THRESHOLD = 1.0e-12;
+    private static final int SPLIT_SAMPLES = 72;
+    private static final double SPLIT_THRESHOLD = 1.0e-10;
+    private static final double GOLDEN_RATIO = (Math.sqrt(5.0) - 1.0) / 2.0;
+
+    private GeodesyUtilities() {
+    }
+
+    /**
+     * Spherical distance between two points.
+     *
+     * @param lon1 longitude of the first point.
+     * @param lat1 latitude of the first point.
+     * @param lon2 longitude of the second point.
+     * @param lat2 latitude of the second point.
+     * @return the distance in meters.
+     */
+    public static double haversine(double lon1, double lat1, double lon2, double lat2) {
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        double sinDPhi = Math.sin((phi2 - phi1) * 0.5);
+        double sinDLambda = Math.sin(Math.toRadians(lon2 - lon1) * 0.5);
+        double h = sinDPhi * sinDPhi + Math.cos(phi1) * Math.cos(phi2) * sinDLambda * sinDLambda;
+        if (h > 1.0) h = 1.0;
+        return 2.0 * EARTH_MEAN_RADIUS * Math.asin(Math.sqrt(h));
+    }
+
+    /**
+     * Ellipsoidal (WGS84) distance between two points, using the Vincenty inverse formula.
+     *
+     * @param lon1 longitude of the first point.
+     * @param lat1 latitude of the first point.
+     * @param lon2 longitude of the second point.
+     * @param lat2 latitude of the second point.
+     * @return the distance in meters.
+     */
+    public static double vincenty(double lon1, double lat1, double lon2, double lat2) {
+        if (lon1 == lon2 && lat1 == lat2) {
+            return 0.0;
+        }
+        double distance = vincentyIteration(lon1, lat1, lon2, lat2);
+        if (Double.isNaN(distance)) {
+            distance = splitDistance(lon1, lat1, lon2, lat2);
+        }
+        return distance;
+    }
+
+    /**
+     * @return the Vincenty distance or NaN if the iteration doesn't converge.
+     */
+    private static double vincentyIteration(double lon1, double lat1, double lon2, double lat2) {
+        double a = WGS84_A;
+        double b = WGS84_B;
+        double f = WGS84_F;
+        double aSqMinusBSqOverBSq = (a * a - b * b) / (b * b);
+
+        double L = Math.toRadians(lon2 - lon1);
+        double U1 = Math.atan((1.0 - f) * Math.tan(Math.toRadians(lat1)));
+        double U2 = Math.atan((1.0 - f) * Math.tan(Math.toRadians(lat2)));
+
+        double cosU1 = Math.cos(U1);
+        double cosU2 = Math.cos(U2);
+        double sinU1 = Math.sin(U1);
+        double sinU2 = Math.sin(U2);
+        double cosU1cosU2 = cosU1 * cosU2;
+        double sinU1sinU2 = sinU1 * sinU2;
+
+        double sigma = 0.0;
+        double deltaSigma = 0.0;
+        double cosSqAlpha;
+        double cos2SM;
+        double cosSigma;
+        double sinSigma;
+        double cosLambda;
+        double sinLambda;
+
+        double A = 0.0;
+        double lambda = L;
+        boolean converged = false;
+        for (int iter = 0; iter < VINCENTY_MAX_ITERATIONS; iter++) {
+            double lambdaOrig = lambda;
+            cosLambda = Math.cos(lambda);
+            sinLambda = Math.sin(lambda);
+            double t1 = cosU2 * sinLambda;
+            double t2 = cosU1 * sinU2 - sinU1 * cosU2 * cosLambda;
+            double sinSqSigma = t1 * t1 + t2 * t2;
+            sinSigma = Math.sqrt(sinSqSigma);
+            cosSigma = sinU1sinU2 + cosU1cosU2 * cosLambda;
+            sigma = Math.atan2(sinSigma, cosSigma);
+            double sinAlpha = (sinSigma == 0) ? 0.0 : cosU1cosU2 * sinLambda / sinSigma;
+            cosSqAlpha = 1.0 - sinAlpha * sinAlpha;
+            cos2SM = (cosSqAlpha == 0) ? 0.0 : cosSigma - 2.0 * sinU1sinU2 / cosSqAlpha;
+
+            double uSquared = cosSqAlpha * aSqMinusBSqOverBSq;
+            A = 1 + (uSquared / 16384.0) * (4096.0 + uSquared * (-768 + uSquared * (320.0 - 175.0 * uSquared)));
+            double B = (uSquared / 1024.0) * (256.0 + uSquared * (-128.0 + uSquared * (74.0 - 47.0 * uSquared)));
+            double C = (f / 16.0) * cosSqAlpha * (4.0 + f * (4.0 - 3.0 * cosSqAlpha));
+            double cos2SMSq = cos2SM * cos2SM;
+            deltaSigma = B * sinSigma * (cos2SM + (B / 4.0) * (cosSigma * (-1.0 + 2.0 * cos2SMSq)
+                    - (B / 6.0) * cos2SM * (-3.0 + 4.0 * sinSigma * sinSigma) * (-3.0 + 4.0 * cos2SMSq)));
+
+            lambda = L + (1.0 - C) * f * sinAlpha * (sigma + C * sinSigma * (cos2SM + C * cosSigma * (-1.0 + 2.0 * cos2SM * cos2SM)));
+            if (Math.abs(lambda - lambdaOrig) < VINCENTY_THRESHOLD) {
+                converged = true;
+                break;
+            }
+        }
+        if (!converged || Math.abs(lambda) > Math.PI) {
+            return Double.NaN;
+        }
+        return b * A * (sigma - deltaSigma);
+    }
+
+    /**
+     * Distance of nearly antipodal points, where the Vincenty iteration fails.
+     *
+     * <p>Every path between the points crosses the great circle that bisects them, and the
+     * geodesic is the shortest of them, so the distance is the minimum over the points of that
+     * circle of the sum of the two legs, which are short enough to converge.</p>
+     */
+    private static double splitDistance(double lon1, double lat1, double lon2, double lat2) {
+        double phi1 = Math.toRadians(lat1);
+        double lambda1 = Math.toRadians(lon1);
+        double phi2 = Math.toRadians(lat2);
+        double lambda2 = Math.toRadians(lon2);
+        // the normal of the bisecting circle
+        double nx = Math.cos(phi1) * Math.cos(lambda1) - Math.cos(phi2) * Math.cos(lambda2);
+        double ny = Math.cos(phi1) * Math.sin(lambda1) - Math.cos(phi2) * Math.sin(lambda2);
+        double nz = Math.sin(phi1) - Math.sin(phi2);
+        double norm = Math.sqrt(nx * nx + ny * ny + nz * nz);
+        nx /= norm;
+        ny /= norm;
+        nz /= norm;
+        // two orthogonal unit vectors of the circle
+        double ux = ny;
+        double uy = -nx;
+        double uz = 0.0;
+        norm = Math.sqrt(ux * ux + uy * uy);
+        if (norm < 1.0e-9) {
+            ux = 1.0;
+            uy = 0.0;
+        } else {
+            ux /= norm;
+            uy /= norm;
+        }
+        double vx = ny * uz - nz * uy;
+        double vy = nz * ux - nx * uz;
+        double vz = nx * uy - ny * ux;
+
+        // coarse scan of the circle, then golden section search around the best sample
+        double step = 2.0 * Math.PI / SPLIT_SAMPLES;
+        double bestT = 0.0;
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < SPLIT_SAMPLES; i++) {
+            double t = i * step;
+            double d = splitLegs(lon1, lat1, lon2, lat2, ux, uy, uz, vx, vy, vz, t);
+            if (d < best) {
+                best = d;
+                bestT = t;
+            }
+        }
+        double low = bestT - step;
+        double high = bestT + step;
+        double t1 = high - GOLDEN_RATIO * (high - low);
+        double t2 = low + GOLDEN_RATIO * (high - low);
+        double d1 = splitLegs(lon1, lat1, lon2, lat2, ux, uy, uz, vx, vy, vz, t1);
+        double d2 = splitLegs(lon1, lat1, lon2, lat2, ux, uy, uz, vx, vy, vz, t2);
+        while (high - low > SPLIT_THRESHOLD) {
+            if (d1 < d2) {
+                high = t2;
+                t2 = t1;
+                d2 = d1;
+                t1 = high - GOLDEN_RATIO * (high - low);
+                d1 = splitLegs(lon1, lat1, lon2, lat2, ux, uy, uz, vx, vy, vz, t1);
+            } else {
+                low = t1;
+                t1 = t2;
+                d1 = d2;
+                t2 = low + GOLDEN_RATIO * (high - low);
+                d2 = splitLegs(lon1, lat1, lon2, lat2, ux, uy, uz, vx, vy, vz, t2);
+            }
+        }
+        return Math.min(best, Math.min(d1, d2));
+    }
+
+    /**
+     * @return the sum of the legs through the point of the circle at angle <code>t</code>.
+     */
+    private static double splitLegs(double lon1, double lat1, double lon2, double lat2, double ux, double uy, double uz,
+                                    double vx, double vy, double vz, double t) {
+        double cosT = Math.cos(t);
+        double sinT = Math.sin(t);
+        double x = cosT * ux + sinT * vx;
+        double y = cosT * uy + sinT * vy;
+        double z = cosT * uz + sinT * vz;
+        double lon = Math.toDegrees(Math.atan2(y, x));
+        double lat = Math.toDegrees(Math.asin(Math.max(-1.0, Math.min(1.0, z))));
+        double d = vincentyIteration(lon1, lat1, lon, lat) + vincentyIteration(lon, lat, lon2, lat2);
+        return Double.isNaN(d) ? Double.MAX_VALUE : d;
+    }
+
+    /**
+     * Length of a track held in primitive arrays.
+     *
+     * @param lons      the longitudes.
+     * @param lats      the latitudes.
+     * @param count     the number of valid points in the arrays.
+     * @param ellipsoid if <code>true</code> the Vincenty formula is used, else haversine.
+     * @return the length in meters.
+     */
+    public static double length(double[] lons, double[] lats, int count, boolean ellipsoid) {
+        double sum = 0.0;
+        for (int i = 1; i < count; i++) {
+            sum += segment(lons[i - 1], lats[i - 1], lons[i], lats[i], ellipsoid);
+        }
+        return sum;
+    }
+
+    /**
+     * Cumulative distance along a track held in primitive arrays.
+     *
+     * <p>The first value is always 0, value <code>i</code> is the distance from the
+     * first point to point <code>i</code>.</p>
+     *
+     * @param lons      the longitudes.
+     * @param lats      the latitudes.
+     * @param count     the number of valid points in the arrays.
+     * @param ellipsoid if <code>true</code> the Vincenty formula is used, else haversine.
+     * @param out       the array to fill. If <code>null</code> or too small, a new one is created.
+     * @return the array holding the cumulative distances.
+     */
+    public static double[] cumulativeDistances(double[] lons, double[] lats, int count, boolean ellipsoid, double[] out) {
+        if (out == null || out.length < count) {
+            out = new double[count];
+        }
+        if (count == 0) {
+            return out;
+        }
+        out[0] = 0.0;
+        for (int i = 1; i < count; i++) {
+            out[i] = out[i - 1] + segment(lons[i - 1], lats[i - 1], lons[i], lats[i], ellipsoid);
+        }
+        return out;
+    }
+
+    /**
+     * Distances of the single segments of a track held in primitive arrays.
+     *
+     * <p>The first value is always 0, value <code>i</code> is the distance between
+     * point <code>i-1</code> and point <code>i</code>.</p>
+     *
+     * @param lons      the longitudes.
+     * @param lats      the latitudes.
+     * @param count     the number of valid points in the arrays.
+     * @param ellipsoid if <code>true</code> the Vincenty formula is used, else haversine.
+     * @param out       the array to fill. If <code>null</code> or too small, a new one is created.
+     * @return the array holding the segment distances.
+     */
+    public static double[] segmentDistances(double[] lons, double[] lats, int count, boolean ellipsoid, double[] out) {
+        if (out == null || out.length < count) {
+            out = new double[count];
+        }
+        if (count == 0) {
+            return out;
+        }
+        out[0] = 0.0;
+        for (int i = 1; i < count; i++) {
+            out[i] = segment(lons[i - 1], lats[i - 1], lons[i], lats[i], ellipsoid);
+        }
+        return out;
+    }
+
+    private static double segment(double lon1, double lat1, double lon2, double lat2, boolean ellipsoid) {
+        if (ellipsoid) {
+            return vincenty(lon1, lat1, lon2, lat2);
+        }
+        return haversine(lon1, lat1, lon2, lat2);
+    }
+}
@@ -21,6 +21,7 @@ import android.location.Location;
 
 import java.util.Date;
 
+import eu.geopaparazzi.library.geodesy.GeodesyUtilities;
 import eu.geopaparazzi.library.util.TimeUtilities;
 
 /**
@@ -81,6 +82,6 @@ public class GpsLocation extends Location {
         if (previousLoc == null) {
             return 0;
         }
-        return distanceTo(previousLoc);
+        return (float) GeodesyUtilities.vincenty(getLongitude(), getLatitude(), previousLoc.getLongitude(), previousLoc.getLatitude());
     }
 }
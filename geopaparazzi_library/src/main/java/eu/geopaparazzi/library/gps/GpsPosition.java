@@ -0,0 +1,265 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.gps;
+
+/**
+ * A snapshot of the {@link GpsService} state, as published on the {@link GpsPositionBus}.
+ *
+ * <p>Snapshots are immutable once published, a new one is created for every publication,
+ * so they can be kept and read from any thread.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class GpsPosition {
+    private long sequence;
+    private long publishNanos;
+
+    private GpsServiceStatus status = GpsServiceStatus.GPS_OFF;
+    private GpsLoggingStatus loggingStatus = GpsLoggingStatus.GPS_DATABASELOGGING_OFF;
+    private long currentLogId = -1;
+
+    private boolean hasPosition;
+    private double longitude;
+    private double latitude;
+    private double elevation;
+    private float accuracy;
+    private float speed;
+    private float bearing;
+    private long time;
+
+    private boolean hasSmoothed;
+    private double smoothedElevation;
+    private double smoothedSpeed;
+
+    private int maxSatellites = -1;
+    private int satCount = -1;
+    private int satUsedInFixCount = -1;
+
+    GpsPosition() {
+    }
+
+    void setStatus(GpsServiceStatus status, GpsLoggingStatus loggingStatus, long currentLogId) {
+        this.status = status;
+        this.loggingStatus = loggingStatus;
+        this.currentLogId = currentLogId;
+    }
+
+    void setPosition(boolean hasPosition, double longitude, double latitude, double elevation, float accuracy, float speed,
+                     float bearing, long time) {
+        this.hasPosition = hasPosition;
+        this.longitude = longitude;
+        this.latitude = latitude;
+        this.elevation = elevation;
+        this.accuracy = accuracy;
+        this.speed = speed;
+        this.bearing = bearing;
+        this.time = time;
+    }
+
+    void setSmoothed(boolean hasSmoothed, double smoothedElevation, double smoothedSpeed) {
+        this.hasSmoothed = hasSmoothed;
+        this.smoothedElevation = smoothedElevation;
+        this.smoothedSpeed = smoothedSpeed;
+    }
+
+    void setSatellites(int maxSatellites, int satCount, int satUsedInFixCount) {
+        this.maxSatellites = maxSatellites;
+        this.satCount = satCount;
+        this.satUsedInFixCount = satUsedInFixCount;
+    }
+
+    void stamp(long sequence, long publishNanos) {
+        this.sequence = sequence;
+        this.publishNanos = publishNanos;
+    }
+
+    /**
+     * @return the progressive number of the publication.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} of the publication.
+     */
+    public long getPublishNanos() {
+        return publishNanos;
+    }
+
+    /**
+     * @return the service status.
+     */
+    public GpsServiceStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the logging status.
+     */
+    public GpsLoggingStatus getLoggingStatus() {
+        return loggingStatus;
+    }
+
+    /**
+     * @return the id of the log being recorded or -1.
+     */
+    public long getCurrentLogId() {
+        return currentLogId;
+    }
+
+    /**
+     * @return <code>true</code> if a position is available.
+     */
+    public boolean hasPosition() {
+        return hasPosition;
+    }
+
+    /**
+     * @return the longitude in degrees.
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @return the latitude in degrees.
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * @return the elevation in meters above the WGS 84 reference ellipsoid.
+     */
+    public double getElevation() {
+        return elevation;
+    }
+
+    /**
+     * @return the estimated horizontal accuracy in meters.
+     */
+    public float getAccuracy() {
+        return accuracy;
+    }
+
+    /**
+     * @return the speed in meters/second over ground.
+     */
+    public float getSpeed() {
+        return speed;
+    }
+
+    /**
+     * @return the bearing in degrees.
+     */
+    public float getBearing() {
+        return bearing;
+    }
+
+    /**
+     * @return the UTC time of the fix.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return <code>true</code> if live smoothed values are available.
+     */
+    public boolean hasSmoothed() {
+        return hasSmoothed;
+    }
+
+    /**
+     * @return the live smoothed elevation.
+     */
+    public double getSmoothedElevation() {
+        return smoothedElevation;
+    }
+
+    /**
+     * @return the live smoothed speed.
+     */
+    public double getSmoothedSpeed() {
+        return smoothedSpeed;
+    }
+
+    /**
+     * @return the max satellites number or -1.
+     */
+    public int getMaxSatellites() {
+        return maxSatellites;
+    }
+
+    /**
+     * @return the visible satellites count or -1.
+     */
+    public int getSatCount() {
+        return satCount;
+    }
+
+    /**
+     * @return the count of satellites used in the fix or -1.
+     */
+    public int getSatUsedInFixCount() {
+        return satUsedInFixCount;
+    }
+
+    /**
+     * Copy the position into an array, in the same layout used for the broadcast.
+     *
+     * @param lonLatElev an array of size 3 to fill with [lon, lat, elev].
+     * @return <code>true</code> if a position was available.
+     */
+    public boolean fillPosition(double[] lonLatElev) {
+        if (!hasPosition) return false;
+        lonLatElev[0] = longitude;
+        lonLatElev[1] = latitude;
+        lonLatElev[2] = elevation;
+        return true;
+    }
+
+    /**
+     * Copy the position extras into an array, in the same layout used for the broadcast.
+     *
+     * @param accuracySpeedBearing an array of size 3 to fill with [accuracy, speed, bearing].
+     * @return <code>true</code> if a position was available.
+     */
+    public boolean fillPositionExtras(float[] accuracySpeedBearing) {
+        if (!hasPosition) return false;
+        accuracySpeedBearing[0] = accuracy;
+        accuracySpeedBearing[1] = speed;
+        accuracySpeedBearing[2] = bearing;
+        return true;
+    }
+
+    /**
+     * Copy the satellites info into an array, in the same layout used for the broadcast.
+     *
+     * @param maxCountUsed an array of size 3 to fill with [maxSatellites, satCount, satUsedInFixCount].
+     * @return <code>true</code> if the satellites info was available.
+     */
+    public boolean fillGpsStatusExtras(int[] maxCountUsed) {
+        if (maxSatellites < 0) return false;
+        maxCountUsed[0] = maxSatellites;
+        maxCountUsed[1] = satCount;
+        maxCountUsed[2] = satUsedInFixCount;
+        return true;
+    }
+}
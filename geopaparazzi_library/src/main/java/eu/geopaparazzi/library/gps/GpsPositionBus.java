@@ -0,0 +1,204 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.gps;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-process publish/subscribe bus for the {@link GpsService} state.
+ *
+ * <p>This replaces the global broadcast for the components living in the app process.
+ * Every publication is a new {@link GpsPosition} snapshot that is never changed afterwards,
+ * so it can be kept and read from any thread. No arrays or intents are created per fix.</p>
+ *
+ * <p>Each subscriber has:
+ * <ul>
+ * <li>an executor on which it is notified, for example {@link #MAIN_THREAD_EXECUTOR}</li>
+ * <li>a minimum interval between notifications. Fixes arriving faster are held back and
+ * only the latest of them is delivered once the interval has passed, changes of the gps
+ * or logging status are always delivered right away.</li>
+ * </ul>
+ * A slow subscriber never queues more than one notification, it just gets the latest
+ * snapshot once it runs.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public enum GpsPositionBus {
+    /**
+     * The singleton instance.
+     */
+    INSTANCE;
+
+    /**
+     * Executor that runs on the UI thread.
+     */
+    public static final Executor MAIN_THREAD_EXECUTOR = new Executor() {
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(Runnable command) {
+            handler.post(command);
+        }
+    };
+
+    private static final ScheduledExecutorService TRAILING_SCHEDULER = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "GpsPositionBus");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private long sequence = 0;
+    private volatile GpsPosition lastPosition;
+
+    /**
+     * Subscribe to position updates.
+     *
+     * <p>If a position was already published, it is delivered right away.</p>
+     *
+     * @param listener          the listener.
+     * @param executor          the executor to notify the listener on.
+     * @param minIntervalMillis the minimum time between two notifications, 0 for all.
+     */
+    public synchronized void subscribe(IGpsPositionListener listener, Executor executor, long minIntervalMillis) {
+        unsubscribe(listener);
+        Subscriber subscriber = new Subscriber(listener, executor, minIntervalMillis * 1000000L);
+        subscribers.add(subscriber);
+        GpsPosition last = lastPosition;
+        if (last != null) {
+            subscriber.offer(last, true);
+        }
+    }
+
+    /**
+     * Remove a listener. Pending notifications for it are dropped.
+     *
+     * @param listener the listener to remove.
+     */
+    public void unsubscribe(IGpsPositionListener listener) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.listener == listener) {
+                subscriber.active = false;
+                subscribers.remove(subscriber);
+            }
+        }
+    }
+
+    /**
+     * @return the last published snapshot or <code>null</code>.
+     */
+    public GpsPosition getLastPosition() {
+        return lastPosition;
+    }
+
+    /**
+     * Get a new snapshot to fill, to be then passed to {@link #publish(GpsPosition, boolean)}.
+     *
+     * @return the new snapshot.
+     */
+    GpsPosition obtain() {
+        return new GpsPosition();
+    }
+
+    /**
+     * Publish a filled snapshot.
+     *
+     * @param position the snapshot obtained through {@link #obtain()}, not to be changed any more.
+     * @param force    if <code>true</code>, the rate limits are ignored.
+     */
+    synchronized void publish(GpsPosition position, boolean force) {
+        position.stamp(++sequence, System.nanoTime());
+        lastPosition = position;
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(position, force);
+        }
+    }
+
+    private static class Subscriber implements Runnable {
+        final IGpsPositionListener listener;
+        final Executor executor;
+        final long minIntervalNanos;
+        final AtomicReference<GpsPosition> pending = new AtomicReference<>();
+        volatile boolean active = true;
+
+        private boolean delivered = false;
+        private long lastOfferNanos;
+        private GpsServiceStatus lastStatus;
+        private GpsLoggingStatus lastLoggingStatus;
+        private GpsPosition trailing;
+        private boolean trailingScheduled = false;
+
+        Subscriber(IGpsPositionListener listener, Executor executor, long minIntervalNanos) {
+            this.listener = listener;
+            this.executor = executor;
+            this.minIntervalNanos = minIntervalNanos;
+        }
+
+        synchronized void offer(GpsPosition position, boolean force) {
+            long now = position.getPublishNanos();
+            boolean statusChanged = position.getStatus() != lastStatus || position.getLoggingStatus() != lastLoggingStatus;
+            long elapsed = now - lastOfferNanos;
+            if (!force && !statusChanged && delivered && elapsed < minIntervalNanos) {
+                // keep the latest skipped fix, to deliver it once the interval has passed
+                trailing = position;
+                if (!trailingScheduled) {
+                    trailingScheduled = true;
+                    TRAILING_SCHEDULER.schedule(this::offerTrailing, minIntervalNanos - elapsed, TimeUnit.NANOSECONDS);
+                }
+                return;
+            }
+            trailing = null;
+            deliver(position, now);
+        }
+
+        private synchronized void offerTrailing() {
+            trailingScheduled = false;
+            GpsPosition position = trailing;
+            trailing = null;
+            if (position != null && active) {
+                deliver(position, System.nanoTime());
+            }
+        }
+
+        private void deliver(GpsPosition position, long now) {
+            delivered = true;
+            lastOfferNanos = now;
+            lastStatus = position.getStatus();
+            lastLoggingStatus = position.getLoggingStatus();
+            if (pending.getAndSet(position) == null) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            GpsPosition position = pending.getAndSet(null);
+            if (position != null && active) {
+                listener.onPositionUpdate(position);
+            }
+        }
+    }
+}
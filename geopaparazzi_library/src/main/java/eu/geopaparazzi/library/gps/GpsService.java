@@ -49,8 +49,14 @@ import androidx.preference.PreferenceManager;
 import java.util.Date;
 
 import eu.geopaparazzi.library.R;
+import eu.geopaparazzi.library.bluetooth.BluetoothManager;
+import eu.geopaparazzi.library.bluetooth.IBluetoothIOHandler;
+import eu.geopaparazzi.library.bluetooth.NmeaGpsDevice;
 import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.database.IGpsLogDbHelper;
+import eu.geopaparazzi.library.geodesy.GeodesyUtilities;
+import eu.geopaparazzi.library.smoothing.ESmoothers;
+import eu.geopaparazzi.library.smoothing.ISeriesSmoother;
 import eu.geopaparazzi.library.util.LibraryConstants;
 import eu.geopaparazzi.library.util.PositionUtilities;
 import eu.geopaparazzi.library.util.TimeUtilities;
@@ -61,6 +67,8 @@ import static eu.geopaparazzi.library.util.LibraryConstants.GPS_LOGGING_DISTANCE
 import static eu.geopaparazzi.library.util.LibraryConstants.GPS_LOGGING_INTERVAL;
 import static eu.geopaparazzi.library.util.LibraryConstants.PREFS_KEY_GPSLOGGINGDISTANCE;
 import static eu.geopaparazzi.library.util.LibraryConstants.PREFS_KEY_GPSLOGGINGINTERVAL;
+import static eu.geopaparazzi.library.util.LibraryConstants.PREFS_KEY_GPS_NMEA_LOGGING;
+import static eu.geopaparazzi.library.util.LibraryConstants.PREFS_KEY_GPS_NMEA_QUALITY_GATE;
 
 /**
  * A service to handle the GPS data.
@@ -102,9 +110,23 @@ public class GpsService extends Service implements LocationListener, Listener {
 
     /**
      * Intent key to use for broadcasts.
+     *
+     * <p>The broadcast is kept for external apps and is sent at most once every
+     * {@link #BROADCAST_INTERVAL_MILLIS}, apart of status changes. Components of the
+     * app should subscribe to the {@link GpsPositionBus} instead.</p>
      */
     public static final String GPS_SERVICE_BROADCAST_NOTIFICATION = "eu.geopaparazzi.library.gps.GpsService";
 
+    /**
+     * The minimum interval between two position broadcasts.
+     */
+    public static final long BROADCAST_INTERVAL_MILLIS = 1000;
+
+    /**
+     * The minimum interval between two updates of the foreground notification.
+     */
+    private static final long NOTIFICATION_INTERVAL_MILLIS = 1000;
+
     /**
      * Intent key to use for int gps status.
      * <p/>
@@ -152,6 +174,15 @@ public class GpsService extends Service implements LocationListener, Listener {
      * </p>
      */
     public static final String GPS_SERVICE_POSITION_EXTRAS = "GPS_SERVICE_POSITION_EXTRAS";
+    /**
+     * Intent key to use for double array smoothed position data [elev, speed].
+     *
+     * <p>
+     * The values are smoothed live over the last fixes, using the smoother
+     * defined in {@link LibraryConstants#PREFS_KEY_PROFILE_SMOOTHER}.
+     * </p>
+     */
+    public static final String GPS_SERVICE_POSITION_SMOOTHED = "GPS_SERVICE_POSITION_SMOOTHED";
     /**
      * Intent key to use for long time.
      */
@@ -187,6 +218,9 @@ public class GpsService extends Service implements LocationListener, Listener {
     private Location previousLoc = null;
 
     private long lastLocationupdateMillis;
+    private ESmoothers smootherType;
+    private ISeriesSmoother elevationSmoother;
+    private ISeriesSmoother speedSmoother;
     private int currentPointsNum;
     /**
      * The current total distance of the track from start to the current point.
@@ -198,7 +232,15 @@ public class GpsService extends Service implements LocationListener, Listener {
      */
     private static int WAITSECONDS = 1;
 
+    /**
+     * Number of fixes used for the live smoothing of elevation and speed.
+     */
+    private static final int SMOOTHING_WINDOW = 11;
+
     private GpsStatus mStatus;
+    private int maxSatellites = -1;
+    private int satCount = -1;
+    private int satUsedInFixCount = -1;
     private long currentRecordedLogId = -1;
     private volatile boolean gotFix;
     private boolean isDatabaseLogging = false;
@@ -214,6 +256,11 @@ public class GpsService extends Service implements LocationListener, Listener {
     private String name;
     private String description;
 
+    private long lastBroadcastMillis;
+    private int lastBroadcastStatus = -1;
+    private int lastBroadcastLoggingStatus = -1;
+    private final IGpsPositionListener notificationListener = this::handleForegroundNotification;
+
     @Override
     public void onCreate() {
         super.onCreate();
@@ -223,6 +270,7 @@ public class GpsService extends Service implements LocationListener, Listener {
         text = "Geopapaparazzi is making use of the GPS.";
         name = "Geopap Channel";
         description = "Geopaparazzi GPS Service Channel";
+        GpsPositionBus.INSTANCE.subscribe(notificationListener, GpsPositionBus.MAIN_THREAD_EXECUTOR, NOTIFICATION_INTERVAL_MILLIS);
 //
 //            NotificationChannel channel = new NotificationChannel(CHANNEL_ID,
 //                    "GPS Information",
@@ -304,7 +352,7 @@ public class GpsService extends Service implements LocationListener, Listener {
                 log("onStartCommand: broadcast trigger");
                 boolean doBroadcast = intent.getBooleanExtra(GPS_SERVICE_DO_BROADCAST, false);
                 if (doBroadcast) {
-                    broadcast("triggered by onStartCommand Intent");
+                    publish("triggered by onStartCommand Intent", true);
                 }
             }
 
@@ -331,6 +379,10 @@ public class GpsService extends Service implements LocationListener, Listener {
         if (TestMock.isOn) {
             TestMock.stopMocking(locationManager);
         }
+        GpsPositionBus.INSTANCE.unsubscribe(notificationListener);
+        isProviderEnabled = false;
+        lastGpsLocation = null;
+        publish("triggered by onDestroy", true);
         super.onDestroy();
     }
 
@@ -358,7 +410,7 @@ public class GpsService extends Service implements LocationListener, Listener {
                 isListeningForUpdates = true;
                 log("registered for updates.");
             }
-            broadcast("triggered by registerForLocationUpdates");
+            publish("triggered by registerForLocationUpdates", true);
         } catch (Exception e) {
             GPLog.error(this, null, e);
             isListeningForUpdates = false;
@@ -433,7 +485,11 @@ public class GpsService extends Service implements LocationListener, Listener {
                     currentPointsNum = 0;
                     currentDistance = 0;
                     GpsLocation previousLogLocation = null;
-                    while (isDatabaseLogging) {
+                    NmeaGpsDevice nmeaDevice = getNmeaLoggingDevice();
+                    if (nmeaDevice != null) {
+                        logFromNmeaDevice(nmeaDevice, sqliteDatabase, gpsLogId, minDistance);
+                    }
+                    while (nmeaDevice == null && isDatabaseLogging) {
                         if (gotFix || isMockMode) {
                             if (lastGpsLocation == null) {
                                 // no location or no previouslocation came in, we wait
@@ -464,7 +520,7 @@ public class GpsService extends Service implements LocationListener, Listener {
                             double recLat = lastGpsLocation.getLatitude();
                             double recAlt = lastGpsLocation.getAltitude();
 
-                            double lastDistance = lastGpsLocation.distanceTo(previousLogLocation);
+                            double lastDistance = GeodesyUtilities.vincenty(recLon, recLat, previousLogLocation.getLongitude(), previousLogLocation.getLatitude());
                             if (lastDistance < minDistance) {
                                 // the min distance filter didn't pass, we wait
                                 if (!holdABitAndCheckLoggingMillis(defaultWaitMillis)) {
@@ -519,6 +575,40 @@ public class GpsService extends Service implements LocationListener, Listener {
                 log("GPS Exit logging...");
             }
 
+            /**
+             * Logs every fix of the external receiver, until logging is stopped.
+             *
+             * @param nmeaDevice     the device.
+             * @param sqliteDatabase the db to write to.
+             * @param gpsLogId       the id of the log.
+             * @param minDistance    the minimum logging distance, applied to the track length.
+             */
+            private void logFromNmeaDevice(NmeaGpsDevice nmeaDevice, SQLiteDatabase sqliteDatabase, long gpsLogId, float minDistance) {
+                NmeaGpsLogger.QualityGate qualityGate = NmeaGpsLogger.QualityGate.ANY;
+                String qualityGateName = preferences.getString(PREFS_KEY_GPS_NMEA_QUALITY_GATE, qualityGate.name());
+                try {
+                    qualityGate = NmeaGpsLogger.QualityGate.valueOf(qualityGateName);
+                } catch (IllegalArgumentException e) {
+                    GPLog.error(this, null, e);
+                }
+                log("Logging from the NMEA receiver with quality gate: " + qualityGate);
+
+                NmeaGpsLogger nmeaLogger = new NmeaGpsLogger(sqliteDatabase, gpsLogId, qualityGate, minDistance);
+                nmeaLogger.start();
+                nmeaDevice.addNmeaListener(nmeaLogger);
+                try {
+                    while (holdABitAndCheckLoggingMillis(300)) {
+                        currentPointsNum = nmeaLogger.getWrittenCount();
+                        currentDistance = nmeaLogger.getDistance();
+                    }
+                } finally {
+                    nmeaDevice.removeNmeaListener(nmeaLogger);
+                    nmeaLogger.stop();
+                }
+                currentPointsNum = nmeaLogger.getWrittenCount();
+                currentDistance = nmeaLogger.getDistance();
+            }
+
             /**
              * Waits a bit before next gps query.
              *
@@ -545,6 +635,21 @@ public class GpsService extends Service implements LocationListener, Listener {
         isDatabaseLogging = false;
     }
 
+    /**
+     * @return the connected bluetooth NMEA receiver, if logs have to be recorded from it, else <code>null</code>.
+     */
+    private NmeaGpsDevice getNmeaLoggingDevice() {
+        if (!preferences.getBoolean(PREFS_KEY_GPS_NMEA_LOGGING, false)) {
+            return null;
+        }
+        IBluetoothIOHandler bluetoothDevice = BluetoothManager.INSTANCE.getBluetoothDevice();
+        if (bluetoothDevice == null) {
+            log("No bluetooth receiver connected, logging from the location provider.");
+            return null;
+        }
+        return bluetoothDevice.adapt(NmeaGpsDevice.class);
+    }
+
     private static void log(String msg) {
         try {
             if (GPLog.LOG_HEAVY)
@@ -599,9 +704,19 @@ public class GpsService extends Service implements LocationListener, Listener {
             double recLat = lastGpsLocation.getLatitude();
             double recAlt = lastGpsLocation.getAltitude();
             PositionUtilities.putGpsLocationInPreferences(preferences, recLon, recLat, recAlt);
+            // read on every fix, so that a change of the preference is picked up right away
+            String smootherName = preferences.getString(LibraryConstants.PREFS_KEY_PROFILE_SMOOTHER, ESmoothers.MOVING_AVERAGE.name());
+            ESmoothers newSmootherType = ESmoothers.forName(smootherName, ESmoothers.MOVING_AVERAGE);
+            if (elevationSmoother == null || newSmootherType != smootherType) {
+                smootherType = newSmootherType;
+                elevationSmoother = smootherType.create(SMOOTHING_WINDOW);
+                speedSmoother = smootherType.create(SMOOTHING_WINDOW);
+            }
+            elevationSmoother.add(recAlt);
+            speedSmoother.add(lastGpsLocation.getSpeed());
             previousLoc = loc;
 
-            broadcast("triggered by onLocationChanged");
+            publish("triggered by onLocationChanged", false);
         }
     }
 
@@ -616,12 +731,12 @@ public class GpsService extends Service implements LocationListener, Listener {
         if (!isListeningForUpdates) {
             registerForLocationUpdates();
         }
-        broadcast("triggered by onProviderEnabled");
+        publish("triggered by onProviderEnabled", true);
     }
 
     public void onProviderDisabled(String provider) {
         isProviderEnabled = false;
-        broadcast("triggered by onProviderDisabled");
+        publish("triggered by onProviderDisabled", true);
     }
 
     public void onGpsStatusChanged(int event) {
@@ -629,14 +744,16 @@ public class GpsService extends Service implements LocationListener, Listener {
             throw new SecurityException();
         }
         mStatus = locationManager.getGpsStatus(mStatus);
+        GpsStatusInfo info = new GpsStatusInfo(mStatus);
+        maxSatellites = info.getMaxSatellites();
+        satCount = info.getSatCount();
+        satUsedInFixCount = info.getSatUsedInFixCount();
 
         // check fix
         boolean tmpGotFix = GpsStatusInfo.checkFix(gotFix, lastLocationupdateMillis, event);
         if (!tmpGotFix) {
             // check if it is just standing still
-            GpsStatusInfo info = new GpsStatusInfo(mStatus);
-            int satForFixCount = info.getSatUsedInFixCount();
-            if (satForFixCount > 2) {
+            if (satUsedInFixCount > 2) {
                 tmpGotFix = true;
                 // updating loc update, assuming the still filter is giving troubles
                 lastLocationupdateMillis = SystemClock.elapsedRealtime();
@@ -651,11 +768,11 @@ public class GpsService extends Service implements LocationListener, Listener {
 
         if (tmpGotFix != gotFix) {
             gotFix = tmpGotFix;
-            broadcast("triggered by onGpsStatusChanged on fix change: " + gotFix);
+            publish("triggered by onGpsStatusChanged on fix change: " + gotFix, false);
         } else {
             gotFix = tmpGotFix;
             if (!tmpGotFix && isProviderEnabled) {
-                broadcast("triggered by onGpsStatusChanged on fix change: " + gotFix);
+                publish("triggered by onGpsStatusChanged on fix change: " + gotFix, false);
             }
         }
 
@@ -665,11 +782,12 @@ public class GpsService extends Service implements LocationListener, Listener {
     }
 
     /**
+     * Publish the current state on the {@link GpsPositionBus} and, if due, as broadcast.
+     *
      * @param message a message that can be used for logging.
+     * @param force   if <code>true</code>, the rate limits of the subscribers and of the broadcast are ignored.
      */
-    private void broadcast(String message) {
-        Intent intent = new Intent(GPS_SERVICE_BROADCAST_NOTIFICATION);
-
+    private void publish(String message, boolean force) {
         int status = 0; // gps off
         if (isProviderEnabled) {
             status = 1; // gps on
@@ -680,65 +798,92 @@ public class GpsService extends Service implements LocationListener, Listener {
         if ((isProviderEnabled && isListeningForUpdates && gotFix && lastGpsLocation != null) || isMockMode) {
             status = 3; // listening for updates and has fix
         }
-        intent.putExtra(GPS_SERVICE_STATUS, status);
-        if (isDatabaseLogging || (isDatabaseLogging && isMockMode)) {
-            intent.putExtra(GPS_SERVICE_CURRENT_LOG_ID, currentRecordedLogId);
-            intent.putExtra(GPS_LOGGING_STATUS, 1);
+        boolean isLogging = isDatabaseLogging || (isDatabaseLogging && isMockMode);
+        int loggingStatus = isLogging ? 1 : 0;
+
+        GpsPosition position = GpsPositionBus.INSTANCE.obtain();
+        position.setStatus(GpsServiceStatus.getStatusForCode(status), GpsLoggingStatus.getStatusForCode(loggingStatus),
+                isLogging ? currentRecordedLogId : -1);
+        GpsLocation location = lastGpsLocation;
+        if (location != null) {
+            position.setPosition(true, location.getLongitude(), location.getLatitude(), location.getAltitude(),
+                    location.getAccuracy(), location.getSpeed(), location.getBearing(), location.getTime());
         } else {
-            intent.putExtra(GPS_LOGGING_STATUS, 0);
+            position.setPosition(false, -1, -1, -1, -1, -1, -1, -1);
         }
-        double lon = -1;
-        double lat = -1;
-        double elev = -1;
-        float accuracy = -1;
-        float speed = -1;
-        float bearing = -1;
-        long time = -1;
-        if (lastGpsLocation != null) {
-            lon = lastGpsLocation.getLongitude();
-            lat = lastGpsLocation.getLatitude();
-            elev = lastGpsLocation.getAltitude();
-            double[] lastPositionArray = new double[]{lon, lat, elev};
-            intent.putExtra(GPS_SERVICE_POSITION, lastPositionArray);
-            accuracy = lastGpsLocation.getAccuracy();
-            speed = lastGpsLocation.getSpeed();
-            bearing = lastGpsLocation.getBearing();
-            float[] lastPositionExtrasArray = new float[]{accuracy, speed, bearing};
-            intent.putExtra(GPS_SERVICE_POSITION_EXTRAS, lastPositionExtrasArray);
-            time = lastGpsLocation.getTime();
-            intent.putExtra(GPS_SERVICE_POSITION_TIME, time);
+        if (location != null && elevationSmoother != null) {
+            position.setSmoothed(true, elevationSmoother.getCurrent(), speedSmoother.getCurrent());
+        } else {
+            position.setSmoothed(false, -1, -1);
         }
-        int maxSatellites = -1;
-        int satCount = -1;
-        int satUsedInFixCount = -1;
         if (mStatus != null) {
-            GpsStatusInfo info = new GpsStatusInfo(mStatus);
-            maxSatellites = info.getMaxSatellites();
-            satCount = info.getSatCount();
-            satUsedInFixCount = info.getSatUsedInFixCount();
-            intent.putExtra(GPS_SERVICE_GPSSTATUS_EXTRAS, new int[]{maxSatellites, satCount, satUsedInFixCount});
+            position.setSatellites(maxSatellites, satCount, satUsedInFixCount);
+        } else {
+            position.setSatellites(-1, -1, -1);
         }
+        GpsPositionBus.INSTANCE.publish(position, force);
 
         if (DOLOGPOSITION) {
-            StringBuilder sb = getPositionInfo(message, status, lon, lat, elev, accuracy, speed, bearing, time, maxSatellites, satCount, satUsedInFixCount);
+            StringBuilder sb = getPositionInfo(position);
             String msg = "GPS SERVICE INFO: " + message + "\n" +
                     "---------------------------\n" +
                     sb.toString();
             GPLog.addLogEntry("GPSSERVICE", msg);
         }
 
-        handleForegroundNotification(message, intent, status, lon, lat, elev, accuracy, speed, bearing, time, maxSatellites, satCount, satUsedInFixCount);
+        long now = SystemClock.elapsedRealtime();
+        boolean statusChanged = status != lastBroadcastStatus || loggingStatus != lastBroadcastLoggingStatus;
+        if (force || statusChanged || now - lastBroadcastMillis >= BROADCAST_INTERVAL_MILLIS) {
+            lastBroadcastMillis = now;
+            lastBroadcastStatus = status;
+            lastBroadcastLoggingStatus = loggingStatus;
+            sendBroadcast(toIntent(position));
+        }
+    }
 
-        sendBroadcast(intent);
+    /**
+     * Create the compatibility broadcast intent for a snapshot.
+     *
+     * @param position the snapshot.
+     * @return the intent.
+     */
+    private static Intent toIntent(GpsPosition position) {
+        Intent intent = new Intent(GPS_SERVICE_BROADCAST_NOTIFICATION);
+        intent.putExtra(GPS_SERVICE_STATUS, position.getStatus().getCode());
+        if (position.getLoggingStatus() == GpsLoggingStatus.GPS_DATABASELOGGING_ON) {
+            intent.putExtra(GPS_SERVICE_CURRENT_LOG_ID, position.getCurrentLogId());
+            intent.putExtra(GPS_LOGGING_STATUS, 1);
+        } else {
+            intent.putExtra(GPS_LOGGING_STATUS, 0);
+        }
+        if (position.hasPosition()) {
+            double[] lastPositionArray = new double[3];
+            position.fillPosition(lastPositionArray);
+            intent.putExtra(GPS_SERVICE_POSITION, lastPositionArray);
+            float[] lastPositionExtrasArray = new float[3];
+            position.fillPositionExtras(lastPositionExtrasArray);
+            intent.putExtra(GPS_SERVICE_POSITION_EXTRAS, lastPositionExtrasArray);
+            intent.putExtra(GPS_SERVICE_POSITION_TIME, position.getTime());
+            if (position.hasSmoothed()) {
+                double[] smoothedArray = new double[]{position.getSmoothedElevation(), position.getSmoothedSpeed()};
+                intent.putExtra(GPS_SERVICE_POSITION_SMOOTHED, smoothedArray);
+            }
+        }
+        int[] gpsStatusExtras = new int[3];
+        if (position.fillGpsStatusExtras(gpsStatusExtras)) {
+            intent.putExtra(GPS_SERVICE_GPSSTATUS_EXTRAS, gpsStatusExtras);
+        }
+        return intent;
     }
 
-    private void handleForegroundNotification(String message, Intent intent, int status, double lon, double lat, double elev, float accuracy, float speed, float bearing, long time, int maxSatellites, int satCount, int satUsedInFixCount) {
+    private void handleForegroundNotification(GpsPosition position) {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            Intent intent = new Intent(GPS_SERVICE_BROADCAST_NOTIFICATION);
             PendingIntent pendingIntent =
                     PendingIntent.getActivity(this, 0, intent, 0);
             NotificationCompat.MessagingStyle messagingStyle = new NotificationCompat.MessagingStyle("");
-            StringBuilder sb = getPositionInfo(message, status, lon, lat, elev, accuracy, speed, bearing, time, maxSatellites, satCount, satUsedInFixCount);
-            NotificationCompat.MessagingStyle.Message infoMessage = new NotificationCompat.MessagingStyle.Message(sb.toString(), time, "");
+            StringBuilder sb = getPositionInfo(position);
+            NotificationCompat.MessagingStyle.Message infoMessage = new NotificationCompat.MessagingStyle.Message(sb.toString(), position.getTime(), "");
             messagingStyle.setConversationTitle("GPS Information").addMessage(infoMessage);
             if (notificationManagerNative == null) {
                 // Create the NotificationChannel, but only on API 26+ because
@@ -783,9 +928,9 @@ public class GpsService extends Service implements LocationListener, Listener {
     }
 
     @NonNull
-    private StringBuilder getPositionInfo(String message, int status, double lon, double lat, double elev, float accuracy, float speed, float bearing, long time, int maxSatellites, int satCount, int satUsedInFixCount) {
+    private StringBuilder getPositionInfo(GpsPosition position) {
         StringBuilder sb = new StringBuilder();
-        GpsServiceStatus statusForCode = GpsServiceStatus.getStatusForCode(status);
+        GpsServiceStatus statusForCode = position.getStatus();
         boolean addInfo = false;
         String gpsStatusReadable = getString(R.string.gps_status_unknown);
         if (statusForCode == GpsServiceStatus.GPS_OFF) {
@@ -803,24 +948,25 @@ public class GpsService extends Service implements LocationListener, Listener {
         if (addInfo) {
             sb.append("\n");
             sb.append("\n");
-            String lonStr = LibraryConstants.COORDINATE_FORMATTER.format(lon);
-            String latStr = LibraryConstants.COORDINATE_FORMATTER.format(lat);
+            float accuracy = position.getAccuracy();
+            String lonStr = LibraryConstants.COORDINATE_FORMATTER.format(position.getLongitude());
+            String latStr = LibraryConstants.COORDINATE_FORMATTER.format(position.getLatitude());
             sb.append(" lon [deg] = ").append(lonStr).append("\n");
             sb.append(" lat [deg] = ").append(latStr).append("\n");
-            sb.append(" elev [m] = ").append((int) elev).append("\n");
+            sb.append(" elev [m] = ").append((int) position.getElevation()).append("\n");
             String roundedAccuracy;
             if (accuracy > 1) {
                 roundedAccuracy = String.valueOf(Math.round(accuracy));
             } else {
                 roundedAccuracy = LibraryConstants.DECIMAL_FORMATTER_1.format(accuracy);
             }
-            String timeStr = TimeUtilities.INSTANCE.TIME_FORMATTER_LOCAL.format(new Date(time));
+            String timeStr = TimeUtilities.INSTANCE.TIME_FORMATTER_LOCAL.format(new Date(position.getTime()));
             sb.append(" accuracy [m] = ").append(roundedAccuracy).append("\n");
-            sb.append(" speed [m/s] = ").append(speed).append("\n");
-            sb.append(" bearing [deg] = ").append(bearing).append("\n");
+            sb.append(" speed [m/s] = ").append(position.getSpeed()).append("\n");
+            sb.append(" bearing [deg] = ").append(position.getBearing()).append("\n");
             sb.append(" time = ").append(timeStr).append("\n");
-            sb.append(" current satellites count = ").append(satCount).append("\n");
-            sb.append(" satellites used in fix = ").append(satUsedInFixCount).append("\n");
+            sb.append(" current satellites count = ").append(position.getSatCount()).append("\n");
+            sb.append(" satellites used in fix = ").append(position.getSatUsedInFixCount()).append("\n");
         }
         return sb;
     }
@@ -32,6 +32,7 @@ import static eu.geopaparazzi.library.gps.GpsService.GPS_SERVICE_DO_BROADCAST;
 import static eu.geopaparazzi.library.gps.GpsService.GPS_SERVICE_GPSSTATUS_EXTRAS;
 import static eu.geopaparazzi.library.gps.GpsService.GPS_SERVICE_POSITION;
 import static eu.geopaparazzi.library.gps.GpsService.GPS_SERVICE_POSITION_EXTRAS;
+import static eu.geopaparazzi.library.gps.GpsService.GPS_SERVICE_POSITION_SMOOTHED;
 import static eu.geopaparazzi.library.gps.GpsService.GPS_SERVICE_POSITION_TIME;
 import static eu.geopaparazzi.library.gps.GpsService.GPS_SERVICE_STATUS;
 import static eu.geopaparazzi.library.gps.GpsService.START_GPS_CONTINUE_LOG;
@@ -128,6 +129,19 @@ public class GpsServiceUtilities {
         return intent.getFloatArrayExtra(GPS_SERVICE_POSITION_EXTRAS);
     }
 
+    /**
+     * Utility to get the live smoothed position values from an intent.
+     *
+     * @param intent the intent.
+     * @return the smoothed values as elev, speed or <code>null</code>.
+     */
+    public static double[] getSmoothedPosition(Intent intent) {
+        if (intent == null) {
+            return null;
+        }
+        return intent.getDoubleArrayExtra(GPS_SERVICE_POSITION_SMOOTHED);
+    }
+
     /**
      * Utility to get the position time from an intent.
      *
@@ -0,0 +1,33 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.gps;
+
+/**
+ * Listener for {@link GpsPositionBus} updates.
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public interface IGpsPositionListener {
+
+    /**
+     * Called on the executor the listener was subscribed with.
+     *
+     * @param position the latest snapshot, valid during the call.
+     */
+    void onPositionUpdate(GpsPosition position);
+}
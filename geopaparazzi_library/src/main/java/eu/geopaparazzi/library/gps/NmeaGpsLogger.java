@@ -0,0 +1,409 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.gps;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.library.database.GpsLogQuality;
+import eu.geopaparazzi.library.geodesy.GeodesyUtilities;
+import eu.geopaparazzi.library.gps.nmea.GgaSentence;
+import eu.geopaparazzi.library.gps.nmea.GstSentence;
+import eu.geopaparazzi.library.gps.nmea.INmeaListener;
+import eu.geopaparazzi.library.gps.nmea.RmcSentence;
+
+/**
+ * Logs every fix of an external NMEA receiver, together with its quality data.
+ *
+ * <p>The logger listens to the sentences parsed on the device reading thread. Accepted fixes
+ * are copied into a preallocated queue and written by a separate thread in batches, one
+ * transaction per batch, so that the reading thread never waits on the database. If the
+ * writer falls behind by more than {@link #QUEUE_CAPACITY} fixes, the newest ones are
+ * dropped and counted.</p>
+ *
+ * <p>Receivers usually send the GST of an epoch after its GGA, so a fix is held until the GST
+ * with the same time arrives or the next epoch starts, and is then queued with the horizontal
+ * error of that GST, if any.</p>
+ *
+ * <p>Timestamps are the receiver UTC times, with the date taken from the RMC sentences.
+ * Until the first RMC arrives, the time the sentence was received is used.</p>
+ *
+ * <p>Every accepted fix is logged, but the length of the track only grows once the position
+ * moved by the minimum logging distance, so that the jitter of a still receiver is not
+ * counted.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@SuppressWarnings("nls")
+public class NmeaGpsLogger implements INmeaListener {
+
+    /**
+     * Filters on the fix quality reported by the receiver.
+     */
+    public enum QualityGate {
+        /**
+         * Any valid fix.
+         */
+        ANY,
+        /**
+         * Differential or rtk fixes.
+         */
+        DGPS,
+        /**
+         * Rtk fixes, float or fixed.
+         */
+        RTK,
+        /**
+         * Only rtk fixes with fixed ambiguities.
+         */
+        RTK_FIXED;
+
+        /**
+         * @param fixQuality the GGA fix quality.
+         * @return <code>true</code> if fixes of that quality are logged.
+         */
+        public boolean accepts(int fixQuality) {
+            switch (this) {
+                case DGPS:
+                    return fixQuality == GgaSentence.QUALITY_DGPS || fixQuality == GgaSentence.QUALITY_RTK_FIXED
+                            || fixQuality == GgaSentence.QUALITY_RTK_FLOAT;
+                case RTK:
+                    return fixQuality == GgaSentence.QUALITY_RTK_FIXED || fixQuality == GgaSentence.QUALITY_RTK_FLOAT;
+                case RTK_FIXED:
+                    return fixQuality == GgaSentence.QUALITY_RTK_FIXED;
+                default:
+                    return fixQuality != GgaSentence.QUALITY_INVALID;
+            }
+        }
+    }
+
+    /**
+     * The number of fixes that can wait to be written, about 100 seconds at 20 Hz.
+     */
+    public static final int QUEUE_CAPACITY = 2048;
+    /**
+     * The number of waiting fixes that triggers a write.
+     */
+    public static final int BATCH_SIZE = 40;
+    /**
+     * The maximum time fixes wait to be written.
+     */
+    public static final long FLUSH_INTERVAL_MILLIS = 1000;
+
+    private static final long DAY_MILLIS = 86400000L;
+
+    private final SQLiteDatabase sqliteDatabase;
+    private final long logId;
+    private final QualityGate qualityGate;
+    private final double minDistance;
+
+    // the queue, filled by the reading thread, emptied by the writer
+    private final Object lock = new Object();
+    private final long[] timestamps = new long[QUEUE_CAPACITY];
+    private final double[] lons = new double[QUEUE_CAPACITY];
+    private final double[] lats = new double[QUEUE_CAPACITY];
+    private final double[] elevs = new double[QUEUE_CAPACITY];
+    private final int[] fixQualities = new int[QUEUE_CAPACITY];
+    private final int[] satellites = new int[QUEUE_CAPACITY];
+    private final double[] hdops = new double[QUEUE_CAPACITY];
+    private final double[] correctionAges = new double[QUEUE_CAPACITY];
+    private final double[] horizontalErrors = new double[QUEUE_CAPACITY];
+    private int first;
+    private int size;
+
+    // the fix of the current epoch, held until its GST arrives or the next epoch starts
+    private boolean held;
+    private long heldTimestamp;
+    private double heldLon;
+    private double heldLat;
+    private double heldElev;
+    private int heldFixQuality;
+    private int heldSatellites;
+    private double heldHdop;
+    private double heldCorrectionAge;
+    private double heldTimeOfDay;
+
+    // only touched by the reading thread
+    private long dayStartMillis = -1;
+    private long lastRmcMillis = -1;
+    private double lastGstTimeOfDay = Double.NaN;
+    private double lastGstHorizontalError = Double.NaN;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    private volatile long acceptedCount;
+    private volatile long rejectedCount;
+    private volatile long droppedCount;
+    private volatile int writtenCount;
+    private volatile double distance;
+
+    /**
+     * @param sqliteDatabase the db to write to.
+     * @param logId          the id of the log to add the points to.
+     * @param qualityGate    the fixes to log.
+     * @param minDistance    the minimum distance in meters to move before the track length grows.
+     */
+    public NmeaGpsLogger(SQLiteDatabase sqliteDatabase, long logId, QualityGate qualityGate, double minDistance) {
+        this.sqliteDatabase = sqliteDatabase;
+        this.logId = logId;
+        this.qualityGate = qualityGate;
+        this.minDistance = minDistance;
+    }
+
+    /**
+     * Start the writer thread.
+     */
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        writerThread = new Thread(this::writeLoop, "NmeaGpsLogger");
+        writerThread.start();
+    }
+
+    /**
+     * Stop the writer thread, after the waiting fixes have been written.
+     */
+    public synchronized void stop() {
+        if (!running) return;
+        synchronized (lock) {
+            if (held)
+                queueHeld(Double.NaN);
+            running = false;
+            lock.notifyAll();
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            GPLog.error(this, null, e);
+        }
+        writerThread = null;
+        if (GPLog.LOG_HEAVY)
+            GPLog.addLogEntry(this, "log " + logId + ": accepted " + acceptedCount + ", rejected " + rejectedCount + ", dropped "
+                    + droppedCount + ", written " + writtenCount);
+    }
+
+    @Override
+    public void onRmc(RmcSentence rmc) {
+        long utcMillis = rmc.getUtcMillis();
+        if (utcMillis >= 0) {
+            lastRmcMillis = utcMillis;
+            dayStartMillis = utcMillis - utcMillis % DAY_MILLIS;
+        }
+    }
+
+    @Override
+    public void onGst(GstSentence gst) {
+        lastGstTimeOfDay = gst.getTimeOfDay();
+        lastGstHorizontalError = gst.getHorizontalError();
+        synchronized (lock) {
+            if (held && heldTimeOfDay == lastGstTimeOfDay) {
+                queueHeld(lastGstHorizontalError);
+            }
+        }
+    }
+
+    @Override
+    public void onGga(GgaSentence gga) {
+        if (!running) return;
+        double timeOfDay = gga.getTimeOfDay();
+        if (!gga.hasFix() || !qualityGate.accepts(gga.getFixQuality())) {
+            rejectedCount++;
+            synchronized (lock) {
+                // a new epoch started, the GST of the held one won't come anymore
+                if (held)
+                    queueHeld(Double.NaN);
+            }
+            return;
+        }
+
+        long timestamp = gga.getSentence().getTimestamp();
+        if (dayStartMillis >= 0 && !Double.isNaN(timeOfDay)) {
+            timestamp = dayStartMillis + Math.round(timeOfDay * 1000.0);
+            if (timestamp < lastRmcMillis - DAY_MILLIS / 2) {
+                // past midnight, before the next RMC
+                timestamp += DAY_MILLIS;
+            }
+        }
+        // the ellipsoidal height, as the one of the android locations
+        double elevation = gga.getAltitude();
+        if (Double.isNaN(elevation)) {
+            elevation = 0;
+        } else if (!Double.isNaN(gga.getGeoidSeparation())) {
+            elevation += gga.getGeoidSeparation();
+        }
+
+        synchronized (lock) {
+            if (held)
+                queueHeld(Double.NaN);
+
+            heldTimestamp = timestamp;
+            heldLon = gga.getLongitude();
+            heldLat = gga.getLatitude();
+            heldElev = elevation;
+            heldFixQuality = gga.getFixQuality();
+            heldSatellites = gga.getSatellites();
+            heldHdop = gga.getHdop();
+            heldCorrectionAge = gga.getCorrectionAge();
+            heldTimeOfDay = timeOfDay;
+            held = true;
+
+            if (Double.isNaN(timeOfDay)) {
+                // no GST can be matched to it
+                queueHeld(Double.NaN);
+            } else if (timeOfDay == lastGstTimeOfDay) {
+                // the receiver sent the GST first
+                queueHeld(lastGstHorizontalError);
+            }
+        }
+    }
+
+    /**
+     * Queue the held fix. The lock has to be held by the caller.
+     *
+     * @param horizontalError the horizontal error of the GST of the same epoch or NaN.
+     */
+    private void queueHeld(double horizontalError) {
+        held = false;
+        if (size == QUEUE_CAPACITY) {
+            droppedCount++;
+            return;
+        }
+        int i = (first + size) % QUEUE_CAPACITY;
+        timestamps[i] = heldTimestamp;
+        lons[i] = heldLon;
+        lats[i] = heldLat;
+        elevs[i] = heldElev;
+        fixQualities[i] = heldFixQuality;
+        satellites[i] = heldSatellites;
+        hdops[i] = heldHdop;
+        correctionAges[i] = heldCorrectionAge;
+        horizontalErrors[i] = horizontalError;
+        size++;
+        acceptedCount++;
+        if (size == BATCH_SIZE) {
+            lock.notifyAll();
+        }
+    }
+
+    private void writeLoop() {
+        SQLiteStatement dataStatement = sqliteDatabase.compileStatement(GpsLogQuality.INSERT_DATA_SQL);
+        SQLiteStatement qualityStatement = sqliteDatabase.compileStatement(GpsLogQuality.INSERT_QUALITY_SQL);
+        double previousLon = Double.NaN;
+        double previousLat = Double.NaN;
+        try {
+            while (true) {
+                int start;
+                int count;
+                synchronized (lock) {
+                    if (running && size < BATCH_SIZE) {
+                        try {
+                            lock.wait(FLUSH_INTERVAL_MILLIS);
+                        } catch (InterruptedException e) {
+                            // write what is there
+                        }
+                    }
+                    start = first;
+                    count = size;
+                    if (count == 0 && !running) {
+                        break;
+                    }
+                }
+                if (count == 0) {
+                    continue;
+                }
+
+                // the reading thread only writes after first + size, so the batch can be read unlocked
+                double batchDistance = 0;
+                sqliteDatabase.beginTransaction();
+                try {
+                    for (int n = 0; n < count; n++) {
+                        int i = (start + n) % QUEUE_CAPACITY;
+                        GpsLogQuality.insert(dataStatement, qualityStatement, logId, timestamps[i], lons[i], lats[i], elevs[i],
+                                fixQualities[i], satellites[i], hdops[i], correctionAges[i], horizontalErrors[i]);
+                        if (Double.isNaN(previousLon)) {
+                            previousLon = lons[i];
+                            previousLat = lats[i];
+                        } else {
+                            double stepDistance = GeodesyUtilities.vincenty(previousLon, previousLat, lons[i], lats[i]);
+                            if (stepDistance >= minDistance) {
+                                batchDistance += stepDistance;
+                                previousLon = lons[i];
+                                previousLat = lats[i];
+                            }
+                        }
+                    }
+                    sqliteDatabase.setTransactionSuccessful();
+                    writtenCount += count;
+                    distance += batchDistance;
+                } catch (Exception e) {
+                    synchronized (lock) {
+                        droppedCount += count;
+                    }
+                    GPLog.error(this, "Unable to write " + count + " points of log " + logId, e);
+                } finally {
+                    sqliteDatabase.endTransaction();
+                }
+
+                synchronized (lock) {
+                    first = (first + count) % QUEUE_CAPACITY;
+                    size -= count;
+                }
+            }
+        } finally {
+            dataStatement.close();
+            qualityStatement.close();
+        }
+    }
+
+    /**
+     * @return the number of fixes accepted by the quality gate.
+     */
+    public long getAcceptedCount() {
+        return acceptedCount;
+    }
+
+    /**
+     * @return the number of fixes rejected by the quality gate.
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * @return the number of accepted fixes that could not be written.
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * @return the number of points written to the log.
+     */
+    public int getWrittenCount() {
+        return writtenCount;
+    }
+
+    /**
+     * @return the length of the written track in meters.
+     */
+    public double getDistance() {
+        return distance;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.gps.nmea;
+
+/**
+ * The fix data of a GGA sentence.
+ *
+ * <p>The instance is reused by the {@link NmeaParser}, so it is only valid inside the
+ * listener callback. Missing decimal values are NaN, missing integers are -1.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public final class GgaSentence {
+    /**
+     * Fix quality: no fix.
+     */
+    public static final int QUALITY_INVALID = 0;
+    /**
+     * Fix quality: autonomous gps fix.
+     */
+    public static final int QUALITY_GPS = 1;
+    /**
+     * Fix quality: differential fix.
+     */
+    public static final int QUALITY_DGPS = 2;
+    /**
+     * Fix quality: rtk fixed ambiguities.
+     */
+    public static final int QUALITY_RTK_FIXED = 4;
+    /**
+     * Fix quality: rtk float ambiguities.
+     */
+    public static final int QUALITY_RTK_FLOAT = 5;
+
+    private NmeaSentence sentence;
+    private double timeOfDay;
+    private double latitude;
+    private double longitude;
+    private int fixQuality;
+    private int satellites;
+    private double hdop;
+    private double altitude;
+    private double geoidSeparation;
+    private double correctionAge;
+    private int stationId;
+
+    GgaSentence() {
+    }
+
+    void fill(NmeaSentence sentence) {
+        this.sentence = sentence;
+        timeOfDay = sentence.getTimeOfDay(1);
+        latitude = sentence.getCoordinate(2, 3);
+        longitude = sentence.getCoordinate(4, 5);
+        fixQuality = sentence.getInt(6, QUALITY_INVALID);
+        satellites = sentence.getInt(7, -1);
+        hdop = sentence.getDouble(8, Double.NaN);
+        altitude = sentence.getDouble(9, Double.NaN);
+        geoidSeparation = sentence.getDouble(11, Double.NaN);
+        correctionAge = sentence.getDouble(13, Double.NaN);
+        stationId = sentence.getInt(14, -1);
+    }
+
+    /**
+     * @return the raw sentence.
+     */
+    public NmeaSentence getSentence() {
+        return sentence;
+    }
+
+    /**
+     * @return <code>true</code> if the sentence has a fix with coordinates.
+     */
+    public boolean hasFix() {
+        return fixQuality != QUALITY_INVALID && !Double.isNaN(latitude) && !Double.isNaN(longitude);
+    }
+
+    /**
+     * @return the UTC seconds of the day of the fix.
+     */
+    public double getTimeOfDay() {
+        return timeOfDay;
+    }
+
+    /**
+     * @return the latitude in decimal degrees.
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * @return the longitude in decimal degrees.
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @return the fix quality, see the QUALITY_* constants.
+     */
+    public int getFixQuality() {
+        return fixQuality;
+    }
+
+    /**
+     * @return the number of satellites in use.
+     */
+    public int getSatellites() {
+        return satellites;
+    }
+
+    /**
+     * @return the horizontal dilution of precision.
+     */
+    public double getHdop() {
+        return hdop;
+    }
+
+    /**
+     * @return the altitude above mean sea level in meters.
+     */
+    public double getAltitude() {
+        return altitude;
+    }
+
+    /**
+     * @return the geoid separation in meters.
+     */
+    public double getGeoidSeparation() {
+        return geoidSeparation;
+    }
+
+    /**
+     * @return the age of the differential corrections in seconds.
+     */
+    public double getCorrectionAge() {
+        return correctionAge;
+    }
+
+    /**
+     * @return the id of the differential reference station.
+     */
+    public int getStationId() {
+        return stationId;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.gps.nmea;
+
+/**
+ * The dilution of precision and active satellites of a GSA sentence.
+ *
+ * <p>The instance is reused by the {@link NmeaParser}, so it is only valid inside the
+ * listener callback. Missing decimal values are NaN.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public final class GsaSentence {
+    /**
+     * Fix type: no fix.
+     */
+    public static final int FIX_NONE = 1;
+    /**
+     * Fix type: 2D fix.
+     */
+    public static final int FIX_2D = 2;
+    /**
+     * Fix type: 3D fix.
+     */
+    public static final int FIX_3D = 3;
+
+    private static final int MAX_SATELLITES = 12;
+
+    private NmeaSentence sentence;
+    private char selectionMode;
+    private int fixType;
+    private final int[] satelliteIds = new int[MAX_SATELLITES];
+    private int satelliteCount;
+    private double pdop;
+    private double hdop;
+    private double vdop;
+
+    GsaSentence() {
+    }
+
+    void fill(NmeaSentence sentence) {
+        this.sentence = sentence;
+        selectionMode = sentence.getChar(1);
+        fixType = sentence.getInt(2, FIX_NONE);
+        satelliteCount = 0;
+        for (int i = 0; i < MAX_SATELLITES; i++) {
+            int id = sentence.getInt(3 + i, -1);
+            if (id >= 0) {
+                satelliteIds[satelliteCount++] = id;
+            }
+        }
+        pdop = sentence.getDouble(15, Double.NaN);
+        hdop = sentence.getDouble(16, Double.NaN);
+        vdop = sentence.getDouble(17, Double.NaN);
+    }
+
+    /**
+     * @return the raw sentence.
+     */
+    public NmeaSentence getSentence() {
+        return sentence;
+    }
+
+    /**
+     * @return the selection mode, M for manual or A for automatic.
+     */
+    public char getSelectionMode() {
+        return selectionMode;
+    }
+
+    /**
+     * @return the fix type, see the FIX_* constants.
+     */
+    public int getFixType() {
+        return fixType;
+    }
+
+    /**
+     * @return the number of satellites used in the fix.
+     */
+    public int getSatelliteCount() {
+        return satelliteCount;
+    }
+
+    /**
+     * @param index the index, less than {@link #getSatelliteCount()}.
+     * @return the id of a satellite used in the fix.
+     */
+    public int getSatelliteId(int index) {
+        return satelliteIds[index];
+    }
+
+    /**
+     * @return the position dilution of precision.
+     */
+    public double getPdop() {
+        return pdop;
+    }
+
+    /**
+     * @return the horizontal dilution of precision.
+     */
+    public double getHdop() {
+        return hdop;
+    }
+
+    /**
+     * @return the vertical dilution of precision.
+     */
+    public double getVdop() {
+        return vdop;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.gps.nmea;
+
+/**
+ * The pseudorange error statistics of a GST sentence.
+ *
+ * <p>The instance is reused by the {@link NmeaParser}, so it is only valid inside the
+ * listener callback. Missing values are NaN.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public final class GstSentence {
+    private NmeaSentence sentence;
+    private double timeOfDay;
+    private double rms;
+    private double semiMajorError;
+    private double semiMinorError;
+    private double orientation;
+    private double latitudeError;
+    private double longitudeError;
+    private double altitudeError;
+
+    GstSentence() {
+    }
+
+    void fill(NmeaSentence sentence) {
+        this.sentence = sentence;
+        timeOfDay = sentence.getTimeOfDay(1);
+        rms = sentence.getDouble(2, Double.NaN);
+        semiMajorError = sentence.getDouble(3, Double.NaN);
+        semiMinorError = sentence.getDouble(4, Double.NaN);
+        orientation = sentence.getDouble(5, Double.NaN);
+        latitudeError = sentence.getDouble(6, Double.NaN);
+        longitudeError = sentence.getDouble(7, Double.NaN);
+        altitudeError = sentence.getDouble(8, Double.NaN);
+    }
+
+    /**
+     * @return the raw sentence.
+     */
+    public NmeaSentence getSentence() {
+        return sentence;
+    }
+
+    /**
+     * @return the UTC seconds of the day of the fix.
+     */
+    public double getTimeOfDay() {
+        return timeOfDay;
+    }
+
+    /**
+     * @return the rms of the pseudorange residuals.
+     */
+    public double getRms() {
+        return rms;
+    }
+
+    /**
+     * @return the standard deviation of the semi-major axis of the error ellipse in meters.
+     */
+    public double getSemiMajorError() {
+        return semiMajorError;
+    }
+
+    /**
+     * @return the standard deviation of the semi-minor axis of the error ellipse in meters.
+     */
+    public double getSemiMinorError() {
+        return semiMinorError;
+    }
+
+    /**
+     * @return the orientation of the semi-major axis of the error ellipse in degrees from true north.
+     */
+    public double getOrientation() {
+        return orientation;
+    }
+
+    /**
+     * @return the standard deviation of the latitude error in meters.
+     */
+    public double getLatitudeError() {
+        return latitudeError;
+    }
+
+    /**
+     * @return the standard deviation of the longitude error in meters.
+     */
+    public double getLongitudeError() {
+        return longitudeError;
+    }
+
+    /**
+     * @return the standard deviation of the altitude error in meters.
+     */
+    public double getAltitudeError() {
+        return altitudeError;
+    }
+
+    /**
+     * @return the horizontal error, from the latitude and longitude errors, in meters.
+     */
+    public double getHorizontalError() {
+        return Math.sqrt(latitudeError * latitudeError + longitudeError * longitudeError);
+    }
+}
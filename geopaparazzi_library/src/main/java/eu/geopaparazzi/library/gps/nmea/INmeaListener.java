@@ -0,0 +1,61 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.gps.nmea;
+
+/**
+ * Listener of the sentences decoded by a {@link NmeaParser}.
+ *
+ * <p>All the arguments are reused by the parser, values that need to live longer than the
+ * callback have to be copied.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public interface INmeaListener {
+
+    /**
+     * Called for every valid sentence, before the typed callback of the sentence, if any.
+     *
+     * @param sentence the sentence.
+     */
+    default void onSentence(NmeaSentence sentence) {
+    }
+
+    /**
+     * @param gga the fix data.
+     */
+    default void onGga(GgaSentence gga) {
+    }
+
+    /**
+     * @param rmc the recommended minimum data.
+     */
+    default void onRmc(RmcSentence rmc) {
+    }
+
+    /**
+     * @param gsa the dilution of precision and active satellites.
+     */
+    default void onGsa(GsaSentence gsa) {
+    }
+
+    /**
+     * @param gst the pseudorange error statistics.
+     */
+    default void onGst(GstSentence gst) {
+    }
+}
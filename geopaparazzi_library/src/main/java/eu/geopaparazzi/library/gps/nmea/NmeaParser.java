@@ -0,0 +1,170 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.gps.nmea;
+
+/**
+ * Incremental NMEA 0183 parser working on raw bytes.
+ *
+ * <p>Bytes are fed as they come from the device, in chunks of any size. Sentences are
+ * assembled in a fixed buffer, the checksum is validated in place and the fields are
+ * parsed straight from the buffer, so that nothing is allocated per sentence.</p>
+ *
+ * <p>Sentences with a wrong checksum, without start or longer than
+ * {@link #MAX_SENTENCE_LENGTH} are dropped and counted. Sentences without checksum are
+ * accepted, as the checksum is optional for some of them.</p>
+ *
+ * <p>The parser is not thread safe, it is meant to be fed by the thread reading the device.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class NmeaParser {
+    /**
+     * The longest accepted sentence, including start and checksum. The standard allows 82 chars,
+     * but some receivers send longer proprietary sentences.
+     */
+    public static final int MAX_SENTENCE_LENGTH = 256;
+
+    private final INmeaListener listener;
+
+    private final byte[] buffer = new byte[MAX_SENTENCE_LENGTH];
+    /**
+     * The length of the sentence being assembled, -1 while waiting for the start of the next one.
+     */
+    private int length = -1;
+
+    private final NmeaSentence sentence = new NmeaSentence(buffer);
+    private final GgaSentence gga = new GgaSentence();
+    private final RmcSentence rmc = new RmcSentence();
+    private final GsaSentence gsa = new GsaSentence();
+    private final GstSentence gst = new GstSentence();
+
+    private long sentenceCount;
+    private long checksumErrorCount;
+    private long overflowCount;
+
+    /**
+     * @param listener the listener to notify of the parsed sentences.
+     */
+    public NmeaParser(INmeaListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Parse a chunk of bytes.
+     *
+     * @param bytes     the buffer.
+     * @param offset    the offset of the chunk.
+     * @param count     the number of bytes of the chunk.
+     * @param timestamp the time the chunk was received.
+     */
+    public void parse(byte[] bytes, int offset, int count, long timestamp) {
+        int end = offset + count;
+        for (int i = offset; i < end; i++) {
+            byte b = bytes[i];
+            if (b == '$') {
+                if (length > 0) {
+                    // start of a new sentence without the terminator of the previous one
+                    checksumErrorCount++;
+                }
+                buffer[0] = b;
+                length = 1;
+            } else if (b == '\r' || b == '\n') {
+                if (length > 0) {
+                    processSentence(timestamp);
+                }
+                length = -1;
+            } else if (length >= 0) {
+                if (length == MAX_SENTENCE_LENGTH) {
+                    overflowCount++;
+                    length = -1;
+                } else {
+                    buffer[length++] = b;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop the partial sentence, for example after a reconnection.
+     */
+    public void reset() {
+        length = -1;
+    }
+
+    private void processSentence(long timestamp) {
+        int payloadEnd = length;
+        if (length >= 4 && buffer[length - 3] == '*') {
+            payloadEnd = length - 3;
+            int high = hexValue(buffer[length - 2]);
+            int low = hexValue(buffer[length - 1]);
+            int checksum = 0;
+            for (int i = 1; i < payloadEnd; i++) {
+                checksum ^= buffer[i];
+            }
+            if (high < 0 || low < 0 || checksum != ((high << 4) | low)) {
+                checksumErrorCount++;
+                return;
+            }
+        }
+        sentenceCount++;
+        sentence.set(length, payloadEnd, timestamp);
+
+        listener.onSentence(sentence);
+        if (sentence.isType('G', 'G', 'A')) {
+            gga.fill(sentence);
+            listener.onGga(gga);
+        } else if (sentence.isType('R', 'M', 'C')) {
+            rmc.fill(sentence);
+            listener.onRmc(rmc);
+        } else if (sentence.isType('G', 'S', 'A')) {
+            gsa.fill(sentence);
+            listener.onGsa(gsa);
+        } else if (sentence.isType('G', 'S', 'T')) {
+            gst.fill(sentence);
+            listener.onGst(gst);
+        }
+    }
+
+    private static int hexValue(byte b) {
+        if (b >= '0' && b <= '9') return b - '0';
+        if (b >= 'A' && b <= 'F') return b - 'A' + 10;
+        if (b >= 'a' && b <= 'f') return b - 'a' + 10;
+        return -1;
+    }
+
+    /**
+     * @return the number of valid sentences parsed.
+     */
+    public long getSentenceCount() {
+        return sentenceCount;
+    }
+
+    /**
+     * @return the number of sentences dropped because of a wrong checksum or missing terminator.
+     */
+    public long getChecksumErrorCount() {
+        return checksumErrorCount;
+    }
+
+    /**
+     * @return the number of sentences dropped because too long.
+     */
+    public long getOverflowCount() {
+        return overflowCount;
+    }
+}
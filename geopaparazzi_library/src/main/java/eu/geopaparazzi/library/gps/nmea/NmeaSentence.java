@@ -0,0 +1,269 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.gps.nmea;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A view on a checksum validated NMEA sentence, as held in the buffer of the {@link NmeaParser}.
+ *
+ * <p>Fields are read straight from the bytes, without creating strings. Field 0 is the address
+ * (for example <code>GPGGA</code>), the data fields start at 1. The instance is reused for every
+ * sentence, so it is only valid inside the listener callback.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public final class NmeaSentence {
+    /**
+     * The maximum number of fields read from a sentence, the others are ignored.
+     */
+    public static final int MAX_FIELDS = 64;
+
+    private static final double[] POW10 = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13,
+            1e14, 1e15, 1e16, 1e17, 1e18};
+    private static final int MAX_DIGITS = 18;
+
+    private final byte[] data;
+    private final int[] fieldStarts = new int[MAX_FIELDS];
+    private final int[] fieldEnds = new int[MAX_FIELDS];
+    private int fieldCount;
+    private int length;
+    private long timestamp;
+
+    NmeaSentence(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * Split the payload into fields.
+     *
+     * @param length     the length of the sentence in the buffer, starting with the '$'.
+     * @param payloadEnd the end of the payload, i.e. the index of the '*' or the length if there is no checksum.
+     * @param timestamp  the time the sentence was received.
+     */
+    void set(int length, int payloadEnd, long timestamp) {
+        this.length = length;
+        this.timestamp = timestamp;
+        fieldCount = 0;
+        int start = 1;
+        for (int i = 1; i <= payloadEnd && fieldCount < MAX_FIELDS; i++) {
+            if (i == payloadEnd || data[i] == ',') {
+                fieldStarts[fieldCount] = start;
+                fieldEnds[fieldCount] = i;
+                fieldCount++;
+                start = i + 1;
+            }
+        }
+    }
+
+    /**
+     * @return the time the sentence was received, in millis.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return the number of fields, including the address.
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Check the sentence formatter, ignoring the talker.
+     *
+     * @param c1 first char of the formatter.
+     * @param c2 second char of the formatter.
+     * @param c3 third char of the formatter.
+     * @return <code>true</code> if the sentence is of the given type, for example 'G','G','A'.
+     */
+    public boolean isType(char c1, char c2, char c3) {
+        if (fieldCount == 0 || fieldEnds[0] - fieldStarts[0] != 5 || data[1] == 'P') {
+            return false;
+        }
+        int s = fieldStarts[0];
+        return data[s + 2] == c1 && data[s + 3] == c2 && data[s + 4] == c3;
+    }
+
+    /**
+     * Check the talker of the sentence.
+     *
+     * @param c1 first char of the talker.
+     * @param c2 second char of the talker.
+     * @return <code>true</code> if the sentence comes from the given talker, for example 'G','N'.
+     */
+    public boolean isTalker(char c1, char c2) {
+        if (fieldCount == 0 || fieldEnds[0] - fieldStarts[0] < 2) {
+            return false;
+        }
+        int s = fieldStarts[0];
+        return data[s] == c1 && data[s + 1] == c2;
+    }
+
+    /**
+     * @param field the field index.
+     * @return <code>true</code> if the field is missing or empty.
+     */
+    public boolean isEmpty(int field) {
+        return field >= fieldCount || fieldStarts[field] == fieldEnds[field];
+    }
+
+    /**
+     * @param field the field index.
+     * @return the first char of the field or 0 if it is empty.
+     */
+    public char getChar(int field) {
+        if (isEmpty(field)) return 0;
+        return (char) data[fieldStarts[field]];
+    }
+
+    /**
+     * @param field        the field index.
+     * @param defaultValue the value to use if the field is empty or not an integer.
+     * @return the integer value.
+     */
+    public int getInt(int field, int defaultValue) {
+        if (isEmpty(field)) return defaultValue;
+        int i = fieldStarts[field];
+        int end = fieldEnds[field];
+        boolean negative = false;
+        if (data[i] == '-') {
+            negative = true;
+            i++;
+        }
+        if (i == end) return defaultValue;
+        int value = 0;
+        for (; i < end; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return defaultValue;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * @param field        the field index.
+     * @param defaultValue the value to use if the field is empty or not a number.
+     * @return the decimal value.
+     */
+    public double getDouble(int field, double defaultValue) {
+        if (isEmpty(field)) return defaultValue;
+        int i = fieldStarts[field];
+        int end = fieldEnds[field];
+        boolean negative = false;
+        if (data[i] == '-' || data[i] == '+') {
+            negative = data[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean hasDot = false;
+        boolean hasDigits = false;
+        for (; i < end; i++) {
+            byte b = data[i];
+            if (b >= '0' && b <= '9') {
+                hasDigits = true;
+                if (digits < MAX_DIGITS && fractionDigits < MAX_DIGITS) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (mantissa != 0) digits++;
+                    if (hasDot) fractionDigits++;
+                } else if (!hasDot) {
+                    // integer part too long for the mantissa
+                    return defaultValue;
+                }
+            } else if (b == '.' && !hasDot) {
+                hasDot = true;
+            } else {
+                return defaultValue;
+            }
+        }
+        if (!hasDigits) return defaultValue;
+        double value = mantissa / POW10[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Read a coordinate in the NMEA (d)ddmm.mmmm format.
+     *
+     * @param field           the field index of the value.
+     * @param hemisphereField the field index of the hemisphere (N/S/E/W).
+     * @return the coordinate in decimal degrees, negative for south and west, or NaN if it is missing.
+     */
+    public double getCoordinate(int field, int hemisphereField) {
+        double value = getDouble(field, Double.NaN);
+        if (Double.isNaN(value)) return value;
+        double degrees = Math.floor(value / 100.0);
+        double decimalDegrees = degrees + (value - degrees * 100.0) / 60.0;
+        char hemisphere = getChar(hemisphereField);
+        if (hemisphere == 'S' || hemisphere == 'W') {
+            decimalDegrees = -decimalDegrees;
+        }
+        return decimalDegrees;
+    }
+
+    /**
+     * Read a time in the NMEA hhmmss.ss format.
+     *
+     * @param field the field index.
+     * @return the UTC seconds of the day or NaN if the field is empty or invalid.
+     */
+    public double getTimeOfDay(int field) {
+        double value = getDouble(field, Double.NaN);
+        if (Double.isNaN(value)) return value;
+        int hhmmss = (int) value;
+        int hours = hhmmss / 10000;
+        int minutes = (hhmmss / 100) % 100;
+        double seconds = value - (hhmmss - hhmmss % 100);
+        return hours * 3600 + minutes * 60 + seconds;
+    }
+
+    /**
+     * Copy the sentence, without line terminator, to a buffer.
+     *
+     * @param buffer the buffer to copy to, of at least {@link #length()} bytes.
+     * @param offset the offset in the buffer.
+     * @return the number of copied bytes.
+     */
+    public int copyTo(byte[] buffer, int offset) {
+        System.arraycopy(data, 0, buffer, offset, length);
+        return length;
+    }
+
+    /**
+     * @return the length of the sentence in bytes, without line terminator.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Create the sentence as string.
+     *
+     * <p>This allocates, it is meant for logging and for the string based listeners.</p>
+     *
+     * @return the sentence, without line terminator.
+     */
+    @Override
+    public String toString() {
+        return new String(data, 0, length, StandardCharsets.US_ASCII);
+    }
+}
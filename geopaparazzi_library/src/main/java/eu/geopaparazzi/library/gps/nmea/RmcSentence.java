@@ -0,0 +1,148 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.gps.nmea;
+
+/**
+ * The recommended minimum data of a RMC sentence.
+ *
+ * <p>The instance is reused by the {@link NmeaParser}, so it is only valid inside the
+ * listener callback. Missing decimal values are NaN, missing integers are -1.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public final class RmcSentence {
+    private static final double KNOTS_TO_MS = 1852.0 / 3600.0;
+
+    private NmeaSentence sentence;
+    private double timeOfDay;
+    private boolean valid;
+    private double latitude;
+    private double longitude;
+    private double speedKnots;
+    private double course;
+    private int date;
+    private char mode;
+
+    RmcSentence() {
+    }
+
+    void fill(NmeaSentence sentence) {
+        this.sentence = sentence;
+        timeOfDay = sentence.getTimeOfDay(1);
+        valid = sentence.getChar(2) == 'A';
+        latitude = sentence.getCoordinate(3, 4);
+        longitude = sentence.getCoordinate(5, 6);
+        speedKnots = sentence.getDouble(7, Double.NaN);
+        course = sentence.getDouble(8, Double.NaN);
+        date = sentence.getInt(9, -1);
+        mode = sentence.getChar(12);
+    }
+
+    /**
+     * @return the raw sentence.
+     */
+    public NmeaSentence getSentence() {
+        return sentence;
+    }
+
+    /**
+     * @return <code>true</code> if the receiver flags the data as valid.
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * @return the UTC seconds of the day of the fix.
+     */
+    public double getTimeOfDay() {
+        return timeOfDay;
+    }
+
+    /**
+     * @return the latitude in decimal degrees.
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * @return the longitude in decimal degrees.
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @return the speed over ground in knots.
+     */
+    public double getSpeedKnots() {
+        return speedKnots;
+    }
+
+    /**
+     * @return the speed over ground in m/s.
+     */
+    public double getSpeed() {
+        return speedKnots * KNOTS_TO_MS;
+    }
+
+    /**
+     * @return the course over ground in degrees.
+     */
+    public double getCourse() {
+        return course;
+    }
+
+    /**
+     * @return the date as ddmmyy integer.
+     */
+    public int getDate() {
+        return date;
+    }
+
+    /**
+     * @return the mode indicator (A, D, E, F, R, N) or 0 for receivers that don't send it.
+     */
+    public char getMode() {
+        return mode;
+    }
+
+    /**
+     * @return the UTC time of the fix in millis or -1 if date or time are missing.
+     */
+    public long getUtcMillis() {
+        if (date < 0 || Double.isNaN(timeOfDay)) return -1;
+        int day = date / 10000;
+        int month = (date / 100) % 100;
+        int year = 2000 + date % 100;
+        return daysFromCivil(year, month, day) * 86400000L + Math.round(timeOfDay * 1000.0);
+    }
+
+    /**
+     * Days since 1970-01-01 of a gregorian date, without going through a calendar.
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        year -= month <= 2 ? 1 : 0;
+        long era = (year >= 0 ? year : year - 399) / 400;
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
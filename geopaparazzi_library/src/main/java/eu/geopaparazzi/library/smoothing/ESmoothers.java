@@ -0,0 +1,65 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.smoothing;
+
+/**
+ * The available series smoothers.
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public enum ESmoothers {
+    MOVING_AVERAGE,
+    EXPONENTIAL,
+    SAVITZKY_GOLAY;
+
+    /**
+     * Create a new smoother of this type.
+     *
+     * @param window the number of samples that influence a smoothed value.
+     * @return the smoother.
+     */
+    public ISeriesSmoother create(int window) {
+        switch (this) {
+            case EXPONENTIAL:
+                return ExponentialSmoother.forWindow(window);
+            case SAVITZKY_GOLAY:
+                return new SavitzkyGolaySmoother(Math.max(window, 5), 2);
+            case MOVING_AVERAGE:
+            default:
+                return new MovingAverageSmoother(window);
+        }
+    }
+
+    /**
+     * Get the smoother type by its name.
+     *
+     * @param name           the name.
+     * @param defaultSmoother the type to use if the name is not known.
+     * @return the smoother type.
+     */
+    public static ESmoothers forName(String name, ESmoothers defaultSmoother) {
+        if (name != null) {
+            for (ESmoothers smoother : values()) {
+                if (smoother.name().equals(name)) {
+                    return smoother;
+                }
+            }
+        }
+        return defaultSmoother;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.smoothing;
+
+/**
+ * Exponential smoother.
+ *
+ * <p>On stored series a forward and a backward pass are averaged, so that
+ * the result has no lag.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class ExponentialSmoother implements ISeriesSmoother {
+
+    private final double alpha;
+    private double current = Double.NaN;
+
+    /**
+     * Constructor.
+     *
+     * @param alpha the smoothing factor in (0, 1]. The smaller, the smoother.
+     */
+    public ExponentialSmoother(double alpha) {
+        if (alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("The smoothing factor needs to be in (0, 1]: " + alpha);
+        }
+        this.alpha = alpha;
+    }
+
+    /**
+     * Create a smoother that has about the same smoothing effect of a moving average.
+     *
+     * @param window the equivalent moving average window size.
+     * @return the smoother.
+     */
+    public static ExponentialSmoother forWindow(int window) {
+        if (window < 1) window = 1;
+        return new ExponentialSmoother(2.0 / (window + 1.0));
+    }
+
+    @Override
+    public double add(double value) {
+        if (Double.isNaN(current)) {
+            current = value;
+        } else {
+            current += alpha * (value - current);
+        }
+        return current;
+    }
+
+    @Override
+    public double getCurrent() {
+        return current;
+    }
+
+    @Override
+    public void reset() {
+        current = Double.NaN;
+    }
+
+    @Override
+    public double[] smooth(double[] values, int count, double[] out) {
+        if (out == null || out.length < count) {
+            out = new double[count];
+        }
+        if (count == 0) {
+            return out;
+        }
+        double forward = values[0];
+        out[0] = forward;
+        for (int i = 1; i < count; i++) {
+            forward += alpha * (values[i] - forward);
+            out[i] = forward;
+        }
+        double backward = values[count - 1];
+        out[count - 1] = (out[count - 1] + backward) * 0.5;
+        for (int i = count - 2; i >= 0; i--) {
+            backward += alpha * (values[i] - backward);
+            out[i] = (out[i] + backward) * 0.5;
+        }
+        return out;
+    }
+}
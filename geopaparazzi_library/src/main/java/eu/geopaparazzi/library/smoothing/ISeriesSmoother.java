@@ -0,0 +1,67 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.smoothing;
+
+/**
+ * A smoother for series of values.
+ *
+ * <p>Smoothers can be used in two ways:
+ * <ul>
+ * <li>on stored series through {@link #smooth(double[], int, double[])}, which produces a
+ * centered result where the filter allows it</li>
+ * <li>live, feeding one sample at the time through {@link #add(double)}, which produces
+ * a causal estimate of the latest sample</li>
+ * </ul>
+ * The work per sample depends on the smoother: the moving average and the exponential
+ * smoother do a constant amount, the Savitzky-Golay smoother a convolution over its window.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public interface ISeriesSmoother {
+
+    /**
+     * Add a sample to the live stream.
+     *
+     * @param value the new sample.
+     * @return the smoothed value for the latest sample.
+     */
+    double add(double value);
+
+    /**
+     * @return the last value returned by {@link #add(double)} or <code>NaN</code> if no sample was added yet.
+     */
+    double getCurrent();
+
+    /**
+     * Reset the live stream state.
+     */
+    void reset();
+
+    /**
+     * Smooth a stored series.
+     *
+     * <p>This does not touch the live stream state.</p>
+     *
+     * @param values the values to smooth.
+     * @param count  the number of valid values.
+     * @param out    the array to fill. If <code>null</code> or too small, a new one is created.
+     *               It can't be the same as the input array.
+     * @return the array holding the smoothed values.
+     */
+    double[] smooth(double[] values, int count, double[] out);
+}
@@ -0,0 +1,111 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.smoothing;
+
+/**
+ * Moving average smoother based on a running sum.
+ *
+ * <p>On stored series the window is centered and shrinks symmetrically at the
+ * borders, live the average is done on the last samples.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class MovingAverageSmoother implements ISeriesSmoother {
+
+    private final int window;
+    private final double[] ring;
+    private int ringIndex = 0;
+    private int ringCount = 0;
+    private double ringSum = 0;
+    private double current = Double.NaN;
+
+    /**
+     * Constructor.
+     *
+     * @param window the window size. If even it is increased by one.
+     */
+    public MovingAverageSmoother(int window) {
+        if (window < 1) window = 1;
+        if (window % 2 == 0) window++;
+        this.window = window;
+        ring = new double[window];
+    }
+
+    @Override
+    public double add(double value) {
+        if (ringCount == window) {
+            ringSum -= ring[ringIndex];
+        } else {
+            ringCount++;
+        }
+        ring[ringIndex] = value;
+        ringSum += value;
+        ringIndex = (ringIndex + 1) % window;
+        current = ringSum / ringCount;
+        return current;
+    }
+
+    @Override
+    public double getCurrent() {
+        return current;
+    }
+
+    @Override
+    public void reset() {
+        ringIndex = 0;
+        ringCount = 0;
+        ringSum = 0;
+        current = Double.NaN;
+    }
+
+    @Override
+    public double[] smooth(double[] values, int count, double[] out) {
+        if (out == null || out.length < count) {
+            out = new double[count];
+        }
+        if (count == 0) {
+            return out;
+        }
+        int half = window / 2;
+        if (half > (count - 1) / 2) {
+            half = (count - 1) / 2;
+        }
+
+        // growing window at the start
+        double sum = values[0];
+        out[0] = values[0];
+        for (int i = 1; i <= half; i++) {
+            sum += values[2 * i - 1] + values[2 * i];
+            out[i] = sum / (2 * i + 1);
+        }
+        // full window
+        int size = 2 * half + 1;
+        for (int i = half + 1; i < count - half; i++) {
+            sum += values[i + half] - values[i - half - 1];
+            out[i] = sum / size;
+        }
+        // shrinking window at the end
+        for (int i = Math.max(half + 1, count - half); i < count; i++) {
+            int h = count - 1 - i;
+            int prevH = h + 1;
+            sum -= values[i - prevH - 1] + values[i - prevH];
+            out[i] = sum / (2 * h + 1);
+        }
+        return out;
+    }
+}
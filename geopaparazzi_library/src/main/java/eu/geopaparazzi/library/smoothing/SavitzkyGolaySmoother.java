@@ -0,0 +1,190 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.library.smoothing;
+
+/**
+ * Savitzky-Golay smoother, i.e. a local least squares polynomial fit on equally spaced samples.
+ *
+ * <p>The convolution coefficients are computed once for every position in the
+ * window, so that the borders of stored series and the live stream (which is
+ * evaluated at the newest sample) are fitted too.</p>
+ *
+ * <p>Every smoothed value is a convolution over the whole window, so the work per sample
+ * grows with the window size.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class SavitzkyGolaySmoother implements ISeriesSmoother {
+
+    private final int window;
+    private final int half;
+    private final int order;
+    /**
+     * Coefficients for the evaluation at every window position: [position][sample].
+     */
+    private final double[][] coefficients;
+
+    private final double[] ring;
+    private int ringIndex = 0;
+    private int ringCount = 0;
+    private double current = Double.NaN;
+
+    /**
+     * Constructor.
+     *
+     * @param window the window size. If even it is increased by one.
+     * @param order  the order of the fitted polynomial, needs to be smaller than the window.
+     */
+    public SavitzkyGolaySmoother(int window, int order) {
+        if (window % 2 == 0) window++;
+        if (order < 0 || order >= window) {
+            throw new IllegalArgumentException("The polynomial order needs to be positive and smaller than the window: " + order);
+        }
+        this.window = window;
+        this.half = window / 2;
+        this.order = order;
+        ring = new double[window];
+        coefficients = computeCoefficients(half, order);
+    }
+
+    private static double[][] computeCoefficients(int half, int order) {
+        int window = 2 * half + 1;
+        int n = order + 1;
+        // normal matrix A^T A with A[j][k] = j^k
+        double[][] m = new double[n][2 * n];
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < n; c++) {
+                double sum = 0;
+                for (int j = -half; j <= half; j++) {
+                    sum += Math.pow(j, r + c);
+                }
+                m[r][c] = sum;
+            }
+            m[r][n + r] = 1.0;
+        }
+        // Gauss-Jordan inversion
+        for (int col = 0; col < n; col++) {
+            int pivot = col;
+            for (int r = col + 1; r < n; r++) {
+                if (Math.abs(m[r][col]) > Math.abs(m[pivot][col])) pivot = r;
+            }
+            double[] tmp = m[col];
+            m[col] = m[pivot];
+            m[pivot] = tmp;
+            double p = m[col][col];
+            for (int c = 0; c < 2 * n; c++) m[col][c] /= p;
+            for (int r = 0; r < n; r++) {
+                if (r == col) continue;
+                double factor = m[r][col];
+                if (factor == 0) continue;
+                for (int c = 0; c < 2 * n; c++) m[r][c] -= factor * m[col][c];
+            }
+        }
+
+        double[][] coeffs = new double[window][window];
+        double[] v = new double[n];
+        for (int t = -half; t <= half; t++) {
+            // v = (A^T A)^-1 * [1, t, t^2, ...]
+            for (int r = 0; r < n; r++) {
+                double sum = 0;
+                for (int c = 0; c < n; c++) {
+                    sum += m[r][n + c] * Math.pow(t, c);
+                }
+                v[r] = sum;
+            }
+            for (int j = -half; j <= half; j++) {
+                double sum = 0;
+                for (int k = 0; k < n; k++) {
+                    sum += v[k] * Math.pow(j, k);
+                }
+                coeffs[t + half][j + half] = sum;
+            }
+        }
+        return coeffs;
+    }
+
+    @Override
+    public double add(double value) {
+        ring[ringIndex] = value;
+        ringIndex = (ringIndex + 1) % window;
+        if (ringCount < window) {
+            ringCount++;
+        }
+        if (ringCount < window) {
+            // not enough samples for a fit yet
+            current = value;
+            return current;
+        }
+        double[] last = coefficients[window - 1];
+        double sum = 0;
+        // ringIndex now points to the oldest sample
+        for (int j = 0; j < window; j++) {
+            sum += last[j] * ring[(ringIndex + j) % window];
+        }
+        current = sum;
+        return current;
+    }
+
+    @Override
+    public double getCurrent() {
+        return current;
+    }
+
+    @Override
+    public void reset() {
+        ringIndex = 0;
+        ringCount = 0;
+        current = Double.NaN;
+    }
+
+    @Override
+    public double[] smooth(double[] values, int count, double[] out) {
+        if (out == null || out.length < count) {
+            out = new double[count];
+        }
+        if (count < window) {
+            int smallWindow = count % 2 == 0 ? count - 1 : count;
+            if (smallWindow <= order) {
+                System.arraycopy(values, 0, out, 0, count);
+                return out;
+            }
+            return new SavitzkyGolaySmoother(smallWindow, order).smooth(values, count, out);
+        }
+
+        for (int i = 0; i < count; i++) {
+            int start;
+            double[] c;
+            if (i < half) {
+                start = 0;
+                c = coefficients[i];
+            } else if (i >= count - half) {
+                start = count - window;
+                c = coefficients[i - start];
+            } else {
+                start = i - half;
+                c = coefficients[half];
+            }
+            double sum = 0;
+            for (int j = 0; j < window; j++) {
+                sum += c[j] * values[start + j];
+            }
+            out[i] = sum;
+        }
+        return out;
+    }
+}
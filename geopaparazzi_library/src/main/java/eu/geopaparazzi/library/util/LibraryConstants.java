@@ -252,6 +252,46 @@ public interface LibraryConstants {
      */
     String PREFS_KEY_GPS_USE_NETWORK_POSITION = "PREFS_KEY_GPS_USE_NETWORK_POSITION"; //$NON-NLS-1$
 
+    /**
+     * Key used to define if gps logs are recorded at full rate from a connected bluetooth NMEA receiver.
+     */
+    String PREFS_KEY_GPS_NMEA_LOGGING = "PREFS_KEY_GPS_NMEA_LOGGING"; //$NON-NLS-1$
+
+    /**
+     * Key used to define the minimum fix quality of the points logged from a NMEA receiver.
+     */
+    String PREFS_KEY_GPS_NMEA_QUALITY_GATE = "PREFS_KEY_GPS_NMEA_QUALITY_GATE"; //$NON-NLS-1$
+
+    /**
+     * Key used to define the smoother to use for elevation and speed series.
+     */
+    String PREFS_KEY_PROFILE_SMOOTHER = "PREFS_KEY_PROFILE_SMOOTHER"; //$NON-NLS-1$
+
+    /**
+     * Key used to define if the editing tools snap new vertexes to existing features.
+     */
+    String PREFS_KEY_SNAPPING_ENABLED = "PREFS_KEY_SNAPPING_ENABLED"; //$NON-NLS-1$
+
+    /**
+     * Key used to define the snapping tolerance in pixels.
+     */
+    String PREFS_KEY_SNAPPING_TOLERANCE = "PREFS_KEY_SNAPPING_TOLERANCE"; //$NON-NLS-1$
+
+    /**
+     * Key used to define the max number of open connections to the vector databases.
+     */
+    String PREFS_KEY_MAX_OPEN_DB_CONNECTIONS = "PREFS_KEY_MAX_OPEN_DB_CONNECTIONS"; //$NON-NLS-1$
+
+    /**
+     * Key used to define the max number of notes, images and bookmarks shown before they are clustered.
+     */
+    String PREFS_KEY_MARKERS_CLUSTER_DENSITY = "PREFS_KEY_MARKERS_CLUSTER_DENSITY"; //$NON-NLS-1$
+
+    /**
+     * Key used to define the ids of the editable layers that are not snapped to.
+     */
+    String PREFS_KEY_SNAPPING_EXCLUDED_LAYERS = "PREFS_KEY_SNAPPING_EXCLUDED_LAYERS"; //$NON-NLS-1$
+
     /**
      * Key used to define form data that are passed through any workflow.
      */
@@ -18,7 +18,8 @@
 package eu.geopaparazzi.library.util;
 
 import android.graphics.PointF;
-import android.location.Location;
+
+import eu.geopaparazzi.library.geodesy.GeodesyUtilities;
 
 /**
  * Add a third dimension and description to {@link PointF}.
@@ -111,14 +112,7 @@ public class PointF3D extends PointF {
      */
     @SuppressWarnings("nls")
     public float distance2d(PointF p) {
-        Location thisLoc = new Location("dummy");
-        thisLoc.setLongitude(x);
-        thisLoc.setLatitude(y);
-        Location thatLoc = new Location("dummy");
-        thatLoc.setLongitude(p.x);
-        thatLoc.setLatitude(p.y);
-
-        return thisLoc.distanceTo(thatLoc);
+        return (float) GeodesyUtilities.vincenty(x, y, p.x, p.y);
     }
 
     /**
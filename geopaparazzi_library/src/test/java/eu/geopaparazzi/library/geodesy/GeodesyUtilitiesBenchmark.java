@@ -0,0 +1,69 @@
+package eu.geopaparazzi.library.geodesy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the distances over a track of 100k points, as when charting a log.
+ *
+ * <p>Not run by the unit tests, start it with the main method from the test classpath.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeodesyUtilitiesBenchmark {
+    private static final int POINTS = 100000;
+
+    private final double[] lons = new double[POINTS];
+    private final double[] lats = new double[POINTS];
+    private final double[] out = new double[POINTS];
+
+    @Setup
+    public void setup() {
+        // a walk of about 5 meters per point
+        Random random = new Random(42);
+        double lon = 11.0;
+        double lat = 46.0;
+        for (int i = 0; i < POINTS; i++) {
+            lon += (random.nextDouble() - 0.5) * 0.0001;
+            lat += (random.nextDouble() - 0.5) * 0.0001;
+            lons[i] = lon;
+            lats[i] = lat;
+        }
+    }
+
+    @Benchmark
+    public double[] cumulativeVincenty() {
+        return GeodesyUtilities.cumulativeDistances(lons, lats, POINTS, true, out);
+    }
+
+    @Benchmark
+    public double[] cumulativeHaversine() {
+        return GeodesyUtilities.cumulativeDistances(lons, lats, POINTS, false, out);
+    }
+
+    @Benchmark
+    public double lengthVincenty() {
+        return GeodesyUtilities.length(lons, lats, POINTS, true);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(GeodesyUtilitiesBenchmark.class.getSimpleName()).build()).run();
+    }
+}
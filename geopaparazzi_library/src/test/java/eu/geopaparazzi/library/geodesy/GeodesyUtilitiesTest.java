@@ -0,0 +1,127 @@
+package eu.geopaparazzi.library.geodesy;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the geodesic distances against reference values of GeographicLib.
+ */
+public class GeodesyUtilitiesTest {
+    private static final double DELTA = 0.001;
+
+    /**
+     * Equator to pole.
+     */
+    private static final double QUARTER_MERIDIAN = 10001965.7293;
+    /**
+     * The distance of antipodal points, along a meridian through the poles.
+     */
+    private static final double HALF_MERIDIAN = 2 * QUARTER_MERIDIAN;
+    /**
+     * One degree of longitude along the equator.
+     */
+    private static final double EQUATOR_DEGREE = GeodesyUtilities.WGS84_A * Math.PI / 180.0;
+    /**
+     * One degree of latitude from the equator.
+     */
+    private static final double MERIDIAN_DEGREE = 110574.3886;
+
+    @Test
+    public void vincentyReferences() throws Exception {
+        // echo 40.6 -73.8 51.6 -0.5 | GeodSolve -i
+        assertEquals(5551759.400319, GeodesyUtilities.vincenty(-73.8, 40.6, -0.5, 51.6), DELTA);
+        assertEquals(5551759.400319, GeodesyUtilities.vincenty(-0.5, 51.6, -73.8, 40.6), DELTA);
+        assertEquals(QUARTER_MERIDIAN, GeodesyUtilities.vincenty(0, 0, 0, 90), DELTA);
+        assertEquals(EQUATOR_DEGREE, GeodesyUtilities.vincenty(0, 0, 1, 0), DELTA);
+    }
+
+    @Test
+    public void vincentyAntipodal() throws Exception {
+        assertEquals(HALF_MERIDIAN, GeodesyUtilities.vincenty(0, 0, 180, 0), DELTA);
+        assertEquals(HALF_MERIDIAN, GeodesyUtilities.vincenty(0, 30, 180, -30), DELTA);
+        assertEquals(HALF_MERIDIAN, GeodesyUtilities.vincenty(10, 45, -170, -45), DELTA);
+        // nearly antipodal, where the Vincenty iteration doesn't converge (Karney 2013)
+        assertEquals(19936288.578965, GeodesyUtilities.vincenty(0, 0, 179.5, 0.5), DELTA);
+    }
+
+    @Test
+    public void coincidentPoints() throws Exception {
+        assertEquals(0.0, GeodesyUtilities.vincenty(11.5, 46.5, 11.5, 46.5), 0.0);
+        assertEquals(0.0, GeodesyUtilities.haversine(11.5, 46.5, 11.5, 46.5), 0.0);
+        assertEquals(0.0, GeodesyUtilities.vincenty(0, 90, 0, 90), 0.0);
+    }
+
+    @Test
+    public void haversineReferences() throws Exception {
+        double r = GeodesyUtilities.EARTH_MEAN_RADIUS;
+        assertEquals(Math.PI * r, GeodesyUtilities.haversine(0, 0, 180, 0), DELTA);
+        assertEquals(Math.PI * r, GeodesyUtilities.haversine(10, 45, -170, -45), DELTA);
+        assertEquals(Math.PI / 2 * r, GeodesyUtilities.haversine(0, 0, 0, 90), DELTA);
+        assertEquals(Math.PI / 180 * r, GeodesyUtilities.haversine(0, 0, 1, 0), DELTA);
+
+        // the sphere is within 0.5% of the ellipsoid
+        double vincenty = GeodesyUtilities.vincenty(-73.8, 40.6, -0.5, 51.6);
+        assertEquals(vincenty, GeodesyUtilities.haversine(-73.8, 40.6, -0.5, 51.6), vincenty * 0.005);
+    }
+
+    @Test
+    public void lonLatOrder() throws Exception {
+        // longitude first: one degree north along the meridian is shorter than one degree east on the equator
+        assertEquals(MERIDIAN_DEGREE, GeodesyUtilities.vincenty(10, 0, 10, 1), DELTA);
+        assertEquals(EQUATOR_DEGREE, GeodesyUtilities.vincenty(10, 0, 11, 0), DELTA);
+
+        double[] lons = {10, 10};
+        double[] lats = {0, 1};
+        assertEquals(MERIDIAN_DEGREE, GeodesyUtilities.length(lons, lats, 2, true), DELTA);
+        assertEquals(MERIDIAN_DEGREE, GeodesyUtilities.segmentDistances(lons, lats, 2, true, null)[1], DELTA);
+        assertEquals(MERIDIAN_DEGREE, GeodesyUtilities.cumulativeDistances(lons, lats, 2, true, null)[1], DELTA);
+    }
+
+    @Test
+    public void trackDistances() throws Exception {
+        // along the equator, then north along the meridian, then back to the same point
+        double[] lons = {0, 1, 1, 1, 99};
+        double[] lats = {0, 0, 1, 1, 99};
+        int count = 4;
+
+        double[] segments = GeodesyUtilities.segmentDistances(lons, lats, count, true, null);
+        assertEquals(count, segments.length);
+        assertEquals(0.0, segments[0], 0.0);
+        assertEquals(EQUATOR_DEGREE, segments[1], DELTA);
+        assertEquals(MERIDIAN_DEGREE, segments[2], DELTA);
+        assertEquals(0.0, segments[3], 0.0);
+
+        double[] cumulative = GeodesyUtilities.cumulativeDistances(lons, lats, count, true, null);
+        assertEquals(count, cumulative.length);
+        assertEquals(0.0, cumulative[0], 0.0);
+        assertEquals(EQUATOR_DEGREE, cumulative[1], DELTA);
+        assertEquals(EQUATOR_DEGREE + MERIDIAN_DEGREE, cumulative[2], DELTA);
+        assertEquals(EQUATOR_DEGREE + MERIDIAN_DEGREE, cumulative[3], DELTA);
+        assertEquals(cumulative[3], GeodesyUtilities.length(lons, lats, count, true), DELTA);
+
+        double[] haversine = GeodesyUtilities.cumulativeDistances(lons, lats, count, false, null);
+        assertEquals(GeodesyUtilities.length(lons, lats, count, false), haversine[3], DELTA);
+    }
+
+    @Test
+    public void outputArrays() throws Exception {
+        double[] lons = {0, 1, 2};
+        double[] lats = {0, 0, 0};
+
+        // large enough arrays are reused, small ones replaced
+        double[] out = new double[10];
+        assertSame(out, GeodesyUtilities.cumulativeDistances(lons, lats, 3, true, out));
+        assertEquals(2 * EQUATOR_DEGREE, out[2], DELTA);
+        assertSame(out, GeodesyUtilities.segmentDistances(lons, lats, 3, true, out));
+        assertEquals(EQUATOR_DEGREE, out[2], DELTA);
+        double[] small = new double[2];
+        double[] replaced = GeodesyUtilities.cumulativeDistances(lons, lats, 3, true, small);
+        assertNotSame(small, replaced);
+        assertEquals(2 * EQUATOR_DEGREE, replaced[2], DELTA);
+
+        assertEquals(0, GeodesyUtilities.cumulativeDistances(lons, lats, 0, true, null).length);
+        assertEquals(0, GeodesyUtilities.segmentDistances(lons, lats, 0, true, null).length);
+        assertEquals(0.0, GeodesyUtilities.length(lons, lats, 1, true), 0.0);
+    }
+}
@@ -51,6 +51,10 @@ public class Feature implements Parcelable {
     private List<String> attributeTypes = new ArrayList<>();
 
     private boolean isDirty = false;
+    private boolean attributesLoaded = true;
+
+    // the geometry as read from a parcel, decoded on first access
+    private byte[] geometryWkb;
 
     /**
      * Constructor for case with geometry.
@@ -90,6 +94,42 @@ public class Feature implements Parcelable {
     }
 
 
+    /**
+     * Create a copy of the feature, with its own attribute lists.
+     *
+     * <p>The geometry is shared.</p>
+     *
+     * @return the copy.
+     */
+    public synchronized Feature copy() {
+        Feature copy = new Feature(tableName, databasePath, idIndex, geometryIndex);
+        copy.attributeNames = new ArrayList<>(attributeNames);
+        copy.attributeValues = new ArrayList<>(attributeValues);
+        copy.attributeTypes = new ArrayList<>(attributeTypes);
+        copy.geometryWkb = geometryWkb;
+        copy.attributesLoaded = attributesLoaded;
+        copy.isDirty = isDirty;
+        return copy;
+    }
+
+    /**
+     * Create a copy of the feature with a different geometry, for example one that has
+     * not been written yet.
+     *
+     * <p>The copy is not marked as dirty by the new geometry.</p>
+     *
+     * @param geometry the geometry of the copy.
+     * @return the copy.
+     */
+    public synchronized Feature copy(Geometry geometry) {
+        Feature copy = copy();
+        if (geometryIndex != -1) {
+            copy.geometryWkb = null;
+            copy.attributeValues.set(geometryIndex, geometry);
+        }
+        return copy;
+    }
+
     /**
      * Add a new attribute.
      *
@@ -127,6 +167,7 @@ public class Feature implements Parcelable {
      * @param value the new value to set.
      */
     public void setAttribute(int index, Object value) {
+        if (index == geometryIndex) geometryWkb = null;
         attributeValues.set(index, value);
         isDirty = true;
     }
@@ -140,6 +181,7 @@ public class Feature implements Parcelable {
     public Object getAttribute(String name) {
         int indexOf = attributeNames.indexOf(name);
         if (indexOf != -1) {
+            if (indexOf == geometryIndex) decodeGeometry();
             return attributeValues.get(indexOf);
         }
         return null;
@@ -151,9 +193,22 @@ public class Feature implements Parcelable {
     public Geometry getDefaultGeometry() {
         if (geometryIndex == -1)
             return null;
+        decodeGeometry();
         return (Geometry) attributeValues.get(geometryIndex);
     }
 
+    private synchronized void decodeGeometry() {
+        if (geometryWkb == null) return;
+        Geometry geometry = null;
+        try {
+            geometry = new WKBReader().read(geometryWkb);
+        } catch (ParseException e) {
+            GPLog.error(this, null, e);
+        }
+        attributeValues.set(geometryIndex, geometry);
+        geometryWkb = null;
+    }
+
     /**
      * @return the list of attributes names.
      */
@@ -165,6 +220,7 @@ public class Feature implements Parcelable {
      * @return the list of attribute values in string representation.
      */
     public List<Object> getAttributeValues() {
+        decodeGeometry();
         return attributeValues;
     }
 
@@ -189,6 +245,36 @@ public class Feature implements Parcelable {
         return databasePath;
     }
 
+    /**
+     * @return <code>false</code> if the feature only holds the primary key and geometry, as
+     * read by the {@link HitTestExecutor}, and the other attributes still need to be loaded.
+     */
+    public boolean isAttributesLoaded() {
+        return attributesLoaded;
+    }
+
+    /**
+     * Mark the feature as holding only the primary key and geometry.
+     */
+    public void setAttributesNotLoaded() {
+        attributesLoaded = false;
+    }
+
+    /**
+     * Take over the attributes of a fully read copy of this feature.
+     *
+     * @param loaded the same feature, read with all its attributes.
+     */
+    public synchronized void setAttributes(Feature loaded) {
+        idIndex = loaded.idIndex;
+        geometryIndex = loaded.geometryIndex;
+        attributeNames = loaded.attributeNames;
+        attributeValues = loaded.attributeValues;
+        attributeTypes = loaded.attributeTypes;
+        geometryWkb = loaded.geometryWkb;
+        attributesLoaded = true;
+    }
+
     /**
      * @return <code>true</code> if the features has been modified.
      */
@@ -205,12 +291,16 @@ public class Feature implements Parcelable {
         dest.writeInt(geometryIndex);
         dest.writeString(tableName);
         dest.writeString(databasePath);
+        dest.writeInt(attributesLoaded ? 1 : 0);
         dest.writeList(attributeNames);
         dest.writeList(attributeTypes);
         for (int i = 0; i < attributeValues.size(); i++) {
             Object obj = attributeValues.get(i);
             if (i == geometryIndex) {
-                if (obj == null) {
+                if (geometryWkb != null) {
+                    // never decoded, pass it on as is
+                    dest.writeByteArray(geometryWkb);
+                } else if (obj == null) {
                     dest.writeByteArray(null);
                 } else {
                     Geometry geom = (Geometry) obj;
@@ -279,20 +369,17 @@ public class Feature implements Parcelable {
             int geometryIndex = in.readInt();
             String tableName = in.readString();
             String databasePath = in.readString();
+            boolean attributesLoaded = in.readInt() == 1;
 
             List<String> attributeNames = in.readArrayList(String.class.getClassLoader());
             List<String> attributeTypes = in.readArrayList(String.class.getClassLoader());
             List<Object> attributeValues = new ArrayList<>();
+            byte[] geometryWkb = null;
             for (int i = 0; i < attributeNames.size(); i++) {
                 if (i == geometryIndex) {
-                    WKBReader wkbReader = new WKBReader();
-                    Geometry defaultGeometry = null;
-                    try {
-                        defaultGeometry = wkbReader.read(in.createByteArray());
-                    } catch (ParseException e) {
-                        GPLog.error(this, null, e);
-                    }
-                    attributeValues.add(defaultGeometry);
+                    // decoded on first access
+                    geometryWkb = in.createByteArray();
+                    attributeValues.add(null);
                 } else {
                     String type = attributeTypes.get(i);
                     EDataType type4Name = EDataType.getType4Name(type);
@@ -336,6 +423,8 @@ public class Feature implements Parcelable {
             feature.attributeNames = attributeNames;
             feature.attributeValues = attributeValues;
             feature.attributeTypes = attributeTypes;
+            feature.attributesLoaded = attributesLoaded;
+            feature.geometryWkb = geometryWkb;
             return feature;
         }
 
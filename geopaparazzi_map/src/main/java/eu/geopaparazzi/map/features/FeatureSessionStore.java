@@ -0,0 +1,234 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.map.features;
+
+import android.content.Intent;
+import android.os.Bundle;
+
+import org.hortonmachine.dbs.compat.objects.QueryResult;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.library.util.LibraryConstants;
+import eu.geopaparazzi.map.layers.ELayerTypes;
+import eu.geopaparazzi.map.layers.utils.DbConnectionRegistry;
+import eu.geopaparazzi.map.layers.utils.GeopackageConnectionsHandler;
+import eu.geopaparazzi.map.layers.utils.SpatialiteConnectionsHandler;
+import eu.geopaparazzi.map.utils.MapUtilities;
+
+/**
+ * Process local store of the features passed between activities.
+ *
+ * <p>Instead of parcelling the features, which for large selections is slow and can exceed
+ * the binder transaction limit, they are registered here and only a handle crosses the
+ * {@link Intent}. Together with the handle, the intent carries the database path, table and
+ * primary key of each feature, so that they can be read again from the database if the
+ * process has been killed in the meanwhile.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@SuppressWarnings("nls")
+public enum FeatureSessionStore {
+    INSTANCE;
+
+    private static final String KEY_HANDLE = "KEY_FEATURES_HANDLE";
+    private static final String KEY_DBPATHS = "KEY_FEATURES_DBPATHS";
+    private static final String KEY_TABLES = "KEY_FEATURES_TABLES";
+    private static final String KEY_PKNAMES = "KEY_FEATURES_PKNAMES";
+    private static final String KEY_SOURCES = "KEY_FEATURES_SOURCES";
+    private static final String KEY_IDS = "KEY_FEATURES_IDS";
+
+    /**
+     * The max number of ids in a single reload query.
+     */
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    private final Map<String, ArrayList<Feature>> sessions = new HashMap<>();
+
+    /**
+     * Register the features and add their handle to an intent.
+     *
+     * <p>The features are copied, so that changes in the receiving activity only reach the
+     * sender through the result, as with parcelling.</p>
+     *
+     * @param intent   the intent to add the handle to.
+     * @param features the features to pass.
+     */
+    public void putFeatures(Intent intent, List<Feature> features) {
+        ArrayList<Feature> copies = new ArrayList<>(features.size());
+        for (Feature feature : features) {
+            copies.add(feature.copy());
+        }
+        String handle = UUID.randomUUID().toString();
+        synchronized (sessions) {
+            sessions.put(handle, copies);
+        }
+        intent.putExtra(KEY_HANDLE, handle);
+
+        // the references to reload them
+        Map<String, Integer> source2Index = new LinkedHashMap<>();
+        ArrayList<String> dbPaths = new ArrayList<>();
+        ArrayList<String> tables = new ArrayList<>();
+        ArrayList<String> pkNames = new ArrayList<>();
+        int[] sources = new int[copies.size()];
+        long[] ids = new long[copies.size()];
+        for (int i = 0; i < copies.size(); i++) {
+            Feature feature = copies.get(i);
+            String source = feature.getDatabasePath() + "#" + feature.getTableName();
+            Integer index = source2Index.get(source);
+            if (index == null) {
+                index = dbPaths.size();
+                source2Index.put(source, index);
+                dbPaths.add(feature.getDatabasePath());
+                tables.add(feature.getTableName());
+                pkNames.add(feature.getIdFieldName());
+            }
+            sources[i] = index;
+            ids[i] = feature.getIdIndex() != -1 ? feature.getIdFieldValue() : -1;
+        }
+        intent.putStringArrayListExtra(KEY_DBPATHS, dbPaths);
+        intent.putStringArrayListExtra(KEY_TABLES, tables);
+        intent.putStringArrayListExtra(KEY_PKNAMES, pkNames);
+        intent.putExtra(KEY_SOURCES, sources);
+        intent.putExtra(KEY_IDS, ids);
+    }
+
+    /**
+     * @param extras the extras of the intent.
+     * @return <code>true</code> if the intent carries a feature handle.
+     */
+    public boolean hasFeatures(Bundle extras) {
+        return extras != null && extras.containsKey(KEY_HANDLE);
+    }
+
+    /**
+     * Get the features of an intent.
+     *
+     * @param extras the extras of the intent.
+     * @return the features or <code>null</code> if they are no longer in the store and need
+     * to be reloaded through {@link #reloadFeatures(Bundle)}.
+     */
+    public ArrayList<Feature> getFeatures(Bundle extras) {
+        String handle = extras.getString(KEY_HANDLE);
+        synchronized (sessions) {
+            return sessions.get(handle);
+        }
+    }
+
+    /**
+     * Read the features of an intent from their databases and register them again.
+     *
+     * <p>This accesses the databases, so it should not be run on the UI thread.</p>
+     *
+     * @param extras the extras of the intent.
+     * @return the features that still exist, in their original order.
+     * @throws Exception if the databases can't be read.
+     */
+    public ArrayList<Feature> reloadFeatures(Bundle extras) throws Exception {
+        ArrayList<String> dbPaths = extras.getStringArrayList(KEY_DBPATHS);
+        ArrayList<String> tables = extras.getStringArrayList(KEY_TABLES);
+        ArrayList<String> pkNames = extras.getStringArrayList(KEY_PKNAMES);
+        int[] sources = extras.getIntArray(KEY_SOURCES);
+        long[] ids = extras.getLongArray(KEY_IDS);
+        ArrayList<Feature> features = new ArrayList<>();
+        if (dbPaths == null || sources == null || ids == null) return features;
+
+        Map<String, Feature> key2Feature = new HashMap<>();
+        for (int s = 0; s < dbPaths.size(); s++) {
+            if (pkNames.get(s) == null) continue;
+            int count = 0;
+            for (int source : sources) {
+                if (source == s) count++;
+            }
+            long[] sourceIds = new long[count];
+            int index = 0;
+            for (int i = 0; i < sources.length; i++) {
+                if (sources[i] == s) sourceIds[index++] = ids[i];
+            }
+            for (Feature feature : readFeatures(dbPaths.get(s), tables.get(s), pkNames.get(s), sourceIds)) {
+                key2Feature.put(s + "#" + feature.getIdFieldValue(), feature);
+            }
+        }
+        for (int i = 0; i < sources.length; i++) {
+            Feature feature = key2Feature.get(sources[i] + "#" + ids[i]);
+            if (feature != null) features.add(feature);
+        }
+        if (GPLog.LOG_HEAVY)
+            GPLog.addLogEntry(this, "reloaded " + features.size() + " of " + ids.length + " features");
+
+        synchronized (sessions) {
+            sessions.put(extras.getString(KEY_HANDLE), features);
+        }
+        return features;
+    }
+
+    /**
+     * Remove the features of an intent from the store.
+     *
+     * @param extras the extras of the intent.
+     */
+    public void release(Bundle extras) {
+        if (!hasFeatures(extras)) return;
+        synchronized (sessions) {
+            sessions.remove(extras.getString(KEY_HANDLE));
+        }
+    }
+
+    /**
+     * Read features with all their attributes, geometries in lat/long.
+     *
+     * @param dbPath    the database path.
+     * @param tableName the table.
+     * @param pkName    the primary key field.
+     * @param ids       the ids of the features.
+     * @return the features found, in no particular order.
+     * @throws Exception if the database can't be read.
+     */
+    public List<Feature> readFeatures(String dbPath, String tableName, String pkName, long[] ids) throws Exception {
+        List<Feature> features = new ArrayList<>();
+        ELayerTypes layerType = ELayerTypes.fromFileExt(dbPath);
+        DbConnectionRegistry.DbFunction<Void> read = db -> {
+            // only 4326 are supported in geopackages
+            int srid = layerType == ELayerTypes.SPATIALITE ? LibraryConstants.SRID_WGS84_4326 : -1;
+            for (int start = 0; start < ids.length; start += MAX_IDS_PER_QUERY) {
+                int end = Math.min(ids.length, start + MAX_IDS_PER_QUERY);
+                StringBuilder where = new StringBuilder(pkName).append(" IN (");
+                for (int i = start; i < end; i++) {
+                    if (i > start) where.append(",");
+                    where.append(ids[i]);
+                }
+                where.append(")");
+                QueryResult queryResult = db.getTableRecordsMapIn(tableName, null, -1, srid, where.toString());
+                features.addAll(MapUtilities.fromQueryResult(tableName, dbPath, queryResult));
+            }
+            return null;
+        };
+        if (layerType == ELayerTypes.SPATIALITE) {
+            SpatialiteConnectionsHandler.INSTANCE.read(dbPath, read);
+        } else if (layerType == ELayerTypes.GEOPACKAGE) {
+            GeopackageConnectionsHandler.INSTANCE.read(dbPath, read);
+        }
+        return features;
+    }
+}
@@ -54,6 +54,11 @@ public class FeatureUtilities {
      */
     public static final String KEY_FEATURESLIST = "KEY_FEATURESLIST";
 
+    /**
+     * Key to pass the id of a running {@link HitTestExecutor.HitTest} through activities.
+     */
+    public static final String KEY_HITTEST_ID = "KEY_HITTEST_ID";
+
     /**
      * Key to pass a readonly flag through activities.
      */
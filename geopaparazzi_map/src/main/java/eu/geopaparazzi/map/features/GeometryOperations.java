@@ -0,0 +1,187 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.map.features;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.operation.union.UnaryUnionOp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import eu.geopaparazzi.library.database.GPLog;
+
+/**
+ * Geometry predicates and overlays for the editing tools.
+ *
+ * <p>Features are tested against their envelope first and only then against their geometry.
+ * The features are read again from the database for every test, so their geometries are
+ * not prepared: each would be used only once.</p>
+ *
+ * <p>Overlays are run per part: parts that can't interact with the other geometry are
+ * passed through untouched. For differences the other parts are cut in parallel, for
+ * unions they are merged with the other geometry in a single cascaded union.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@SuppressWarnings("nls")
+public enum GeometryOperations {
+    INSTANCE;
+
+    /**
+     * Geometries with fewer points are tested directly, preparing them doesn't pay.
+     */
+    private static final int MIN_PREPARED_POINTS = 64;
+
+    private static final int MAX_THREADS = 4;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors())), runnable -> {
+                Thread thread = new Thread(runnable, "GeometryOperations");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final GeometryFactory gf = new GeometryFactory();
+
+    /**
+     * Get the first feature whose geometry intersects a geometry.
+     *
+     * @param features the features to test, in order.
+     * @param geometry the geometry, usually a point.
+     * @return the first intersecting feature or <code>null</code>.
+     */
+    public Feature findFirstIntersecting(List<Feature> features, Geometry geometry) {
+        Envelope envelope = geometry.getEnvelopeInternal();
+        for (Feature feature : features) {
+            Geometry featureGeometry = feature.getDefaultGeometry();
+            if (featureGeometry == null || !featureGeometry.getEnvelopeInternal().intersects(envelope))
+                continue;
+            if (featureGeometry.intersects(geometry))
+                return feature;
+        }
+        return null;
+    }
+
+    /**
+     * The union of two geometries.
+     *
+     * @param geometry the geometry to extend.
+     * @param other    the geometry to add.
+     * @return the union.
+     */
+    public Geometry union(Geometry geometry, Geometry other) {
+        if (geometry instanceof GeometryCollection && !isMulti(geometry))
+            return geometry.union(other);
+        long start = System.currentTimeMillis();
+        List<Geometry> untouched = new ArrayList<>();
+        List<Geometry> touched = new ArrayList<>();
+        splitParts(geometry, other, untouched, touched);
+        int touchedCount = touched.size();
+        touched.add(other);
+        List<Geometry> parts = new ArrayList<>(untouched);
+        addParts(UnaryUnionOp.union(touched), parts);
+        Geometry result = gf.buildGeometry(parts);
+        if (GPLog.LOG_HEAVY)
+            GPLog.addLogEntry(this, "union of " + geometry.getNumPoints() + " and " + other.getNumPoints() + " points, "
+                    + touchedCount + " parts overlaid, in " + (System.currentTimeMillis() - start) + " ms");
+        return result;
+    }
+
+    /**
+     * The difference between two geometries.
+     *
+     * @param geometry the geometry to cut.
+     * @param other    the geometry to remove.
+     * @return the difference.
+     * @throws Exception if an overlay fails.
+     */
+    public Geometry difference(Geometry geometry, Geometry other) throws Exception {
+        if (geometry instanceof GeometryCollection && !isMulti(geometry))
+            return geometry.difference(other);
+        long start = System.currentTimeMillis();
+        List<Geometry> untouched = new ArrayList<>();
+        List<Geometry> touched = new ArrayList<>();
+        splitParts(geometry, other, untouched, touched);
+        Geometry result;
+        if (touched.isEmpty()) {
+            result = geometry.copy();
+        } else {
+            List<Geometry> parts = new ArrayList<>(untouched);
+            if (touched.size() == 1) {
+                addParts(touched.get(0).difference(other), parts);
+            } else {
+                List<Future<Geometry>> futures = new ArrayList<>(touched.size());
+                for (Geometry part : touched) {
+                    futures.add(executor.submit(() -> part.difference(other)));
+                }
+                for (Future<Geometry> future : futures) {
+                    try {
+                        addParts(future.get(), parts);
+                    } catch (ExecutionException e) {
+                        Throwable cause = e.getCause();
+                        throw cause instanceof Exception ? (Exception) cause : e;
+                    }
+                }
+            }
+            result = gf.buildGeometry(parts);
+        }
+        if (GPLog.LOG_HEAVY)
+            GPLog.addLogEntry(this, "difference of " + geometry.getNumPoints() + " and " + other.getNumPoints() + " points, "
+                    + touched.size() + " parts overlaid, in " + (System.currentTimeMillis() - start) + " ms");
+        return result;
+    }
+
+    /**
+     * Split the parts of a geometry into the ones that can't and can interact with another.
+     */
+    private void splitParts(Geometry geometry, Geometry other, List<Geometry> untouched, List<Geometry> touched) {
+        Envelope otherEnvelope = other.getEnvelopeInternal();
+        PreparedGeometry preparedOther = other.getNumPoints() < MIN_PREPARED_POINTS ? null : PreparedGeometryFactory.prepare(other);
+        for (int i = 0; i < geometry.getNumGeometries(); i++) {
+            Geometry part = geometry.getGeometryN(i);
+            boolean interacts = part.getEnvelopeInternal().intersects(otherEnvelope)
+                    && (preparedOther != null ? preparedOther.intersects(part) : other.intersects(part));
+            if (interacts) {
+                touched.add(part);
+            } else {
+                untouched.add(part);
+            }
+        }
+    }
+
+    private static void addParts(Geometry geometry, List<Geometry> parts) {
+        for (int i = 0; i < geometry.getNumGeometries(); i++) {
+            Geometry part = geometry.getGeometryN(i);
+            if (!part.isEmpty())
+                parts.add(part);
+        }
+    }
+
+    private static boolean isMulti(Geometry geometry) {
+        return geometry instanceof GeometryCollection && !geometry.getGeometryType().equals("GeometryCollection");
+    }
+}
@@ -0,0 +1,362 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.map.features;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import org.hortonmachine.dbs.compat.ASpatialDb;
+import org.hortonmachine.dbs.compat.GeometryColumn;
+import org.hortonmachine.dbs.compat.IGeometryParser;
+import org.hortonmachine.dbs.compat.IHMResultSet;
+import org.hortonmachine.dbs.compat.IHMStatement;
+import org.hortonmachine.dbs.datatypes.EDataType;
+import org.hortonmachine.dbs.geopackage.android.GPGeopackageDb;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.library.util.LibraryConstants;
+import eu.geopaparazzi.map.layers.ELayerTypes;
+import eu.geopaparazzi.map.layers.interfaces.IVectorDbLayer;
+import eu.geopaparazzi.map.layers.utils.GeopackageConnectionsHandler;
+import eu.geopaparazzi.map.layers.utils.ReprojectionHandler;
+import eu.geopaparazzi.map.layers.utils.SpatialiteConnectionsHandler;
+
+/**
+ * Runs the hit tests of the info and selection tools.
+ *
+ * <p>The layers are queried concurrently, one task per layer, each on a read connection
+ * borrowed from the {@link eu.geopaparazzi.map.layers.utils.DbConnectionRegistry}. Only the primary key and the geometry
+ * are read, the other attributes are loaded on demand through {@link #loadAttributes}.
+ * The features of each layer are delivered on the UI thread as soon as they are read.</p>
+ *
+ * <p>Only one hit test runs at a time, submitting a new one cancels the previous.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@SuppressWarnings("nls")
+public enum HitTestExecutor {
+    INSTANCE;
+
+    /**
+     * Listener for hit test results, always called on the UI thread.
+     */
+    public interface HitTestListener {
+        /**
+         * Called when the features of a layer are available.
+         *
+         * @param hitTest  the hit test.
+         * @param features the new features, already added to {@link HitTest#getFeatures()}.
+         */
+        void onFeatures(HitTest hitTest, List<Feature> features);
+
+        /**
+         * Called when all the layers have been queried.
+         *
+         * @param hitTest the hit test.
+         */
+        void onFinished(HitTest hitTest);
+    }
+
+    /**
+     * A running or finished hit test.
+     *
+     * <p>Features and listeners are only touched on the UI thread.</p>
+     */
+    public static class HitTest {
+        private final int id;
+        private final long startMillis = System.currentTimeMillis();
+        private final List<Feature> features = new ArrayList<>();
+        private final List<HitTestListener> listeners = new ArrayList<>();
+        private final List<Future<?>> futures = new ArrayList<>();
+        private int pendingTasks;
+        private boolean finished;
+        private volatile boolean cancelled;
+
+        private HitTest(int id) {
+            this.id = id;
+        }
+
+        /**
+         * @return the id, to pass the hit test through activities.
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * @return the features found so far.
+         */
+        public List<Feature> getFeatures() {
+            return features;
+        }
+
+        /**
+         * @return <code>true</code> if all the layers have been queried.
+         */
+        public boolean isFinished() {
+            return finished;
+        }
+
+        /**
+         * @return <code>true</code> if the hit test has been cancelled.
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * @param listener the listener to add.
+         */
+        public void addListener(HitTestListener listener) {
+            if (!listeners.contains(listener))
+                listeners.add(listener);
+        }
+
+        /**
+         * @param listener the listener to remove.
+         */
+        public void removeListener(HitTestListener listener) {
+            listeners.remove(listener);
+        }
+    }
+
+    private static final int MAX_THREADS = 4;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors())), runnable -> {
+                Thread thread = new Thread(runnable, "HitTestExecutor");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private final Handler uiHandler = new Handler(Looper.getMainLooper());
+
+    private int lastId = 0;
+    private HitTest current;
+
+    /**
+     * Start a hit test, cancelling the one running.
+     *
+     * <p>Must be called on the UI thread.</p>
+     *
+     * @param layers   the layers to query.
+     * @param env      the area to query, in lat/long.
+     * @param listener the listener to notify.
+     * @return the started hit test.
+     */
+    public HitTest submit(List<IVectorDbLayer> layers, Envelope env, HitTestListener listener) {
+        cancel();
+
+        HitTest hitTest = new HitTest(++lastId);
+        hitTest.addListener(listener);
+        current = hitTest;
+
+        hitTest.pendingTasks = layers.size();
+        if (hitTest.pendingTasks == 0) {
+            uiHandler.post(() -> finish(hitTest));
+            return hitTest;
+        }
+        for (IVectorDbLayer layer : layers) {
+            hitTest.futures.add(executor.submit(() -> {
+                try {
+                    if (hitTest.cancelled) return;
+                    long start = System.currentTimeMillis();
+                    List<Feature> layerFeatures = queryIdsAndGeometries(layer, env, hitTest);
+                    if (GPLog.LOG_HEAVY)
+                        GPLog.addLogEntry(this, "hit test " + hitTest.id + ": " + layerFeatures.size() + " features in "
+                                + layer.getName() + " in " + (System.currentTimeMillis() - start) + " ms");
+                    if (!layerFeatures.isEmpty())
+                        uiHandler.post(() -> deliver(hitTest, layerFeatures));
+                } catch (Exception e) {
+                    GPLog.error(this, "Unable to query layer " + layer.getName(), e);
+                } finally {
+                    uiHandler.post(() -> taskDone(hitTest));
+                }
+            }));
+        }
+        return hitTest;
+    }
+
+    /**
+     * Cancel the running hit test, if any.
+     *
+     * <p>Must be called on the UI thread.</p>
+     */
+    public void cancel() {
+        if (current != null && !current.finished && !current.cancelled) {
+            current.cancelled = true;
+            for (Future<?> future : current.futures) {
+                future.cancel(false);
+            }
+            if (GPLog.LOG_HEAVY)
+                GPLog.addLogEntry(this, "hit test " + current.id + " cancelled after " + (System.currentTimeMillis() - current.startMillis) + " ms");
+        }
+    }
+
+    /**
+     * Get the last hit test, if it is the one with the given id.
+     *
+     * @param id the id of the hit test.
+     * @return the hit test or <code>null</code> if it has been replaced.
+     */
+    public HitTest getHitTest(int id) {
+        if (current != null && current.id == id && !current.cancelled) {
+            return current;
+        }
+        return null;
+    }
+
+    /**
+     * Load in background the attributes of a feature read by a hit test.
+     *
+     * <p>Like the layer queries, the read runs on a pooled read connection of the database,
+     * so it never shares a connection with the running queries.</p>
+     *
+     * @param feature  the feature to complete.
+     * @param onLoaded called on the UI thread once the attributes are set.
+     */
+    public void loadAttributes(Feature feature, Runnable onLoaded) {
+        executor.execute(() -> {
+            try {
+                Feature loaded = readFeature(feature);
+                if (loaded != null) {
+                    uiHandler.post(() -> {
+                        feature.setAttributes(loaded);
+                        onLoaded.run();
+                    });
+                }
+            } catch (Exception e) {
+                GPLog.error(this, "Unable to load the attributes of " + feature.getTableName(), e);
+            }
+        });
+    }
+
+    private void deliver(HitTest hitTest, List<Feature> layerFeatures) {
+        if (hitTest.cancelled) return;
+        hitTest.features.addAll(layerFeatures);
+        for (HitTestListener listener : new ArrayList<>(hitTest.listeners)) {
+            listener.onFeatures(hitTest, layerFeatures);
+        }
+    }
+
+    private void taskDone(HitTest hitTest) {
+        hitTest.pendingTasks--;
+        if (hitTest.pendingTasks <= 0) {
+            finish(hitTest);
+        }
+    }
+
+    private void finish(HitTest hitTest) {
+        if (hitTest.cancelled) return;
+        hitTest.finished = true;
+        if (GPLog.LOG_HEAVY)
+            GPLog.addLogEntry(this, "hit test " + hitTest.id + ": " + hitTest.features.size() + " features in "
+                    + (System.currentTimeMillis() - hitTest.startMillis) + " ms");
+        for (HitTestListener listener : new ArrayList<>(hitTest.listeners)) {
+            listener.onFinished(hitTest);
+        }
+    }
+
+    private List<Feature> queryIdsAndGeometries(IVectorDbLayer layer, Envelope env, HitTest hitTest) throws Exception {
+        String dbPath = layer.getDbPath();
+        ELayerTypes layerType = ELayerTypes.fromFileExt(dbPath);
+        if (layerType == ELayerTypes.SPATIALITE) {
+            return SpatialiteConnectionsHandler.INSTANCE.read(dbPath, db -> queryIdsAndGeometries(db, layerType, layer, env, hitTest));
+        } else if (layerType == ELayerTypes.GEOPACKAGE) {
+            return GeopackageConnectionsHandler.INSTANCE.read(dbPath, db -> queryIdsAndGeometries(db, layerType, layer, env, hitTest));
+        }
+        return Collections.emptyList();
+    }
+
+    private List<Feature> queryIdsAndGeometries(ASpatialDb db, ELayerTypes layerType, IVectorDbLayer layer, Envelope env, HitTest hitTest) throws Exception {
+        String dbPath = layer.getDbPath();
+        String tableName = layer.getName();
+
+        GeometryColumn gCol = db.getGeometryColumnsForTable(tableName);
+        String pkName;
+        String geometrySelect;
+        Envelope queryEnv = env;
+        ReprojectionHandler.CoordinateTransformation toWgs84 = null;
+        if (layerType == ELayerTypes.SPATIALITE) {
+            pkName = getSpatialitePrimaryKey(db, tableName);
+            if (gCol.srid != LibraryConstants.SRID_WGS84_4326) {
+                queryEnv = ReprojectionHandler.INSTANCE.reproject(db, env, LibraryConstants.SRID_WGS84_4326, gCol.srid);
+                toWgs84 = ReprojectionHandler.INSTANCE.getTransformation(gCol.srid, LibraryConstants.SRID_WGS84_4326);
+            }
+            if (gCol.srid == LibraryConstants.SRID_WGS84_4326 || toWgs84 != null) {
+                geometrySelect = "ST_AsBinary(" + gCol.geometryColumnName + ")";
+            } else {
+                geometrySelect = "ST_AsBinary(ST_Transform(" + gCol.geometryColumnName + "," + LibraryConstants.SRID_WGS84_4326 + "))";
+            }
+        } else {
+            // only 4326 are supported
+            pkName = ((GPGeopackageDb) db).getPrimaryKey(tableName);
+            geometrySelect = gCol.geometryColumnName;
+        }
+        String geometryName = gCol.geometryColumnName;
+
+        String query = "SELECT " + pkName + "," + geometrySelect + " FROM \"" + tableName + "\" WHERE "
+                + db.getSpatialindexBBoxWherePiece(tableName, null, queryEnv.getMinX(), queryEnv.getMinY(), queryEnv.getMaxX(), queryEnv.getMaxY());
+
+        IGeometryParser gp = db.getType().getGeometryParser();
+        ReprojectionHandler.CoordinateTransformation transformation = toWgs84;
+        return db.execOnConnection(connection -> {
+            List<Feature> features = new ArrayList<>();
+            try (IHMStatement stmt = connection.createStatement(); IHMResultSet rs = stmt.executeQuery(query)) {
+                while (rs.next()) {
+                    if (hitTest.cancelled) break;
+                    Geometry geometry = gp.fromResultSet(rs, 2);
+                    if (geometry == null) continue;
+                    if (transformation != null)
+                        ReprojectionHandler.INSTANCE.transformInPlace(transformation, geometry);
+                    Feature feature = new Feature(tableName, dbPath, 0, 1);
+                    feature.addAttribute(pkName, rs.getLong(1), EDataType.LONG.name());
+                    feature.addAttribute(geometryName, geometry, EDataType.GEOMETRY.name());
+                    feature.setAttributesNotLoaded();
+                    features.add(feature);
+                }
+            }
+            return features;
+        });
+    }
+
+    private Feature readFeature(Feature feature) throws Exception {
+        List<Feature> features = FeatureSessionStore.INSTANCE.readFeatures(feature.getDatabasePath(), feature.getTableName(),
+                feature.getIdFieldName(), new long[]{feature.getIdFieldValue()});
+        if (features.isEmpty()) return null;
+        return features.get(0);
+    }
+
+    private static String getSpatialitePrimaryKey(ASpatialDb db, String tableName) throws Exception {
+        List<String[]> columns = db.getTableColumns(tableName);
+        for (String[] column : columns) {
+            if ("1".equals(column[2])) {
+                return column[0];
+            }
+        }
+        return "ROWID";
+    }
+}
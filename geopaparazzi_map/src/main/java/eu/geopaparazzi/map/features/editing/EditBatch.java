@@ -0,0 +1,356 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.map.features.editing;
+
+import org.hortonmachine.dbs.compat.ASpatialDb;
+import org.hortonmachine.dbs.compat.IHMConnection;
+import org.hortonmachine.dbs.compat.IHMPreparedStatement;
+import org.hortonmachine.dbs.compat.IHMResultSet;
+import org.hortonmachine.dbs.compat.IHMStatement;
+import org.hortonmachine.dbs.datatypes.EDataType;
+import org.locationtech.jts.geom.Geometry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.map.features.Feature;
+import eu.geopaparazzi.map.layers.utils.SpatialiteUtilities;
+
+/**
+ * A batch of edits to the features of a vector database.
+ *
+ * <p>Edits are only queued when added. {@link #commit()} writes all of them in a single
+ * transaction, with prepared statements and geometries bound as binary parameters. If any
+ * of them fails, the transaction is rolled back, the database is left as it was and the
+ * layer is not touched. Keys of new features are assigned by the database.</p>
+ *
+ * <p>A batch is committed only once.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@SuppressWarnings("nls")
+public class EditBatch {
+
+    /**
+     * The type of a queued edit.
+     */
+    public enum EditType {
+        ADD, UPDATE_GEOMETRY, UPDATE_ATTRIBUTES, DELETE
+    }
+
+    /**
+     * A queued edit.
+     */
+    public static class Edit {
+        public final EditType type;
+        public final Feature feature;
+        public final Geometry geometry;
+        public final int srid;
+        /**
+         * The id of the feature, for added features assigned on commit.
+         */
+        public long id;
+
+        Edit(EditType type, Feature feature, Geometry geometry, int srid) {
+            this.type = type;
+            this.feature = feature;
+            this.geometry = geometry;
+            this.srid = srid;
+            if (feature != null)
+                id = feature.getIdFieldValue();
+        }
+    }
+
+    /**
+     * The layer specific part of a batch, writes the geometries and updates the layer.
+     */
+    public interface LayerEditor {
+        /**
+         * Insert a new feature with default attributes.
+         *
+         * <p>Runs inside the transaction of the batch.</p>
+         *
+         * @param connection the connection to use.
+         * @param geometry   the geometry.
+         * @param srid       the srid of the geometry.
+         * @return the id assigned to the new feature.
+         * @throws Exception if the insert fails.
+         */
+        long insertGeometry(IHMConnection connection, Geometry geometry, int srid) throws Exception;
+
+        /**
+         * Update the geometry of a feature.
+         *
+         * <p>Runs inside the transaction of the batch.</p>
+         *
+         * @param connection the connection to use.
+         * @param feature    the feature to update.
+         * @param geometry   the new geometry.
+         * @param srid       the srid of the geometry.
+         * @throws Exception if the update fails.
+         */
+        void updateGeometry(IHMConnection connection, Feature feature, Geometry geometry, int srid) throws Exception;
+
+        /**
+         * Called once the batch has been committed, to update the layer.
+         *
+         * @param edits the committed edits, in order.
+         */
+        void onCommitted(List<Edit> edits);
+    }
+
+    private final ASpatialDb db;
+    private final LayerEditor layerEditor;
+    private final List<Edit> edits = new ArrayList<>();
+    private boolean committed = false;
+
+    /**
+     * Constructor.
+     *
+     * @param db          the writer connection of the database.
+     * @param layerEditor the layer that writes geometries or <code>null</code>, in which case
+     *                    only attribute updates and deletes are supported.
+     */
+    public EditBatch(ASpatialDb db, LayerEditor layerEditor) {
+        this.db = db;
+        this.layerEditor = layerEditor;
+    }
+
+    /**
+     * Queue a new feature that has only the geometry (all other fields are default value).
+     *
+     * @param geometry the geometry.
+     * @param srid     the srid of the geometry.
+     * @return this batch.
+     */
+    public EditBatch addFeature(Geometry geometry, int srid) {
+        checkGeometryEdit();
+        edits.add(new Edit(EditType.ADD, null, geometry, srid));
+        return this;
+    }
+
+    /**
+     * Queue an update of the geometry of a feature.
+     *
+     * @param feature  the feature to update.
+     * @param geometry the new geometry.
+     * @param srid     the srid of the geometry.
+     * @return this batch.
+     */
+    public EditBatch updateGeometry(Feature feature, Geometry geometry, int srid) {
+        checkGeometryEdit();
+        edits.add(new Edit(EditType.UPDATE_GEOMETRY, feature, geometry, srid));
+        return this;
+    }
+
+    /**
+     * Queue an update of the alphanumeric attributes of a feature.
+     *
+     * @param feature the feature with the new values.
+     * @return this batch.
+     */
+    public EditBatch updateAttributes(Feature feature) {
+        checkNotCommitted();
+        edits.add(new Edit(EditType.UPDATE_ATTRIBUTES, feature, null, -1));
+        return this;
+    }
+
+    /**
+     * Queue the removal of a feature.
+     *
+     * @param feature the feature to remove.
+     * @return this batch.
+     */
+    public EditBatch deleteFeature(Feature feature) {
+        checkNotCommitted();
+        edits.add(new Edit(EditType.DELETE, feature, null, -1));
+        return this;
+    }
+
+    /**
+     * @return the number of queued edits.
+     */
+    public int size() {
+        return edits.size();
+    }
+
+    /**
+     * Write all the queued edits in a single transaction.
+     *
+     * @return the ids of the added features, in the order they were queued.
+     * @throws Exception if an edit fails, in which case none of them is applied.
+     */
+    public long[] commit() throws Exception {
+        checkNotCommitted();
+        committed = true;
+        if (edits.isEmpty())
+            return new long[0];
+
+        long start = System.currentTimeMillis();
+        synchronized (db) {
+            db.execOnConnection(connection -> {
+                try (IHMStatement stmt = connection.createStatement()) {
+                    stmt.execute("BEGIN");
+                }
+                try {
+                    for (Edit edit : edits) {
+                        apply(connection, edit);
+                    }
+                    try (IHMStatement stmt = connection.createStatement()) {
+                        stmt.execute("COMMIT");
+                    }
+                } catch (Exception e) {
+                    try (IHMStatement stmt = connection.createStatement()) {
+                        stmt.execute("ROLLBACK");
+                    } catch (Exception rollbackException) {
+                        GPLog.error(this, "Unable to rollback the edits.", rollbackException);
+                    }
+                    throw e;
+                }
+                return null;
+            });
+        }
+        if (GPLog.LOG_HEAVY)
+            GPLog.addLogEntry(this, "committed " + edits.size() + " edits in " + (System.currentTimeMillis() - start) + " ms");
+
+        List<Long> newIds = new ArrayList<>();
+        for (Edit edit : edits) {
+            if (edit.type == EditType.ADD)
+                newIds.add(edit.id);
+        }
+        long[] ids = new long[newIds.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = newIds.get(i);
+        }
+        if (layerEditor != null)
+            layerEditor.onCommitted(Collections.unmodifiableList(edits));
+        return ids;
+    }
+
+    private void apply(IHMConnection connection, Edit edit) throws Exception {
+        switch (edit.type) {
+            case ADD:
+                edit.id = layerEditor.insertGeometry(connection, edit.geometry, edit.srid);
+                break;
+            case UPDATE_GEOMETRY:
+                layerEditor.updateGeometry(connection, edit.feature, edit.geometry, edit.srid);
+                break;
+            case UPDATE_ATTRIBUTES:
+                updateAttributes(connection, edit.feature);
+                break;
+            case DELETE:
+                String sql = "delete from \"" + edit.feature.getTableName() + "\" where " + edit.feature.getIdFieldName() + "=?";
+                try (IHMPreparedStatement pStmt = connection.prepareStatement(sql)) {
+                    pStmt.setLong(1, edit.id);
+                    pStmt.executeUpdate();
+                }
+                break;
+        }
+    }
+
+    private static void updateAttributes(IHMConnection connection, Feature feature) throws Exception {
+        List<String> attributeNames = feature.getAttributeNames();
+        List<Object> attributeValues = feature.getAttributeValues();
+        List<String> attributeTypes = feature.getAttributeTypes();
+        int geometryIndex = feature.getGeometryIndex();
+        int idIndex = feature.getIdIndex();
+
+        StringBuilder sb = new StringBuilder();
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < attributeNames.size(); i++) {
+            if (i == idIndex || i == geometryIndex) {
+                continue;
+            }
+            String fieldName = attributeNames.get(i);
+            if (!SpatialiteUtilities.doIgnoreField(fieldName)) {
+                sb.append(" , ").append(fieldName).append("=?");
+                indexes.add(i);
+            }
+        }
+        if (indexes.isEmpty())
+            return;
+
+        String sql = "update \"" + feature.getTableName() + "\" set " + sb.substring(3) + " where "
+                + feature.getIdFieldName() + "=?";
+        try (IHMPreparedStatement pStmt = connection.prepareStatement(sql)) {
+            int parameter = 1;
+            for (int i : indexes) {
+                bindAttribute(pStmt, parameter++, attributeValues.get(i), attributeTypes.get(i));
+            }
+            pStmt.setLong(parameter, feature.getIdFieldValue());
+            pStmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Bind an attribute value. Unbound parameters are NULL.
+     */
+    private static void bindAttribute(IHMPreparedStatement pStmt, int index, Object value, String type) throws Exception {
+        EDataType dataType = EDataType.getType4Name(type);
+        String valueStr = value != null ? value.toString() : "";
+        if (dataType == EDataType.TEXT || dataType == EDataType.DATE) {
+            pStmt.setString(index, valueStr);
+            return;
+        }
+        if (valueStr.length() == 0)
+            return;
+        try {
+            if (dataType == EDataType.INTEGER || dataType == EDataType.LONG) {
+                pStmt.setLong(index, Long.parseLong(valueStr));
+                return;
+            } else if (dataType == EDataType.DOUBLE || dataType == EDataType.FLOAT) {
+                pStmt.setDouble(index, Double.parseDouble(valueStr));
+                return;
+            } else if (dataType == EDataType.BOOLEAN && ("true".equalsIgnoreCase(valueStr) || "false".equalsIgnoreCase(valueStr))) {
+                pStmt.setLong(index, Boolean.parseBoolean(valueStr) ? 1 : 0);
+                return;
+            }
+        } catch (NumberFormatException e) {
+            // let the column affinity convert it
+        }
+        pStmt.setString(index, valueStr);
+    }
+
+    /**
+     * Get the rowid of the last insert on a connection.
+     *
+     * @param connection the connection.
+     * @return the rowid.
+     * @throws Exception if the query fails.
+     */
+    public static long getLastInsertRowid(IHMConnection connection) throws Exception {
+        try (IHMStatement stmt = connection.createStatement(); IHMResultSet rs = stmt.executeQuery("select last_insert_rowid()")) {
+            if (rs.next())
+                return rs.getLong(1);
+        }
+        throw new IllegalStateException("Unable to read the id of the new feature.");
+    }
+
+    private void checkGeometryEdit() {
+        checkNotCommitted();
+        if (layerEditor == null)
+            throw new IllegalStateException("Geometry edits need a layer.");
+    }
+
+    private void checkNotCommitted() {
+        if (committed)
+            throw new IllegalStateException("The batch has already been committed.");
+    }
+}
@@ -0,0 +1,601 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.map.features.editing;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import eu.geopaparazzi.library.GPApplication;
+import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.library.util.LibraryConstants;
+import eu.geopaparazzi.map.features.Feature;
+import eu.geopaparazzi.map.layers.interfaces.IEditableLayer;
+
+/**
+ * The journal of an editing session on a layer.
+ *
+ * <p>Geometry edits are kept here instead of being written to the database: the layer only
+ * shows them, they can be undone and redone any number of times and {@link #commit()}
+ * writes the net result to the database in a single {@link EditBatch}. A feature that is
+ * changed and changed back, or added and removed again, is not written at all.</p>
+ *
+ * <p>The journal keeps the current geometry of each feature touched in the session, and
+ * for each step only the part of the geometries that changed, as {@link GeometryDiff}s.
+ * When the steps use more than {@link #MAX_MEMORY_BYTES}, the oldest ones are moved to a
+ * temporary file and read back only when undone.</p>
+ *
+ * <p>All the geometries are in lat/long, as the selected features and the drawables of
+ * the layer. Features added in the session get temporary negative ids until committed.</p>
+ *
+ * <p>The journal lives in memory only, so the session must be committed before the process
+ * can be killed, see {@link EditManager#commitEditJournal}.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@SuppressWarnings("nls")
+public class EditJournal {
+    /**
+     * The memory the undo steps can use before being moved to disk.
+     */
+    public static final long MAX_MEMORY_BYTES = 1024 * 1024;
+
+    private static final int SRID = LibraryConstants.SRID_WGS84_4326;
+
+    private static final byte ADD = 0;
+    private static final byte DELETE = 1;
+    private static final byte GEOMETRY = 2;
+
+    /**
+     * The state of a feature touched in the session.
+     */
+    private static class FeatureState {
+        /**
+         * The original feature, <code>null</code> for features added in the session.
+         */
+        Feature feature;
+        FlatGeometry geometry;
+        boolean present = true;
+        /**
+         * The number of applied geometry changes, 0 if the geometry is the original one.
+         */
+        int geometryChanges = 0;
+    }
+
+    private static class Record {
+        final byte kind;
+        final long id;
+        final GeometryDiff diff;
+
+        Record(byte kind, long id, GeometryDiff diff) {
+            this.kind = kind;
+            this.id = id;
+            this.diff = diff;
+        }
+    }
+
+    /**
+     * One undoable step, in memory or spilled to disk.
+     */
+    private static class Step {
+        List<Record> records = new ArrayList<>();
+        long bytes = 0;
+        long offset = -1;
+        int length = 0;
+    }
+
+    private IEditableLayer layer;
+    private final Map<Long, FeatureState> states = new LinkedHashMap<>();
+    private final List<Step> steps = new ArrayList<>();
+    /**
+     * The number of applied steps, the ones after it can be redone.
+     */
+    private int cursor = 0;
+    private Step openStep = null;
+    private int openStepLevel = 0;
+    private long nextTemporaryId = -1;
+
+    private long memoryBytes = 0;
+    private int firstInMemoryStep = 0;
+    private File spillFile;
+    private RandomAccessFile spill;
+
+    /**
+     * Constructor.
+     *
+     * @param layer the layer edited in the session.
+     */
+    public EditJournal(IEditableLayer layer) {
+        this.layer = layer;
+    }
+
+    /**
+     * @return the layer edited in the session.
+     */
+    public synchronized IEditableLayer getLayer() {
+        return layer;
+    }
+
+    /**
+     * Go on with the session on a new instance of its layer, as created when the map is resumed.
+     *
+     * @param layer the layer, on the same table.
+     */
+    public synchronized void setLayer(IEditableLayer layer) {
+        this.layer = layer;
+    }
+
+    /**
+     * Show the edits of the session on its layer, as needed after it is read again from the database.
+     */
+    public synchronized void showEdits() {
+        List<EditBatch.Edit> edits = new ArrayList<>();
+        for (Map.Entry<Long, FeatureState> entry : states.entrySet()) {
+            if (isChanged(entry.getValue()))
+                edits.add(toEdit(entry.getKey(), entry.getValue()));
+        }
+        if (!edits.isEmpty())
+            layer.previewEdits(edits);
+    }
+
+    /**
+     * Start a step that groups the following edits, until {@link #endStep()}.
+     *
+     * <p>Edits outside of a step are a step each. Steps can be nested, only the outer one
+     * counts.</p>
+     */
+    public synchronized void beginStep() {
+        if (openStepLevel++ == 0) {
+            openStep = new Step();
+        }
+    }
+
+    /**
+     * End the step started with {@link #beginStep()}.
+     */
+    public synchronized void endStep() {
+        if (openStepLevel == 0)
+            throw new IllegalStateException("No step has been started.");
+        if (--openStepLevel == 0) {
+            Step step = openStep;
+            openStep = null;
+            if (!step.records.isEmpty())
+                pushStep(step);
+        }
+    }
+
+    /**
+     * Add a new feature to the session.
+     *
+     * @param geometry the geometry, in lat/long.
+     * @return the temporary id of the feature.
+     */
+    public synchronized long addFeature(Geometry geometry) {
+        long id = nextTemporaryId--;
+        FeatureState state = new FeatureState();
+        state.geometry = FlatGeometry.fromGeometry(geometry);
+        states.put(id, state);
+        record(new Record(ADD, id, null));
+        showEdit(EditBatch.EditType.ADD, id, null, geometry);
+        return id;
+    }
+
+    /**
+     * Change the geometry of a feature.
+     *
+     * @param feature  the feature.
+     * @param geometry the new geometry, in lat/long.
+     */
+    public synchronized void updateGeometry(Feature feature, Geometry geometry) {
+        FeatureState state = getState(feature);
+        FlatGeometry newGeometry = FlatGeometry.fromGeometry(geometry);
+        GeometryDiff diff = GeometryDiff.between(state.geometry, newGeometry);
+        if (diff.isEmpty())
+            return;
+        state.geometry = newGeometry;
+        state.geometryChanges++;
+        record(new Record(GEOMETRY, feature.getIdFieldValue(), diff));
+        showEdit(EditBatch.EditType.UPDATE_GEOMETRY, feature.getIdFieldValue(), feature, geometry);
+    }
+
+    /**
+     * Remove features.
+     *
+     * @param features the features to remove.
+     */
+    public synchronized void deleteFeatures(List<Feature> features) {
+        beginStep();
+        try {
+            for (Feature feature : features) {
+                FeatureState state = getState(feature);
+                if (!state.present)
+                    continue;
+                state.present = false;
+                record(new Record(DELETE, feature.getIdFieldValue(), null));
+                showEdit(EditBatch.EditType.DELETE, feature.getIdFieldValue(), feature, null);
+            }
+        } finally {
+            endStep();
+        }
+    }
+
+    /**
+     * @return <code>true</code> if there is a step to undo.
+     */
+    public synchronized boolean canUndo() {
+        return cursor > 0;
+    }
+
+    /**
+     * @return <code>true</code> if there is a step to redo.
+     */
+    public synchronized boolean canRedo() {
+        return cursor < steps.size();
+    }
+
+    /**
+     * Undo the last step.
+     *
+     * @throws IOException if the step can't be read back from disk.
+     */
+    public synchronized void undo() throws IOException {
+        if (!canUndo())
+            return;
+        List<Record> records = getRecords(steps.get(cursor - 1));
+        List<EditBatch.Edit> edits = new ArrayList<>();
+        for (int i = records.size() - 1; i >= 0; i--) {
+            Record record = records.get(i);
+            FeatureState state = states.get(record.id);
+            switch (record.kind) {
+                case ADD:
+                case DELETE:
+                    state.present = record.kind == DELETE;
+                    break;
+                case GEOMETRY:
+                    state.geometry = record.diff.revert(state.geometry);
+                    state.geometryChanges--;
+                    break;
+            }
+            edits.add(toEdit(record.id, state));
+        }
+        cursor--;
+        showChanges(edits);
+    }
+
+    /**
+     * Redo the last undone step.
+     *
+     * @throws IOException if the step can't be read back from disk.
+     */
+    public synchronized void redo() throws IOException {
+        if (!canRedo())
+            return;
+        List<Record> records = getRecords(steps.get(cursor));
+        List<EditBatch.Edit> edits = new ArrayList<>();
+        for (Record record : records) {
+            FeatureState state = states.get(record.id);
+            switch (record.kind) {
+                case ADD:
+                case DELETE:
+                    state.present = record.kind == ADD;
+                    break;
+                case GEOMETRY:
+                    state.geometry = record.diff.apply(state.geometry);
+                    state.geometryChanges++;
+                    break;
+            }
+            edits.add(toEdit(record.id, state));
+        }
+        cursor++;
+        showChanges(edits);
+    }
+
+    /**
+     * @return <code>true</code> if committing would change the database.
+     */
+    public synchronized boolean hasChanges() {
+        for (FeatureState state : states.values()) {
+            if (isChanged(state))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Replace the features of a selection with their state in the session.
+     *
+     * <p>Removed features are dropped and changed ones get their new geometry. Features
+     * added in the session are not in the database and can't be selected until committed.</p>
+     *
+     * @param features the features as read from the database.
+     * @return the features as they are in the session.
+     */
+    public synchronized List<Feature> applyTo(List<Feature> features) {
+        if (states.isEmpty())
+            return features;
+        List<Feature> result = new ArrayList<>(features.size());
+        for (Feature feature : features) {
+            FeatureState state = states.get(feature.getIdFieldValue());
+            if (state == null || state.feature == null || !feature.getTableName().equals(state.feature.getTableName())) {
+                result.add(feature);
+            } else if (state.present) {
+                result.add(state.geometryChanges != 0 ? feature.copy(state.geometry.toGeometry()) : feature);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the geometries of the features that are in the session, as needed to snap to them.
+     *
+     * <p>These are the features added in the session and the changed ones, with their new
+     * geometry, that are still present and intersect the area.</p>
+     *
+     * @param envelope    the area, in lat/long.
+     * @param excludedIds the ids of the features to leave out, as the ones already read through
+     *                    {@link #applyTo(List)}.
+     * @return the geometries, in lat/long.
+     */
+    public synchronized List<Geometry> getSessionGeometries(Envelope envelope, Set<Long> excludedIds) {
+        List<Geometry> geometries = new ArrayList<>();
+        for (Map.Entry<Long, FeatureState> entry : states.entrySet()) {
+            FeatureState state = entry.getValue();
+            if (!state.present || !isChanged(state) || excludedIds.contains(entry.getKey()))
+                continue;
+            Geometry geometry = state.geometry.toGeometry();
+            if (geometry.getEnvelopeInternal().intersects(envelope))
+                geometries.add(geometry);
+        }
+        return geometries;
+    }
+
+    /**
+     * Write the net changes of the session in a single transaction and start a new one.
+     *
+     * <p>If the write fails, nothing is written and the session is kept as it is.</p>
+     *
+     * @return the number of features written.
+     * @throws Exception if the write fails.
+     */
+    public synchronized int commit() throws Exception {
+        if (openStepLevel != 0)
+            throw new IllegalStateException("A step is still open.");
+        long start = System.currentTimeMillis();
+        EditBatch batch = layer.startEditBatch();
+        List<EditBatch.Edit> removeTemporary = new ArrayList<>();
+        for (Map.Entry<Long, FeatureState> entry : states.entrySet()) {
+            FeatureState state = entry.getValue();
+            if (!isChanged(state))
+                continue;
+            if (state.feature == null) {
+                batch.addFeature(state.geometry.toGeometry(), SRID);
+                removeTemporary.add(newEdit(EditBatch.EditType.DELETE, entry.getKey(), null, null));
+            } else if (!state.present) {
+                batch.deleteFeature(state.feature);
+            } else {
+                batch.updateGeometry(state.feature, state.geometry.toGeometry(), SRID);
+            }
+        }
+        int size = batch.size();
+        if (size > 0) {
+            // the added features are shown again with their new ids
+            layer.previewEdits(removeTemporary);
+            try {
+                batch.commit();
+            } catch (Exception e) {
+                List<EditBatch.Edit> restore = new ArrayList<>();
+                for (EditBatch.Edit edit : removeTemporary) {
+                    restore.add(toEdit(edit.id, states.get(edit.id)));
+                }
+                layer.previewEdits(restore);
+                throw e;
+            }
+        }
+        if (GPLog.LOG_HEAVY)
+            GPLog.addLogEntry(this, "committed " + size + " features of " + states.size() + " touched in "
+                    + steps.size() + " steps in " + (System.currentTimeMillis() - start) + " ms");
+        clear();
+        return size;
+    }
+
+    /**
+     * Forget the session, without touching the layer or the database.
+     */
+    public synchronized void clear() {
+        states.clear();
+        steps.clear();
+        cursor = 0;
+        memoryBytes = 0;
+        firstInMemoryStep = 0;
+        closeSpill();
+    }
+
+    private FeatureState getState(Feature feature) {
+        long id = feature.getIdFieldValue();
+        FeatureState state = states.get(id);
+        if (state == null) {
+            state = new FeatureState();
+            state.feature = feature;
+            state.geometry = FlatGeometry.fromGeometry(feature.getDefaultGeometry());
+            states.put(id, state);
+        }
+        return state;
+    }
+
+    private static boolean isChanged(FeatureState state) {
+        if (state.feature == null)
+            return state.present;
+        return !state.present || state.geometryChanges != 0;
+    }
+
+    private void record(Record record) {
+        if (openStep != null) {
+            openStep.records.add(record);
+        } else {
+            Step step = new Step();
+            step.records.add(record);
+            pushStep(step);
+        }
+    }
+
+    private void pushStep(Step step) {
+        // a new step drops the ones that could be redone
+        for (int i = steps.size() - 1; i >= cursor; i--) {
+            Step dropped = steps.remove(i);
+            if (dropped.records != null) {
+                memoryBytes -= dropped.bytes;
+                for (Record record : dropped.records) {
+                    if (record.kind == ADD)
+                        states.remove(record.id);
+                }
+            } else {
+                try {
+                    for (Record record : readStep(dropped)) {
+                        if (record.kind == ADD)
+                            states.remove(record.id);
+                    }
+                } catch (IOException e) {
+                    GPLog.error(this, null, e);
+                }
+            }
+        }
+        firstInMemoryStep = Math.min(firstInMemoryStep, steps.size());
+
+        for (Record record : step.records) {
+            step.bytes += 24 + (record.diff != null ? record.diff.estimateBytes() : 0);
+        }
+        steps.add(step);
+        cursor = steps.size();
+        memoryBytes += step.bytes;
+
+        // the last step always stays in memory
+        while (memoryBytes > MAX_MEMORY_BYTES && firstInMemoryStep < steps.size() - 1) {
+            Step oldest = steps.get(firstInMemoryStep++);
+            try {
+                spillStep(oldest);
+                memoryBytes -= oldest.bytes;
+            } catch (IOException e) {
+                GPLog.error(this, "Unable to move the editing journal to disk.", e);
+                break;
+            }
+        }
+    }
+
+    private List<Record> getRecords(Step step) throws IOException {
+        if (step.records != null)
+            return step.records;
+        return readStep(step);
+    }
+
+    private void spillStep(Step step) throws IOException {
+        if (spill == null) {
+            spillFile = File.createTempFile("editjournal", ".bin", GPApplication.getInstance().getCacheDir());
+            spill = new RandomAccessFile(spillFile, "rw");
+            if (GPLog.LOG_HEAVY)
+                GPLog.addLogEntry(this, "spilling the editing journal to " + spillFile);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(step.records.size());
+        for (Record record : step.records) {
+            out.writeByte(record.kind);
+            out.writeLong(record.id);
+            if (record.kind == GEOMETRY)
+                record.diff.write(out);
+        }
+        out.flush();
+        byte[] data = bytes.toByteArray();
+        step.offset = spill.length();
+        step.length = data.length;
+        spill.seek(step.offset);
+        spill.write(data);
+        step.records = null;
+    }
+
+    private List<Record> readStep(Step step) throws IOException {
+        byte[] data = new byte[step.length];
+        spill.seek(step.offset);
+        spill.readFully(data);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        int count = in.readInt();
+        List<Record> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte kind = in.readByte();
+            long id = in.readLong();
+            GeometryDiff diff = kind == GEOMETRY ? GeometryDiff.read(in) : null;
+            records.add(new Record(kind, id, diff));
+        }
+        return records;
+    }
+
+    private void closeSpill() {
+        if (spill != null) {
+            try {
+                spill.close();
+            } catch (IOException e) {
+                GPLog.error(this, null, e);
+            }
+            if (!spillFile.delete())
+                spillFile.deleteOnExit();
+            spill = null;
+            spillFile = null;
+        }
+    }
+
+    private void showEdit(EditBatch.EditType type, long id, Feature feature, Geometry geometry) {
+        List<EditBatch.Edit> edits = new ArrayList<>(1);
+        edits.add(newEdit(type, id, feature, geometry));
+        showChanges(edits);
+    }
+
+    /**
+     * Show edits that changed the session on the layer and snap to the features as they are now.
+     */
+    private void showChanges(List<EditBatch.Edit> edits) {
+        layer.previewEdits(edits);
+        SnappingEngine.INSTANCE.invalidate();
+    }
+
+    /**
+     * The edit that shows a feature as it is in the session.
+     */
+    private EditBatch.Edit toEdit(long id, FeatureState state) {
+        if (!state.present)
+            return newEdit(EditBatch.EditType.DELETE, id, state.feature, null);
+        // the feature is passed on, so that a restored feature gets its style back
+        return newEdit(EditBatch.EditType.UPDATE_GEOMETRY, id, state.feature, state.geometry.toGeometry());
+    }
+
+    private static EditBatch.Edit newEdit(EditBatch.EditType type, long id, Feature feature, Geometry geometry) {
+        EditBatch.Edit edit = new EditBatch.Edit(type, feature, geometry, geometry != null ? SRID : -1);
+        edit.id = id;
+        return edit;
+    }
+}
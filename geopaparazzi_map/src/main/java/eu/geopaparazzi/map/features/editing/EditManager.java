@@ -17,11 +17,21 @@
  */
 package eu.geopaparazzi.map.features.editing;
 
+import android.app.Activity;
+import android.content.Context;
 import android.widget.LinearLayout;
+import android.widget.Toast;
 
+import org.oscim.layers.Layer;
+
+import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.library.util.GPDialogs;
+import eu.geopaparazzi.library.util.StringAsyncTask;
+import eu.geopaparazzi.map.R;
 import eu.geopaparazzi.map.features.tools.interfaces.Tool;
 import eu.geopaparazzi.map.features.tools.interfaces.ToolGroup;
 import eu.geopaparazzi.map.layers.interfaces.IEditableLayer;
+import eu.geopaparazzi.map.layers.interfaces.IVectorDbLayer;
 
 /**
  * The editing layer manager.
@@ -35,6 +45,8 @@ public enum EditManager {
     INSTANCE;
 
     private IEditableLayer editLayer;
+    private IEditableLayer requestedEditLayer;
+    private EditJournal editJournal;
     private Tool activeTool;
     private ToolGroup activeToolGroup;
     private EditingView editingView;
@@ -50,12 +62,145 @@ public enum EditManager {
     /**
      * Setter for the editing layer.
      *
+     * <p>If the layer is the one of the session, created again as when the map is resumed,
+     * the session goes on with it. Else the edits of the session on the previous layer are
+     * committed in the background and the new layer is set once they are written. If the
+     * write fails, the session and its layer are kept and the user is told.</p>
+     *
      * @param editLayer the editing layer.
      */
     public void setEditLayer(IEditableLayer editLayer) {
+        requestedEditLayer = editLayer;
+        EditJournal journal = editJournal;
+        if (journal != null && journal.getLayer() != editLayer) {
+            if (isSameLayer(journal.getLayer(), editLayer)) {
+                journal.setLayer(editLayer);
+                // if the layer has already been loaded, else it shows them when loaded
+                journal.showEdits();
+            } else if (journal.hasChanges()) {
+                Context context = journal.getLayer().getMapView().getContext();
+                commitEditJournal(context, false, () -> {
+                    if (requestedEditLayer != editLayer)
+                        return;
+                    if (!journal.hasChanges()) {
+                        if (editJournal == journal)
+                            editJournal = null;
+                        this.editLayer = editLayer;
+                    } else {
+                        // not written, the session goes on with its layer as it is in the map
+                        IEditableLayer sessionLayer = findInMap(journal.getLayer());
+                        if (sessionLayer != null) {
+                            journal.setLayer(sessionLayer);
+                            journal.showEdits();
+                            this.editLayer = sessionLayer;
+                        }
+                    }
+                });
+                return;
+            } else {
+                journal.clear();
+                editJournal = null;
+            }
+        }
         this.editLayer = editLayer;
     }
 
+    /**
+     * Show the edits of the session on a layer just read from the database.
+     *
+     * @param layer the layer.
+     */
+    public void showSessionEdits(IEditableLayer layer) {
+        EditJournal journal = editJournal;
+        if (journal != null && journal.getLayer() == layer)
+            journal.showEdits();
+    }
+
+    /**
+     * @return the journal of the editing session on the editing layer or <code>null</code>
+     * if there is no editing layer.
+     */
+    public EditJournal getEditJournal() {
+        if (editJournal == null && editLayer != null) {
+            editJournal = new EditJournal(editLayer);
+        }
+        return editJournal;
+    }
+
+    /**
+     * Write the edits of the current session, if any, to the editing layer, in the background.
+     *
+     * <p>When written, a new session starts. If the write fails, the session is kept as it is
+     * and the user is told.</p>
+     *
+     * <p>The map view also calls this when it goes to the background, since the process can
+     * then be killed and the session is only kept in memory.</p>
+     *
+     * @param context     the context to use, an application context if the activity is closing.
+     * @param toastResult if <code>true</code>, the user is also told when the edits are saved.
+     * @param onDone      optional work to run on the UI thread when done, also if the write failed.
+     */
+    public void commitEditJournal(Context context, boolean toastResult, Runnable onDone) {
+        EditJournal journal = editJournal;
+        if (journal == null || !journal.hasChanges()) {
+            if (onDone != null)
+                onDone.run();
+            return;
+        }
+        StringAsyncTask task = new StringAsyncTask(context) {
+            private Exception error;
+
+            protected String doBackgroundWork() {
+                try {
+                    journal.commit();
+                } catch (Exception e) {
+                    error = e;
+                }
+                return "";
+            }
+
+            protected void doUiPostWork(String response) {
+                if (error != null) {
+                    GPLog.error(EditManager.this, "Unable to write the edits of the session.", error);
+                    String message = context.getString(R.string.edits_not_saved);
+                    String errorMessage = error.getMessage();
+                    if (errorMessage != null && errorMessage.contains("UNIQUE constraint failed")) { //NON-NLS
+                        message = context.getString(R.string.unique_constraint_violation_message) + "\n" + message;
+                    }
+                    if (context instanceof Activity && !((Activity) context).isFinishing()) {
+                        GPDialogs.warningDialog(context, message, null);
+                    } else {
+                        GPDialogs.toast(context, message, Toast.LENGTH_LONG);
+                    }
+                } else {
+                    if (toastResult)
+                        GPDialogs.toast(context, context.getString(R.string.edits_saved), Toast.LENGTH_SHORT);
+                }
+                if (onDone != null)
+                    onDone.run();
+            }
+        };
+        task.execute();
+    }
+
+    private static IEditableLayer findInMap(IEditableLayer layer) {
+        for (Layer mapLayer : layer.getMapView().map().layers()) {
+            if (mapLayer instanceof IEditableLayer && isSameLayer(layer, (IEditableLayer) mapLayer))
+                return (IEditableLayer) mapLayer;
+        }
+        return null;
+    }
+
+    private static boolean isSameLayer(IEditableLayer layer1, IEditableLayer layer2) {
+        if (layer1 == null || layer2 == null || layer1.getClass() != layer2.getClass())
+            return false;
+        if (!layer1.getId().equals(layer2.getId()))
+            return false;
+        if (layer1 instanceof IVectorDbLayer)
+            return ((IVectorDbLayer) layer1).getDbPath().equals(((IVectorDbLayer) layer2).getDbPath());
+        return true;
+    }
+
     /**
      * Set the current active {@link Tool}.
      *
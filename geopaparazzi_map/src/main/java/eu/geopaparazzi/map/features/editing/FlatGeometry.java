@@ -0,0 +1,182 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.map.features.editing;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+
+import java.util.Arrays;
+
+/**
+ * A geometry flattened to an array of ordinates and an array describing its structure.
+ *
+ * <p>The shape is <code>[type, dimension, parts, (rings, count1..countN) per part]</code>,
+ * points and lines being parts with a single ring. Only the simple geometries and their
+ * multi versions are supported, which is what the editing tools produce.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+final class FlatGeometry {
+    private static final int POINT = 0;
+    private static final int LINESTRING = 1;
+    private static final int POLYGON = 2;
+    private static final int MULTIPOINT = 3;
+    private static final int MULTILINESTRING = 4;
+    private static final int MULTIPOLYGON = 5;
+
+    private static final GeometryFactory gf = new GeometryFactory();
+
+    final double[] ordinates;
+    final int[] shape;
+
+    FlatGeometry(double[] ordinates, int[] shape) {
+        this.ordinates = ordinates;
+        this.shape = shape;
+    }
+
+    /**
+     * Flatten a geometry.
+     *
+     * @param geometry the geometry.
+     * @return the flat geometry.
+     */
+    static FlatGeometry fromGeometry(Geometry geometry) {
+        int type;
+        if (geometry instanceof Point) {
+            type = POINT;
+        } else if (geometry instanceof LineString) {
+            type = LINESTRING;
+        } else if (geometry instanceof Polygon) {
+            type = POLYGON;
+        } else if (geometry instanceof MultiPoint) {
+            type = MULTIPOINT;
+        } else if (geometry instanceof MultiLineString) {
+            type = MULTILINESTRING;
+        } else if (geometry instanceof MultiPolygon) {
+            type = MULTIPOLYGON;
+        } else {
+            throw new IllegalArgumentException("Geometry type not supported by the editing journal: " + geometry.getGeometryType());
+        }
+
+        Coordinate[] coordinates = geometry.getCoordinates();
+        int dimension = 2;
+        for (Coordinate coordinate : coordinates) {
+            if (!Double.isNaN(coordinate.z)) {
+                dimension = 3;
+                break;
+            }
+        }
+        double[] ordinates = new double[coordinates.length * dimension];
+        int index = 0;
+        for (Coordinate coordinate : coordinates) {
+            ordinates[index++] = coordinate.x;
+            ordinates[index++] = coordinate.y;
+            if (dimension == 3)
+                ordinates[index++] = coordinate.z;
+        }
+
+        int numGeometries = geometry.getNumGeometries();
+        int shapeLength = 3;
+        for (int i = 0; i < numGeometries; i++) {
+            Geometry part = geometry.getGeometryN(i);
+            shapeLength += 1 + (part instanceof Polygon ? 1 + ((Polygon) part).getNumInteriorRing() : 1);
+        }
+        int[] shape = new int[shapeLength];
+        shape[0] = type;
+        shape[1] = dimension;
+        shape[2] = numGeometries;
+        index = 3;
+        for (int i = 0; i < numGeometries; i++) {
+            Geometry part = geometry.getGeometryN(i);
+            if (part instanceof Polygon) {
+                Polygon polygon = (Polygon) part;
+                int numInteriorRing = polygon.getNumInteriorRing();
+                shape[index++] = 1 + numInteriorRing;
+                shape[index++] = polygon.getExteriorRing().getNumPoints();
+                for (int r = 0; r < numInteriorRing; r++) {
+                    shape[index++] = polygon.getInteriorRingN(r).getNumPoints();
+                }
+            } else {
+                shape[index++] = 1;
+                shape[index++] = part.getNumPoints();
+            }
+        }
+        return new FlatGeometry(ordinates, shape);
+    }
+
+    /**
+     * @return the geometry.
+     */
+    Geometry toGeometry() {
+        int type = shape[0];
+        int dimension = shape[1];
+        int numGeometries = shape[2];
+        int shapeIndex = 3;
+        int ordinateIndex = 0;
+        Geometry[] parts = new Geometry[numGeometries];
+        for (int i = 0; i < numGeometries; i++) {
+            int rings = shape[shapeIndex++];
+            Coordinate[][] ringsCoordinates = new Coordinate[rings][];
+            for (int r = 0; r < rings; r++) {
+                int count = shape[shapeIndex++];
+                Coordinate[] coordinates = new Coordinate[count];
+                for (int c = 0; c < count; c++) {
+                    double x = ordinates[ordinateIndex++];
+                    double y = ordinates[ordinateIndex++];
+                    if (dimension == 3) {
+                        coordinates[c] = new Coordinate(x, y, ordinates[ordinateIndex++]);
+                    } else {
+                        coordinates[c] = new Coordinate(x, y);
+                    }
+                }
+                ringsCoordinates[r] = coordinates;
+            }
+            if (type == POINT || type == MULTIPOINT) {
+                parts[i] = ringsCoordinates[0].length > 0 ? gf.createPoint(ringsCoordinates[0][0]) : gf.createPoint((Coordinate) null);
+            } else if (type == LINESTRING || type == MULTILINESTRING) {
+                parts[i] = gf.createLineString(ringsCoordinates[0]);
+            } else {
+                LinearRing shell = gf.createLinearRing(ringsCoordinates[0]);
+                LinearRing[] holes = new LinearRing[rings - 1];
+                for (int r = 1; r < rings; r++) {
+                    holes[r - 1] = gf.createLinearRing(ringsCoordinates[r]);
+                }
+                parts[i] = gf.createPolygon(shell, holes);
+            }
+        }
+
+        switch (type) {
+            case MULTIPOINT:
+                return gf.createMultiPoint(Arrays.copyOf(parts, parts.length, Point[].class));
+            case MULTILINESTRING:
+                return gf.createMultiLineString(Arrays.copyOf(parts, parts.length, LineString[].class));
+            case MULTIPOLYGON:
+                return gf.createMultiPolygon(Arrays.copyOf(parts, parts.length, Polygon[].class));
+            default:
+                return parts[0];
+        }
+    }
+}
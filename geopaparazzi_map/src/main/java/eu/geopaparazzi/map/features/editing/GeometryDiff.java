@@ -0,0 +1,169 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.map.features.editing;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A reversible difference between two {@link FlatGeometry}s.
+ *
+ * <p>Only the ordinates between the common head and tail of the two geometries are kept,
+ * so that moving, adding or removing a vertex costs a few numbers instead of the whole
+ * geometry. The shapes are kept only if they differ.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+final class GeometryDiff {
+    private final int start;
+    private final double[] removed;
+    private final double[] inserted;
+    private final int[] oldShape;
+    private final int[] newShape;
+
+    private GeometryDiff(int start, double[] removed, double[] inserted, int[] oldShape, int[] newShape) {
+        this.start = start;
+        this.removed = removed;
+        this.inserted = inserted;
+        this.oldShape = oldShape;
+        this.newShape = newShape;
+    }
+
+    /**
+     * Compute the difference between two geometries.
+     *
+     * @param from the old geometry.
+     * @param to   the new geometry.
+     * @return the difference.
+     */
+    static GeometryDiff between(FlatGeometry from, FlatGeometry to) {
+        double[] a = from.ordinates;
+        double[] b = to.ordinates;
+        int max = Math.min(a.length, b.length);
+        int head = 0;
+        while (head < max && Double.compare(a[head], b[head]) == 0) {
+            head++;
+        }
+        int tail = 0;
+        while (tail < max - head && Double.compare(a[a.length - 1 - tail], b[b.length - 1 - tail]) == 0) {
+            tail++;
+        }
+        double[] removed = Arrays.copyOfRange(a, head, a.length - tail);
+        double[] inserted = Arrays.copyOfRange(b, head, b.length - tail);
+        boolean sameShape = Arrays.equals(from.shape, to.shape);
+        return new GeometryDiff(head, removed, inserted, sameShape ? null : from.shape, sameShape ? null : to.shape);
+    }
+
+    /**
+     * @return <code>true</code> if the two geometries are the same.
+     */
+    boolean isEmpty() {
+        return removed.length == 0 && inserted.length == 0 && oldShape == null;
+    }
+
+    /**
+     * @param from the old geometry.
+     * @return the new geometry.
+     */
+    FlatGeometry apply(FlatGeometry from) {
+        return new FlatGeometry(splice(from.ordinates, removed.length, inserted), newShape != null ? newShape : from.shape);
+    }
+
+    /**
+     * @param to the new geometry.
+     * @return the old geometry.
+     */
+    FlatGeometry revert(FlatGeometry to) {
+        return new FlatGeometry(splice(to.ordinates, inserted.length, removed), oldShape != null ? oldShape : to.shape);
+    }
+
+    private double[] splice(double[] ordinates, int replacedLength, double[] replacement) {
+        double[] result = new double[ordinates.length - replacedLength + replacement.length];
+        System.arraycopy(ordinates, 0, result, 0, start);
+        System.arraycopy(replacement, 0, result, start, replacement.length);
+        int tailStart = start + replacedLength;
+        System.arraycopy(ordinates, tailStart, result, start + replacement.length, ordinates.length - tailStart);
+        return result;
+    }
+
+    /**
+     * @return the approximate memory used by the diff.
+     */
+    long estimateBytes() {
+        long bytes = 48 + 8L * (removed.length + inserted.length);
+        if (oldShape != null)
+            bytes += 4L * (oldShape.length + newShape.length);
+        return bytes;
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeInt(start);
+        writeDoubles(out, removed);
+        writeDoubles(out, inserted);
+        writeInts(out, oldShape);
+        writeInts(out, newShape);
+    }
+
+    static GeometryDiff read(DataInput in) throws IOException {
+        int start = in.readInt();
+        double[] removed = readDoubles(in);
+        double[] inserted = readDoubles(in);
+        int[] oldShape = readInts(in);
+        int[] newShape = readInts(in);
+        return new GeometryDiff(start, removed, inserted, oldShape, newShape);
+    }
+
+    private static void writeDoubles(DataOutput out, double[] values) throws IOException {
+        out.writeInt(values.length);
+        for (double value : values) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static double[] readDoubles(DataInput in) throws IOException {
+        double[] values = new double[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readDouble();
+        }
+        return values;
+    }
+
+    private static void writeInts(DataOutput out, int[] values) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length == -1)
+            return null;
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,504 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.map.features.editing;
+
+import android.content.SharedPreferences;
+import android.graphics.Point;
+import android.view.View;
+
+import androidx.preference.PreferenceManager;
+
+import org.hortonmachine.dbs.compat.ASpatialDb;
+import org.hortonmachine.dbs.compat.GeometryColumn;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.index.ItemVisitor;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import eu.geopaparazzi.library.GPApplication;
+import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.library.util.LibraryConstants;
+import eu.geopaparazzi.map.GPMapPosition;
+import eu.geopaparazzi.map.GPMapView;
+import eu.geopaparazzi.map.features.Feature;
+import eu.geopaparazzi.map.layers.ELayerTypes;
+import eu.geopaparazzi.map.layers.LayerManager;
+import eu.geopaparazzi.map.layers.interfaces.IEditableLayer;
+import eu.geopaparazzi.map.layers.interfaces.IVectorDbLayer;
+import eu.geopaparazzi.map.layers.utils.ReprojectionHandler;
+import eu.geopaparazzi.map.layers.utils.SpatialiteConnectionsHandler;
+import eu.geopaparazzi.map.proj.OverlayViewProjection;
+
+/**
+ * Snaps the vertexes placed by the editing tools to the features of the editable layers.
+ *
+ * <p>The segments of the features around the current view are kept in a {@link STRtree},
+ * built in background. The loaded area is larger than the view, so that panning and zooming
+ * in only reload when the view leaves it. Queries run on the UI thread and don't allocate
+ * until a snap is found, so that they can run on every touch move.</p>
+ *
+ * <p>The features of the layer edited in the session are indexed as they are in its
+ * {@link EditJournal}: removed features are left out, changed ones use their new geometry and
+ * the ones added in the session are included. The journal reloads the index on each change.</p>
+ *
+ * <p>Vertexes win over edges: the nearest vertex inside the tolerance is used and only if
+ * there is none the nearest point on an edge.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public enum SnappingEngine implements GPMapView.GPMapUpdateListener {
+    /**
+     * The singleton instance.
+     */
+    INSTANCE;
+
+    /**
+     * The default snapping tolerance in pixels.
+     */
+    public static final int DEFAULT_TOLERANCE_PIXELS = 20;
+    /**
+     * The maximum number of segments indexed. If the view has more, snapping is off until zooming in.
+     */
+    public static final int MAX_SEGMENTS = 200000;
+    /**
+     * The part of the view size the loaded area extends on each side.
+     */
+    private static final double LOAD_BUFFER_FACTOR = 0.5;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean refreshPending = new AtomicBoolean(false);
+
+    private GPMapView mapView;
+    private OverlayViewProjection projection;
+    private volatile int generation;
+
+    private volatile STRtree index;
+    private volatile Envelope indexedEnvelope;
+    // the area last found too dense to index and the view width it was loaded for
+    private volatile Envelope denseEnvelope;
+    private volatile double denseViewWidth;
+
+    private volatile boolean enabled;
+    private volatile int tolerancePixels = DEFAULT_TOLERANCE_PIXELS;
+    private Set<String> excludedLayerIds = new HashSet<>();
+
+    // used only by the UI thread queries
+    private final Envelope queryEnvelope = new Envelope();
+    private final SnapVisitor snapVisitor = new SnapVisitor();
+    private long queryCount;
+    private long queryNanos;
+
+    /**
+     * A segment of an indexed feature. Points are indexed as segments of zero length.
+     */
+    private static final class Segment {
+        final double x1;
+        final double y1;
+        final double x2;
+        final double y2;
+
+        Segment(double x1, double y1, double x2, double y2) {
+            this.x1 = x1;
+            this.y1 = y1;
+            this.x2 = x2;
+            this.y2 = y2;
+        }
+    }
+
+    /**
+     * Start snapping on a map view, reading the settings from the preferences.
+     *
+     * @param mapView the map view the tools work on.
+     */
+    public void start(GPMapView mapView) {
+        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(GPApplication.getInstance());
+        enabled = preferences.getBoolean(LibraryConstants.PREFS_KEY_SNAPPING_ENABLED, false);
+        String toleranceStr = preferences.getString(LibraryConstants.PREFS_KEY_SNAPPING_TOLERANCE, String.valueOf(DEFAULT_TOLERANCE_PIXELS));
+        try {
+            tolerancePixels = (int) Double.parseDouble(toleranceStr);
+        } catch (NumberFormatException e) {
+            tolerancePixels = DEFAULT_TOLERANCE_PIXELS;
+        }
+        excludedLayerIds = new HashSet<>(preferences.getStringSet(LibraryConstants.PREFS_KEY_SNAPPING_EXCLUDED_LAYERS, new HashSet<>()));
+
+        if (this.mapView != mapView) {
+            stop();
+            this.mapView = mapView;
+            projection = new OverlayViewProjection(mapView, EditManager.INSTANCE.getEditingView());
+            mapView.addMapUpdateListener(this);
+        }
+        onViewChanged();
+    }
+
+    /**
+     * Stop snapping and release the index.
+     */
+    public void stop() {
+        if (mapView != null) {
+            mapView.removeMapUpdateListener(this);
+            mapView = null;
+            projection = null;
+        }
+        clearIndex();
+        if (GPLog.LOG_HEAVY && queryCount > 0)
+            GPLog.addLogEntry(this, "snapping queries: " + queryCount + ", average micros: " + (queryNanos / queryCount / 1000)); //NON-NLS
+        queryCount = 0;
+        queryNanos = 0;
+    }
+
+    /**
+     * Drop the index and reload it, as needed when the features of the layers changed.
+     */
+    public void invalidate() {
+        clearIndex();
+        onViewChanged();
+    }
+
+    private void clearIndex() {
+        generation++;
+        index = null;
+        indexedEnvelope = null;
+        denseEnvelope = null;
+    }
+
+    /**
+     * @return <code>true</code> if snapping is active.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enable or disable snapping, the setting is persisted.
+     *
+     * @param enabled <code>true</code> to enable snapping.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(GPApplication.getInstance());
+        preferences.edit().putBoolean(LibraryConstants.PREFS_KEY_SNAPPING_ENABLED, enabled).apply();
+        if (enabled) {
+            onViewChanged();
+        }
+    }
+
+    /**
+     * @param layer the editable layer.
+     * @return <code>true</code> if vertexes are snapped to the features of the layer.
+     */
+    public boolean isSnapTarget(IEditableLayer layer) {
+        return !excludedLayerIds.contains(layer.getId());
+    }
+
+    /**
+     * Define the layers to snap to, the setting is persisted.
+     *
+     * @param layers  the editable layers.
+     * @param targets for each layer, <code>true</code> if it is snapped to.
+     */
+    public void setSnapTargets(List<IEditableLayer> layers, boolean[] targets) {
+        Set<String> excluded = new HashSet<>(excludedLayerIds);
+        for (int i = 0; i < layers.size(); i++) {
+            String id = layers.get(i).getId();
+            if (targets[i]) {
+                excluded.remove(id);
+            } else {
+                excluded.add(id);
+            }
+        }
+        excludedLayerIds = excluded;
+        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(GPApplication.getInstance());
+        preferences.edit().putStringSet(LibraryConstants.PREFS_KEY_SNAPPING_EXCLUDED_LAYERS, excluded).apply();
+        invalidate();
+    }
+
+    @Override
+    public void onUpdate(GPMapPosition mapPosition) {
+        onViewChanged();
+    }
+
+    /**
+     * Check the view against the loaded area and reload in background if it left it.
+     */
+    public void onViewChanged() {
+        if (!enabled || mapView == null) return;
+        Envelope viewEnvelope = getViewEnvelope();
+        if (viewEnvelope == null) return;
+        Envelope loaded = indexedEnvelope;
+        if (loaded != null && loaded.contains(viewEnvelope)) return;
+        Envelope dense = denseEnvelope;
+        if (dense != null && dense.contains(viewEnvelope) && viewEnvelope.getWidth() >= denseViewWidth) {
+            // still too dense, don't reload until the view moves out or zooms in
+            return;
+        }
+
+        if (refreshPending.compareAndSet(false, true)) {
+            List<IEditableLayer> layers = new ArrayList<>();
+            for (IEditableLayer layer : LayerManager.INSTANCE.getEditableLayers(mapView)) {
+                if (isSnapTarget(layer)) layers.add(layer);
+            }
+            Envelope loadEnvelope = new Envelope(viewEnvelope);
+            loadEnvelope.expandBy(viewEnvelope.getWidth() * LOAD_BUFFER_FACTOR, viewEnvelope.getHeight() * LOAD_BUFFER_FACTOR);
+            final double viewWidth = viewEnvelope.getWidth();
+            final int refreshGeneration = generation;
+            final EditJournal journal = EditManager.INSTANCE.getEditJournal();
+            executor.execute(() -> {
+                try {
+                    load(layers, journal, loadEnvelope, viewWidth, refreshGeneration);
+                } finally {
+                    refreshPending.set(false);
+                }
+                GPMapView view = mapView;
+                if (refreshGeneration != generation && view != null) {
+                    // invalidated while loading, load again for the current state
+                    view.post(this::onViewChanged);
+                }
+            });
+        }
+    }
+
+    private Envelope getViewEnvelope() {
+        OverlayViewProjection pj = projection;
+        View editingView = EditManager.INSTANCE.getEditingView();
+        if (pj == null || editingView == null) return null;
+        Coordinate upperLeft = pj.fromPixels(0, 0);
+        Coordinate lowerRight = pj.fromPixels(editingView.getWidth(), editingView.getHeight());
+        if (upperLeft == null || lowerRight == null) return null;
+        return new Envelope(upperLeft, lowerRight);
+    }
+
+    private void load(List<IEditableLayer> layers, EditJournal journal, Envelope loadEnvelope, double viewWidth, int refreshGeneration) {
+        long t0 = System.currentTimeMillis();
+        STRtree tree = new STRtree();
+        int segmentsCount = 0;
+        for (IEditableLayer layer : layers) {
+            try {
+                Envelope env = loadEnvelope;
+                if (layer instanceof IVectorDbLayer) {
+                    IVectorDbLayer vectorDbLayer = (IVectorDbLayer) layer;
+                    ELayerTypes layerType = ELayerTypes.fromFileExt(vectorDbLayer.getDbPath());
+                    if (layerType == ELayerTypes.SPATIALITE) {
+                        ASpatialDb db = SpatialiteConnectionsHandler.INSTANCE.getDb(vectorDbLayer.getDbPath());
+                        GeometryColumn gcol = db.getGeometryColumnsForTable(vectorDbLayer.getName());
+                        if (gcol.srid != LibraryConstants.SRID_WGS84_4326)
+                            env = ReprojectionHandler.INSTANCE.reproject(db, loadEnvelope, LibraryConstants.SRID_WGS84_4326, gcol.srid);
+                    }
+                }
+                List<Feature> features = layer.getFeatures(env);
+                if (journal != null && journal.getLayer() == layer) {
+                    // the features as they are in the session, also the ones not written yet
+                    features = journal.applyTo(features);
+                    Set<Long> readIds = new HashSet<>();
+                    for (Feature feature : features) {
+                        readIds.add(feature.getIdFieldValue());
+                    }
+                    for (Geometry geometry : journal.getSessionGeometries(loadEnvelope, readIds)) {
+                        segmentsCount += insertGeometry(tree, geometry);
+                    }
+                }
+                for (Feature feature : features) {
+                    Geometry geometry = feature.getDefaultGeometry();
+                    if (geometry != null) {
+                        segmentsCount += insertGeometry(tree, geometry);
+                    }
+                }
+            } catch (Exception e) {
+                GPLog.error(this, "Unable to read the snapping features of layer: " + layer.getName(), e); //NON-NLS
+            }
+            if (segmentsCount > MAX_SEGMENTS || refreshGeneration != generation) break;
+        }
+
+        if (refreshGeneration != generation) return;
+        if (segmentsCount > MAX_SEGMENTS) {
+            // too dense to snap, nothing is indexed, but the area is kept so that it is
+            // reloaded only once the view leaves it or is zoomed in
+            index = null;
+            indexedEnvelope = null;
+            denseEnvelope = loadEnvelope;
+            denseViewWidth = viewWidth;
+        } else {
+            tree.build();
+            index = tree;
+            indexedEnvelope = loadEnvelope;
+            denseEnvelope = null;
+        }
+        if (GPLog.LOG_HEAVY)
+            GPLog.addLogEntry(this, "snapping index: " + segmentsCount + " segments in " + (System.currentTimeMillis() - t0) + "ms"); //NON-NLS
+    }
+
+    private static int insertGeometry(STRtree tree, Geometry geometry) {
+        int count = 0;
+        for (int i = 0; i < geometry.getNumGeometries(); i++) {
+            Geometry part = geometry.getGeometryN(i);
+            if (part instanceof Polygon) {
+                Polygon polygon = (Polygon) part;
+                count += insertLine(tree, polygon.getExteriorRing());
+                for (int j = 0; j < polygon.getNumInteriorRing(); j++) {
+                    count += insertLine(tree, polygon.getInteriorRingN(j));
+                }
+            } else if (part instanceof LineString) {
+                count += insertLine(tree, (LineString) part);
+            } else {
+                Coordinate c = part.getCoordinate();
+                if (c != null) {
+                    tree.insert(new Envelope(c), new Segment(c.x, c.y, c.x, c.y));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static int insertLine(STRtree tree, LineString line) {
+        Coordinate[] coordinates = line.getCoordinates();
+        for (int i = 1; i < coordinates.length; i++) {
+            Coordinate c1 = coordinates[i - 1];
+            Coordinate c2 = coordinates[i];
+            tree.insert(new Envelope(c1, c2), new Segment(c1.x, c1.y, c2.x, c2.y));
+        }
+        return Math.max(0, coordinates.length - 1);
+    }
+
+    /**
+     * Snap a screen position to the nearest vertex or edge inside the tolerance.
+     *
+     * <p>To be called from the UI thread.</p>
+     *
+     * @param pj the projection of the view the position is in.
+     * @param x  the x pixel.
+     * @param y  the y pixel.
+     * @return the snapped coordinate or <code>null</code> if there is nothing to snap to.
+     */
+    public Coordinate snap(OverlayViewProjection pj, int x, int y) {
+        STRtree tree = index;
+        if (!enabled || tree == null) return null;
+        long t0 = System.nanoTime();
+
+        int tolerance = tolerancePixels;
+        Coordinate upperLeft = pj.fromPixels(x - tolerance, y - tolerance);
+        Coordinate lowerRight = pj.fromPixels(x + tolerance, y + tolerance);
+        if (upperLeft == null || lowerRight == null) return null;
+        queryEnvelope.init(upperLeft.x, lowerRight.x, upperLeft.y, lowerRight.y);
+
+        snapVisitor.reset(pj, x, y, tolerance);
+        tree.query(queryEnvelope, snapVisitor);
+        Coordinate snapped = snapVisitor.getSnapped();
+
+        queryCount++;
+        queryNanos += System.nanoTime() - t0;
+        return snapped;
+    }
+
+    /**
+     * Measures the candidates in pixels, keeping the nearest vertex and edge point.
+     */
+    private static final class SnapVisitor implements ItemVisitor {
+        private final Point p1 = new Point();
+        private final Point p2 = new Point();
+        private final Coordinate tmp = new Coordinate();
+        private OverlayViewProjection pj;
+        private int x;
+        private int y;
+        private double maxDistanceSq;
+
+        private double vertexDistanceSq;
+        private double vertexX;
+        private double vertexY;
+        private double edgeDistanceSq;
+        private double edgeX;
+        private double edgeY;
+
+        void reset(OverlayViewProjection pj, int x, int y, int tolerance) {
+            this.pj = pj;
+            this.x = x;
+            this.y = y;
+            maxDistanceSq = (double) tolerance * tolerance;
+            vertexDistanceSq = Double.POSITIVE_INFINITY;
+            edgeDistanceSq = Double.POSITIVE_INFINITY;
+        }
+
+        @Override
+        public void visitItem(Object item) {
+            Segment s = (Segment) item;
+            tmp.x = s.x1;
+            tmp.y = s.y1;
+            if (pj.toPixels(tmp, p1) == null) return;
+
+            double d1 = distanceSq(p1.x, p1.y);
+            if (d1 <= maxDistanceSq && d1 < vertexDistanceSq) {
+                vertexDistanceSq = d1;
+                vertexX = s.x1;
+                vertexY = s.y1;
+            }
+            if (s.x1 == s.x2 && s.y1 == s.y2) return;
+
+            tmp.x = s.x2;
+            tmp.y = s.y2;
+            pj.toPixels(tmp, p2);
+            double d2 = distanceSq(p2.x, p2.y);
+            if (d2 <= maxDistanceSq && d2 < vertexDistanceSq) {
+                vertexDistanceSq = d2;
+                vertexX = s.x2;
+                vertexY = s.y2;
+            }
+
+            // nearest point of the segment, in pixels
+            double dx = p2.x - p1.x;
+            double dy = p2.y - p1.y;
+            double lengthSq = dx * dx + dy * dy;
+            if (lengthSq == 0) return;
+            double t = ((x - p1.x) * dx + (y - p1.y) * dy) / lengthSq;
+            if (t <= 0 || t >= 1) return;
+            double px = p1.x + t * dx - x;
+            double py = p1.y + t * dy - y;
+            double d = px * px + py * py;
+            if (d <= maxDistanceSq && d < edgeDistanceSq) {
+                edgeDistanceSq = d;
+                edgeX = s.x1 + t * (s.x2 - s.x1);
+                edgeY = s.y1 + t * (s.y2 - s.y1);
+            }
+        }
+
+        private double distanceSq(int px, int py) {
+            double dx = px - x;
+            double dy = py - y;
+            return dx * dx + dy * dy;
+        }
+
+        Coordinate getSnapped() {
+            if (vertexDistanceSq != Double.POSITIVE_INFINITY) {
+                return new Coordinate(vertexX, vertexY);
+            }
+            if (edgeDistanceSq != Double.POSITIVE_INFINITY) {
+                return new Coordinate(edgeX, edgeY);
+            }
+            return null;
+        }
+    }
+}
@@ -8,7 +8,6 @@ import android.graphics.Paint;
 import android.graphics.Point;
 import android.graphics.PorterDuff.Mode;
 import android.graphics.PorterDuffColorFilter;
-import android.os.Parcelable;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.View.OnClickListener;
@@ -30,6 +29,7 @@ import eu.geopaparazzi.map.GPMapPosition;
 import eu.geopaparazzi.map.GPMapView;
 import eu.geopaparazzi.map.R;
 import eu.geopaparazzi.map.features.Feature;
+import eu.geopaparazzi.map.features.FeatureSessionStore;
 import eu.geopaparazzi.map.features.FeatureUtilities;
 import eu.geopaparazzi.map.features.editing.EditManager;
 import eu.geopaparazzi.map.features.editing.EditingView;
@@ -181,8 +181,7 @@ public class AlphanumericOnSelectionToolGroup implements ToolGroup, OnClickListe
             if (selectedFeatures.size() > 0) {
                 Context context = v.getContext();
                 Intent intent = new Intent(context, FeaturePagerActivity.class);
-                intent.putParcelableArrayListExtra(FeatureUtilities.KEY_FEATURESLIST,
-                        (ArrayList<? extends Parcelable>) selectedFeatures);
+                FeatureSessionStore.INSTANCE.putFeatures(intent, selectedFeatures);
                 intent.putExtra(FeatureUtilities.KEY_READONLY, false);
                 if (context instanceof Activity) {
                     Activity activity = (Activity) context;
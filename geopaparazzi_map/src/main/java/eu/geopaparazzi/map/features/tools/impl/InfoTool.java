@@ -23,35 +23,26 @@ import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.Point;
 import android.graphics.Rect;
-import android.os.Parcelable;
 import android.view.MotionEvent;
 
-import org.hortonmachine.dbs.compat.ASpatialDb;
-import org.hortonmachine.dbs.compat.GeometryColumn;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Envelope;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.style.ColorUtilities;
 import eu.geopaparazzi.library.style.ToolColors;
-import eu.geopaparazzi.library.util.GPDialogs;
-import eu.geopaparazzi.library.util.LibraryConstants;
-import eu.geopaparazzi.library.util.StringAsyncTask;
 import eu.geopaparazzi.map.GPMapView;
-import eu.geopaparazzi.map.R;
 import eu.geopaparazzi.map.features.Feature;
 import eu.geopaparazzi.map.features.FeatureUtilities;
+import eu.geopaparazzi.map.features.HitTestExecutor;
 import eu.geopaparazzi.map.features.editing.EditManager;
 import eu.geopaparazzi.map.features.tools.MapTool;
 import eu.geopaparazzi.map.features.tools.interfaces.ToolGroup;
 import eu.geopaparazzi.map.gui.FeaturePagerActivity;
-import eu.geopaparazzi.map.layers.ELayerTypes;
 import eu.geopaparazzi.map.layers.LayerManager;
 import eu.geopaparazzi.map.layers.interfaces.IVectorDbLayer;
-import eu.geopaparazzi.map.layers.utils.SpatialiteConnectionsHandler;
 import eu.geopaparazzi.map.proj.OverlayViewProjection;
 
 import static java.lang.Math.abs;
@@ -134,6 +125,8 @@ public class InfoTool extends MapTool {
         int action = event.getAction();
         switch (action) {
             case MotionEvent.ACTION_DOWN:
+                // a new query area replaces the running one
+                HitTestExecutor.INSTANCE.cancel();
                 Coordinate startGeoPoint = pj.fromPixels(round(currentX), round(currentY));
                 pj.toPixels(startGeoPoint, startP);
 
@@ -179,6 +172,7 @@ public class InfoTool extends MapTool {
     }
 
     public void disable() {
+        HitTestExecutor.INSTANCE.cancel();
         if (mapView != null) {
             mapView.setClickable(true);
             mapView = null;
@@ -190,82 +184,39 @@ public class InfoTool extends MapTool {
             List<IVectorDbLayer> vectorLayers = LayerManager.INSTANCE.getEnabledVectorLayers(mapView);
             final Context context = EditManager.INSTANCE.getEditingView().getContext();
 
-            StringAsyncTask task = new StringAsyncTask(context) {
-                private List<Feature> features = new ArrayList<>();
+            double south = s;
+            if (n - s == 0) {
+                south = n - 1;
+            }
+            double west = w;
+            if (e - w == 0) {
+                west = e - 1;
+            }
+            Envelope env = new Envelope(west, e, south, n);
+
+            // the pager opens with the first layer that has hits and receives the others while they arrive
+            HitTestExecutor.INSTANCE.submit(vectorLayers, env, new HitTestExecutor.HitTestListener() {
+                private boolean pagerStarted = false;
 
                 @Override
-                protected String doBackgroundWork() {
-                    try {
-                        features.clear();
-                        boolean oneEnabled = vectorLayers.size() > 0;
-                        if (oneEnabled) {
-                            double north = n;
-                            double south = s;
-                            if (n - s == 0) {
-                                south = n - 1;
-                            }
-                            double west = w;
-                            double east = e;
-                            if (e - w == 0) {
-                                west = e - 1;
-                            }
-
-                            for (IVectorDbLayer vectorLayer : vectorLayers) {
-                                try {
-
-                                    Envelope env = new Envelope(west, east, south, north);
-
-                                    ELayerTypes layerType = ELayerTypes.fromFileExt(vectorLayer.getDbPath());
-                                    List<Feature> featuresList = new ArrayList<>();
-                                    if (layerType == ELayerTypes.SPATIALITE) {
-                                        ASpatialDb db = SpatialiteConnectionsHandler.INSTANCE.getDb(vectorLayer.getDbPath());
-                                        int mapSrid = LibraryConstants.SRID_WGS84_4326;
-                                        GeometryColumn gcol = db.getGeometryColumnsForTable(vectorLayer.getName());
-                                        Envelope repEnv = db.reproject(env, mapSrid, gcol.srid);
-                                        featuresList.addAll(vectorLayer.getFeatures(repEnv));
-                                    } else if (layerType == ELayerTypes.GEOPACKAGE) {
-                                        featuresList.addAll(vectorLayer.getFeatures(env));
-                                    }
-                                    this.features.addAll(featuresList);
-
-                                    publishProgress(1);
-                                    // Escape early if cancel() is called
-                                    if (isCancelled())
-                                        return "CANCEL";
-                                } catch (java.lang.Exception e1) {
-                                    GPLog.error(this, null, e1);
-                                }
-                            }
-                        }
-                        return "";
-                    } catch (Exception e) {
-                        GPLog.error(this, null, e); //$NON-NLS-1$
-                        return "ERROR: " + e.getLocalizedMessage();
-                    }
+                public void onFeatures(HitTestExecutor.HitTest hitTest, List<Feature> features) {
+                    if (pagerStarted) return;
+                    pagerStarted = true;
+                    hitTest.removeListener(this);
+                    Intent intent = new Intent(context, FeaturePagerActivity.class);
+                    intent.putExtra(FeatureUtilities.KEY_HITTEST_ID, hitTest.getId());
+                    intent.putExtra(FeatureUtilities.KEY_READONLY, true);
+                    context.startActivity(intent);
+                    if (parentGroup != null)
+                        parentGroup.onToolFinished(InfoTool.this);
                 }
 
                 @Override
-                protected void doUiPostWork(String response) {
-                    if (response.startsWith("ERROR")) {
-                        GPDialogs.warningDialog(context, response, null);
-                    } else if (response.startsWith("CANCEL")) {
-                        return;
-                    } else {
-                        if (features.size() > 0) {
-                            Intent intent = new Intent(context, FeaturePagerActivity.class);
-                            intent.putParcelableArrayListExtra(FeatureUtilities.KEY_FEATURESLIST,
-                                    (ArrayList<? extends Parcelable>) features);
-                            intent.putExtra(FeatureUtilities.KEY_READONLY, true); //true);
-                            context.startActivity(intent);
-                        }
-                    }
-                    parentGroup.onToolFinished(InfoTool.this);
+                public void onFinished(HitTestExecutor.HitTest hitTest) {
+                    if (parentGroup != null)
+                        parentGroup.onToolFinished(InfoTool.this);
                 }
-
-            };
-            task.setProgressDialog(context.getString(R.string.info_uppercase), context.getString(R.string.extracting_info), true, vectorLayers.size());
-            task.execute();
-
+            });
         } catch (java.lang.Exception ex) {
             GPLog.error(this, null, ex); //$NON-NLS-1$
         }
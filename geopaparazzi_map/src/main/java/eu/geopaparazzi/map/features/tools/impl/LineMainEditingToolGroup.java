@@ -30,6 +30,7 @@ import android.view.ViewGroup.LayoutParams;
 import android.widget.ImageButton;
 import android.widget.LinearLayout;
 
+import java.io.IOException;
 import java.util.List;
 
 import eu.geopaparazzi.library.database.GPLog;
@@ -37,6 +38,7 @@ import eu.geopaparazzi.library.util.Compat;
 import eu.geopaparazzi.library.util.GPDialogs;
 import eu.geopaparazzi.map.GPMapView;
 import eu.geopaparazzi.map.R;
+import eu.geopaparazzi.map.features.editing.EditJournal;
 import eu.geopaparazzi.map.features.editing.EditManager;
 import eu.geopaparazzi.map.features.tools.interfaces.Tool;
 import eu.geopaparazzi.map.features.tools.interfaces.ToolGroup;
@@ -59,6 +61,7 @@ public class LineMainEditingToolGroup implements ToolGroup, OnClickListener, OnT
     private ImageButton commitButton;
 
     private ImageButton undoButton;
+    private ImageButton redoButton;
 
     /**
      * Constructor.
@@ -127,6 +130,15 @@ public class LineMainEditingToolGroup implements ToolGroup, OnClickListener, OnT
             parent.addView(undoButton);
             undoButton.setVisibility(View.GONE);
 
+            redoButton = new ImageButton(context);
+            redoButton.setLayoutParams(new LinearLayout.LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT));
+            redoButton.setBackground(Compat.getDrawable(context, R.drawable.ic_editing_redo_24dp));
+            redoButton.setPadding(0, padding, 0, padding);
+            redoButton.setOnTouchListener(this);
+            redoButton.setOnClickListener(this);
+            parent.addView(redoButton);
+            redoButton.setVisibility(View.GONE);
+
             commitButton = new ImageButton(context);
             commitButton.setLayoutParams(new LinearLayout.LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT));
             commitButton.setBackground(Compat.getDrawable(context, R.drawable.ic_editing_commit_24dp));
@@ -135,6 +147,7 @@ public class LineMainEditingToolGroup implements ToolGroup, OnClickListener, OnT
             commitButton.setOnClickListener(this);
             parent.addView(commitButton);
             commitButton.setVisibility(View.GONE);
+            updateSessionButtons();
         }
     }
 
@@ -183,17 +196,38 @@ public class LineMainEditingToolGroup implements ToolGroup, OnClickListener, OnT
             ToolGroup createFeatureToolGroup = new LineCreateFeatureToolGroup(mapView, null);
             EditManager.INSTANCE.setActiveToolGroup(createFeatureToolGroup);
         } else if (v == undoButton) {
-//            if (cutExtendProcessedFeature != null) {
-//                EditManager.INSTANCE.setActiveTool(null);
-//                commitButton.setVisibility(View.GONE);
-//                undoButton.setVisibility(View.GONE);
-//                EditManager.INSTANCE.invalidateEditingView();
-//            }
+            try {
+                EditManager.INSTANCE.getEditJournal().undo();
+            } catch (IOException e) {
+                GPLog.error(this, null, e);
+            }
+            updateSessionButtons();
+        } else if (v == redoButton) {
+            try {
+                EditManager.INSTANCE.getEditJournal().redo();
+            } catch (IOException e) {
+                GPLog.error(this, null, e);
+            }
+            updateSessionButtons();
+        } else if (v == commitButton) {
+            EditManager.INSTANCE.commitEditJournal(v.getContext(), true, this::updateSessionButtons);
         }
 
         handleToolIcons(v);
     }
 
+    /**
+     * Show the undo, redo and commit buttons of the editing session when they apply.
+     */
+    private void updateSessionButtons() {
+        EditJournal journal = EditManager.INSTANCE.getEditJournal();
+        if (journal == null || undoButton == null)
+            return;
+        undoButton.setVisibility(journal.canUndo() ? View.VISIBLE : View.GONE);
+        redoButton.setVisibility(journal.canRedo() ? View.VISIBLE : View.GONE);
+        commitButton.setVisibility(journal.hasChanges() ? View.VISIBLE : View.GONE);
+    }
+
     @SuppressWarnings("deprecation")
     private void handleToolIcons(View activeToolButton) {
         Context context = activeToolButton.getContext();
@@ -26,7 +26,6 @@ import android.graphics.Paint;
 import android.graphics.Point;
 import android.graphics.PorterDuff.Mode;
 import android.graphics.PorterDuffColorFilter;
-import android.os.Parcelable;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.View.OnClickListener;
@@ -35,8 +34,6 @@ import android.view.ViewGroup.LayoutParams;
 import android.widget.ImageButton;
 import android.widget.LinearLayout;
 
-import org.locationtech.jts.geom.Geometry;
-
 import java.util.ArrayList;
 import java.util.List;
 
@@ -44,19 +41,17 @@ import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.style.ColorUtilities;
 import eu.geopaparazzi.library.style.ToolColors;
 import eu.geopaparazzi.library.util.Compat;
-import eu.geopaparazzi.map.GPMapPosition;
 import eu.geopaparazzi.map.GPMapView;
 import eu.geopaparazzi.map.R;
 import eu.geopaparazzi.map.features.Feature;
+import eu.geopaparazzi.map.features.FeatureSessionStore;
 import eu.geopaparazzi.map.features.FeatureUtilities;
 import eu.geopaparazzi.map.features.editing.EditManager;
 import eu.geopaparazzi.map.features.editing.EditingView;
 import eu.geopaparazzi.map.features.tools.interfaces.Tool;
 import eu.geopaparazzi.map.features.tools.interfaces.ToolGroup;
 import eu.geopaparazzi.map.gui.FeaturePagerActivity;
-import eu.geopaparazzi.map.jts.MapviewPointTransformation;
-import eu.geopaparazzi.map.jts.android.PointTransformation;
-import eu.geopaparazzi.map.jts.android.ShapeWriter;
+import eu.geopaparazzi.map.jts.ScreenShapeCache;
 import eu.geopaparazzi.map.layers.interfaces.IEditableLayer;
 import eu.geopaparazzi.map.proj.OverlayViewProjection;
 import eu.geopaparazzi.map.utils.MapUtilities;
@@ -74,6 +69,7 @@ public class LineOnSelectionToolGroup implements ToolGroup, OnClickListener, OnT
     private List<Feature> selectedFeatures = new ArrayList<>();
     private ImageButton deleteFeatureButton;
     private OverlayViewProjection editingViewProjection;
+    private final ScreenShapeCache shapeCache;
 
     private Paint geometryPaintStroke = new Paint();
 
@@ -111,6 +107,7 @@ public class LineOnSelectionToolGroup implements ToolGroup, OnClickListener, OnT
 
         EditingView editingView = EditManager.INSTANCE.getEditingView();
         editingViewProjection = new OverlayViewProjection(mapView, editingView);
+        shapeCache = new ScreenShapeCache(editingViewProjection, editingView);
         buttonSelectionColor = Compat.getColor(editingView.getContext(), R.color.main_selection);
 
 
@@ -202,6 +199,7 @@ public class LineOnSelectionToolGroup implements ToolGroup, OnClickListener, OnT
     }
 
     public void disable() {
+        shapeCache.clear();
         LinearLayout parent = EditManager.INSTANCE.getToolsLayout();
         if (parent != null)
             parent.removeAllViews();
@@ -213,8 +211,7 @@ public class LineOnSelectionToolGroup implements ToolGroup, OnClickListener, OnT
             if (selectedFeatures.size() > 0) {
                 Context context = v.getContext();
                 Intent intent = new Intent(context, FeaturePagerActivity.class);
-                intent.putParcelableArrayListExtra(FeatureUtilities.KEY_FEATURESLIST,
-                        (ArrayList<? extends Parcelable>) selectedFeatures);
+                FeatureSessionStore.INSTANCE.putFeatures(intent, selectedFeatures);
                 intent.putExtra(FeatureUtilities.KEY_READONLY, false);
                 if (context instanceof Activity) {
                     Activity activity = (Activity) context;
@@ -275,8 +272,7 @@ public class LineOnSelectionToolGroup implements ToolGroup, OnClickListener, OnT
 
                 try {
                     // delete features
-                    IEditableLayer editLayer = EditManager.INSTANCE.getEditLayer();
-                    editLayer.deleteFeatures(selectedFeatures);
+                    EditManager.INSTANCE.getEditJournal().deleteFeatures(selectedFeatures);
                     selectedFeatures.clear();
 
                     // reset drawview
@@ -329,25 +325,7 @@ public class LineOnSelectionToolGroup implements ToolGroup, OnClickListener, OnT
                 point.x = positionBeforeDraw.x - (canvas.getWidth() >> 1);
                 point.y = positionBeforeDraw.y - (canvas.getHeight() >> 1);
 
-                GPMapPosition mapPosition = mapView.getMapPosition();
-                byte zoomLevel = (byte) mapPosition.getZoomLevel();
-
-                PointTransformation pointTransformer = new MapviewPointTransformation(projection, point, zoomLevel);
-                ShapeWriter shapeWriter = new ShapeWriter(pointTransformer);
-                shapeWriter.setRemoveDuplicatePoints(true);
-                // shapeWriter.setDecimation(spatialTable.getStyle().decimationFactor);
-
-                // draw features
-                for (Feature feature : selectedFeatures) {
-                    Geometry geometry = feature.getDefaultGeometry();
-                    if (geometry != null) {
-                        try {
-                            FeatureUtilities.drawGeometry(geometry, canvas, shapeWriter, null, geometryPaintStroke);
-                        } catch (Exception e) {
-                            GPLog.error(this, null, e); //$NON-NLS-1$
-                        }
-                    }
-                }
+                shapeCache.draw(canvas, selectedFeatures, point, zoomLevelBeforeDraw, null, geometryPaintStroke);
             }
         } catch (Exception e) {
             GPLog.error(this, null, e);
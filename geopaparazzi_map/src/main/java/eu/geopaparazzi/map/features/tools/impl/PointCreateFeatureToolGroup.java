@@ -53,7 +53,6 @@ import eu.geopaparazzi.library.style.ColorUtilities;
 import eu.geopaparazzi.library.style.ToolColors;
 import eu.geopaparazzi.library.util.Compat;
 import eu.geopaparazzi.library.util.GPDialogs;
-import eu.geopaparazzi.library.util.LibraryConstants;
 import eu.geopaparazzi.library.util.PositionUtilities;
 import eu.geopaparazzi.map.GPMapPosition;
 import eu.geopaparazzi.map.GPMapView;
@@ -61,6 +60,7 @@ import eu.geopaparazzi.map.MapsSupportService;
 import eu.geopaparazzi.map.R;
 import eu.geopaparazzi.map.features.Feature;
 import eu.geopaparazzi.map.features.FeatureUtilities;
+import eu.geopaparazzi.map.features.editing.EditJournal;
 import eu.geopaparazzi.map.features.editing.EditManager;
 import eu.geopaparazzi.map.features.editing.EditingView;
 import eu.geopaparazzi.map.features.tools.interfaces.Tool;
@@ -260,32 +260,27 @@ public class PointCreateFeatureToolGroup implements ToolGroup, OnClickListener,
                 MultiPoint pointGeometry = JtsUtilities.createPoints(coordinatesList);
                 geomsList.add(pointGeometry);
 
-                IEditableLayer editLayer = EditManager.INSTANCE.getEditLayer();
-                try {
-                    if (this.featureToContinue == null) {
+                EditJournal journal = EditManager.INSTANCE.getEditJournal();
+                if (this.featureToContinue == null) {
+                    journal.beginStep();
+                    try {
                         for (Geometry geometry : geomsList) {
-                            editLayer.addNewFeatureByGeometry(geometry, LibraryConstants.SRID_WGS84_4326);
+                            journal.addFeature(geometry);
                         }
-                    } else {
-                        editLayer.updateFeatureGeometry(featureToContinue, pointGeometry, LibraryConstants.SRID_WGS84_4326);
-                    }
-                    GPDialogs.toast(commitButton.getContext(), commitButton.getContext().getString(R.string.geometry_saved), Toast.LENGTH_SHORT);
-                    coordinatesList.clear();
-
-                    // reset mapview
-                    Context context = v.getContext();
-                    Intent intent = new Intent(context, MapsSupportService.class);
-                    intent.putExtra(MapsSupportService.REREAD_MAP_REQUEST, true);
-                    context.startService(intent);
-                } catch (Exception e) {
-                    if (e.getMessage().contains("UNIQUE constraint failed")) { //NON-NLS
-                        GPDialogs.warningDialog(commitButton.getContext(), commitButton.getContext().getString(R.string.unique_constraint_violation_message), null);
-                        coordinatesList.clear();
-                        this.pointGeometry = null;
-                    } else {
-                        GPLog.error(this, null, e);
+                    } finally {
+                        journal.endStep();
                     }
+                } else {
+                    journal.updateGeometry(featureToContinue, pointGeometry);
                 }
+                GPDialogs.toast(commitButton.getContext(), commitButton.getContext().getString(R.string.geometry_added), Toast.LENGTH_SHORT);
+                coordinatesList.clear();
+
+                // reset mapview
+                Context context = v.getContext();
+                Intent intent = new Intent(context, MapsSupportService.class);
+                intent.putExtra(MapsSupportService.REREAD_MAP_REQUEST, true);
+                context.startService(intent);
             }
         } else if (v == undoButton) {
             if (coordinatesList.size() == 0) {
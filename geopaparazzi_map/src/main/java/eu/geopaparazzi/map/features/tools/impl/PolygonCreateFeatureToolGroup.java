@@ -52,20 +52,22 @@ import eu.geopaparazzi.library.style.ColorUtilities;
 import eu.geopaparazzi.library.style.ToolColors;
 import eu.geopaparazzi.library.util.Compat;
 import eu.geopaparazzi.library.util.GPDialogs;
-import eu.geopaparazzi.library.util.LibraryConstants;
 import eu.geopaparazzi.library.util.PositionUtilities;
 import eu.geopaparazzi.map.GPMapPosition;
 import eu.geopaparazzi.map.GPMapView;
 import eu.geopaparazzi.map.R;
 import eu.geopaparazzi.map.features.FeatureUtilities;
+import eu.geopaparazzi.map.features.editing.EditJournal;
 import eu.geopaparazzi.map.features.editing.EditManager;
 import eu.geopaparazzi.map.features.editing.EditingView;
+import eu.geopaparazzi.map.features.editing.SnappingEngine;
 import eu.geopaparazzi.map.features.tools.interfaces.Tool;
 import eu.geopaparazzi.map.features.tools.interfaces.ToolGroup;
 import eu.geopaparazzi.map.jts.JtsUtilities;
 import eu.geopaparazzi.map.jts.MapviewPointTransformation;
 import eu.geopaparazzi.map.jts.android.PointTransformation;
 import eu.geopaparazzi.map.jts.android.ShapeWriter;
+import eu.geopaparazzi.map.layers.LayerManager;
 import eu.geopaparazzi.map.layers.interfaces.IEditableLayer;
 import eu.geopaparazzi.map.proj.OverlayViewProjection;
 
@@ -115,6 +117,11 @@ public class PolygonCreateFeatureToolGroup implements ToolGroup, OnClickListener
     private boolean addVertexByTapActive = false;
     private Coordinate lastKnownGpsCoordinate;
 
+    private ImageButton snapButton;
+    private Coordinate tapCoordinate;
+    private boolean tapCoordinateSnapped;
+    private final Paint snapPaintStroke = new Paint();
+
     /**
      * Constructor.
      *
@@ -143,13 +150,20 @@ public class PolygonCreateFeatureToolGroup implements ToolGroup, OnClickListener
         createdGeometryPaintStroke.setColor(selectionStroke);
         createdGeometryPaintStroke.setStyle(Paint.Style.STROKE);
 
+        snapPaintStroke.setAntiAlias(true);
+        snapPaintStroke.setStrokeWidth(3f);
+        snapPaintStroke.setColor(buttonSelectionColor);
+        snapPaintStroke.setStyle(Paint.Style.STROKE);
+
         point = new Point();
         positionBeforeDraw = new Point();
     }
 
     public void activate() {
-        if (mapView != null)
+        if (mapView != null) {
             mapView.setClickable(true);
+            SnappingEngine.INSTANCE.start(mapView);
+        }
     }
 
     public void initUI() {
@@ -187,6 +201,15 @@ public class PolygonCreateFeatureToolGroup implements ToolGroup, OnClickListener
             addVertexByTapButton.setOnClickListener(this);
             parent.addView(addVertexByTapButton);
 
+            snapButton = new ImageButton(context);
+            snapButton.setLayoutParams(new LinearLayout.LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT));
+            snapButton.setBackground(Compat.getDrawable(context, SnappingEngine.INSTANCE.isEnabled() ? R.drawable.ic_editing_snap_active_24dp : R.drawable.ic_editing_snap_24dp));
+            snapButton.setPadding(0, padding, 0, padding);
+            snapButton.setOnTouchListener(this);
+            snapButton.setOnLongClickListener(this);
+            snapButton.setOnClickListener(this);
+            parent.addView(snapButton);
+
             undoButton = new ImageButton(context);
             undoButton.setLayoutParams(new LinearLayout.LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT));
             undoButton.setBackground(Compat.getDrawable(context, R.drawable.ic_editing_undo_24dp));
@@ -213,10 +236,16 @@ public class PolygonCreateFeatureToolGroup implements ToolGroup, OnClickListener
         parent = null;
         gpsStreamActive = false;
         addVertexByTapActive = false;
+        tapCoordinate = null;
+        SnappingEngine.INSTANCE.stop();
     }
 
     @Override
     public boolean onLongClick(View v) {
+        if (v == snapButton) {
+            selectSnapTargets(v.getContext());
+            return true;
+        }
         if (v == gpsStreamButton) {
             gpsStreamActive = !gpsStreamActive;
             addVertexByTapActive = false;
@@ -235,6 +264,11 @@ public class PolygonCreateFeatureToolGroup implements ToolGroup, OnClickListener
             double[] mapCenter = PositionUtilities.getMapCenterFromPreferences(preferences, true, true);
 
             Coordinate coordinate = new Coordinate(mapCenter[0], mapCenter[1]);
+            EditingView editingView = EditManager.INSTANCE.getEditingView();
+            Coordinate snapped = SnappingEngine.INSTANCE.snap(editingViewProjection, editingView.getWidth() >> 1, editingView.getHeight() >> 1);
+            if (snapped != null) {
+                coordinate = snapped;
+            }
 
             if (addVertex(v.getContext(), coordinate)) {
                 return;
@@ -245,6 +279,8 @@ public class PolygonCreateFeatureToolGroup implements ToolGroup, OnClickListener
         } else if (v == addVertexByTapButton) {
             addVertexByTapActive = !addVertexByTapActive;
             gpsStreamActive = false;
+        } else if (v == snapButton) {
+            SnappingEngine.INSTANCE.setEnabled(!SnappingEngine.INSTANCE.isEnabled());
         } else if (v == commitButton) {
             if (coordinatesList.size() > 2) {
                 List<Geometry> geomsList = new ArrayList<>();
@@ -265,27 +301,22 @@ public class PolygonCreateFeatureToolGroup implements ToolGroup, OnClickListener
                     }
                 }
 
-                IEditableLayer editLayer = EditManager.INSTANCE.getEditLayer();
+                EditJournal journal = EditManager.INSTANCE.getEditJournal();
+                journal.beginStep();
                 try {
                     for (Geometry geometry : geomsList) {
-                        editLayer.addNewFeatureByGeometry(geometry, LibraryConstants.SRID_WGS84_4326);
-                    }
-                    GPDialogs.toast(commitButton.getContext(), commitButton.getContext().getString(R.string.geometry_saved), Toast.LENGTH_SHORT);
-                    coordinatesList.clear();
-
-                    /*
-                     * TODO open the table view to insert data
-                     */
-
-                } catch (Exception e) {
-                    if (e.getMessage().contains("UNIQUE constraint failed")) { //NON-NLS
-                        GPDialogs.warningDialog(commitButton.getContext(), commitButton.getContext().getString(R.string.unique_constraint_violation_message), null);
-                        coordinatesList.clear();
-                        this.polygonGeometry = null;
-                    } else {
-                        GPLog.error(this, null, e);
+                        journal.addFeature(geometry);
                     }
+                } finally {
+                    journal.endStep();
                 }
+                GPDialogs.toast(commitButton.getContext(), commitButton.getContext().getString(R.string.geometry_added), Toast.LENGTH_SHORT);
+                coordinatesList.clear();
+
+                /*
+                 * TODO open the table view to insert data
+                 */
+
             }
         } else if (v == undoButton) {
             if (coordinatesList.size() == 0) {
@@ -352,6 +383,12 @@ public class PolygonCreateFeatureToolGroup implements ToolGroup, OnClickListener
                 addVertexByTapButton.setBackground(Compat.getDrawable(context,
                         R.drawable.ic_editing_add_vertex_tap_24dp));
             }
+        if (snapButton != null)
+            if (SnappingEngine.INSTANCE.isEnabled()) {
+                snapButton.setBackground(Compat.getDrawable(context, R.drawable.ic_editing_snap_active_24dp));
+            } else {
+                snapButton.setBackground(Compat.getDrawable(context, R.drawable.ic_editing_snap_24dp));
+            }
 
     }
 
@@ -421,6 +458,14 @@ public class PolygonCreateFeatureToolGroup implements ToolGroup, OnClickListener
                 canvas.drawCircle(vertexPoint.x, vertexPoint.y, 10f, createdGeometryPaintStroke);
             }
 
+            if (tapCoordinate != null) {
+                pointTransformer.transform(tapCoordinate, vertexPoint);
+                canvas.drawCircle(vertexPoint.x, vertexPoint.y, 10f, createdGeometryPaintHaloStroke);
+                if (tapCoordinateSnapped) {
+                    canvas.drawCircle(vertexPoint.x, vertexPoint.y, 20f, snapPaintStroke);
+                }
+            }
+
         } catch (Exception e) {
             GPLog.error(this, null, e);
         }
@@ -432,13 +477,20 @@ public class PolygonCreateFeatureToolGroup implements ToolGroup, OnClickListener
                 return false;
             }
 
-            float currentX = event.getX();
-            float currentY = event.getY();
+            int currentX = round(event.getX());
+            int currentY = round(event.getY());
 
             int action = event.getAction();
-            if (action == MotionEvent.ACTION_DOWN) {
-                Coordinate coordinate = editingViewProjection.fromPixels(round(currentX), round(currentY));
-                addVertex(mapView.getContext(), coordinate);
+            if (action == MotionEvent.ACTION_DOWN || action == MotionEvent.ACTION_MOVE) {
+                // the vertex follows the finger, snapped if something is near
+                Coordinate snapped = SnappingEngine.INSTANCE.snap(editingViewProjection, currentX, currentY);
+                tapCoordinateSnapped = snapped != null;
+                tapCoordinate = tapCoordinateSnapped ? snapped : editingViewProjection.fromPixels(currentX, currentY);
+                EditManager.INSTANCE.invalidateEditingView();
+                return true;
+            } else if (action == MotionEvent.ACTION_UP && tapCoordinate != null) {
+                addVertex(mapView.getContext(), tapCoordinate);
+                tapCoordinate = null;
                 if (coordinatesList.size() > 2) {
                     commitButton.setVisibility(View.VISIBLE);
                 } else {
@@ -451,6 +503,22 @@ public class PolygonCreateFeatureToolGroup implements ToolGroup, OnClickListener
         return false;
     }
 
+    private void selectSnapTargets(Context context) {
+        List<IEditableLayer> editableLayers = LayerManager.INSTANCE.getEditableLayers(mapView);
+        if (editableLayers.isEmpty()) {
+            return;
+        }
+        String[] names = new String[editableLayers.size()];
+        boolean[] checked = new boolean[editableLayers.size()];
+        for (int i = 0; i < names.length; i++) {
+            IEditableLayer layer = editableLayers.get(i);
+            names[i] = layer.getName();
+            checked[i] = SnappingEngine.INSTANCE.isSnapTarget(layer);
+        }
+        GPDialogs.multiOptionDialog(context, context.getString(R.string.snapping_targets), names, checked,
+                () -> SnappingEngine.INSTANCE.setSnapTargets(editableLayers, checked));
+    }
+
     public void onGpsUpdate(double lon, double lat) {
         lastKnownGpsCoordinate = new Coordinate(lon, lat);
         if (gpsStreamActive) {
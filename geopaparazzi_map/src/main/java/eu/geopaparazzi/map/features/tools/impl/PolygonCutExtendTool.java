@@ -35,6 +35,7 @@ import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import eu.geopaparazzi.library.database.GPLog;
@@ -47,6 +48,7 @@ import eu.geopaparazzi.map.GPMapView;
 import eu.geopaparazzi.map.R;
 import eu.geopaparazzi.map.features.Feature;
 import eu.geopaparazzi.map.features.FeatureUtilities;
+import eu.geopaparazzi.map.features.GeometryOperations;
 import eu.geopaparazzi.map.features.editing.EditManager;
 import eu.geopaparazzi.map.features.tools.MapTool;
 import eu.geopaparazzi.map.features.tools.interfaces.ToolGroup;
@@ -56,6 +58,7 @@ import eu.geopaparazzi.map.jts.android.ShapeWriter;
 import eu.geopaparazzi.map.layers.ELayerTypes;
 import eu.geopaparazzi.map.layers.interfaces.IEditableLayer;
 import eu.geopaparazzi.map.layers.interfaces.IVectorDbLayer;
+import eu.geopaparazzi.map.layers.utils.ReprojectionHandler;
 import eu.geopaparazzi.map.layers.utils.SpatialiteConnectionsHandler;
 import eu.geopaparazzi.map.proj.OverlayViewProjection;
 
@@ -281,30 +284,27 @@ public class PolygonCutExtendTool extends MapTool {
                             ASpatialDb db = SpatialiteConnectionsHandler.INSTANCE.getDb(vectorDbLayer.getDbPath());
                             int mapSrid = LibraryConstants.SRID_WGS84_4326;
                             GeometryColumn gcol = db.getGeometryColumnsForTable(vectorDbLayer.getName());
-                            env = db.reproject(env, mapSrid, gcol.srid);
+                            env = ReprojectionHandler.INSTANCE.reproject(db, env, mapSrid, gcol.srid);
                         }
                     }
 
-                    List<Feature> features = editLayer.getFeatures(env);
-                    Geometry startGeometry = null;
-                    Geometry endGeometry = null;
-                    for (Feature feature : features) {
-                        if (startGeometry != null && endGeometry != null) break;
-                        Geometry geometry = feature.getDefaultGeometry();
-                        if (startGeometry == null && geometry != null && geometry.intersects(startPoint)) {
-                            startGeometry = geometry;
-                            startFeature = feature;
-                        } else if (endGeometry == null && geometry != null && geometry.intersects(endPoint)) {
-                            endGeometry = geometry;
-                            endFeature = feature;
-                        }
+                    // as they are in the editing session
+                    List<Feature> features = EditManager.INSTANCE.getEditJournal().applyTo(editLayer.getFeatures(env));
+                    startFeature = GeometryOperations.INSTANCE.findFirstIntersecting(features, startPoint);
+                    endFeature = null;
+                    if (startFeature != null) {
+                        List<Feature> endCandidates = new ArrayList<>(features);
+                        endCandidates.remove(startFeature);
+                        endFeature = GeometryOperations.INSTANCE.findFirstIntersecting(endCandidates, endPoint);
                     }
+                    Geometry startGeometry = startFeature != null ? startFeature.getDefaultGeometry() : null;
+                    Geometry endGeometry = endFeature != null ? endFeature.getDefaultGeometry() : null;
 
                     if (startGeometry != null && endGeometry != null) {
                         if (!doCut) {
-                            previewGeometry = startGeometry.union(endGeometry);
+                            previewGeometry = GeometryOperations.INSTANCE.union(startGeometry, endGeometry);
                         } else {
-                            previewGeometry = startGeometry.difference(endGeometry);
+                            previewGeometry = GeometryOperations.INSTANCE.difference(startGeometry, endGeometry);
                         }
                         return "";
                     } else {
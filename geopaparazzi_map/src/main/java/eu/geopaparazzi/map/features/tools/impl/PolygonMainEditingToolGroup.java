@@ -33,16 +33,17 @@ import android.widget.LinearLayout;
 import org.hortonmachine.dbs.datatypes.EGeometryType;
 import org.locationtech.jts.geom.Geometry;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 
 import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.util.Compat;
 import eu.geopaparazzi.library.util.GPDialogs;
-import eu.geopaparazzi.library.util.LibraryConstants;
 import eu.geopaparazzi.map.GPMapView;
 import eu.geopaparazzi.map.R;
 import eu.geopaparazzi.map.features.Feature;
+import eu.geopaparazzi.map.features.editing.EditJournal;
 import eu.geopaparazzi.map.features.editing.EditManager;
 import eu.geopaparazzi.map.features.tools.interfaces.Tool;
 import eu.geopaparazzi.map.features.tools.interfaces.ToolGroup;
@@ -67,6 +68,7 @@ public class PolygonMainEditingToolGroup implements ToolGroup, OnClickListener,
     private ImageButton commitButton;
 
     private ImageButton undoButton;
+    private ImageButton redoButton;
     private Feature cutExtendProcessedFeature;
     private Feature cutExtendFeatureToRemove;
 
@@ -153,6 +155,15 @@ public class PolygonMainEditingToolGroup implements ToolGroup, OnClickListener,
             parent.addView(undoButton);
             undoButton.setVisibility(View.GONE);
 
+            redoButton = new ImageButton(context);
+            redoButton.setLayoutParams(new LinearLayout.LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT));
+            redoButton.setBackground(Compat.getDrawable(context, R.drawable.ic_editing_redo_24dp));
+            redoButton.setPadding(0, padding, 0, padding);
+            redoButton.setOnTouchListener(this);
+            redoButton.setOnClickListener(this);
+            parent.addView(redoButton);
+            redoButton.setVisibility(View.GONE);
+
             commitButton = new ImageButton(context);
             commitButton.setLayoutParams(new LinearLayout.LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT));
             commitButton.setBackground(Compat.getDrawable(context, R.drawable.ic_editing_commit_24dp));
@@ -161,6 +172,7 @@ public class PolygonMainEditingToolGroup implements ToolGroup, OnClickListener,
             commitButton.setOnClickListener(this);
             parent.addView(commitButton);
             commitButton.setVisibility(View.GONE);
+            updateSessionButtons();
         }
     }
 
@@ -227,46 +239,83 @@ public class PolygonMainEditingToolGroup implements ToolGroup, OnClickListener,
                 EditManager.INSTANCE.setActiveTool(activeTool);
             }
         } else if (v == commitButton) {
+            Context context = v.getContext();
             if (cutExtendProcessedFeature != null && cutExtendFeatureToRemove != null) {
-                // substitute the feature's geometry in the db
-                try {
-                    IEditableLayer editLayer = EditManager.INSTANCE.getEditLayer();
-                    EGeometryType geometryType = editLayer.getGeometryType();
-
-                    Geometry newGeom = cutExtendProcessedFeature.getDefaultGeometry();
-
-                    Context context = v.getContext();
-                    if (geometryType.toSpatialiteGeometryType().isGeometryCompatible(newGeom)) {
-                        editLayer.updateFeatureGeometry(cutExtendProcessedFeature, newGeom, LibraryConstants.SRID_WGS84_4326);
-
-                        editLayer.deleteFeatures(Collections.singletonList(cutExtendFeatureToRemove));
-                        // reset layer
-                        editLayer.reloadData();
-                    } else {
-                        GPDialogs.warningDialog(context, context.getString(R.string.geom_incompatible_with_layer), null);
-                        return;
+                // substitute the feature's geometry in the session
+                IEditableLayer editLayer = EditManager.INSTANCE.getEditLayer();
+                EGeometryType geometryType = editLayer.getGeometryType();
+
+                Geometry newGeom = cutExtendProcessedFeature.getDefaultGeometry();
+
+                if (geometryType.toSpatialiteGeometryType().isGeometryCompatible(newGeom)) {
+                    // update and remove in one step
+                    EditJournal journal = EditManager.INSTANCE.getEditJournal();
+                    journal.beginStep();
+                    try {
+                        journal.updateGeometry(cutExtendProcessedFeature, newGeom);
+                        journal.deleteFeatures(Collections.singletonList(cutExtendFeatureToRemove));
+                    } finally {
+                        journal.endStep();
                     }
-
-                    EditManager.INSTANCE.setActiveTool(null);
-                    commitButton.setVisibility(View.GONE);
-                    undoButton.setVisibility(View.GONE);
-                    EditManager.INSTANCE.invalidateEditingView();
-                } catch (Exception e) {
-                    GPLog.error(this, null, e); //$NON-NLS-1$
+                } else {
+                    GPDialogs.warningDialog(context, context.getString(R.string.geom_incompatible_with_layer), null);
+                    return;
                 }
+
+                EditManager.INSTANCE.setActiveTool(null);
+                cutExtendProcessedFeature = null;
+                cutExtendFeatureToRemove = null;
+                EditManager.INSTANCE.invalidateEditingView();
+                updateSessionButtons();
+            } else {
+                EditManager.INSTANCE.commitEditJournal(context, true, this::updateSessionButtons);
             }
         } else if (v == undoButton) {
             if (cutExtendProcessedFeature != null) {
                 EditManager.INSTANCE.setActiveTool(null);
-                commitButton.setVisibility(View.GONE);
-                undoButton.setVisibility(View.GONE);
+                cutExtendProcessedFeature = null;
+                cutExtendFeatureToRemove = null;
                 EditManager.INSTANCE.invalidateEditingView();
+            } else {
+                try {
+                    EditManager.INSTANCE.getEditJournal().undo();
+                } catch (IOException e) {
+                    GPLog.error(this, null, e);
+                }
             }
+            updateSessionButtons();
+        } else if (v == redoButton) {
+            try {
+                EditManager.INSTANCE.getEditJournal().redo();
+            } catch (IOException e) {
+                GPLog.error(this, null, e);
+            }
+            updateSessionButtons();
         }
 
         handleToolIcons(v);
     }
 
+    /**
+     * Show the undo, redo and commit buttons of the editing session when they apply.
+     *
+     * <p>While a cut or extend is previewed, undo and commit apply to it.</p>
+     */
+    private void updateSessionButtons() {
+        EditJournal journal = EditManager.INSTANCE.getEditJournal();
+        if (journal == null || undoButton == null)
+            return;
+        if (cutExtendProcessedFeature != null) {
+            undoButton.setVisibility(View.VISIBLE);
+            redoButton.setVisibility(View.GONE);
+            commitButton.setVisibility(View.VISIBLE);
+            return;
+        }
+        undoButton.setVisibility(journal.canUndo() ? View.VISIBLE : View.GONE);
+        redoButton.setVisibility(journal.canRedo() ? View.VISIBLE : View.GONE);
+        commitButton.setVisibility(journal.hasChanges() ? View.VISIBLE : View.GONE);
+    }
+
     @SuppressWarnings("deprecation")
     private void handleToolIcons(View activeToolButton) {
         Context context = activeToolButton.getContext();
@@ -328,8 +377,7 @@ public class PolygonMainEditingToolGroup implements ToolGroup, OnClickListener,
             cutExtendProcessedFeature = processedFeatures[0];
             cutExtendFeatureToRemove = processedFeatures[1];
 
-            commitButton.setVisibility(View.VISIBLE);
-            undoButton.setVisibility(View.VISIBLE);
+            updateSessionButtons();
         }
         // if (activeTool == null) {
         // return;
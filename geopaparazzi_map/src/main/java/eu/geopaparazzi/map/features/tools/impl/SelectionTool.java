@@ -23,34 +23,31 @@ import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.Point;
 import android.graphics.Rect;
-import android.os.AsyncTask;
 import android.view.MotionEvent;
 import android.widget.Toast;
 
-import org.hortonmachine.dbs.compat.ASpatialDb;
-import org.hortonmachine.dbs.compat.GeometryColumn;
 import org.hortonmachine.dbs.datatypes.EGeometryType;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.style.ColorUtilities;
 import eu.geopaparazzi.library.style.ToolColors;
 import eu.geopaparazzi.library.util.GPDialogs;
-import eu.geopaparazzi.library.util.LibraryConstants;
 import eu.geopaparazzi.map.GPMapView;
 import eu.geopaparazzi.map.R;
 import eu.geopaparazzi.map.features.Feature;
+import eu.geopaparazzi.map.features.HitTestExecutor;
 import eu.geopaparazzi.map.features.editing.EditManager;
 import eu.geopaparazzi.map.features.tools.MapTool;
 import eu.geopaparazzi.map.layers.ELayerTypes;
 import eu.geopaparazzi.map.layers.interfaces.IEditableLayer;
 import eu.geopaparazzi.map.layers.interfaces.IVectorDbLayer;
-import eu.geopaparazzi.map.layers.utils.SpatialiteConnectionsHandler;
 import eu.geopaparazzi.map.proj.OverlayViewProjection;
 
 import static java.lang.Math.abs;
@@ -127,6 +124,8 @@ public class SelectionTool extends MapTool {
         int action = event.getAction();
         switch (action) {
             case MotionEvent.ACTION_DOWN:
+                // a new selection area replaces the running one
+                HitTestExecutor.INSTANCE.cancel();
                 Coordinate startGeoPoint = pj.fromPixels(round(currentX), round(currentY));
                 pj.toPixels(startGeoPoint, startP);
 
@@ -170,6 +169,7 @@ public class SelectionTool extends MapTool {
     }
 
     public void disable() {
+        HitTestExecutor.INSTANCE.cancel();
         if (mapView != null) {
             mapView.setClickable(true);
             mapView = null;
@@ -179,117 +179,84 @@ public class SelectionTool extends MapTool {
     private void select(final double n, final double w, final double s, final double e) {
 
         IEditableLayer editLayer = EditManager.INSTANCE.getEditLayer();
+        if (!(editLayer instanceof IVectorDbLayer)) {
+            return;
+        }
 
         final Context context = EditManager.INSTANCE.getEditingView().getContext();
         infoProgressDialog = new ProgressDialog(context);
-        infoProgressDialog.setCancelable(true);
         infoProgressDialog.setTitle(context.getString(R.string.select_title));
         infoProgressDialog.setMessage(context.getString(R.string.selecting_features));
-        infoProgressDialog.setCancelable(false);
+        infoProgressDialog.setCancelable(true);
+        infoProgressDialog.setOnCancelListener(dialog -> HitTestExecutor.INSTANCE.cancel());
         infoProgressDialog.setProgressStyle(ProgressDialog.STYLE_SPINNER);
         infoProgressDialog.setIndeterminate(true);
         infoProgressDialog.show();
 
-        // TODO fix this asynctask
-        new AsyncTask<String, Integer, String>() {
-            private List<Feature> features = new ArrayList<>();
-
-            protected String doInBackground(String... params) {
-                try {
-                    features.clear();
-                    double south = s;
-                    if (n - s == 0) {
-                        south = n - 1;
-                    }
-                    double west = w;
-                    if (e - w == 0) {
-                        west = e - 1;
-                    }
-
-                    Envelope env = new Envelope(west, e, south, n);
-
-                    if (editLayer instanceof IVectorDbLayer) {
-                        IVectorDbLayer vectorDbLayer = (IVectorDbLayer) editLayer;
-                        ELayerTypes layerType = ELayerTypes.fromFileExt(vectorDbLayer.getDbPath());
-                        if (layerType == ELayerTypes.SPATIALITE) {
-                            ASpatialDb db = SpatialiteConnectionsHandler.INSTANCE.getDb(vectorDbLayer.getDbPath());
-                            int mapSrid = LibraryConstants.SRID_WGS84_4326;
-                            GeometryColumn gcol = db.getGeometryColumnsForTable(vectorDbLayer.getName());
-                            Envelope repEnv = db.reproject(env, mapSrid, gcol.srid);
-                            this.features = vectorDbLayer.getFeatures(repEnv);
-                        } else if (layerType == ELayerTypes.GEOPACKAGE) {
-                            this.features = vectorDbLayer.getFeatures(env);
-                        }
-
-                    }
-
-                    return "";
-                } catch (Exception e) {
-                    GPLog.error(this, null, e); //$NON-NLS-1$
-                    return "ERROR: " + e.getLocalizedMessage();//NON-NLS
-                }
-
-            }
+        double south = s;
+        if (n - s == 0) {
+            south = n - 1;
+        }
+        double west = w;
+        if (e - w == 0) {
+            west = e - 1;
+        }
+        Envelope env = new Envelope(west, e, south, n);
 
-            protected void onProgressUpdate(Integer... progress) { // on UI thread!
-                if (infoProgressDialog != null && infoProgressDialog.isShowing())
-                    infoProgressDialog.incrementProgressBy(progress[0]);
+        IVectorDbLayer vectorDbLayer = (IVectorDbLayer) editLayer;
+        HitTestExecutor.INSTANCE.submit(Collections.singletonList(vectorDbLayer), env, new HitTestExecutor.HitTestListener() {
+            @Override
+            public void onFeatures(HitTestExecutor.HitTest hitTest, List<Feature> features) {
+                // wait for the whole selection
             }
 
-            protected void onPostExecute(String response) { // on UI thread!
+            @Override
+            public void onFinished(HitTestExecutor.HitTest hitTest) {
                 GPDialogs.dismissProgressDialog(infoProgressDialog);
-                if (response.startsWith("ERROR")) {//NON-NLS
-                    GPDialogs.warningDialog(context, response, null);
-                } else if (response.startsWith("CANCEL")) {//NON-NLS
-                } else {
-                    if (features.size() > 0) {
-                        try {
-                            int geomsCount = 0;
-                            EGeometryType geometryType = null;
-                            for (Feature feature : features) {
-                                Geometry geometry = feature.getDefaultGeometry();
-                                if (geometry != null) {
-                                    geomsCount = geomsCount + geometry.getNumGeometries();
-                                    if (geometryType == null)
-                                        geometryType = EGeometryType.forGeometry(geometry);
-                                }
+                // as they are in the editing session
+                List<Feature> features = EditManager.INSTANCE.getEditJournal().applyTo(new ArrayList<>(hitTest.getFeatures()));
+                if (features.size() > 0) {
+                    try {
+                        int geomsCount = 0;
+                        EGeometryType geometryType = null;
+                        for (Feature feature : features) {
+                            Geometry geometry = feature.getDefaultGeometry();
+                            if (geometry != null) {
+                                geomsCount = geomsCount + geometry.getNumGeometries();
+                                if (geometryType == null)
+                                    geometryType = EGeometryType.forGeometry(geometry);
                             }
-                            if (editLayer instanceof IVectorDbLayer) {
-                                IVectorDbLayer vectorDbLayer = (IVectorDbLayer) editLayer;
-                                ELayerTypes layerType = ELayerTypes.fromFileExt(vectorDbLayer.getDbPath());
-                                if (layerType == ELayerTypes.GEOPACKAGE) {
-                                    GPDialogs.toast(context, String.format(context.getString(R.string.selected_features_in_layer), features.size(), geomsCount), Toast.LENGTH_SHORT);
-                                    AlphanumericOnSelectionToolGroup selectionGroup = new AlphanumericOnSelectionToolGroup(mapView, features);
-                                    EditManager.INSTANCE.setActiveToolGroup(selectionGroup);
-                                }
-
-                            } else if (geometryType.isPolygon()) {
+                        }
+                        if (editLayer instanceof IVectorDbLayer) {
+                            ELayerTypes layerType = ELayerTypes.fromFileExt(vectorDbLayer.getDbPath());
+                            if (layerType == ELayerTypes.GEOPACKAGE) {
                                 GPDialogs.toast(context, String.format(context.getString(R.string.selected_features_in_layer), features.size(), geomsCount), Toast.LENGTH_SHORT);
-                                PolygonOnSelectionToolGroup selectionGroup = new PolygonOnSelectionToolGroup(mapView, features);
-                                EditManager.INSTANCE.setActiveToolGroup(selectionGroup);
-                            } else if (geometryType.isLine()) {
-                                GPDialogs.toast(context, String.format(context.getString(R.string.selected_line_features_in_layer), features.size(), geomsCount), Toast.LENGTH_SHORT);
-                                LineOnSelectionToolGroup selectionGroup = new LineOnSelectionToolGroup(mapView, features);
-                                EditManager.INSTANCE.setActiveToolGroup(selectionGroup);
-                            } else if (geometryType.isPoint()) {
-                                GPDialogs.toast(context, String.format(context.getString(R.string.selected_point_features_in_layer), features.size(), geomsCount), Toast.LENGTH_SHORT);
-                                PointOnSelectionToolGroup selectionGroup = new PointOnSelectionToolGroup(mapView, features);
+                                AlphanumericOnSelectionToolGroup selectionGroup = new AlphanumericOnSelectionToolGroup(mapView, features);
                                 EditManager.INSTANCE.setActiveToolGroup(selectionGroup);
                             }
-                        } catch (Exception e) {
-                            GPLog.error(this, null, e); //$NON-NLS-1$
-                        }
 
-                    } else {
-                        rect.setEmpty();
-                        EditManager.INSTANCE.invalidateEditingView();
+                        } else if (geometryType.isPolygon()) {
+                            GPDialogs.toast(context, String.format(context.getString(R.string.selected_features_in_layer), features.size(), geomsCount), Toast.LENGTH_SHORT);
+                            PolygonOnSelectionToolGroup selectionGroup = new PolygonOnSelectionToolGroup(mapView, features);
+                            EditManager.INSTANCE.setActiveToolGroup(selectionGroup);
+                        } else if (geometryType.isLine()) {
+                            GPDialogs.toast(context, String.format(context.getString(R.string.selected_line_features_in_layer), features.size(), geomsCount), Toast.LENGTH_SHORT);
+                            LineOnSelectionToolGroup selectionGroup = new LineOnSelectionToolGroup(mapView, features);
+                            EditManager.INSTANCE.setActiveToolGroup(selectionGroup);
+                        } else if (geometryType.isPoint()) {
+                            GPDialogs.toast(context, String.format(context.getString(R.string.selected_point_features_in_layer), features.size(), geomsCount), Toast.LENGTH_SHORT);
+                            PointOnSelectionToolGroup selectionGroup = new PointOnSelectionToolGroup(mapView, features);
+                            EditManager.INSTANCE.setActiveToolGroup(selectionGroup);
+                        }
+                    } catch (Exception e) {
+                        GPLog.error(this, null, e); //$NON-NLS-1$
                     }
-
+                } else {
+                    rect.setEmpty();
+                    EditManager.INSTANCE.invalidateEditingView();
                 }
             }
-
-        }.execute((String) null);
-
+        });
     }
 
     @Override
@@ -51,8 +51,10 @@ import eu.geopaparazzi.library.util.LibraryConstants;
 import eu.geopaparazzi.library.util.TimeUtilities;
 import eu.geopaparazzi.map.R;
 import eu.geopaparazzi.map.features.Feature;
+import eu.geopaparazzi.map.features.HitTestExecutor;
 import eu.geopaparazzi.map.layers.ELayerTypes;
 import eu.geopaparazzi.map.layers.utils.GeopackageConnectionsHandler;
+import eu.geopaparazzi.map.layers.utils.ReprojectionHandler;
 import eu.geopaparazzi.map.layers.utils.SpatialiteConnectionsHandler;
 
 /**
@@ -101,10 +103,7 @@ public class FeaturePageAdapter extends PagerAdapter {
     public Object instantiateItem(ViewGroup container, int position) {
         final Feature feature = featuresList.get(position);
 
-        int pkIndex = feature.getIdIndex();
-
         int bgColor = Compat.getColor(context, eu.geopaparazzi.library.R.color.formbgcolor);
-        int textColor = Compat.getColor(context, eu.geopaparazzi.library.R.color.formcolor);
 
         ScrollView scrollView = new ScrollView(context);
         ScrollView.LayoutParams scrollLayoutParams = new ScrollView.LayoutParams(LayoutParams.MATCH_PARENT,
@@ -124,6 +123,31 @@ public class FeaturePageAdapter extends PagerAdapter {
         linearLayoutView.setPadding(padding, padding, padding, padding);
         scrollView.addView(linearLayoutView);
 
+        if (feature.isAttributesLoaded()) {
+            addAttributeViews(feature, linearLayoutView);
+        } else {
+            // features from the hit tests only carry id and geometry
+            TextView loadingView = new TextView(context);
+            loadingView.setPadding(padding, padding, padding, padding);
+            loadingView.setText(R.string.loading_attributes);
+            loadingView.setTextColor(Compat.getColor(context, eu.geopaparazzi.library.R.color.formcolor));
+            linearLayoutView.addView(loadingView);
+            HitTestExecutor.INSTANCE.loadAttributes(feature, () -> {
+                linearLayoutView.removeAllViews();
+                addAttributeViews(feature, linearLayoutView);
+            });
+        }
+        container.addView(scrollView);
+
+        return scrollView;
+    }
+
+    private void addAttributeViews(Feature feature, LinearLayout linearLayoutView) {
+        int pkIndex = feature.getIdIndex();
+        int textColor = Compat.getColor(context, eu.geopaparazzi.library.R.color.formcolor);
+        int margin = 10;
+        int padding = 10;
+
         List<String> attributeNames = feature.getAttributeNames();
         List<Object> attributeValues = feature.getAttributeValues();
         List<String> attributeTypes = feature.getAttributeTypes();
@@ -190,7 +214,7 @@ public class FeaturePageAdapter extends PagerAdapter {
                 GeometryColumn gcol = db.getGeometryColumnsForTable(feature.getTableName());
                 Geometry reprojected=defaultGeometry;
                 try {
-                    reprojected = db.reproject(defaultGeometry, LibraryConstants.SRID_WGS84_4326, gcol.srid);
+                    reprojected = ReprojectionHandler.INSTANCE.reproject(db, defaultGeometry, LibraryConstants.SRID_WGS84_4326, gcol.srid);
                 }catch (Exception e){
                     // ignore, if the format doesn't support it, it needs to be 4326
                 }
@@ -213,9 +237,6 @@ public class FeaturePageAdapter extends PagerAdapter {
                 e.printStackTrace();
             }
         }
-        container.addView(scrollView);
-
-        return scrollView;
     }
 
     @Override
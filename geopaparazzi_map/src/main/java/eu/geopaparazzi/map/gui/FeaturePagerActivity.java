@@ -36,6 +36,9 @@ import org.locationtech.jts.geom.Geometry;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.util.GPDialogs;
@@ -44,7 +47,10 @@ import eu.geopaparazzi.library.util.StringAsyncTask;
 import eu.geopaparazzi.map.MapsSupportService;
 import eu.geopaparazzi.map.R;
 import eu.geopaparazzi.map.features.Feature;
+import eu.geopaparazzi.map.features.FeatureSessionStore;
 import eu.geopaparazzi.map.features.FeatureUtilities;
+import eu.geopaparazzi.map.features.HitTestExecutor;
+import eu.geopaparazzi.map.features.editing.EditBatch;
 import eu.geopaparazzi.map.features.editing.EditManager;
 import eu.geopaparazzi.map.features.tools.impl.LineOnSelectionToolGroup;
 import eu.geopaparazzi.map.features.tools.impl.PointOnSelectionToolGroup;
@@ -53,7 +59,6 @@ import eu.geopaparazzi.map.features.tools.interfaces.ToolGroup;
 import eu.geopaparazzi.map.layers.ELayerTypes;
 import eu.geopaparazzi.map.layers.utils.GeopackageConnectionsHandler;
 import eu.geopaparazzi.map.layers.utils.SpatialiteConnectionsHandler;
-import eu.geopaparazzi.map.layers.utils.SpatialiteUtilities;
 
 /**
  * The activity to page features.
@@ -61,7 +66,7 @@ import eu.geopaparazzi.map.layers.utils.SpatialiteUtilities;
  * @author Andrea Antonello (www.hydrologis.com)
  */
 @SuppressWarnings("ALL")
-public class FeaturePagerActivity extends AppCompatActivity implements OnPageChangeListener {
+public class FeaturePagerActivity extends AppCompatActivity implements OnPageChangeListener, HitTestExecutor.HitTestListener {
 
     private TextView tableNameView;
     private TextView featureCounterView;
@@ -73,6 +78,10 @@ public class FeaturePagerActivity extends AppCompatActivity implements OnPageCha
     public final static String DBPATH_EXTRA_MESSAGE = "eu.hydrologis.geopaparazzi.maptools.DBPATH";
     public final static String ROWID_EXTRA_MESSAGE = "eu.hydrologis.geopaparazzi.maptools.ROWID";
     private StringAsyncTask saveDataTask;
+    private StringAsyncTask reloadTask;
+    private HitTestExecutor.HitTest hitTest;
+    private PagerAdapter featureAdapter;
+    private int selectedIndex;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -84,11 +93,36 @@ public class FeaturePagerActivity extends AppCompatActivity implements OnPageCha
         getSupportActionBar().setDisplayHomeAsUpEnabled(true);
 
         Bundle extras = getIntent().getExtras();
-        featuresList = extras.getParcelableArrayList(FeatureUtilities.KEY_FEATURESLIST);
         isReadOnly = extras.getBoolean(FeatureUtilities.KEY_READONLY);
+        if (extras.containsKey(FeatureUtilities.KEY_HITTEST_ID)) {
+            // the features keep arriving while the hit test runs
+            hitTest = HitTestExecutor.INSTANCE.getHitTest(extras.getInt(FeatureUtilities.KEY_HITTEST_ID));
+            if (hitTest == null || hitTest.getFeatures().isEmpty()) {
+                finish();
+                return;
+            }
+            featuresList = new ArrayList<>(hitTest.getFeatures());
+            hitTest.addListener(this);
+        } else if (FeatureSessionStore.INSTANCE.hasFeatures(extras)) {
+            featuresList = FeatureSessionStore.INSTANCE.getFeatures(extras);
+            if (featuresList == null) {
+                // the process has been restarted, read them again
+                reloadFeatures(extras);
+                return;
+            }
+        } else {
+            featuresList = extras.getParcelableArrayList(FeatureUtilities.KEY_FEATURESLIST);
+        }
+        if (featuresList == null || featuresList.isEmpty()) {
+            finish();
+            return;
+        }
+        setupPager();
+    }
 
+    private void setupPager() {
         selectedFeature = featuresList.get(0);
-        PagerAdapter featureAdapter = new FeaturePageAdapter(this, featuresList, isReadOnly, getSupportFragmentManager());
+        featureAdapter = new FeaturePageAdapter(this, featuresList, isReadOnly, getSupportFragmentManager());
 
         ViewPager featuresPager = findViewById(R.id.featurePager);
         // ViewPager viewPager = new ViewPager(this);
@@ -104,6 +138,34 @@ public class FeaturePagerActivity extends AppCompatActivity implements OnPageCha
         onPageSelected(0);
     }
 
+    private void reloadFeatures(Bundle extras) {
+        reloadTask = new StringAsyncTask(this) {
+            private ArrayList<Feature> reloaded;
+
+            @Override
+            protected String doBackgroundWork() {
+                try {
+                    reloaded = FeatureSessionStore.INSTANCE.reloadFeatures(extras);
+                } catch (Exception e) {
+                    GPLog.error(this, null, e);
+                }
+                return "";
+            }
+
+            @Override
+            protected void doUiPostWork(String response) {
+                if (reloaded == null || reloaded.isEmpty()) {
+                    finish();
+                    return;
+                }
+                featuresList = reloaded;
+                setupPager();
+            }
+        };
+        reloadTask.setProgressDialog(null, getString(R.string.extracting_info), false, null);
+        reloadTask.execute();
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         if (isReadOnly) {
@@ -116,6 +178,9 @@ public class FeaturePagerActivity extends AppCompatActivity implements OnPageCha
 
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
+        if (featuresList == null) {
+            return super.onOptionsItemSelected(item);
+        }
         if (item.getItemId() == R.id.action_goto) {
             gotoFeature();
         } else if (item.getItemId() == R.id.action_image_browser) {
@@ -157,8 +222,7 @@ public class FeaturePagerActivity extends AppCompatActivity implements OnPageCha
                         GPDialogs.errorDialog(FeaturePagerActivity.this, ex, null);
                     }
                     Intent result = new Intent();
-                    result.putParcelableArrayListExtra(FeatureUtilities.KEY_FEATURESLIST,
-                            featuresList);
+                    FeatureSessionStore.INSTANCE.putFeatures(result, featuresList);
                     FeaturePagerActivity.this.setResult(RESULT_OK, result);
                     finish();
                 }
@@ -173,23 +237,48 @@ public class FeaturePagerActivity extends AppCompatActivity implements OnPageCha
     @Override
     protected void onDestroy() {
         if (saveDataTask != null) saveDataTask.dispose();
+        if (reloadTask != null) reloadTask.dispose();
+        if (isFinishing()) FeatureSessionStore.INSTANCE.release(getIntent().getExtras());
+        if (hitTest != null) hitTest.removeListener(this);
         super.onDestroy();
     }
 
+    @Override
+    public void onFeatures(HitTestExecutor.HitTest hitTest, List<Feature> features) {
+        featuresList.addAll(features);
+        featureAdapter.notifyDataSetChanged();
+        featureCounterView.setText((selectedIndex + 1) + "/" + featuresList.size());
+    }
+
+    @Override
+    public void onFinished(HitTestExecutor.HitTest hitTest) {
+        hitTest.removeListener(this);
+    }
+
     private void saveData() throws java.lang.Exception {
+        // one transaction per database
+        Map<String, EditBatch> dbPath2Batch = new LinkedHashMap<>();
         for (Feature feature : featuresList) {
             if (feature.isDirty()) {
                 String databasePath = feature.getDatabasePath();
-                ELayerTypes layerType = ELayerTypes.fromFileExt(databasePath);
-                ASpatialDb db = null;
-                if (layerType == ELayerTypes.SPATIALITE) {
-                    db = SpatialiteConnectionsHandler.INSTANCE.getDb(databasePath);
-                } else if (layerType == ELayerTypes.GEOPACKAGE) {
-                    db = GeopackageConnectionsHandler.INSTANCE.getDb(databasePath);
+                EditBatch batch = dbPath2Batch.get(databasePath);
+                if (batch == null) {
+                    ELayerTypes layerType = ELayerTypes.fromFileExt(databasePath);
+                    ASpatialDb db = null;
+                    if (layerType == ELayerTypes.SPATIALITE) {
+                        db = SpatialiteConnectionsHandler.INSTANCE.getDb(databasePath);
+                    } else if (layerType == ELayerTypes.GEOPACKAGE) {
+                        db = GeopackageConnectionsHandler.INSTANCE.getDb(databasePath);
+                    }
+                    batch = new EditBatch(db, null);
+                    dbPath2Batch.put(databasePath, batch);
                 }
-                SpatialiteUtilities.updateFeatureAlphanumericAttributes(db, feature);
+                batch.updateAttributes(feature);
             }
         }
+        for (EditBatch batch : dbPath2Batch.values()) {
+            batch.commit();
+        }
     }
 
 
@@ -233,6 +322,7 @@ public class FeaturePagerActivity extends AppCompatActivity implements OnPageCha
     }
 
     public void onPageSelected(int state) {
+        selectedIndex = state;
         selectedFeature = featuresList.get(state);
         String tableName = selectedFeature.getTableName();
         tableNameView.setText(tableName);
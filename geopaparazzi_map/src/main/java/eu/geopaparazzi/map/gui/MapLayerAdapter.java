@@ -72,6 +72,7 @@ import eu.geopaparazzi.map.layers.utils.ColorStrokeObject;
 import eu.geopaparazzi.map.layers.utils.GeopackageColorStrokeDialogFragment;
 import eu.geopaparazzi.map.layers.utils.GeopackageConnectionsHandler;
 import eu.geopaparazzi.map.layers.utils.GeopackageLabelDialogFragment;
+import eu.geopaparazzi.map.layers.utils.LabelEngine;
 import eu.geopaparazzi.map.layers.utils.SpatialiteColorStrokeDialogFragment;
 import eu.geopaparazzi.map.layers.utils.SpatialiteConnectionsHandler;
 import eu.geopaparazzi.map.layers.utils.SpatialiteLabelDialogFragment;
@@ -94,6 +95,7 @@ class MapLayerAdapter extends DragItemAdapter<MapLayerItem, MapLayerAdapter.View
     private String disableEditing;
     private String setTheme;
     private String labelling;
+    private String labelDensity;
 
 
     MapLayerAdapter(MapLayerListFragment mapLayerListFragment, ArrayList<MapLayerItem> list, int layoutId, int grabHandleId, boolean dragOnLongPress) {
@@ -113,6 +115,7 @@ class MapLayerAdapter extends DragItemAdapter<MapLayerItem, MapLayerAdapter.View
         setTheme = activity.getString(R.string.menu_select_theme);
         zoomTo = activity.getString(R.string.menu_select_zoomto);
         labelling = activity.getString(R.string.menu_select_labelling);
+        labelDensity = activity.getString(R.string.menu_set_label_density);
 
         setItemList(list);
     }
@@ -183,6 +186,7 @@ class MapLayerAdapter extends DragItemAdapter<MapLayerItem, MapLayerAdapter.View
                                         popup.getMenu().add(zoomTo);
                                         popup.getMenu().add(setStyle);
                                         popup.getMenu().add(labelling);
+                                        popup.getMenu().add(labelDensity);
                                         if (selMapLayerItem.isEditing) {
                                             popup.getMenu().add(disableEditing);
                                         } else {
@@ -198,6 +202,7 @@ class MapLayerAdapter extends DragItemAdapter<MapLayerItem, MapLayerAdapter.View
                                     popup.getMenu().add(zoomTo);
                                     popup.getMenu().add(setStyle);
                                     popup.getMenu().add(labelling);
+                                    popup.getMenu().add(labelDensity);
                                     if (selMapLayerItem.isEditing) {
                                         popup.getMenu().add(disableEditing);
                                     } else {
@@ -220,16 +225,7 @@ class MapLayerAdapter extends DragItemAdapter<MapLayerItem, MapLayerAdapter.View
                                     mapLayerListFragment.removeItemAtIndex(0, finalSelIndex);
                                     List<JSONObject> userLayersDefinitions = LayerManager.INSTANCE.getUserLayersDefinitions();
                                     userLayersDefinitions.remove(finalSelIndex);
-
-                                    // if db layers we can release the db if no one uses it
-                                    JSONObject jsonObject = userLayersDefinitions.get(finalSelIndex);
-                                    String tableName = jsonObject.getString(IGpLayer.LAYERNAME_TAG);
-                                    String dbPath = jsonObject.getString(IGpLayer.LAYERPATH_TAG);
-                                    if (layerType == ELayerTypes.SPATIALITE) {
-                                        SpatialiteConnectionsHandler.INSTANCE.disposeTable(dbPath, tableName);
-                                    } else if (layerType == ELayerTypes.GEOPACKAGE) {
-                                        GeopackageConnectionsHandler.INSTANCE.disposeTable(dbPath, tableName);
-                                    }
+                                    // the tables of db layers are released by the layers when disposed
                                     notifyDataSetChanged();
                                 } else if (actionName.equals(toggle3d)) {
                                     List<JSONObject> userLayersDefinitions = LayerManager.INSTANCE.getUserLayersDefinitions();
@@ -493,6 +489,33 @@ class MapLayerAdapter extends DragItemAdapter<MapLayerItem, MapLayerAdapter.View
                                         colorStrokeDialogFragment.show(mapLayerListFragment.getSupportFragmentManager(), "Label Dialog");//NON-NLS
                                     }
 
+                                } else if (actionName.equals(labelDensity)) {
+                                    List<JSONObject> userLayersDefinitions = LayerManager.INSTANCE.getUserLayersDefinitions();
+                                    JSONObject jsonObject = userLayersDefinitions.get(finalSelIndex);
+                                    int def = LabelEngine.DEFAULT_LABEL_DENSITY;
+                                    if (jsonObject.has(IGpLayer.LAYERLABELDENSITY_TAG))
+                                        def = jsonObject.getInt(IGpLayer.LAYERLABELDENSITY_TAG);
+
+                                    int[] densityLevels = LabelEngine.LABEL_DENSITY_LEVELS;
+                                    String unlimited = mapLayerListFragment.getString(R.string.label_density_unlimited);
+                                    String[] densities = new String[densityLevels.length];
+                                    boolean[] selDensities = new boolean[densityLevels.length];
+                                    for (int i = 0; i < densityLevels.length; i++) {
+                                        densities[i] = densityLevels[i] > 0 ? String.valueOf(densityLevels[i]) : unlimited;
+                                        selDensities[i] = def == densityLevels[i];
+                                    }
+                                    GPDialogs.singleOptionDialog(mapLayerListFragment.getActivity(), densities, selDensities, () -> {
+                                        for (int i = 0; i < selDensities.length; i++) {
+                                            if (selDensities[i]) {
+                                                try {
+                                                    jsonObject.put(IGpLayer.LAYERLABELDENSITY_TAG, densityLevels[i]);
+                                                } catch (JSONException e1) {
+                                                    GPLog.error(this, null, e1);
+                                                }
+                                                break;
+                                            }
+                                        }
+                                    });
                                 }
                             } catch (Exception e1) {
                                 GPLog.error(this, null, e1);
@@ -22,6 +22,7 @@ import android.graphics.Point;
 import android.graphics.PointF;
 
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
 
 import eu.geopaparazzi.map.jts.android.PointTransformation;
 import eu.geopaparazzi.map.proj.OverlayViewProjection;
@@ -55,4 +56,9 @@ public class MapviewPointTransformation implements PointTransformation {
         projection.toPoint(model, tmpPoint, drawZoom);
         view.set(tmpPoint.x - drawPosition.x, tmpPoint.y - drawPosition.y);
     }
+
+    @Override
+    public void transform(CoordinateSequence model, float[] view) {
+        projection.toPoints(model, drawZoom, drawPosition.x, drawPosition.y, view);
+    }
 }
\ No newline at end of file
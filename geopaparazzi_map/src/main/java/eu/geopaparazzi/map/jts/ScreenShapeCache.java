@@ -0,0 +1,195 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.map.jts;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Point;
+import android.view.View;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Lineal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.map.features.Feature;
+import eu.geopaparazzi.map.jts.android.ShapeWriter;
+import eu.geopaparazzi.map.jts.android.geom.DrawableShape;
+import eu.geopaparazzi.map.proj.OverlayViewProjection;
+
+/**
+ * A cache of the screen shapes of a set of features, as drawn by the editing tools.
+ *
+ * <p>The shapes are built once, in pixels relative to the top-left corner of the view at
+ * a zoom level. While the zoom level doesn't change, moving the map only translates the
+ * canvas, which is exact. When the zoom level changes the cached shapes are scaled, and
+ * they are built again once the map has stopped changing zoom for {@link #SETTLE_DELAY_MS}.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@SuppressWarnings("nls")
+public class ScreenShapeCache {
+
+    /**
+     * The time without zoom changes after which the shapes are built for the new zoom level.
+     */
+    public static final long SETTLE_DELAY_MS = 200;
+
+    private static class Entry {
+        final Feature feature;
+        final Geometry geometry;
+        final DrawableShape shape;
+        final boolean lineal;
+
+        Entry(Feature feature, Geometry geometry, DrawableShape shape) {
+            this.feature = feature;
+            this.geometry = geometry;
+            this.shape = shape;
+            this.lineal = geometry instanceof Lineal;
+        }
+    }
+
+    private final OverlayViewProjection projection;
+    private final View view;
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final Point origin = new Point();
+    private byte zoom = -1;
+    private boolean rebuildDue = false;
+
+    private final Runnable settle = new Runnable() {
+        @Override
+        public void run() {
+            rebuildDue = true;
+            view.invalidate();
+        }
+    };
+
+    /**
+     * Constructor.
+     *
+     * @param projection the projection of the view.
+     * @param view       the view the shapes are drawn on.
+     */
+    public ScreenShapeCache(OverlayViewProjection projection, View view) {
+        this.projection = projection;
+        this.view = view;
+    }
+
+    /**
+     * Draw the geometries of a list of features.
+     *
+     * <p>Points and polygons are filled and stroked, lines are only stroked.</p>
+     *
+     * @param canvas   the canvas to draw on.
+     * @param features the features to draw.
+     * @param topLeft  the top-left pixel of the view at the zoom level.
+     * @param zoom     the zoom level.
+     * @param fill     the fill paint, can be <code>null</code>.
+     * @param stroke   the stroke paint, can be <code>null</code>.
+     */
+    public void draw(Canvas canvas, List<Feature> features, Point topLeft, byte zoom, Paint fill, Paint stroke) {
+        if (!isValidFor(features) || (zoom != this.zoom && rebuildDue)) {
+            build(features, topLeft, zoom);
+        } else if (zoom != this.zoom) {
+            // still zooming, scale the current shapes and build them when it stops
+            view.removeCallbacks(settle);
+            view.postDelayed(settle, SETTLE_DELAY_MS);
+        } else {
+            rebuildDue = false;
+        }
+
+        canvas.save();
+        if (zoom == this.zoom) {
+            canvas.translate(origin.x - topLeft.x, origin.y - topLeft.y);
+        } else {
+            float scale = (float) Math.pow(2, zoom - this.zoom);
+            canvas.translate(origin.x * scale - topLeft.x, origin.y * scale - topLeft.y);
+            canvas.scale(scale, scale);
+        }
+        try {
+            for (Entry entry : entries) {
+                if (entry.shape == null)
+                    continue;
+                if (!entry.lineal && fill != null)
+                    entry.shape.fill(canvas, fill);
+                if (stroke != null)
+                    entry.shape.draw(canvas, stroke);
+            }
+        } finally {
+            canvas.restore();
+        }
+    }
+
+    /**
+     * Drop the cached shapes, for example when the tool is disabled.
+     */
+    public void clear() {
+        view.removeCallbacks(settle);
+        entries.clear();
+        zoom = -1;
+        rebuildDue = false;
+    }
+
+    private boolean isValidFor(List<Feature> features) {
+        if (zoom == -1)
+            return false;
+        int index = 0;
+        for (Feature feature : features) {
+            Geometry geometry = feature.getDefaultGeometry();
+            if (geometry == null)
+                continue;
+            if (index >= entries.size())
+                return false;
+            Entry entry = entries.get(index++);
+            if (entry.feature != feature || entry.geometry != geometry)
+                return false;
+        }
+        return index == entries.size();
+    }
+
+    private void build(List<Feature> features, Point topLeft, byte zoom) {
+        long start = System.currentTimeMillis();
+        view.removeCallbacks(settle);
+        entries.clear();
+        origin.set(topLeft.x, topLeft.y);
+        this.zoom = zoom;
+        rebuildDue = false;
+
+        ShapeWriter shapeWriter = new ShapeWriter(new MapviewPointTransformation(projection, origin, zoom));
+        shapeWriter.setRemoveDuplicatePoints(true);
+        for (Feature feature : features) {
+            Geometry geometry = feature.getDefaultGeometry();
+            if (geometry == null)
+                continue;
+            DrawableShape shape = null;
+            try {
+                shape = shapeWriter.toShape(geometry);
+            } catch (Exception e) {
+                GPLog.error(this, null, e);
+            }
+            // kept also if it failed, so that the cache stays valid for the features
+            entries.add(new Entry(feature, geometry, shape));
+        }
+        if (GPLog.LOG_HEAVY)
+            GPLog.addLogEntry(this, "built " + entries.size() + " shapes at zoom " + zoom + " in "
+                    + (System.currentTimeMillis() - start) + " ms");
+    }
+}
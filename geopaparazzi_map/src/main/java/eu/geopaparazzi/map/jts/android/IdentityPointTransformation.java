@@ -35,6 +35,7 @@ package eu.geopaparazzi.map.jts.android;
 import android.graphics.PointF;
 
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
 
 /**
  * Copies point ordinates with no transformation.
@@ -45,4 +46,12 @@ public class IdentityPointTransformation implements PointTransformation {
     public void transform(Coordinate model, PointF view) {
         view.set((float) model.x, (float) model.y);
     }
+
+    @Override
+    public void transform(CoordinateSequence model, float[] view) {
+        for (int i = 0, j = 0, n = model.size(); i < n; i++) {
+            view[j++] = (float) model.getX(i);
+            view[j++] = (float) model.getY(i);
+        }
+    }
 }
\ No newline at end of file
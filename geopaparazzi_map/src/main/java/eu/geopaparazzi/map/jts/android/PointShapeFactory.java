@@ -55,7 +55,7 @@ public interface PointShapeFactory {
     /**
      * Creates a shape representing a {@link PointF}.
      *
-     * @param point the location of the point
+     * @param point the location of the point, reused by the caller, so it must not be kept
      * @return a shape
      */
     DrawableShape createPoint(PointF point);
@@ -35,6 +35,7 @@ package eu.geopaparazzi.map.jts.android;
 import android.graphics.PointF;
 
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
 
 /**
  * Transforms a geometry {@link org.locationtech.jts.geom.Coordinate} into an Android {@link PointF},
@@ -52,4 +53,25 @@ public interface PointTransformation {
      * @param dest the destination Point
      */
     void transform(Coordinate src, PointF dest);
+
+    /**
+     * Transforms all the coordinates of a {@link CoordinateSequence} into an array of
+     * view ordinates.
+     * <p>
+     * The default implementation goes through {@link #transform(Coordinate, PointF)},
+     * implementations should override it to avoid the per vertex work.
+     *
+     * @param src  the source sequence
+     * @param dest the destination array, holding x and y of each coordinate, of at least twice the size of the sequence
+     */
+    default void transform(CoordinateSequence src, float[] dest) {
+        Coordinate coordinate = new Coordinate();
+        PointF point = new PointF();
+        for (int i = 0, n = src.size(); i < n; i++) {
+            src.getCoordinate(i, coordinate);
+            transform(coordinate, point);
+            dest[2 * i] = point.x;
+            dest[2 * i + 1] = point.y;
+        }
+    }
 }
\ No newline at end of file
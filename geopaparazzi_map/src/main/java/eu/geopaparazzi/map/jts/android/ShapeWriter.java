@@ -37,6 +37,7 @@ import android.graphics.PointF;
 import android.graphics.drawable.shapes.Shape;
 
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryCollection;
 import org.locationtech.jts.geom.LineString;
@@ -97,6 +98,11 @@ public class ShapeWriter {
      */
     private PointF transPoint = new PointF();
 
+    /**
+     * Cache a buffer to transform coordinate sequences into, grown as needed
+     */
+    private float[] transBuffer = new float[256];
+
     /**
      * If true, decimation will be used to reduce the number of vertices
      * by removing consecutive duplicates.
@@ -229,63 +235,73 @@ public class ShapeWriter {
 
     private DrawableShape toShape(Polygon p) {
         PolygonShape poly = new PolygonShape();
+        poly.initPath();
+        Path path = poly.getPath();
 
-        appendRing(poly, p.getExteriorRing().getCoordinates());
+        appendToPath(path, p.getExteriorRing().getCoordinateSequence(), true);
         for (int j = 0; j < p.getNumInteriorRing(); j++) {
-            appendRing(poly, p.getInteriorRingN(j).getCoordinates());
+            appendToPath(path, p.getInteriorRingN(j).getCoordinateSequence(), true);
         }
 
         return poly;
     }
 
-    private void appendRing(PolygonShape poly, Coordinate[] coords) {
-        double prevx = Double.NaN;
-        double prevy = Double.NaN;
-        Coordinate prev = null;
-
-        Path tmpPath = null;
-        int n = coords.length - 1;
-        /**
-         * Don't include closing point.
-         * Ring path will be closed explicitly, which provides a 
-         * more accurate path representation.
-         */
-        for (int i = 0; i < n; i++) {
-
+    /**
+     * Appends a coordinate sequence to a path as a new contour.
+     * The whole sequence is transformed at once into the reused buffer,
+     * so that no object is created per vertex.
+     *
+     * @param path     the path to append to
+     * @param sequence the coordinates
+     * @param isRing   if true, the closing point is not included and the contour is closed
+     *                 explicitly, which provides a more accurate path representation
+     */
+    private void appendToPath(Path path, CoordinateSequence sequence, boolean isRing) {
+        int last = isRing ? sequence.size() - 2 : sequence.size() - 1;
+        if (last < 0)
+            return;
+        float[] view = transformSequence(sequence);
+
+        path.moveTo(view[0], view[1]);
+        double prevModelX = sequence.getX(0);
+        double prevModelY = sequence.getY(0);
+        float prevx = view[0];
+        float prevy = view[1];
+        for (int i = 1; i <= last; i++) {
+            // the last point of a line is always kept
+            boolean isLast = !isRing && i == last;
             if (decimationDistance > 0.0) {
-                boolean isDecimated = prev != null && Math.abs(coords[i].x - prev.x) < decimationDistance
-                        && Math.abs(coords[i].y - prev.y) < decimationDistance;
-                if (i < n && isDecimated)
+                double x = sequence.getX(i);
+                double y = sequence.getY(i);
+                boolean isDecimated = Math.abs(x - prevModelX) < decimationDistance
+                        && Math.abs(y - prevModelY) < decimationDistance;
+                if (!isLast && isDecimated)
                     continue;
-                prev = coords[i];
+                prevModelX = x;
+                prevModelY = y;
             }
 
-            transformPoint(coords[i], transPoint);
-
+            float x = view[2 * i];
+            float y = view[2 * i + 1];
             if (doRemoveDuplicatePoints) {
-                // skip duplicate points (except the last point)
-                boolean isDup = transPoint.x == prevx && transPoint.y == prevy;
-                if (i < n && isDup)
+                boolean isDup = x == prevx && y == prevy;
+                if (!isLast && isDup)
                     continue;
-                prevx = transPoint.x;
-                prevy = transPoint.y;
-            }
-            if (tmpPath != null) {
-                tmpPath.lineTo(transPoint.x, transPoint.y);
-            } else {
-                tmpPath = new Path();
-                tmpPath.moveTo(transPoint.x, transPoint.y);
+                prevx = x;
+                prevy = y;
             }
+            path.lineTo(x, y);
         }
-        // handle closing point
-        tmpPath.close();
+        if (isRing)
+            path.close();
+    }
 
-        Path mainPath = poly.getPath();
-        if (mainPath == null) {
-            poly.initPath();
-            mainPath = poly.getPath();
-        }
-        mainPath.addPath(tmpPath);
+    private float[] transformSequence(CoordinateSequence sequence) {
+        int length = 2 * sequence.size();
+        if (transBuffer.length < length)
+            transBuffer = new float[Math.max(length, 2 * transBuffer.length)];
+        pointTransformer.transform(sequence, transBuffer);
+        return transBuffer;
     }
 
     private DrawableShape toShape(MultiPolygon mp) {
@@ -313,54 +329,19 @@ public class ShapeWriter {
 
         for (int i = 0; i < mls.getNumGeometries(); i++) {
             LineString lineString = (LineString) mls.getGeometryN(i);
-            PathShape shape = toShape(lineString);
-            path.addPath(shape.getPath());
+            appendToPath(path, lineString.getCoordinateSequence(), false);
         }
         return new PathShape(path);
     }
 
     private PathShape toShape(LineString lineString) {
-        Path shape = new Path();
-
-        Coordinate prev = lineString.getCoordinateN(0);
-        transformPoint(prev, transPoint);
-        shape.moveTo((float) transPoint.x, (float) transPoint.y);
-
-        double prevx = (double) transPoint.x;
-        double prevy = (double) transPoint.y;
-
-        int n = lineString.getNumPoints() - 1;
-        // int count = 0;
-        for (int i = 1; i <= n; i++) {
-            Coordinate currentCoord = lineString.getCoordinateN(i);
-            if (decimationDistance > 0.0) {
-                boolean isDecimated = prev != null && Math.abs(currentCoord.x - prev.x) < decimationDistance
-                        && Math.abs(currentCoord.y - prev.y) < decimationDistance;
-                if (i < n && isDecimated) {
-                    continue;
-                }
-                prev = currentCoord;
-            }
-
-            transformPoint(currentCoord, transPoint);
-
-            if (doRemoveDuplicatePoints) {
-                // skip duplicate points (except the last point)
-                boolean isDup = transPoint.x == prevx && transPoint.y == prevy;
-                if (i < n && isDup)
-                    continue;
-                prevx = transPoint.x;
-                prevy = transPoint.y;
-                // count++;
-            }
-            shape.lineTo((float) transPoint.x, (float) transPoint.y);
-        }
-        // System.out.println(count);
-        return new PathShape(shape);
+        Path path = new Path();
+        appendToPath(path, lineString.getCoordinateSequence(), false);
+        return new PathShape(path);
     }
 
     private DrawableShape toShape(Point point) {
-        PointF viewPoint = transformPoint(point.getCoordinate());
+        PointF viewPoint = transformPoint(point.getCoordinate(), transPoint);
         return pointFactory.createPoint(viewPoint);
     }
 
@@ -369,17 +350,13 @@ public class ShapeWriter {
         int numGeometries = points.getNumGeometries();
         for (int i = 0; i < numGeometries; i++) {
             Point point = (Point) points.getGeometryN(i);
-            PointF viewPoint = transformPoint(point.getCoordinate());
+            PointF viewPoint = transformPoint(point.getCoordinate(), transPoint);
             DrawableShape drawableShape = pointFactory.createPoint(viewPoint);
             shapes.add(drawableShape);
         }
         return shapes;
     }
 
-    private PointF transformPoint(Coordinate model) {
-        return transformPoint(model, new PointF());
-    }
-
     private PointF transformPoint(Coordinate model, PointF view) {
         pointTransformer.transform(model, view);
         return view;
@@ -0,0 +1,190 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.map.layers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.map.layers.interfaces.IGpLayer;
+
+/**
+ * Loads the data of the map layers in the background.
+ *
+ * <p>The layers are created and added to the map right away, empty, and their data is read
+ * by a small pool of threads. Loads with a lower priority value run first, loads with the
+ * same priority run in the order they were asked. The basemaps are not loaded here, their
+ * tiles are read by the map itself as soon as they are added.</p>
+ *
+ * <p>The time taken to create each layer and to load its data is traced from the start of
+ * the last {@link #startTrace()}.</p>
+ *
+ * <p>When the layers are disposed, {@link #cancelAll()} drops the loads not started yet, so
+ * that the loads of the new layers don't wait behind them.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@SuppressWarnings("nls")
+public enum LayerBootstrap {
+    INSTANCE;
+
+    /**
+     * The priority of the data of the user vector layers.
+     */
+    public static final int PRIORITY_MAP_DATA = 0;
+
+    /**
+     * The priority of the notes, images and bookmarks.
+     */
+    public static final int PRIORITY_PROJECT_DATA = 1;
+
+    /**
+     * The priority of the gps logs, which are usually the largest.
+     */
+    public static final int PRIORITY_LOGS_DATA = 2;
+
+    private static final int MAX_THREADS = 3;
+
+    private class LoadTask implements Runnable, Comparable<LoadTask> {
+        final IGpLayer layer;
+        final int priority;
+        final long sequence;
+        final int taskGeneration;
+        final long queuedAt = System.currentTimeMillis();
+
+        LoadTask(IGpLayer layer, int priority, long sequence, int taskGeneration) {
+            this.layer = layer;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.taskGeneration = taskGeneration;
+        }
+
+        @Override
+        public void run() {
+            if (taskGeneration != generation.get())
+                return;
+            long start = System.currentTimeMillis();
+            try {
+                layer.reloadData();
+            } catch (Exception e) {
+                GPLog.error(layer, "Unable to load the data of layer: " + layer.getName(), e);
+            }
+            // cancelled while loading, the layer has been disposed
+            if (taskGeneration != generation.get())
+                return;
+            long end = System.currentTimeMillis();
+            trace("loaded " + layer.getName() + " in " + (end - start) + " ms, after waiting " + (start - queuedAt) + " ms");
+            if (pending.decrementAndGet() == 0)
+                trace("all layers loaded");
+        }
+
+        @Override
+        public int compareTo(LoadTask other) {
+            if (priority != other.priority)
+                return priority < other.priority ? -1 : 1;
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+
+    {
+        int threads = Math.max(1, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "LayerBootstrap");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger generation = new AtomicInteger();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final List<String> traceEntries = new ArrayList<>();
+    private volatile long traceStart = System.currentTimeMillis();
+
+    /**
+     * Start a new trace, as done when the layers are loaded in the map.
+     */
+    public void startTrace() {
+        synchronized (traceEntries) {
+            traceEntries.clear();
+            traceStart = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Trace the creation of a layer.
+     *
+     * @param layerName the name of the layer.
+     * @param millis    the time taken to create the layer and add it to the map.
+     */
+    public void traceCreated(String layerName, long millis) {
+        trace("created " + layerName + " in " + millis + " ms");
+    }
+
+    /**
+     * Load the data of a layer in the background.
+     *
+     * @param layer    the layer, already added to the map.
+     * @param priority the priority, lower values are loaded first.
+     */
+    public void loadData(IGpLayer layer, int priority) {
+        pending.incrementAndGet();
+        executor.execute(new LoadTask(layer, priority, sequence.getAndIncrement(), generation.get()));
+    }
+
+    /**
+     * Cancel the loads asked so far, as needed when the layers are disposed.
+     *
+     * <p>Loads not started yet are dropped. Loads already running are completed, since the
+     * reads can't be interrupted, but they are not traced.</p>
+     */
+    public void cancelAll() {
+        generation.incrementAndGet();
+        List<Runnable> cancelled = new ArrayList<>();
+        executor.getQueue().drainTo(cancelled);
+        pending.set(0);
+        if (GPLog.LOG_HEAVY && !cancelled.isEmpty())
+            GPLog.addLogEntry(this, "cancelled " + cancelled.size() + " layer loads");
+    }
+
+    /**
+     * @return the entries of the current trace, each with the time from its start.
+     */
+    public List<String> getTrace() {
+        synchronized (traceEntries) {
+            return new ArrayList<>(traceEntries);
+        }
+    }
+
+    private void trace(String message) {
+        String entry;
+        synchronized (traceEntries) {
+            entry = (System.currentTimeMillis() - traceStart) + " ms: " + message;
+            traceEntries.add(entry);
+        }
+        if (GPLog.LOG_HEAVY)
+            GPLog.addLogEntry(this, entry);
+    }
+}
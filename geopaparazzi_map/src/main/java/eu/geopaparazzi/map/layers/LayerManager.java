@@ -29,6 +29,7 @@ import eu.geopaparazzi.library.profiles.objects.ProfileBasemaps;
 import eu.geopaparazzi.library.profiles.objects.ProfileSpatialitemaps;
 import eu.geopaparazzi.library.util.FileUtilities;
 import eu.geopaparazzi.library.util.IActivitySupporter;
+import eu.geopaparazzi.library.util.LibraryConstants;
 import eu.geopaparazzi.map.GPMapThemes;
 import eu.geopaparazzi.map.GPMapView;
 import eu.geopaparazzi.map.features.editing.EditManager;
@@ -53,6 +54,7 @@ import eu.geopaparazzi.map.layers.userlayers.MBTilesLayer;
 import eu.geopaparazzi.map.layers.userlayers.MapsforgeLayer;
 import eu.geopaparazzi.map.layers.userlayers.SpatialiteTableLayer;
 import eu.geopaparazzi.map.layers.userlayers.VectorTilesServiceLayer;
+import eu.geopaparazzi.map.layers.utils.DbConnectionRegistry;
 import eu.geopaparazzi.map.layers.utils.EOnlineTileSources;
 import eu.geopaparazzi.map.utils.MapUtilities;
 
@@ -172,6 +174,18 @@ public enum LayerManager {
      * @throws JSONException
      */
     public void loadInMap(GPMapView mapView, IActivitySupporter activitySupporter) throws Exception {
+        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(GPApplication.getInstance());
+        String maxConnectionsStr = preferences.getString(LibraryConstants.PREFS_KEY_MAX_OPEN_DB_CONNECTIONS,
+                String.valueOf(DbConnectionRegistry.DEFAULT_MAX_OPEN_CONNECTIONS));
+        try {
+            DbConnectionRegistry.INSTANCE.setMaxOpenConnections(Integer.parseInt(maxConnectionsStr));
+        } catch (NumberFormatException e) {
+            DbConnectionRegistry.INSTANCE.setMaxOpenConnections(DbConnectionRegistry.DEFAULT_MAX_OPEN_CONNECTIONS);
+        }
+        // the layers are added to the map here, their data is loaded in the background
+        LayerBootstrap.INSTANCE.cancelAll();
+        LayerBootstrap.INSTANCE.startTrace();
+
         //--  Remove all the layers From Map:
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
             mapView.map().layers().removeIf(layer -> layer instanceof IGpLayer || layer instanceof BuildingLayer || layer instanceof LabelLayer);
@@ -231,6 +245,7 @@ public enum LayerManager {
         //-- Add system layers --
         if (systemLayersDefinitions.size() > 0) {
             for (JSONObject layerDefinition : systemLayersDefinitions) {
+                long start = System.currentTimeMillis();
                 String layerClass = layerDefinition.getString(IGpLayer.LAYERTYPE_TAG);
                 boolean isEnabled = true;
                 boolean hasEnabled = layerDefinition.has(IGpLayer.LAYERENABLED_TAG);
@@ -270,15 +285,20 @@ public enum LayerManager {
                     sysLayer.load();
                     sysLayer.setEnabled(isEnabled);
                 }
+                LayerBootstrap.INSTANCE.traceCreated(layerDefinition.optString(IGpLayer.LAYERNAME_TAG, layerClass),
+                        System.currentTimeMillis() - start);
             }
         } else {
+            long start = System.currentTimeMillis();
             loadSystemLayers(mapView, activitySupporter, systemLayersDefinitions);
+            LayerBootstrap.INSTANCE.traceCreated("system layers", System.currentTimeMillis() - start);//NON-NLS
         }
     }
 
     public void loadMapLayers(GPMapView mapView, List<JSONObject> mapLayersDefinitions) throws Exception {
-        EditManager.INSTANCE.setEditLayer(null);
+        IEditableLayer editLayer = null;
         for (JSONObject layerDefinition : mapLayersDefinitions) {
+            long start = System.currentTimeMillis();
             try {
                 String layerClass = layerDefinition.getString(IGpLayer.LAYERTYPE_TAG);
                 String name = layerDefinition.getString(IGpLayer.LAYERNAME_TAG);
@@ -349,10 +369,12 @@ public enum LayerManager {
                                 isEditing = layerDefinition.getBoolean(IGpLayer.LAYEREDITING_TAG);
 
                             SpatialiteTableLayer spatialiteLayer = new SpatialiteTableLayer(mapView, dbPath, name, isEditing);
+                            if (layerDefinition.has(IGpLayer.LAYERLABELDENSITY_TAG))
+                                spatialiteLayer.setLabelDensity(layerDefinition.getInt(IGpLayer.LAYERLABELDENSITY_TAG));
                             spatialiteLayer.load();
                             spatialiteLayer.setEnabled(isEnabled);
                             if (isEditing) {
-                                EditManager.INSTANCE.setEditLayer(spatialiteLayer);
+                                editLayer = spatialiteLayer;
                             }
                             break;
                         }
@@ -365,10 +387,12 @@ public enum LayerManager {
                                     isEditing = layerDefinition.getBoolean(IGpLayer.LAYEREDITING_TAG);
 
                                 GeopackageTableLayer spatialiteLayer = new GeopackageTableLayer(mapView, dbPath, name, isEditing);
+                                if (layerDefinition.has(IGpLayer.LAYERLABELDENSITY_TAG))
+                                    spatialiteLayer.setLabelDensity(layerDefinition.getInt(IGpLayer.LAYERLABELDENSITY_TAG));
                                 spatialiteLayer.load();
                                 spatialiteLayer.setEnabled(isEnabled);
                                 if (isEditing) {
-                                    EditManager.INSTANCE.setEditLayer(spatialiteLayer);
+                                    editLayer = spatialiteLayer;
                                 }
                             } else {
                                 float alpha = 1f;
@@ -382,11 +406,13 @@ public enum LayerManager {
                         }
                     }
                 }
+                LayerBootstrap.INSTANCE.traceCreated(name, System.currentTimeMillis() - start);
             } catch (Exception e) {
                 GPLog.error(this, "Unable to load layer: " + layerDefinition.toString(2), e);
             }
         }
-
+        // set once all the layers are there, so that the session goes on if it is the same layer
+        EditManager.INSTANCE.setEditLayer(editLayer);
     }
 
     public void loadSystemLayers(GPMapView mapView, IActivitySupporter activitySupporter, List<JSONObject> systemLayersDefinitions) throws Exception {
@@ -442,6 +468,7 @@ public enum LayerManager {
      */
     public void dispose(GPMapView mapView) throws JSONException {
         if (mapView != null) {
+            LayerBootstrap.INSTANCE.cancelAll();
             JSONArray usersLayersArray = new JSONArray();
             JSONObject usersRoot = new JSONObject();
             usersRoot.put(LAYERS, usersLayersArray);
@@ -546,6 +573,7 @@ public enum LayerManager {
 
     public void onPause(GPMapView mapView) {
         if (mapView != null) {
+            LayerBootstrap.INSTANCE.cancelAll();
 //            for (Layer layer : mapView.map().layers()) {
 //                if (layer instanceof IGpLayer) {
 //                    IGpLayer gpLayer = (IGpLayer) layer;
@@ -7,6 +7,7 @@ import org.locationtech.jts.geom.Geometry;
 import java.util.List;
 
 import eu.geopaparazzi.map.features.Feature;
+import eu.geopaparazzi.map.features.editing.EditBatch;
 
 /**
  *
@@ -34,6 +35,24 @@ public interface IEditableLayer extends IGpLayer {
      */
     List<Feature> getFeatures(Envelope env) throws Exception;
 
+    /**
+     * Start a batch of edits on the layer.
+     *
+     * <p>The edits are queued and only written by {@link EditBatch#commit()}, in a single
+     * transaction. Use it for bulk edits, the single edit methods are batches of one.</p>
+     *
+     * @return the new batch.
+     * @throws Exception if the database can't be opened.
+     */
+    EditBatch startEditBatch() throws Exception;
+
+    /**
+     * Show edits that are not written to the database, as they would be once committed.
+     *
+     * @param edits the edits, with the ids of the features to show and their geometries in lat/long.
+     */
+    void previewEdits(List<EditBatch.Edit> edits);
+
     /**
      * Delete a list of features in the given database.
      * <p/>
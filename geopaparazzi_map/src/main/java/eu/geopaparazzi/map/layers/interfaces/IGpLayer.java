@@ -22,6 +22,7 @@ public interface IGpLayer {
     String LAYERMAXZOOM_TAG = "maxzoom";
     String LAYERTRANSPARENTCOLOR_TAG = "transparentcolor";
     String LAYERALPHA_TAG = "alpha";
+    String LAYERLABELDENSITY_TAG = "labeldensity";
 
 
     String getId();
@@ -13,4 +13,16 @@ public interface ILabeledLayer extends IEditableLayer {
      * Draw labels on the canvas.
      */
     void drawLabels(Canvas canvas, OverlayViewProjection prj) throws Exception;
+
+    /**
+     * @return the max number of labels drawn in an area of the map, <code>0</code> if not limited.
+     */
+    int getLabelDensity();
+
+    /**
+     * Set the max number of labels drawn in an area of the map.
+     *
+     * @param labelDensity the max number of labels, <code>0</code> to not limit them.
+     */
+    void setLabelDensity(int labelDensity);
 }
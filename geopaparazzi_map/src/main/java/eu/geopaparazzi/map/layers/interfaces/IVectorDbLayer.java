@@ -9,4 +9,9 @@ public interface IVectorDbLayer extends IEditableLayer {
      * @return the path to the database.
      */
     String getDbPath();
+
+    /**
+     * @return the number of distinct styles used to draw the layer.
+     */
+    int getStyleCount();
 }
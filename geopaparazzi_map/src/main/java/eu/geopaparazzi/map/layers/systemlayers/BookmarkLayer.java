@@ -24,17 +24,18 @@ import java.util.ArrayList;
 import java.util.List;
 
 import eu.geopaparazzi.library.GPApplication;
-import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.style.ColorUtilities;
 import eu.geopaparazzi.library.util.Compat;
 import eu.geopaparazzi.library.util.GPDialogs;
 import eu.geopaparazzi.library.util.LibraryConstants;
 import eu.geopaparazzi.map.GPMapView;
 import eu.geopaparazzi.map.R;
+import eu.geopaparazzi.map.layers.LayerBootstrap;
 import eu.geopaparazzi.map.layers.LayerGroups;
 import eu.geopaparazzi.map.layers.interfaces.ISystemLayer;
+import eu.geopaparazzi.map.layers.utils.MarkerClusterer;
 
-public class BookmarkLayer extends ItemizedLayer<MarkerItem> implements ItemizedLayer.OnItemGestureListener<MarkerItem>, ISystemLayer {
+public class BookmarkLayer extends ItemizedLayer<MarkerItem> implements ItemizedLayer.OnItemGestureListener<MarkerItem>, ISystemLayer, MarkerClusterer.SymbolFactory {
     private static final int FG_COLOR = 0xFF000000; // 100 percent black. AARRGGBB
     private static final int BG_COLOR = 0x80FF69B4; // 50 percent pink. AARRGGBB
     private static final int TRANSP_WHITE = 0x80FFFFFF; // 50 percent white. AARRGGBB
@@ -42,6 +43,7 @@ public class BookmarkLayer extends ItemizedLayer<MarkerItem> implements Itemized
     private static Bitmap imagesBitmap;
     private GPMapView mapView;
     private static String colorStr;
+    private MarkerClusterer clusterer;
 
     public static final String TABLE_BOOKMARKS = "bookmarks";//NON-NLS
 
@@ -51,12 +53,9 @@ public class BookmarkLayer extends ItemizedLayer<MarkerItem> implements Itemized
         getName(mapView.getContext());
 
         setOnItemGestureListener(this);
+        clusterer = new MarkerClusterer(mapView, this, this, ColorUtilities.toColor(colorStr));
 
-        try {
-            reloadData();
-        } catch (Exception e) {
-            GPLog.error(this, null, e);
-        }
+        LayerBootstrap.INSTANCE.loadData(this, LayerBootstrap.PRIORITY_PROJECT_DATA);
     }
 
     public static String getName(Context context) {
@@ -102,17 +101,14 @@ public class BookmarkLayer extends ItemizedLayer<MarkerItem> implements Itemized
             }
         }
 
-
-        for (MarkerItem mi : bookmarks) {
-            mi.setMarker(createAdvancedSymbol(mi, imagesBitmap));
-        }
-        addItems(bookmarks);
-
-        update();
+        // the symbols are created by the clusterer for the shown bookmarks only
+        clusterer.setItems(bookmarks);
     }
 
 
-    private MarkerSymbol createAdvancedSymbol(MarkerItem item, Bitmap poiBitmap) {
+    @Override
+    public MarkerSymbol createSymbol(MarkerItem item) {
+        Bitmap poiBitmap = imagesBitmap;
         int bitmapHeight = poiBitmap.getHeight();
         int margin = 3;
         int dist2symbol = (int) Math.round(bitmapHeight / 2.0);
@@ -131,6 +127,12 @@ public class BookmarkLayer extends ItemizedLayer<MarkerItem> implements Itemized
         return (new MarkerSymbol(markerBitmap, MarkerSymbol.HotspotPlace.CENTER, true));
     }
 
+    @Override
+    public String getSymbolKey(MarkerItem item) {
+        // the same symbol for all bookmarks
+        return "bookmarks";//NON-NLS
+    }
+
 
     public void disable() {
         setEnabled(false);
@@ -143,6 +145,10 @@ public class BookmarkLayer extends ItemizedLayer<MarkerItem> implements Itemized
 
     @Override
     public boolean onItemSingleTapUp(int index, MarkerItem item) {
+        if (item != null && clusterer.isCluster(item)) {
+            clusterer.zoomTo(item);
+            return true;
+        }
         if (item != null) {
             String description = item.getSnippet();
             GPDialogs.infoDialog(mapView.getContext(), description, null);
@@ -179,7 +185,7 @@ public class BookmarkLayer extends ItemizedLayer<MarkerItem> implements Itemized
 
     @Override
     public void dispose() {
-
+        clusterer.dispose();
     }
 
     @Override
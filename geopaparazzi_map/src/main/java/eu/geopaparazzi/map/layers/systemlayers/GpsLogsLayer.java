@@ -14,19 +14,21 @@ import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.Point;
 import org.oscim.backend.canvas.Paint;
 import org.oscim.layers.vector.VectorLayer;
+import org.oscim.layers.vector.geometries.Drawable;
 import org.oscim.layers.vector.geometries.LineDrawable;
 import org.oscim.layers.vector.geometries.PointDrawable;
 import org.oscim.layers.vector.geometries.Style;
 import org.oscim.map.Layers;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import eu.geopaparazzi.library.GPApplication;
-import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.style.ColorUtilities;
 import eu.geopaparazzi.map.GPMapView;
 import eu.geopaparazzi.map.R;
+import eu.geopaparazzi.map.layers.LayerBootstrap;
 import eu.geopaparazzi.map.layers.LayerGroups;
 import eu.geopaparazzi.map.layers.interfaces.ISystemLayer;
 import eu.geopaparazzi.map.layers.utils.GpsLog;
@@ -45,11 +47,7 @@ public class GpsLogsLayer extends VectorLayer implements ISystemLayer {
         this.mapView = mapView;
         getName(mapView.getContext());
 
-        try {
-            reloadData();
-        } catch (IOException e) {
-            GPLog.error(this, null, e);
-        }
+        LayerBootstrap.INSTANCE.loadData(this, LayerBootstrap.PRIORITY_LOGS_DATA);
     }
 
     public static String getName(Context context) {
@@ -64,8 +62,8 @@ public class GpsLogsLayer extends VectorLayer implements ISystemLayer {
         List<GpsLog> logsList = MapUtilities.getGpsLogs(sqliteDatabase);
         GeometryFactory gf = new GeometryFactory();
 
-        tmpDrawables.clear();
-        mDrawables.clear();
+        // built here, possibly in the background, and swapped in on the map thread
+        List<Drawable> drawables = new ArrayList<>(logsList.size() * 2);
         for (GpsLog gpsLog : logsList) {
             LineString lineString = gf.createLineString(gpsLog.gpslogGeoPoints.toArray(new Coordinate[0]));
             Style lineStyle = Style.builder()
@@ -73,7 +71,7 @@ public class GpsLogsLayer extends VectorLayer implements ISystemLayer {
                     .strokeWidth((float) gpsLog.width)
                     .cap(Paint.Cap.ROUND)
                     .build();
-            add(new LineDrawable(lineString, lineStyle));
+            drawables.add(new LineDrawable(lineString, lineStyle));
 
             Point startPoint = lineString.getStartPoint();
 
@@ -84,9 +82,16 @@ public class GpsLogsLayer extends VectorLayer implements ISystemLayer {
                     .scaleZoomLevel(19)
                     .fillAlpha(1)
                     .build();
-            add(new PointDrawable(startPoint.getY(), startPoint.getX(), pointStyle));
+            drawables.add(new PointDrawable(startPoint.getY(), startPoint.getX(), pointStyle));
         }
-        update();
+        map().post(() -> {
+            tmpDrawables.clear();
+            mDrawables.clear();
+            for (Drawable drawable : drawables) {
+                add(drawable);
+            }
+            update();
+        });
     }
 
 
@@ -40,13 +40,15 @@ import eu.geopaparazzi.library.util.LibraryConstants;
 import eu.geopaparazzi.library.util.TimeUtilities;
 import eu.geopaparazzi.map.GPMapView;
 import eu.geopaparazzi.map.R;
+import eu.geopaparazzi.map.layers.LayerBootstrap;
 import eu.geopaparazzi.map.layers.LayerGroups;
 import eu.geopaparazzi.map.layers.interfaces.ISystemLayer;
+import eu.geopaparazzi.map.layers.utils.MarkerClusterer;
 
 import static eu.geopaparazzi.library.util.LibraryConstants.PREFS_KEY_IMAGES_TEXT_VISIBLE;
 import static eu.geopaparazzi.library.util.LibraryConstants.PREFS_KEY_IMAGES_VISIBLE;
 
-public class ImagesLayer extends ItemizedLayer<MarkerItem> implements ItemizedLayer.OnItemGestureListener<MarkerItem>, ISystemLayer {
+public class ImagesLayer extends ItemizedLayer<MarkerItem> implements ItemizedLayer.OnItemGestureListener<MarkerItem>, ISystemLayer, MarkerClusterer.SymbolFactory {
     private static final int FG_COLOR = 0xFF000000; // 100 percent black. AARRGGBB
     private static final int BG_COLOR = 0x80FF69B4; // 50 percent pink. AARRGGBB
     private static final int TRANSP_WHITE = 0x80FFFFFF; // 50 percent white. AARRGGBB
@@ -56,6 +58,7 @@ public class ImagesLayer extends ItemizedLayer<MarkerItem> implements ItemizedLa
     private GPMapView mapView;
     private static int textSize;
     private static String colorStr;
+    private MarkerClusterer clusterer;
 
     public ImagesLayer(GPMapView mapView) {
         super(mapView.map(), getMarkerSymbol(mapView));
@@ -67,13 +70,10 @@ public class ImagesLayer extends ItemizedLayer<MarkerItem> implements ItemizedLa
         SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(GPApplication.getInstance());
         boolean imagesVisible = preferences.getBoolean(PREFS_KEY_IMAGES_VISIBLE, true);
         showLabels = preferences.getBoolean(PREFS_KEY_IMAGES_TEXT_VISIBLE, true);
+        clusterer = new MarkerClusterer(mapView, this, this, ColorUtilities.toColor(colorStr));
 
-        try {
-            if (imagesVisible)
-                reloadData();
-        } catch (IOException e) {
-            GPLog.error(this, null, e);
-        }
+        if (imagesVisible)
+            LayerBootstrap.INSTANCE.loadData(this, LayerBootstrap.PRIORITY_PROJECT_DATA);
 
 
     }
@@ -137,13 +137,8 @@ public class ImagesLayer extends ItemizedLayer<MarkerItem> implements ItemizedLa
         }
         c.close();
 
-
-        for (MarkerItem mi : images) {
-            mi.setMarker(createAdvancedSymbol(mi, imagesBitmap));
-        }
-        addItems(images);
-
-        update();
+        // the symbols are created by the clusterer for the shown images only
+        clusterer.setItems(images);
     }
 
 
@@ -158,6 +153,10 @@ public class ImagesLayer extends ItemizedLayer<MarkerItem> implements ItemizedLa
 
     @Override
     public boolean onItemSingleTapUp(int index, MarkerItem item) {
+        if (item != null && clusterer.isCluster(item)) {
+            clusterer.zoomTo(item);
+            return true;
+        }
         if (item != null) {
             Context context = mapView.getContext();
             long uid = (long) item.getUid();
@@ -192,12 +191,13 @@ public class ImagesLayer extends ItemizedLayer<MarkerItem> implements ItemizedLa
     /**
      * Creates a transparent symbol with text and description.
      *
-     * @param item      -> the MarkerItem to process, containing title and description
-     *                  if description starts with a '#' the first line of the description is drawn.
-     * @param poiBitmap -> poi bitmap for the center
+     * @param item -> the MarkerItem to process, containing title and description
+     *             if description starts with a '#' the first line of the description is drawn.
      * @return MarkerSymbol with title, description and symbol
      */
-    private MarkerSymbol createAdvancedSymbol(MarkerItem item, Bitmap poiBitmap) {
+    @Override
+    public MarkerSymbol createSymbol(MarkerItem item) {
+        Bitmap poiBitmap = imagesBitmap;
         final Paint textPainter = CanvasAdapter.newPaint();
         textPainter.setStyle(Paint.Style.FILL);
         int textColor = ColorUtilities.toColor(colorStr);
@@ -244,6 +244,11 @@ public class ImagesLayer extends ItemizedLayer<MarkerItem> implements ItemizedLa
         return (new MarkerSymbol(markerBitmap, MarkerSymbol.HotspotPlace.CENTER, true));
     }
 
+    @Override
+    public String getSymbolKey(MarkerItem item) {
+        return "images#" + textSize + "#" + colorStr + "#" + showLabels + "#" + item.title;//NON-NLS
+    }
+
     @Override
     public String getId() {
         return getName();
@@ -272,7 +277,7 @@ public class ImagesLayer extends ItemizedLayer<MarkerItem> implements ItemizedLa
 
     @Override
     public void dispose() {
-
+        clusterer.dispose();
     }
 
     @Override
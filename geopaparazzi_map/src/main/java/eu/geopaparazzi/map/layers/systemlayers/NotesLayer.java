@@ -33,7 +33,6 @@ import java.util.List;
 import eu.geopaparazzi.library.GPApplication;
 import eu.geopaparazzi.library.database.ANote;
 import eu.geopaparazzi.library.database.DefaultHelperClasses;
-import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.database.TableDescriptions;
 import eu.geopaparazzi.library.forms.FormActivity;
 import eu.geopaparazzi.library.forms.FormInfoHolder;
@@ -45,13 +44,15 @@ import eu.geopaparazzi.library.util.LibraryConstants;
 import eu.geopaparazzi.library.util.TimeUtilities;
 import eu.geopaparazzi.map.GPMapView;
 import eu.geopaparazzi.map.R;
+import eu.geopaparazzi.map.layers.LayerBootstrap;
 import eu.geopaparazzi.map.layers.LayerGroups;
 import eu.geopaparazzi.map.layers.interfaces.ISystemLayer;
+import eu.geopaparazzi.map.layers.utils.MarkerClusterer;
 
 import static eu.geopaparazzi.library.util.LibraryConstants.PREFS_KEY_NOTES_TEXT_VISIBLE;
 import static eu.geopaparazzi.library.util.LibraryConstants.PREFS_KEY_NOTES_VISIBLE;
 
-public class NotesLayer extends ItemizedLayer<MarkerItem> implements ItemizedLayer.OnItemGestureListener<MarkerItem>, ISystemLayer {
+public class NotesLayer extends ItemizedLayer<MarkerItem> implements ItemizedLayer.OnItemGestureListener<MarkerItem>, ISystemLayer, MarkerClusterer.SymbolFactory {
     private static final int FG_COLOR = 0xFF000000; // 100 percent black. AARRGGBB
     private static final int BG_COLOR = 0x80FF69B4; // 50 percent pink. AARRGGBB
     private static final int TRANSP_WHITE = 0x80FFFFFF; // 50 percent white. AARRGGBB
@@ -60,11 +61,15 @@ public class NotesLayer extends ItemizedLayer<MarkerItem> implements ItemizedLay
 
     public static final int FORMUPDATE_RETURN_CODE = 669;
     private static Bitmap notesBitmap;
+    // changes when the notes icon preferences change, to tell the cached symbols apart
+    private static int notesBitmapVersion;
+    private static String notesStyleKey;
     private GPMapView mapView;
     private IActivitySupporter activitySupporter;
     private static int textSize;
     private static String colorStr;
     private boolean showLabels;
+    private MarkerClusterer clusterer;
 
     public NotesLayer(GPMapView mapView, IActivitySupporter activitySupporter) {
         super(mapView.map(), getMarkerSymbol(mapView));
@@ -78,13 +83,10 @@ public class NotesLayer extends ItemizedLayer<MarkerItem> implements ItemizedLay
         boolean notesVisible = preferences.getBoolean(PREFS_KEY_NOTES_VISIBLE, true);
 
         showLabels = preferences.getBoolean(PREFS_KEY_NOTES_TEXT_VISIBLE, true);
+        clusterer = new MarkerClusterer(mapView, this, this, ColorUtilities.toColor(colorStr));
 
-        try {
-            if (notesVisible)
-                reloadData();
-        } catch (IOException e) {
-            GPLog.error(this, null, e);
-        }
+        if (notesVisible)
+            LayerBootstrap.INSTANCE.loadData(this, LayerBootstrap.PRIORITY_PROJECT_DATA);
 
 
     }
@@ -103,10 +105,15 @@ public class NotesLayer extends ItemizedLayer<MarkerItem> implements ItemizedLay
         String textSizeStr = peferences.getString(LibraryConstants.PREFS_KEY_NOTES_TEXT_SIZE, LibraryConstants.DEFAULT_NOTES_SIZE + ""); //$NON-NLS-1$
         textSize = Integer.parseInt(textSizeStr);
         colorStr = peferences.getString(LibraryConstants.PREFS_KEY_NOTES_CUSTOMCOLOR, ColorUtilities.ALMOST_BLACK.getHex());
+        String opacityStr = peferences.getString(LibraryConstants.PREFS_KEY_NOTES_OPACITY, "255"); //$NON-NLS-1$
+        String sizeStr = peferences.getString(LibraryConstants.PREFS_KEY_NOTES_SIZE, LibraryConstants.DEFAULT_NOTES_SIZE + ""); //$NON-NLS-1$
+        String styleKey = doCustom + "#" + sizeStr + "#" + opacityStr + "#" + colorStr + "#" + textSizeStr;//NON-NLS
+        if (!styleKey.equals(notesStyleKey)) {
+            notesStyleKey = styleKey;
+            notesBitmapVersion++;
+        }
         Drawable notesDrawable;
         if (doCustom) {
-            String opacityStr = peferences.getString(LibraryConstants.PREFS_KEY_NOTES_OPACITY, "255"); //$NON-NLS-1$
-            String sizeStr = peferences.getString(LibraryConstants.PREFS_KEY_NOTES_SIZE, LibraryConstants.DEFAULT_NOTES_SIZE + ""); //$NON-NLS-1$
             int noteSize = Integer.parseInt(sizeStr);
             float opacity = Integer.parseInt(opacityStr);
 
@@ -185,15 +192,10 @@ public class NotesLayer extends ItemizedLayer<MarkerItem> implements ItemizedLay
                 pts.add(new MarkerItem(id, text, descr, new GeoPoint(lat, lon)));
                 c.moveToNext();
             }
-
-            for (MarkerItem mi : pts) {
-                mi.setMarker(createAdvancedSymbol(mi, notesBitmap));
-            }
-            addItems(pts);
         }
 
-
-        update();
+        // the symbols are created by the clusterer for the shown notes only
+        clusterer.setItems(pts);
     }
 
 
@@ -208,6 +210,10 @@ public class NotesLayer extends ItemizedLayer<MarkerItem> implements ItemizedLay
 
     @Override
     public boolean onItemSingleTapUp(int index, MarkerItem item) {
+        if (item != null && clusterer.isCluster(item)) {
+            clusterer.zoomTo(item);
+            return true;
+        }
         if (item != null) {
             String description = item.getSnippet();
             if (description.startsWith(NONFORMSTART)) {
@@ -250,12 +256,13 @@ public class NotesLayer extends ItemizedLayer<MarkerItem> implements ItemizedLay
      * Creates a transparent symbol with text and description.
      * PREFS_KEY_IMAGES_TEXT_VISIBLE
      *
-     * @param item      -> the MarkerItem to process, containing title and description
-     *                  if description starts with a '#' the first line of the description is drawn.
-     * @param poiBitmap -> poi bitmap for the center
+     * @param item -> the MarkerItem to process, containing title and description
+     *             if description starts with a '#' the first line of the description is drawn.
      * @return MarkerSymbol with title, description and symbol
      */
-    private MarkerSymbol createAdvancedSymbol(MarkerItem item, Bitmap poiBitmap) {
+    @Override
+    public MarkerSymbol createSymbol(MarkerItem item) {
+        Bitmap poiBitmap = notesBitmap;
         final Paint textPainter = CanvasAdapter.newPaint();
         textPainter.setStyle(Paint.Style.FILL);
         int textColor = ColorUtilities.toColor(colorStr);
@@ -302,6 +309,11 @@ public class NotesLayer extends ItemizedLayer<MarkerItem> implements ItemizedLay
         return (new MarkerSymbol(markerBitmap, MarkerSymbol.HotspotPlace.CENTER, true));
     }
 
+    @Override
+    public String getSymbolKey(MarkerItem item) {
+        return "notes#" + notesBitmapVersion + "#" + showLabels + "#" + item.title;//NON-NLS
+    }
+
     @Override
     public String getId() {
         return getName();
@@ -330,7 +342,7 @@ public class NotesLayer extends ItemizedLayer<MarkerItem> implements ItemizedLay
 
     @Override
     public void dispose() {
-
+        clusterer.dispose();
     }
 
     @Override
@@ -2,9 +2,6 @@ package eu.geopaparazzi.map.layers.userlayers;
 
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Rect;
-import android.graphics.RectF;
-import android.graphics.Typeface;
 import android.util.DisplayMetrics;
 import android.util.LongSparseArray;
 import android.util.TypedValue;
@@ -12,6 +9,7 @@ import android.util.TypedValue;
 import org.hortonmachine.dbs.compat.ASpatialDb;
 import org.hortonmachine.dbs.compat.GeometryColumn;
 import org.hortonmachine.dbs.compat.IGeometryParser;
+import org.hortonmachine.dbs.compat.IHMConnection;
 import org.hortonmachine.dbs.compat.IHMPreparedStatement;
 import org.hortonmachine.dbs.compat.objects.QueryResult;
 import org.hortonmachine.dbs.datatypes.EGeometryType;
@@ -19,16 +17,9 @@ import org.hortonmachine.dbs.geopackage.GeopackageCommonDb;
 import org.hortonmachine.dbs.geopackage.android.GPGeopackageDb;
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.locationtech.jts.algorithm.InteriorPointArea;
-import org.locationtech.jts.algorithm.InteriorPointLine;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
-import org.locationtech.jts.geom.LineString;
-import org.locationtech.jts.geom.Point;
-import org.locationtech.jts.geom.Polygon;
-import org.locationtech.jts.index.quadtree.Quadtree;
-import org.oscim.backend.canvas.Paint;
 import org.oscim.layers.vector.VectorLayer;
 import org.oscim.layers.vector.geometries.Drawable;
 import org.oscim.layers.vector.geometries.Style;
@@ -38,9 +29,11 @@ import java.util.List;
 
 import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.style.ColorUtilities;
-import eu.geopaparazzi.library.util.StringAsyncTask;
 import eu.geopaparazzi.map.GPMapView;
 import eu.geopaparazzi.map.features.Feature;
+import eu.geopaparazzi.map.features.editing.EditBatch;
+import eu.geopaparazzi.map.features.editing.EditManager;
+import eu.geopaparazzi.map.layers.LayerBootstrap;
 import eu.geopaparazzi.map.layers.LayerGroups;
 import eu.geopaparazzi.map.layers.interfaces.ILabeledLayer;
 import eu.geopaparazzi.map.layers.interfaces.IVectorDbLayer;
@@ -49,6 +42,8 @@ import eu.geopaparazzi.map.layers.layerobjects.GPPointDrawable;
 import eu.geopaparazzi.map.layers.layerobjects.GPPolygonDrawable;
 import eu.geopaparazzi.map.layers.layerobjects.IGPDrawable;
 import eu.geopaparazzi.map.layers.utils.GeopackageConnectionsHandler;
+import eu.geopaparazzi.map.layers.utils.LabelEngine;
+import eu.geopaparazzi.map.layers.utils.ThemeStyleTable;
 import eu.geopaparazzi.map.proj.OverlayViewProjection;
 import eu.geopaparazzi.map.utils.MapUtilities;
 
@@ -61,16 +56,16 @@ public class GeopackageTableLayer extends VectorLayer implements IVectorDbLayer,
     private EGeometryType geometryType;
     private GeometryColumn gCol;
 
-    private Style pointStyle = null;
-    private Style lineStyle = null;
-    private Style polygonStyle = null;
+    private ThemeStyleTable styleTable;
 
     private LongSparseArray<IGPDrawable> drawablesMap = null;
     private ASpatialDb db;
+    private final EditBatch.LayerEditor layerEditor = new GeopackageLayerEditor();
     private eu.geopaparazzi.library.style.Style gpStyle;
     private int labelColor;
-
-    private android.graphics.Paint labelsBackgroundPaint = new android.graphics.Paint();
+    private final LabelEngine labelEngine;
+    private boolean tableOpened = false;
+    private boolean disposed = false;
 
 
     public GeopackageTableLayer(GPMapView mapView, String dbPath, String tableName, boolean isEditing) {
@@ -79,44 +74,26 @@ public class GeopackageTableLayer extends VectorLayer implements IVectorDbLayer,
         this.dbPath = dbPath;
         this.tableName = tableName;
         this.isEditing = isEditing;
-
-        labelsBackgroundPaint.setAntiAlias(true);
-        labelsBackgroundPaint.setColor(Color.WHITE);
-        labelsBackgroundPaint.setAlpha(170);
-        labelsBackgroundPaint.setStyle(android.graphics.Paint.Style.FILL);
+        labelEngine = new LabelEngine(mapView, this::getFeatures);
     }
 
     public void load() {
         Layers layers = mapView.map().layers();
         layers.add(GeopackageTableLayer.this, LayerGroups.GROUP_MAPLAYERS.getGroupId());
-        try {
-            new StringAsyncTask(mapView.getContext()) {
-                @Override
-                protected String doBackgroundWork() {
-                    try {
-                        reloadData();
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                    return null;
-                }
-
-                @Override
-                protected void doUiPostWork(String response) {
-                }
-            }.execute();
-        } catch (Exception e) {
-            GPLog.error(this, null, e);
-        }
-
+        LayerBootstrap.INSTANCE.loadData(this, LayerBootstrap.PRIORITY_MAP_DATA);
     }
 
     @Override
     public void reloadData() throws Exception {
-        mDrawables.clear();
-        tmpDrawables.clear();
-
-        GeopackageConnectionsHandler.INSTANCE.openTable(dbPath, tableName);
+        synchronized (this) {
+            // a layer is not loaded again once disposed
+            if (disposed)
+                return;
+            if (!tableOpened) {
+                GeopackageConnectionsHandler.INSTANCE.openTable(dbPath, tableName);
+                tableOpened = true;
+            }
+        }
 
         db = GeopackageConnectionsHandler.INSTANCE.getDb(dbPath);
         gCol = db.getGeometryColumnsForTable(tableName);
@@ -131,115 +108,48 @@ public class GeopackageTableLayer extends VectorLayer implements IVectorDbLayer,
             labelColor = Color.BLACK;
         }
 
-        List<Feature> features = getFeatures(null);
-        drawablesMap = new LongSparseArray<>(features.size());
-
-        for (Feature feature : features) {
-            Geometry geom = feature.getDefaultGeometry();
-            long id = feature.getIdFieldValue();
-
-            eu.geopaparazzi.library.style.Style themeStyle = null;
-            if (gpStyle.themeField != null) {
-                String userData = geom.getUserData().toString();
-                String[] split = userData.split(GeopackageConnectionsHandler.LABEL_THEME_SEPARATOR);
-//                    String label = split[0];
-                String themeFieldValue = split[1];
-                themeStyle = gpStyle.themeMap.get(themeFieldValue);
-            }
+        styleTable = new ThemeStyleTable(gpStyle, geometryType);
 
-            IGPDrawable drawable = null;
-            if (geometryType == EGeometryType.POINT || geometryType == EGeometryType.MULTIPOINT) {
-                if (pointStyle == null) {
-                    pointStyle = Style.builder()
-                            .buffer(gpStyle.size)
-                            .strokeWidth(gpStyle.width)
-                            .strokeColor(ColorUtilities.toColor(gpStyle.strokecolor))
-                            .fillColor(ColorUtilities.toColor(gpStyle.fillcolor))
-                            .fillAlpha(gpStyle.fillalpha)
-                            .scaleZoomLevel(19)
-                            .build();
-                }
-                if (geom != null) {
-                    int numGeometries = geom.getNumGeometries();
-                    for (int i = 0; i < numGeometries; i++) {
-                        Geometry geometryN = geom.getGeometryN(i);
-                        Coordinate c = geometryN.getCoordinate();
-                        if (themeStyle != null) {
-                            Style pointThemeStyle = Style.builder()
-                                    .buffer(themeStyle.size)
-                                    .strokeWidth(themeStyle.width)
-                                    .strokeColor(ColorUtilities.toColor(themeStyle.strokecolor))
-                                    .fillColor(ColorUtilities.toColor(themeStyle.fillcolor))
-                                    .fillAlpha(themeStyle.fillalpha)
-                                    .scaleZoomLevel(19)
-                                    .build();
-                            drawable = new GPPointDrawable(c.y, c.x, pointThemeStyle, id);
-                        } else {
-                            drawable = new GPPointDrawable(c.y, c.x, pointStyle, id);
-                        }
-                        add((Drawable) drawable);
-                    }
-                }
-            } else if (geometryType == EGeometryType.LINESTRING || geometryType == EGeometryType.MULTILINESTRING) {
-                if (lineStyle == null) {
-                    lineStyle = Style.builder()
-                            .strokeColor(ColorUtilities.toColor(gpStyle.strokecolor))
-                            .strokeWidth(gpStyle.width)
-                            .cap(Paint.Cap.ROUND)
-                            .build();
-                }
-                if (geom != null) {
-                    int numGeometries = geom.getNumGeometries();
-                    for (int i = 0; i < numGeometries; i++) {
-                        Geometry geometryN = geom.getGeometryN(i);
-                        if (themeStyle != null) {
-                            Style lineThemeStyle = Style.builder()
-                                    .strokeColor(ColorUtilities.toColor(themeStyle.strokecolor))
-                                    .strokeWidth(themeStyle.width)
-                                    .cap(Paint.Cap.ROUND)
-                                    .build();
-                            drawable = new GPLineDrawable(geometryN, lineThemeStyle, id);
-                        } else {
-                            drawable = new GPLineDrawable(geometryN, lineStyle, id);
-                        }
-                        add((Drawable) drawable);
-                    }
-                }
-            } else if (geometryType == EGeometryType.POLYGON || geometryType == EGeometryType.MULTIPOLYGON) {
-                if (polygonStyle == null) {
-                    polygonStyle = Style.builder()
-                            .strokeColor(ColorUtilities.toColor(gpStyle.strokecolor))
-                            .strokeWidth(gpStyle.width)
-                            .fillColor(ColorUtilities.toColor(gpStyle.fillcolor))
-                            .fillAlpha(gpStyle.fillalpha)
-                            .cap(Paint.Cap.ROUND)
-                            .build();
-                }
-                if (geom != null) {
-                    int numGeometries = geom.getNumGeometries();
-                    for (int i = 0; i < numGeometries; i++) {
-                        Geometry geometryN = geom.getGeometryN(i);
-                        if (themeStyle != null) {
-                            Style polygonThemeStyle = Style.builder()
-                                    .strokeColor(ColorUtilities.toColor(themeStyle.strokecolor))
-                                    .strokeWidth(themeStyle.width)
-                                    .fillColor(ColorUtilities.toColor(themeStyle.fillcolor))
-                                    .fillAlpha(themeStyle.fillalpha)
-                                    .cap(Paint.Cap.ROUND)
-                                    .build();
-                            drawable = new GPPolygonDrawable(geometryN, polygonThemeStyle, id);
-                        } else {
-                            drawable = new GPPolygonDrawable(geometryN, polygonStyle, id);
-                        }
-                        add((Drawable) drawable);
-                    }
-                }
-            }
-            if (drawable != null) {
-                drawablesMap.put(id, drawable);
+        List<Feature> features = getFeatures(null);
+        synchronized (this) {
+            mDrawables.clear();
+            tmpDrawables.clear();
+            drawablesMap = new LongSparseArray<>(features.size());
+
+            for (Feature feature : features) {
+                Geometry geom = feature.getDefaultGeometry();
+                if (geom == null)
+                    continue;
+                long id = feature.getIdFieldValue();
+
+                addNewGeometry(geom, getFeatureStyle(feature), id);
             }
         }
         update();
+        labelEngine.invalidate();
+        // the edits of the editing session are not in the database yet
+        EditManager.INSTANCE.showSessionEdits(this);
+        if (GPLog.LOG_HEAVY)
+            GPLog.addLogEntry(this, "Loaded " + features.size() + " features of " + tableName + " with " //NON-NLS
+                    + styleTable.getDistinctStyleCount() + " styles"); //NON-NLS
+    }
+
+    /**
+     * Get the style of a feature, through its value of the theme field if the table is themed.
+     *
+     * @param feature the feature, <code>null</code> for new features that have only the geometry.
+     * @return the shared style.
+     */
+    private Style getFeatureStyle(Feature feature) {
+        String themeField = styleTable.getThemeField();
+        if (feature != null && themeField != null)
+            return styleTable.getStyle(feature.getAttribute(themeField));
+        return styleTable.getDefaultStyle();
+    }
+
+    @Override
+    public int getStyleCount() {
+        return styleTable != null ? styleTable.getDistinctStyleCount() : 0;
     }
 
     @Override
@@ -277,11 +187,21 @@ public class GeopackageTableLayer extends VectorLayer implements IVectorDbLayer,
         JSONObject jo = toDefaultJson();
         jo.put(LAYERPATH_TAG, dbPath);
         jo.put(LAYEREDITING_TAG, isEditing);
+        jo.put(LAYERLABELDENSITY_TAG, getLabelDensity());
         return jo;
     }
 
     @Override
-    public void dispose() {
+    public synchronized void dispose() {
+        disposed = true;
+        if (tableOpened) {
+            tableOpened = false;
+            try {
+                GeopackageConnectionsHandler.INSTANCE.disposeTable(dbPath, tableName);
+            } catch (Exception e) {
+                GPLog.error(this, null, e);
+            }
+        }
     }
 
     @Override
@@ -296,7 +216,8 @@ public class GeopackageTableLayer extends VectorLayer implements IVectorDbLayer,
 
     @Override
     public List<Feature> getFeatures(Envelope env) throws Exception {
-        QueryResult queryResult = db.getTableRecordsMapIn(getName(), env, -1, -1, null); // only 4326 are supported
+        QueryResult queryResult = GeopackageConnectionsHandler.INSTANCE.read(getDbPath(),
+                db -> db.getTableRecordsMapIn(getName(), env, -1, -1, null)); // only 4326 are supported
 
         return MapUtilities.fromQueryResult(getName(), getDbPath(), queryResult);
     }
@@ -307,90 +228,16 @@ public class GeopackageTableLayer extends VectorLayer implements IVectorDbLayer,
         return dbPath;
     }
 
-    private long insertGeometry(ASpatialDb db, String tableName, Geometry geometry) throws Exception {
-        int epsg = 4326;
-        String pk = ((GPGeopackageDb) db).getPrimaryKey(tableName);
-        long nextId = db.getLong("select max(" + pk + ") from " + tableName) + 1;
-
-        IGeometryParser gp = db.getType().getGeometryParser();
-        geometry.setSRID(epsg);
-        Object obj = gp.toSqlObject(geometry);
-        if (obj instanceof byte[]) {
-            byte[] objBytes = (byte[]) obj;
-            GeometryColumn gc = db.getGeometryColumnsForTable(tableName);
-            String sql = "INSERT INTO " + tableName + " (" + pk + "," + gc.geometryColumnName + ") VALUES (?, ?)";
-
-            db.execOnConnection(connection -> {
-                try (IHMPreparedStatement pStmt = connection.prepareStatement(sql)) {
-                    pStmt.setLong(1, nextId);
-                    pStmt.setBytes(2, objBytes);
-                    pStmt.executeUpdate();
-                }
-                return null;
-            });
-
-            Envelope env = geometry.getEnvelopeInternal();
-            double minX = env.getMinX();
-            double maxX = env.getMaxX();
-            double minY = env.getMinY();
-            double maxY = env.getMaxY();
-
-            try {
-                // also update rtree index, since it is not supported
-                String sqlTree = "INSERT OR REPLACE INTO rtree_" + tableName + "_" + gc.geometryColumnName +
-                        " VALUES (" + nextId + "," + minX + ", " + maxX + "," + minY + ", " + maxY + ");";
-                db.executeInsertUpdateDeleteSql(sqlTree);
-            } catch (Exception e) {
-                GPLog.error(this, "ERROR on rtree", e);
-            }
-
-            return nextId;
-        }
-
-        throw new IllegalArgumentException("Geometry object is not byte array.");
+    @Override
+    public EditBatch startEditBatch() throws Exception {
+        return new EditBatch(db, layerEditor);
     }
 
-    private void updateGeometry(ASpatialDb db, String tableName, long id, Geometry geometry) throws Exception {
-        int epsg = 4326;
-        String pk = ((GPGeopackageDb) db).getPrimaryKey(tableName);
-
-        IGeometryParser gp = db.getType().getGeometryParser();
-        geometry.setSRID(epsg);
-        Object obj = gp.toSqlObject(geometry);
-        if (obj instanceof byte[]) {
-            byte[] objBytes = (byte[]) obj;
-            GeometryColumn gc = db.getGeometryColumnsForTable(tableName);
-            String sql = "update " + tableName + " set " + gc.geometryColumnName + "=? where " + pk + "=" + id;
-
-            db.execOnConnection(connection -> {
-                try (IHMPreparedStatement pStmt = connection.prepareStatement(sql)) {
-                    pStmt.setBytes(1, objBytes);
-                    pStmt.executeUpdate();
-                }
-                return null;
-            });
-
-            Envelope env = geometry.getEnvelopeInternal();
-            double minX = env.getMinX();
-            double maxX = env.getMaxX();
-            double minY = env.getMinY();
-            double maxY = env.getMaxY();
-
-            try {
-                // also update rtree index, since it is not supported
-                String sqlTree = "INSERT OR REPLACE INTO rtree_" + tableName + "_" + gc.geometryColumnName +
-                        " VALUES (" + id + "," + minX + ", " + maxX + "," + minY + ", " + maxY + ");";
-                db.executeInsertUpdateDeleteSql(sqlTree);
-            } catch (Exception e) {
-                GPLog.error(this, "ERROR on rtree", e);
-            }
-
-        } else {
-            throw new IllegalArgumentException("Geometry object is not byte array.");
-        }
+    @Override
+    public void previewEdits(List<EditBatch.Edit> edits) {
+        layerEditor.onCommitted(edits);
     }
 
-
     @Override
     public void addNewFeatureByGeometry(Geometry geometry, int geometrySrid)
             throws Exception {
@@ -399,22 +246,17 @@ public class GeopackageTableLayer extends VectorLayer implements IVectorDbLayer,
             // not supported
             return;
         }
-        long newId = insertGeometry(db, gCol.tableName, geometry);
-        /*
-         * if everything went well, add also geometry to the layer
-         */
-        addNewGeometry(geometry, newId);
-        update();
+        startEditBatch().addFeature(geometry, geometrySrid).commit();
     }
 
-    private void addNewGeometry(Geometry geometry, long id) {
+    private void addNewGeometry(Geometry geometry, Style style, long id) {
         if (geometryType == EGeometryType.POINT || geometryType == EGeometryType.MULTIPOINT) {
             int numGeometries = geometry.getNumGeometries();
             for (int i = 0; i < numGeometries; i++) {
                 Geometry geometryN = geometry.getGeometryN(i);
                 Coordinate c = geometryN.getCoordinate();
 
-                GPPointDrawable drawable = new GPPointDrawable(c.y, c.x, pointStyle, id);
+                GPPointDrawable drawable = new GPPointDrawable(c.y, c.x, style, id);
                 add(drawable);
                 drawablesMap.put(id, drawable);
 
@@ -423,7 +265,7 @@ public class GeopackageTableLayer extends VectorLayer implements IVectorDbLayer,
             int numGeometries = geometry.getNumGeometries();
             for (int i = 0; i < numGeometries; i++) {
                 Geometry geometryN = geometry.getGeometryN(i);
-                GPLineDrawable drawable = new GPLineDrawable(geometryN, lineStyle, id);
+                GPLineDrawable drawable = new GPLineDrawable(geometryN, style, id);
                 add(drawable);
                 drawablesMap.put(id, drawable);
             }
@@ -431,7 +273,7 @@ public class GeopackageTableLayer extends VectorLayer implements IVectorDbLayer,
             int numGeometries = geometry.getNumGeometries();
             for (int i = 0; i < numGeometries; i++) {
                 Geometry geometryN = geometry.getGeometryN(i);
-                GPPolygonDrawable drawable = new GPPolygonDrawable(geometryN, polygonStyle, id);
+                GPPolygonDrawable drawable = new GPPolygonDrawable(geometryN, style, id);
                 add(drawable);
                 drawablesMap.put(id, drawable);
             }
@@ -441,191 +283,131 @@ public class GeopackageTableLayer extends VectorLayer implements IVectorDbLayer,
     @Override
     public void updateFeatureGeometry(Feature feature, Geometry geometry, int geometrySrid)
             throws Exception {
-        updateGeometry(db, gCol.tableName, feature.getIdFieldValue(), geometry);
-
-        long id = feature.getIdFieldValue();
-        IGPDrawable drawable = drawablesMap.get(id);
-        if (drawable != null)
-            remove((Drawable) drawable);
-        drawablesMap.remove(id);
-
-        addNewGeometry(geometry, id);
-        update();
+        startEditBatch().updateGeometry(feature, geometry, geometrySrid).commit();
     }
 
     public void deleteFeatures(List<Feature> features) throws Exception {
         if (features.size() == 0) return;
-        Feature firstFeature = features.get(0);
-        ASpatialDb db = GeopackageConnectionsHandler.INSTANCE.getDb(firstFeature.getDatabasePath());
-        String tableName = firstFeature.getTableName();
+        EditBatch batch = startEditBatch();
+        for (Feature feature : features) {
+            batch.deleteFeature(feature);
+        }
+        batch.commit();
+    }
 
-        StringBuilder sbIn = new StringBuilder();
-        sbIn.append("delete from \"").append(tableName);//NON-NLS
-        sbIn.append("\" where ");//NON-NLS
+    /**
+     * Writes the edits of the batches of this layer. Only 4326 is supported.
+     */
+    private class GeopackageLayerEditor implements EditBatch.LayerEditor {
+
+        @Override
+        public long insertGeometry(IHMConnection connection, Geometry geometry, int srid) throws Exception {
+            checkSrid();
+            // the key is assigned by the database
+            String sql = "INSERT INTO " + gCol.tableName + " (" + gCol.geometryColumnName + ") VALUES (?)";
+            try (IHMPreparedStatement pStmt = connection.prepareStatement(sql)) {
+                pStmt.setBytes(1, toGpkgBytes(geometry));
+                pStmt.executeUpdate();
+            }
+            long newId = EditBatch.getLastInsertRowid(connection);
+            updateRtree(connection, newId, geometry);
+            return newId;
+        }
 
-        int idIndex = firstFeature.getIdIndex();
-        String indexName = firstFeature.getAttributeNames().get(idIndex);
+        @Override
+        public void updateGeometry(IHMConnection connection, Feature feature, Geometry geometry, int srid) throws Exception {
+            checkSrid();
+            String pk = ((GPGeopackageDb) db).getPrimaryKey(gCol.tableName);
+            String sql = "update " + gCol.tableName + " set " + gCol.geometryColumnName + "=? where " + pk + "=?";
+            try (IHMPreparedStatement pStmt = connection.prepareStatement(sql)) {
+                pStmt.setBytes(1, toGpkgBytes(geometry));
+                pStmt.setLong(2, feature.getIdFieldValue());
+                pStmt.executeUpdate();
+            }
+            updateRtree(connection, feature.getIdFieldValue(), geometry);
+        }
 
-        StringBuilder sb = new StringBuilder();
-        for (Feature feature : features) {
-            sb.append(" OR ");//NON-NLS
-            sb.append(indexName).append("=");
-            sb.append(feature.getAttributeValues().get(idIndex));
+        @Override
+        public void onCommitted(List<EditBatch.Edit> edits) {
+            synchronized (GeopackageTableLayer.this) {
+                // not loaded yet, the session edits are shown when loaded
+                if (drawablesMap == null)
+                    return;
+                for (EditBatch.Edit edit : edits) {
+                    // changed features keep their style, the others, as new features or
+                    // deleted ones that are restored, get it from their theme value
+                    Style style = null;
+                    if (edit.type == EditBatch.EditType.UPDATE_GEOMETRY || edit.type == EditBatch.EditType.DELETE) {
+                        IGPDrawable drawable = drawablesMap.get(edit.id);
+                        if (drawable != null) {
+                            style = ((Drawable) drawable).getStyle();
+                            remove((Drawable) drawable);
+                        }
+                        drawablesMap.remove(edit.id);
+                    }
+                    if (edit.type == EditBatch.EditType.ADD || edit.type == EditBatch.EditType.UPDATE_GEOMETRY) {
+                        if (style == null)
+                            style = getFeatureStyle(edit.feature);
+                        addNewGeometry(edit.geometry, style, edit.id);
+                    }
+                }
+                update();
+                labelEngine.invalidate();
+            }
         }
-        String valuesPart = sb.substring(4);
 
-        sbIn.append(valuesPart);
+        private void checkSrid() {
+            if (gCol.srid != GeopackageCommonDb.WGS84LL_SRID)
+                throw new IllegalArgumentException("Only geopackage tables in EPSG:4326 can be edited.");
+        }
 
-        String updateQuery = sbIn.toString();
-        db.executeInsertUpdateDeleteSql(updateQuery);
+        private byte[] toGpkgBytes(Geometry geometry) throws Exception {
+            IGeometryParser gp = db.getType().getGeometryParser();
+            geometry.setSRID(GeopackageCommonDb.WGS84LL_SRID);
+            Object obj = gp.toSqlObject(geometry);
+            if (obj instanceof byte[]) {
+                return (byte[]) obj;
+            }
+            throw new IllegalArgumentException("Geometry object is not byte array.");
+        }
 
-        for (Feature feature : features) {
-            long id = feature.getIdFieldValue();
-            IGPDrawable drawable = drawablesMap.get(id);
-            if (drawable != null)
-                remove((Drawable) drawable);
-            drawablesMap.remove(id);
+        private void updateRtree(IHMConnection connection, long id, Geometry geometry) {
+            Envelope env = geometry.getEnvelopeInternal();
+            try {
+                // also update rtree index, since it is not supported
+                String sqlTree = "INSERT OR REPLACE INTO rtree_" + gCol.tableName + "_" + gCol.geometryColumnName +
+                        " VALUES (?, ?, ?, ?, ?)";
+                try (IHMPreparedStatement pStmt = connection.prepareStatement(sqlTree)) {
+                    pStmt.setLong(1, id);
+                    pStmt.setDouble(2, env.getMinX());
+                    pStmt.setDouble(3, env.getMaxX());
+                    pStmt.setDouble(4, env.getMinY());
+                    pStmt.setDouble(5, env.getMaxY());
+                    pStmt.executeUpdate();
+                }
+            } catch (Exception e) {
+                GPLog.error(this, "ERROR on rtree", e);
+            }
         }
-        update();
     }
 
     @Override
     public void drawLabels(Canvas canvas, OverlayViewProjection prj) throws Exception {
         if (gpStyle != null && gpStyle.labelvisible == 1) {
-            android.graphics.Point drawPoint = new android.graphics.Point();
             DisplayMetrics displayMetrics = getMapView().getContext().getResources().getDisplayMetrics();
             int pixel = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, gpStyle.labelsize, displayMetrics);
+            labelEngine.setStyle(geometryType, gpStyle.labelfield, pixel, labelColor);
+            labelEngine.draw(canvas, prj);
+        }
+    }
 
-            android.graphics.Paint labelPaint = new android.graphics.Paint();
-            labelPaint.setAntiAlias(true);
-            labelPaint.setTextSize(pixel);
-            labelPaint.setColor(labelColor);
-            labelPaint.setTypeface(Typeface.defaultFromStyle(Typeface.BOLD));
-
-            Rect rect = new Rect();
-
-            Rect bounds = canvas.getClipBounds();
-            Coordinate ll = prj.fromPixels(bounds.left, bounds.bottom);
-            Coordinate ur = prj.fromPixels(bounds.right, bounds.top);
-            Envelope env = new Envelope(ll, ur);
-
-            Quadtree labelTree = new Quadtree();
-
-            List<Feature> features = getFeatures(env);
-            for (Feature f : features) {
-                Object attribute = f.getAttribute(gpStyle.labelfield);
-                if (attribute != null) {
-                    String txt = attribute.toString();
-                    if (txt.length() > 0) {
-                        labelPaint.getTextBounds(txt, 0, txt.length(), rect);
-                        int textWidth = rect.width();
-                        int textHeight = rect.height();
-
-                        if (geometryType == EGeometryType.POINT || geometryType == EGeometryType.MULTIPOINT) {
-                            Point p = f.getDefaultGeometry().getCentroid();
-                            prj.toPixels(p.getCoordinate(), drawPoint);
-
-                            int x = drawPoint.x - textWidth / 2;
-                            int y = drawPoint.y - textHeight;
-
-                            int indent = 10;
-                            RectF backRect = new RectF();
-                            backRect.left = x - indent;
-                            backRect.right = x + textWidth + indent * 2;
-                            backRect.bottom = y + indent * 2;
-                            backRect.top = y - textHeight - indent * 2;
-
-                            Envelope lenv = new Envelope(backRect.left, backRect.right, backRect.bottom, backRect.top);
-                            List<Envelope> res = labelTree.query(lenv);
-                            boolean inters = false;
-                            for (Envelope e : res) {
-                                if (lenv.intersects(e)) {
-                                    inters = true;
-                                    break;
-                                }
-                            }
-                            if (!inters) {
-                                canvas.drawRoundRect(backRect, indent, indent, labelsBackgroundPaint);
-                                canvas.drawText(txt, x, y, labelPaint);
-                                labelTree.insert(lenv, lenv);
-                            }
-                        } else if (geometryType == EGeometryType.POLYGON || geometryType == EGeometryType.MULTIPOLYGON) {
-                            Geometry geometry = f.getDefaultGeometry();
-                            int numGeometries = geometry.getNumGeometries();
-                            for (int i = 0; i < numGeometries; i++) {
-                                Polygon polygon = (Polygon) geometry.getGeometryN(i);
-
-                                Coordinate interiorPoint = new InteriorPointArea(polygon).getInteriorPoint();
-                                prj.toPixels(interiorPoint, drawPoint);
-
-                                int x = drawPoint.x - textWidth / 2;
-                                int y = drawPoint.y;
-
-                                int indent = 10;
-                                RectF backRect = new RectF();
-                                backRect.left = x - indent;
-                                backRect.right = x + textWidth + indent * 2;
-                                backRect.bottom = y + indent * 2;
-                                backRect.top = y - textHeight - indent * 2;
-
-                                Envelope lenv = new Envelope(backRect.left, backRect.right, backRect.bottom, backRect.top);
-                                List<Envelope> res = labelTree.query(lenv);
-                                boolean inters = false;
-                                for (Envelope e : res) {
-                                    if (lenv.intersects(e)) {
-                                        inters = true;
-                                        break;
-                                    }
-                                }
-                                if (!inters) {
-                                    canvas.drawRoundRect(backRect, indent, indent, labelsBackgroundPaint);
-                                    canvas.drawText(txt, x, y, labelPaint);
-                                    labelTree.insert(lenv, lenv);
-                                }
-                            }
-                        } else if (geometryType == EGeometryType.LINESTRING || geometryType == EGeometryType.MULTILINESTRING) {
-                            Geometry geometry = f.getDefaultGeometry();
-                            int numGeometries = geometry.getNumGeometries();
-                            for (int i = 0; i < numGeometries; i++) {
-                                LineString polygon = (LineString) geometry.getGeometryN(i);
-
-                                Coordinate interiorPoint = new InteriorPointLine(polygon).getInteriorPoint();
-                                prj.toPixels(interiorPoint, drawPoint);
-
-                                int x = drawPoint.x - textWidth / 2;
-                                int y = drawPoint.y;
-
-                                int indent = 10;
-                                RectF backRect = new RectF();
-                                backRect.left = x - indent;
-                                backRect.right = x + textWidth + indent * 2;
-                                backRect.bottom = y + indent * 2;
-                                backRect.top = y - textHeight - indent * 2;
-
-                                Envelope lenv = new Envelope(backRect.left, backRect.right, backRect.bottom, backRect.top);
-                                List<Envelope> res = labelTree.query(lenv);
-                                boolean inters = false;
-                                for (Envelope e : res) {
-                                    if (lenv.intersects(e)) {
-                                        inters = true;
-                                        break;
-                                    }
-                                }
-                                if (!inters) {
-                                    canvas.drawRoundRect(backRect, indent, indent, labelsBackgroundPaint);
-                                    canvas.drawText(txt, x, y, labelPaint);
-                                    labelTree.insert(lenv, lenv);
-                                }
-                            }
-
-
-                        }
-
-                    }
-                }
-            }
-
+    @Override
+    public int getLabelDensity() {
+        return labelEngine.getLabelDensity();
+    }
 
-        }
+    @Override
+    public void setLabelDensity(int labelDensity) {
+        labelEngine.setLabelDensity(labelDensity);
     }
 }
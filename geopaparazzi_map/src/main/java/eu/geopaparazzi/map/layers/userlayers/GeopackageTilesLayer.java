@@ -18,6 +18,7 @@ public class GeopackageTilesLayer extends BitmapTileLayer implements IRasterTile
     private Integer transparentColor;
     private GPMapView mapView;
     private String dbPath;
+    private boolean tableOpened = false;
 
     public GeopackageTilesLayer(GPMapView mapView, String dbPath, String tableName, Float alpha, Integer transparentColor) throws Exception {
         super(mapView.map(), new GeopackageTileSource(dbPath, tableName, null, transparentColor));
@@ -54,6 +55,7 @@ public class GeopackageTilesLayer extends BitmapTileLayer implements IRasterTile
     public void load() {
         try {
             GeopackageConnectionsHandler.INSTANCE.openTable(dbPath, name);
+            tableOpened = true;
         } catch (Exception e) {
             GPLog.error(this, "ERROR", e);
         }
@@ -90,5 +92,13 @@ public class GeopackageTilesLayer extends BitmapTileLayer implements IRasterTile
     @Override
     public void dispose() {
         mTileSource.close();
+        if (tableOpened) {
+            tableOpened = false;
+            try {
+                GeopackageConnectionsHandler.INSTANCE.disposeTable(dbPath, name);
+            } catch (Exception e) {
+                GPLog.error(this, null, e);
+            }
+        }
     }
 }
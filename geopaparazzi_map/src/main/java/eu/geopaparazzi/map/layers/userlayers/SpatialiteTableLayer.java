@@ -2,31 +2,26 @@ package eu.geopaparazzi.map.layers.userlayers;
 
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Rect;
-import android.graphics.RectF;
-import android.graphics.Typeface;
 import android.util.DisplayMetrics;
 import android.util.LongSparseArray;
 import android.util.TypedValue;
 
 import org.hortonmachine.dbs.compat.ASpatialDb;
 import org.hortonmachine.dbs.compat.GeometryColumn;
+import org.hortonmachine.dbs.compat.IHMConnection;
+import org.hortonmachine.dbs.compat.IHMPreparedStatement;
+import org.hortonmachine.dbs.compat.IHMResultSet;
+import org.hortonmachine.dbs.compat.IHMStatement;
 import org.hortonmachine.dbs.compat.objects.QueryResult;
 import org.hortonmachine.dbs.datatypes.EDataType;
 import org.hortonmachine.dbs.datatypes.EGeometryType;
 import org.hortonmachine.dbs.datatypes.ESpatialiteGeometryType;
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.locationtech.jts.algorithm.InteriorPointArea;
-import org.locationtech.jts.algorithm.InteriorPointLine;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
-import org.locationtech.jts.geom.LineString;
-import org.locationtech.jts.geom.Point;
-import org.locationtech.jts.geom.Polygon;
-import org.locationtech.jts.index.quadtree.Quadtree;
-import org.oscim.backend.canvas.Paint;
+import org.locationtech.jts.io.WKBWriter;
 import org.oscim.layers.vector.VectorLayer;
 import org.oscim.layers.vector.geometries.Drawable;
 import org.oscim.layers.vector.geometries.Style;
@@ -37,9 +32,11 @@ import java.util.List;
 import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.style.ColorUtilities;
 import eu.geopaparazzi.library.util.LibraryConstants;
-import eu.geopaparazzi.library.util.StringAsyncTask;
 import eu.geopaparazzi.map.GPMapView;
 import eu.geopaparazzi.map.features.Feature;
+import eu.geopaparazzi.map.features.editing.EditBatch;
+import eu.geopaparazzi.map.features.editing.EditManager;
+import eu.geopaparazzi.map.layers.LayerBootstrap;
 import eu.geopaparazzi.map.layers.LayerGroups;
 import eu.geopaparazzi.map.layers.interfaces.ILabeledLayer;
 import eu.geopaparazzi.map.layers.interfaces.IVectorDbLayer;
@@ -47,8 +44,11 @@ import eu.geopaparazzi.map.layers.layerobjects.GPLineDrawable;
 import eu.geopaparazzi.map.layers.layerobjects.GPPointDrawable;
 import eu.geopaparazzi.map.layers.layerobjects.GPPolygonDrawable;
 import eu.geopaparazzi.map.layers.layerobjects.IGPDrawable;
+import eu.geopaparazzi.map.layers.utils.LabelEngine;
+import eu.geopaparazzi.map.layers.utils.ReprojectionHandler;
 import eu.geopaparazzi.map.layers.utils.SpatialiteConnectionsHandler;
 import eu.geopaparazzi.map.layers.utils.SpatialiteUtilities;
+import eu.geopaparazzi.map.layers.utils.ThemeStyleTable;
 import eu.geopaparazzi.map.proj.OverlayViewProjection;
 import eu.geopaparazzi.map.utils.MapUtilities;
 
@@ -62,15 +62,16 @@ public class SpatialiteTableLayer extends VectorLayer implements IVectorDbLayer,
     private GeometryColumn gCol;
     private List<String[]> tableColumnInfos;
 
-    private Style pointStyle = null;
-    private Style lineStyle = null;
-    private Style polygonStyle = null;
+    private ThemeStyleTable styleTable;
 
     private LongSparseArray<IGPDrawable> drawablesMap = null;
+    private final EditBatch.LayerEditor layerEditor = new SpatialiteLayerEditor();
 
     private eu.geopaparazzi.library.style.Style gpStyle;
     private int labelColor;
-    private android.graphics.Paint labelsBackgroundPaint = new android.graphics.Paint();
+    private final LabelEngine labelEngine;
+    private boolean tableOpened = false;
+    private boolean disposed = false;
 
     public SpatialiteTableLayer(GPMapView mapView, String dbPath, String tableName, boolean isEditing) {
         super(mapView.map());
@@ -78,45 +79,27 @@ public class SpatialiteTableLayer extends VectorLayer implements IVectorDbLayer,
         this.dbPath = dbPath;
         this.tableName = tableName;
         this.isEditing = isEditing;
-
-        labelsBackgroundPaint.setAntiAlias(true);
-        labelsBackgroundPaint.setColor(Color.WHITE);
-        labelsBackgroundPaint.setAlpha(170);
-        labelsBackgroundPaint.setStyle(android.graphics.Paint.Style.FILL);
+        labelEngine = new LabelEngine(mapView, this::getLabelFeatures);
     }
 
     public void load() {
         Layers layers = mapView.map().layers();
         layers.add(SpatialiteTableLayer.this, LayerGroups.GROUP_MAPLAYERS.getGroupId());
-        try {
-            new StringAsyncTask(mapView.getContext()) {
-                @Override
-                protected String doBackgroundWork() {
-                    try {
-                        reloadData();
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                    return null;
-                }
-
-                @Override
-                protected void doUiPostWork(String response) {
-
-                }
-            }.execute();
-        } catch (Exception e) {
-            GPLog.error(this, null, e);
-        }
+        LayerBootstrap.INSTANCE.loadData(this, LayerBootstrap.PRIORITY_MAP_DATA);
     }
 
 
     @Override
     public void reloadData() throws Exception {
-        mDrawables.clear();
-        tmpDrawables.clear();
-
-        SpatialiteConnectionsHandler.INSTANCE.openTable(dbPath, tableName);
+        synchronized (this) {
+            // a layer is not loaded again once disposed
+            if (disposed)
+                return;
+            if (!tableOpened) {
+                SpatialiteConnectionsHandler.INSTANCE.openTable(dbPath, tableName);
+                tableOpened = true;
+            }
+        }
 
         ASpatialDb db = SpatialiteConnectionsHandler.INSTANCE.getDb(dbPath);
         gCol = db.getGeometryColumnsForTable(tableName);
@@ -131,115 +114,48 @@ public class SpatialiteTableLayer extends VectorLayer implements IVectorDbLayer,
             labelColor = Color.BLACK;
         }
 
-        List<Feature> features = getFeatures(null);
-        drawablesMap = new LongSparseArray<>(features.size());
-
-        for (Feature feature : features) {
-            Geometry geom = feature.getDefaultGeometry();
-            long id = feature.getIdFieldValue();
-
-            eu.geopaparazzi.library.style.Style themeStyle = null;
-            if (gpStyle.themeField != null) {
-                String userData = geom.getUserData().toString();
-                String[] split = userData.split(SpatialiteUtilities.LABEL_THEME_SEPARATOR);
-//                    String label = split[0];
-                String themeFieldValue = split[1];
-                themeStyle = gpStyle.themeMap.get(themeFieldValue);
-            }
+        styleTable = new ThemeStyleTable(gpStyle, geometryType);
 
-            IGPDrawable drawable = null;
-            if (geometryType == EGeometryType.POINT || geometryType == EGeometryType.MULTIPOINT) {
-                if (pointStyle == null) {
-                    pointStyle = Style.builder()
-                            .buffer(gpStyle.size)
-                            .strokeWidth(gpStyle.width)
-                            .strokeColor(ColorUtilities.toColor(gpStyle.strokecolor))
-                            .fillColor(ColorUtilities.toColor(gpStyle.fillcolor))
-                            .fillAlpha(gpStyle.fillalpha)
-                            .scaleZoomLevel(19)
-                            .build();
-                }
-                if (geom != null) {
-                    int numGeometries = geom.getNumGeometries();
-                    for (int i = 0; i < numGeometries; i++) {
-                        Geometry geometryN = geom.getGeometryN(i);
-                        Coordinate c = geometryN.getCoordinate();
-                        if (themeStyle != null) {
-                            Style pointThemeStyle = Style.builder()
-                                    .buffer(themeStyle.size)
-                                    .strokeWidth(themeStyle.width)
-                                    .strokeColor(ColorUtilities.toColor(themeStyle.strokecolor))
-                                    .fillColor(ColorUtilities.toColor(themeStyle.fillcolor))
-                                    .fillAlpha(themeStyle.fillalpha)
-                                    .scaleZoomLevel(19)
-                                    .build();
-                            drawable = new GPPointDrawable(c.y, c.x, pointThemeStyle, id);
-                        } else {
-                            drawable = new GPPointDrawable(c.y, c.x, pointStyle, id);
-                        }
-                        add((Drawable) drawable);
-                    }
-                }
-            } else if (geometryType == EGeometryType.LINESTRING || geometryType == EGeometryType.MULTILINESTRING) {
-                if (lineStyle == null) {
-                    lineStyle = Style.builder()
-                            .strokeColor(ColorUtilities.toColor(gpStyle.strokecolor))
-                            .strokeWidth(gpStyle.width)
-                            .cap(Paint.Cap.ROUND)
-                            .build();
-                }
-                if (geom != null) {
-                    int numGeometries = geom.getNumGeometries();
-                    for (int i = 0; i < numGeometries; i++) {
-                        Geometry geometryN = geom.getGeometryN(i);
-                        if (themeStyle != null) {
-                            Style lineThemeStyle = Style.builder()
-                                    .strokeColor(ColorUtilities.toColor(themeStyle.strokecolor))
-                                    .strokeWidth(themeStyle.width)
-                                    .cap(Paint.Cap.ROUND)
-                                    .build();
-                            drawable = new GPLineDrawable(geometryN, lineThemeStyle, id);
-                        } else {
-                            drawable = new GPLineDrawable(geometryN, lineStyle, id);
-                        }
-                        add((Drawable) drawable);
-                    }
-                }
-            } else if (geometryType == EGeometryType.POLYGON || geometryType == EGeometryType.MULTIPOLYGON) {
-                if (polygonStyle == null) {
-                    polygonStyle = Style.builder()
-                            .strokeColor(ColorUtilities.toColor(gpStyle.strokecolor))
-                            .strokeWidth(gpStyle.width)
-                            .fillColor(ColorUtilities.toColor(gpStyle.fillcolor))
-                            .fillAlpha(gpStyle.fillalpha)
-                            .cap(Paint.Cap.ROUND)
-                            .build();
-                }
-                if (geom != null) {
-                    int numGeometries = geom.getNumGeometries();
-                    for (int i = 0; i < numGeometries; i++) {
-                        Geometry geometryN = geom.getGeometryN(i);
-                        if (themeStyle != null) {
-                            Style polygonThemeStyle = Style.builder()
-                                    .strokeColor(ColorUtilities.toColor(themeStyle.strokecolor))
-                                    .strokeWidth(themeStyle.width)
-                                    .fillColor(ColorUtilities.toColor(themeStyle.fillcolor))
-                                    .fillAlpha(themeStyle.fillalpha)
-                                    .cap(Paint.Cap.ROUND)
-                                    .build();
-                            drawable = new GPPolygonDrawable(geometryN, polygonThemeStyle, id);
-                        } else {
-                            drawable = new GPPolygonDrawable(geometryN, polygonStyle, id);
-                        }
-                        add((Drawable) drawable);
-                    }
-                }
-            }
-            if (drawable != null) {
-                drawablesMap.put(id, drawable);
+        List<Feature> features = getFeatures(null);
+        synchronized (this) {
+            mDrawables.clear();
+            tmpDrawables.clear();
+            drawablesMap = new LongSparseArray<>(features.size());
+
+            for (Feature feature : features) {
+                Geometry geom = feature.getDefaultGeometry();
+                if (geom == null)
+                    continue;
+                long id = feature.getIdFieldValue();
+
+                addNewGeometry(geom, getFeatureStyle(feature), id);
             }
         }
         update();
+        labelEngine.invalidate();
+        // the edits of the editing session are not in the database yet
+        EditManager.INSTANCE.showSessionEdits(this);
+        if (GPLog.LOG_HEAVY)
+            GPLog.addLogEntry(this, "Loaded " + features.size() + " features of " + tableName + " with " //NON-NLS
+                    + styleTable.getDistinctStyleCount() + " styles"); //NON-NLS
+    }
+
+    /**
+     * Get the style of a feature, through its value of the theme field if the table is themed.
+     *
+     * @param feature the feature, <code>null</code> for new features that have only the geometry.
+     * @return the shared style.
+     */
+    private Style getFeatureStyle(Feature feature) {
+        String themeField = styleTable.getThemeField();
+        if (feature != null && themeField != null)
+            return styleTable.getStyle(feature.getAttribute(themeField));
+        return styleTable.getDefaultStyle();
+    }
+
+    @Override
+    public int getStyleCount() {
+        return styleTable != null ? styleTable.getDistinctStyleCount() : 0;
     }
 
     @Override
@@ -277,11 +193,21 @@ public class SpatialiteTableLayer extends VectorLayer implements IVectorDbLayer,
         JSONObject jo = toDefaultJson();
         jo.put(LAYERPATH_TAG, dbPath);
         jo.put(LAYEREDITING_TAG, isEditing);
+        jo.put(LAYERLABELDENSITY_TAG, getLabelDensity());
         return jo;
     }
 
     @Override
-    public void dispose() {
+    public synchronized void dispose() {
+        disposed = true;
+        if (tableOpened) {
+            tableOpened = false;
+            try {
+                SpatialiteConnectionsHandler.INSTANCE.disposeTable(dbPath, tableName);
+            } catch (Exception e) {
+                GPLog.error(this, null, e);
+            }
+        }
     }
 
     @Override
@@ -296,8 +222,8 @@ public class SpatialiteTableLayer extends VectorLayer implements IVectorDbLayer,
 
     @Override
     public List<Feature> getFeatures(Envelope env) throws Exception {
-        ASpatialDb db = SpatialiteConnectionsHandler.INSTANCE.getDb(dbPath);
-        QueryResult queryResult = db.getTableRecordsMapIn(getName(), env, -1, LibraryConstants.SRID_WGS84_4326, null);
+        QueryResult queryResult = SpatialiteConnectionsHandler.INSTANCE.read(dbPath,
+                db -> db.getTableRecordsMapIn(getName(), env, -1, LibraryConstants.SRID_WGS84_4326, null));
 
         return MapUtilities.fromQueryResult(getName(), dbPath, queryResult);
     }
@@ -309,107 +235,29 @@ public class SpatialiteTableLayer extends VectorLayer implements IVectorDbLayer,
     }
 
     @Override
-    public void addNewFeatureByGeometry(Geometry geometry, int geometrySrid)
-            throws Exception {
-        ASpatialDb db = SpatialiteConnectionsHandler.INSTANCE.getDb(getDbPath());
-
-
-        String geometryFieldName = gCol.geometryColumnName;
-        int srid = gCol.srid;
-        ESpatialiteGeometryType spatialiteGeometryType = geometryType.toSpatialiteGeometryType();
-        String geometryTypeCast = spatialiteGeometryType.getGeometryTypeCast();
-        String spaceDimensionsCast = spatialiteGeometryType.getSpaceDimensionsCast();
-        String multiSingleCast = spatialiteGeometryType.getMultiSingleCast();
-
-
-        long newId = -1;
-        // get list of non geom fields and default values
-        String nonGeomFieldsNames;
-        StringBuilder nonGeomFieldsValues = new StringBuilder();
-        StringBuilder nonGeomFieldsNamesBuilder = new StringBuilder();
-        for (String[] columnInfo : tableColumnInfos) {
-            String field = columnInfo[0];
-            String fieldType = columnInfo[1];
-            boolean ignore = SpatialiteUtilities.doIgnoreField(field);
-            if (!ignore) {
-                EDataType tableFieldType = EDataType.getType4Name(fieldType);
-                if (tableFieldType != null) {
-                    nonGeomFieldsNamesBuilder.append(",").append(field);
-                    String valueToSet = tableFieldType.getDefaultValueForSql();
-                    if (columnInfo[2].equals("1")) {
-                        long max = db.getMax(tableName, field);
-                        newId = max + 1;
-                        valueToSet = String.valueOf(newId);
-                    }
-                    nonGeomFieldsValues.append(",").append(valueToSet);
-                }
-            }
-        }
-        nonGeomFieldsNames = nonGeomFieldsNamesBuilder.toString();
-
-        boolean doTransform = true;
-        if (srid == geometrySrid) {
-            doTransform = false;
-        }
-
-        StringBuilder sbIn = new StringBuilder();
-        sbIn.append("insert into \"").append(tableName);//NON-NLS
-        sbIn.append("\" (");
-        sbIn.append(geometryFieldName);
-        // add fields
-        if (nonGeomFieldsNames.length() > 0) {
-            sbIn.append(nonGeomFieldsNames);
-        }
-        sbIn.append(") values (");//NON-NLS
-        if (doTransform)
-            sbIn.append("ST_Transform(");//NON-NLS
-        if (multiSingleCast != null)
-            sbIn.append(multiSingleCast).append("(");
-        if (spaceDimensionsCast != null)
-            sbIn.append(spaceDimensionsCast).append("(");
-        if (geometryTypeCast != null)
-            sbIn.append(geometryTypeCast).append("(");
-        sbIn.append("GeomFromText('");//NON-NLS
-        sbIn.append(geometry.toText());
-        sbIn.append("' , ");
-        sbIn.append(geometrySrid);
-        sbIn.append(")");
-        if (geometryTypeCast != null)
-            sbIn.append(")");
-        if (spaceDimensionsCast != null)
-            sbIn.append(")");
-        if (multiSingleCast != null)
-            sbIn.append(")");
-        if (doTransform) {
-            sbIn.append(",");
-            sbIn.append(srid);
-            sbIn.append(")");
-        }
-        // add field default values
-        if (nonGeomFieldsNames.length() > 0) {
-            sbIn.append(nonGeomFieldsValues);
-        }
-        sbIn.append(")");
-        String insertQuery = sbIn.toString();
-
-        db.executeInsertUpdateDeleteSql(insertQuery);
+    public EditBatch startEditBatch() throws Exception {
+        return new EditBatch(SpatialiteConnectionsHandler.INSTANCE.getDb(dbPath), layerEditor);
+    }
 
+    @Override
+    public void previewEdits(List<EditBatch.Edit> edits) {
+        layerEditor.onCommitted(edits);
+    }
 
-        /*
-         * if everything went well, add also geometry to the layer
-         */
-        addNewGeometry(geometry, newId);
-        update();
+    @Override
+    public void addNewFeatureByGeometry(Geometry geometry, int geometrySrid)
+            throws Exception {
+        startEditBatch().addFeature(geometry, geometrySrid).commit();
     }
 
-    private void addNewGeometry(Geometry geometry, long id) {
+    private void addNewGeometry(Geometry geometry, Style style, long id) {
         if (geometryType == EGeometryType.POINT || geometryType == EGeometryType.MULTIPOINT) {
             int numGeometries = geometry.getNumGeometries();
             for (int i = 0; i < numGeometries; i++) {
                 Geometry geometryN = geometry.getGeometryN(i);
                 Coordinate c = geometryN.getCoordinate();
 
-                GPPointDrawable drawable = new GPPointDrawable(c.y, c.x, pointStyle, id);
+                GPPointDrawable drawable = new GPPointDrawable(c.y, c.x, style, id);
                 add(drawable);
                 drawablesMap.put(id, drawable);
 
@@ -418,7 +266,7 @@ public class SpatialiteTableLayer extends VectorLayer implements IVectorDbLayer,
             int numGeometries = geometry.getNumGeometries();
             for (int i = 0; i < numGeometries; i++) {
                 Geometry geometryN = geometry.getGeometryN(i);
-                GPLineDrawable drawable = new GPLineDrawable(geometryN, lineStyle, id);
+                GPLineDrawable drawable = new GPLineDrawable(geometryN, style, id);
                 add(drawable);
                 drawablesMap.put(id, drawable);
             }
@@ -426,7 +274,7 @@ public class SpatialiteTableLayer extends VectorLayer implements IVectorDbLayer,
             int numGeometries = geometry.getNumGeometries();
             for (int i = 0; i < numGeometries; i++) {
                 Geometry geometryN = geometry.getGeometryN(i);
-                GPPolygonDrawable drawable = new GPPolygonDrawable(geometryN, polygonStyle, id);
+                GPPolygonDrawable drawable = new GPPolygonDrawable(geometryN, style, id);
                 add(drawable);
                 drawablesMap.put(id, drawable);
             }
@@ -436,252 +284,189 @@ public class SpatialiteTableLayer extends VectorLayer implements IVectorDbLayer,
     @Override
     public void updateFeatureGeometry(Feature feature, Geometry geometry, int geometrySrid)
             throws Exception {
-        ASpatialDb db = SpatialiteConnectionsHandler.INSTANCE.getDb(feature.getDatabasePath());
-        String geometryFieldName = gCol.geometryColumnName;
-        int srid = gCol.srid;
-        ESpatialiteGeometryType spatialiteGeometryType = geometryType.toSpatialiteGeometryType();
-        String geometryTypeCast = spatialiteGeometryType.getGeometryTypeCast();
-        String spaceDimensionsCast = spatialiteGeometryType.getSpaceDimensionsCast();
-        String multiSingleCast = spatialiteGeometryType.getMultiSingleCast();
-
-        boolean doTransform = true;
-        if (srid == geometrySrid) {
-            doTransform = false;
-        }
-
-        StringBuilder sbIn = new StringBuilder();
-        sbIn.append("update \"").append(tableName);//NON-NLS
-        sbIn.append("\" set ");//NON-NLS
-        sbIn.append(geometryFieldName);
-        sbIn.append(" = ");
-        if (doTransform)
-            sbIn.append("ST_Transform(");//NON-NLS
-        if (multiSingleCast != null)
-            sbIn.append(multiSingleCast).append("(");
-        if (spaceDimensionsCast != null)
-            sbIn.append(spaceDimensionsCast).append("(");
-        if (geometryTypeCast != null)
-            sbIn.append(geometryTypeCast).append("(");
-        sbIn.append("GeomFromText('");//NON-NLS
-        sbIn.append(geometry.toText());
-        sbIn.append("' , ");
-        sbIn.append(geometrySrid);
-        sbIn.append(")");
-        if (geometryTypeCast != null)
-            sbIn.append(")");
-        if (spaceDimensionsCast != null)
-            sbIn.append(")");
-        if (multiSingleCast != null)
-            sbIn.append(")");
-        if (doTransform) {
-            sbIn.append(",");
-            sbIn.append(srid);
-            sbIn.append(")");
-        }
-        sbIn.append("");
-        sbIn.append(" where ");//NON-NLS
-        sbIn.append(feature.getIdFieldName()).append("=");
-        sbIn.append(feature.getIdFieldValue());
-        String insertQuery = sbIn.toString();
-        db.executeInsertUpdateDeleteSql(insertQuery);
-
-
-        long id = feature.getIdFieldValue();
-        IGPDrawable drawable = drawablesMap.get(id);
-        if (drawable != null)
-            remove((Drawable) drawable);
-        drawablesMap.remove(id);
-
-        Geometry g = geometry;
-        if (doTransform) {
-            g = db.reproject(geometry, geometrySrid, srid);
-        }
-        addNewGeometry(g, id);
-        update();
+        startEditBatch().updateGeometry(feature, geometry, geometrySrid).commit();
     }
 
     public void deleteFeatures(List<Feature> features) throws Exception {
         if (features.size() == 0) return;
-        Feature firstFeature = features.get(0);
-        ASpatialDb db = SpatialiteConnectionsHandler.INSTANCE.getDb(firstFeature.getDatabasePath());
-        String tableName = firstFeature.getTableName();
+        EditBatch batch = startEditBatch();
+        for (Feature feature : features) {
+            batch.deleteFeature(feature);
+        }
+        batch.commit();
+    }
 
-        StringBuilder sbIn = new StringBuilder();
-        sbIn.append("delete from \"").append(tableName);//NON-NLS
-        sbIn.append("\" where ");//NON-NLS
+    /**
+     * Writes the edits of the batches of this layer.
+     */
+    private class SpatialiteLayerEditor implements EditBatch.LayerEditor {
+
+        @Override
+        public long insertGeometry(IHMConnection connection, Geometry geometry, int geometrySrid) throws Exception {
+            StringBuilder fieldNames = new StringBuilder(gCol.geometryColumnName);
+            StringBuilder fieldValues = new StringBuilder(buildGeometryValue(geometrySrid));
+            long newId = -1;
+            // non geom fields get default values, integer keys are assigned by the database
+            for (String[] columnInfo : tableColumnInfos) {
+                String field = columnInfo[0];
+                String fieldType = columnInfo[1];
+                if (SpatialiteUtilities.doIgnoreField(field))
+                    continue;
+                EDataType tableFieldType = EDataType.getType4Name(fieldType);
+                if (tableFieldType == null)
+                    continue;
+                String valueToSet = tableFieldType.getDefaultValueForSql();
+                if (columnInfo[2].equals("1")) {
+                    if (tableFieldType == EDataType.INTEGER || tableFieldType == EDataType.LONG)
+                        continue;
+                    newId = getMax(connection, field) + 1;
+                    valueToSet = String.valueOf(newId);
+                }
+                fieldNames.append(",").append(field);
+                fieldValues.append(",").append(valueToSet);
+            }
 
-        int idIndex = firstFeature.getIdIndex();
-        String indexName = firstFeature.getAttributeNames().get(idIndex);
+            String sql = "insert into \"" + tableName + "\" (" + fieldNames + ") values (" + fieldValues + ")";//NON-NLS
+            try (IHMPreparedStatement pStmt = connection.prepareStatement(sql)) {
+                pStmt.setBytes(1, toTableWkb(geometry, geometrySrid));
+                pStmt.executeUpdate();
+            }
+            if (newId == -1)
+                newId = EditBatch.getLastInsertRowid(connection);
+            return newId;
+        }
 
-        StringBuilder sb = new StringBuilder();
-        for (Feature feature : features) {
-            sb.append(" OR ");//NON-NLS
-            sb.append(indexName).append("=");
-            sb.append(feature.getAttributeValues().get(idIndex));
+        @Override
+        public void updateGeometry(IHMConnection connection, Feature feature, Geometry geometry, int geometrySrid) throws Exception {
+            String sql = "update \"" + tableName + "\" set " + gCol.geometryColumnName + " = " + buildGeometryValue(geometrySrid)//NON-NLS
+                    + " where " + feature.getIdFieldName() + "=?";//NON-NLS
+            try (IHMPreparedStatement pStmt = connection.prepareStatement(sql)) {
+                pStmt.setBytes(1, toTableWkb(geometry, geometrySrid));
+                pStmt.setLong(2, feature.getIdFieldValue());
+                pStmt.executeUpdate();
+            }
         }
-        String valuesPart = sb.substring(4);
 
-        sbIn.append(valuesPart);
+        @Override
+        public void onCommitted(List<EditBatch.Edit> edits) {
+            synchronized (SpatialiteTableLayer.this) {
+                // not loaded yet, the session edits are shown when loaded
+                if (drawablesMap == null)
+                    return;
+                for (EditBatch.Edit edit : edits) {
+                    // changed features keep their style, the others, as new features or
+                    // deleted ones that are restored, get it from their theme value
+                    Style style = null;
+                    if (edit.type == EditBatch.EditType.UPDATE_GEOMETRY || edit.type == EditBatch.EditType.DELETE) {
+                        IGPDrawable drawable = drawablesMap.get(edit.id);
+                        if (drawable != null) {
+                            style = ((Drawable) drawable).getStyle();
+                            remove((Drawable) drawable);
+                        }
+                        drawablesMap.remove(edit.id);
+                    }
+                    if (edit.type == EditBatch.EditType.ADD || edit.type == EditBatch.EditType.UPDATE_GEOMETRY) {
+                        if (style == null)
+                            style = getFeatureStyle(edit.feature);
+                        try {
+                            Geometry geometry = edit.geometry;
+                            if (edit.srid != LibraryConstants.SRID_WGS84_4326) {
+                                ASpatialDb db = SpatialiteConnectionsHandler.INSTANCE.getDb(dbPath);
+                                geometry = ReprojectionHandler.INSTANCE.reproject(db, geometry, edit.srid, LibraryConstants.SRID_WGS84_4326);
+                            }
+                            addNewGeometry(geometry, style, edit.id);
+                        } catch (Exception e) {
+                            GPLog.error(this, null, e);
+                        }
+                    }
+                }
+                update();
+                labelEngine.invalidate();
+            }
+        }
 
-        String updateQuery = sbIn.toString();
-        db.executeInsertUpdateDeleteSql(updateQuery);
+        /**
+         * The geometry parameter, with the casts and the transform to the table.
+         */
+        private String buildGeometryValue(int geometrySrid) {
+            int srid = gCol.srid;
+            // reprojected in process if possible, else in the statement
+            boolean doTransform = srid != geometrySrid && !ReprojectionHandler.INSTANCE.isSupported(geometrySrid, srid);
+            ESpatialiteGeometryType spatialiteGeometryType = geometryType.toSpatialiteGeometryType();
+            String geometryTypeCast = spatialiteGeometryType.getGeometryTypeCast();
+            String spaceDimensionsCast = spatialiteGeometryType.getSpaceDimensionsCast();
+            String multiSingleCast = spatialiteGeometryType.getMultiSingleCast();
+
+            StringBuilder sb = new StringBuilder();
+            if (doTransform)
+                sb.append("ST_Transform(");//NON-NLS
+            if (multiSingleCast != null)
+                sb.append(multiSingleCast).append("(");
+            if (spaceDimensionsCast != null)
+                sb.append(spaceDimensionsCast).append("(");
+            if (geometryTypeCast != null)
+                sb.append(geometryTypeCast).append("(");
+            sb.append("GeomFromWKB(?, ");//NON-NLS
+            sb.append(doTransform ? geometrySrid : srid);
+            sb.append(")");
+            if (geometryTypeCast != null)
+                sb.append(")");
+            if (spaceDimensionsCast != null)
+                sb.append(")");
+            if (multiSingleCast != null)
+                sb.append(")");
+            if (doTransform) {
+                sb.append(",");
+                sb.append(srid);
+                sb.append(")");
+            }
+            return sb.toString();
+        }
 
-        for (Feature feature : features) {
-            long id = feature.getIdFieldValue();
-            IGPDrawable drawable = drawablesMap.get(id);
-            if (drawable != null)
-                remove((Drawable) drawable);
-            drawablesMap.remove(id);
+        private byte[] toTableWkb(Geometry geometry, int geometrySrid) throws Exception {
+            Geometry tableGeometry = geometry;
+            if (geometrySrid != gCol.srid && ReprojectionHandler.INSTANCE.isSupported(geometrySrid, gCol.srid)) {
+                ASpatialDb db = SpatialiteConnectionsHandler.INSTANCE.getDb(dbPath);
+                tableGeometry = ReprojectionHandler.INSTANCE.reproject(db, geometry, geometrySrid, gCol.srid);
+            }
+            return new WKBWriter().write(tableGeometry);
         }
-        update();
-    }
 
+        private long getMax(IHMConnection connection, String field) throws Exception {
+            String sql = "select max(" + field + ") from \"" + tableName + "\"";//NON-NLS
+            try (IHMStatement stmt = connection.createStatement(); IHMResultSet rs = stmt.executeQuery(sql)) {
+                if (rs.next())
+                    return rs.getLong(1);
+            }
+            return 0;
+        }
+    }
 
     @Override
     public void drawLabels(Canvas canvas, OverlayViewProjection prj) throws Exception {
         if (gpStyle != null && gpStyle.labelvisible == 1) {
-            android.graphics.Point drawPoint = new android.graphics.Point();
             DisplayMetrics displayMetrics = getMapView().getContext().getResources().getDisplayMetrics();
             int pixel = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, gpStyle.labelsize, displayMetrics);
+            labelEngine.setStyle(geometryType, gpStyle.labelfield, pixel, labelColor);
+            labelEngine.draw(canvas, prj);
+        }
+    }
 
-            android.graphics.Paint labelPaint = new android.graphics.Paint();
-            labelPaint.setAntiAlias(true);
-            labelPaint.setTextSize(pixel);
-            labelPaint.setColor(labelColor);
-            labelPaint.setTypeface(Typeface.defaultFromStyle(Typeface.BOLD));
-            Rect rect = new Rect();
-
-            Rect bounds = canvas.getClipBounds();
-            Coordinate ll = prj.fromPixels(bounds.left, bounds.bottom);
-            Coordinate ur = prj.fromPixels(bounds.right, bounds.top);
-            Envelope env = new Envelope(ll, ur);
-
-            if (LibraryConstants.SRID_WGS84_4326 != gCol.srid) {
-                ASpatialDb db = SpatialiteConnectionsHandler.INSTANCE.getDb(getDbPath());
-                env = db.reproject(env, LibraryConstants.SRID_WGS84_4326, gCol.srid);
-            }
-
-            Quadtree labelTree = new Quadtree();
-
-            List<Feature> features = getFeatures(env);
-            for (Feature f : features) {
-
-                Object attribute = f.getAttribute(gpStyle.labelfield);
-                if (attribute != null) {
-                    String txt = attribute.toString();
-                    if (txt.length() > 0) {
-                        labelPaint.getTextBounds(txt, 0, txt.length(), rect);
-                        int textWidth = rect.width();
-                        int textHeight = rect.height();
-
-                        if (geometryType == EGeometryType.POINT || geometryType == EGeometryType.MULTIPOINT) {
-                            Point p = f.getDefaultGeometry().getCentroid();
-                            prj.toPixels(p.getCoordinate(), drawPoint);
-
-                            int x = drawPoint.x - textWidth / 2;
-                            int y = drawPoint.y - textHeight;
-
-                            int indent = 10;
-                            RectF backRect = new RectF();
-                            backRect.left = x - indent;
-                            backRect.right = x + textWidth + indent * 2;
-                            backRect.bottom = y + indent * 2;
-                            backRect.top = y - textHeight - indent * 2;
-
-                            Envelope lenv = new Envelope(backRect.left, backRect.right, backRect.bottom, backRect.top);
-                            List<Envelope> res = labelTree.query(lenv);
-                            boolean inters = false;
-                            for (Envelope e : res) {
-                                if (lenv.intersects(e)) {
-                                    inters = true;
-                                    break;
-                                }
-                            }
-                            if (!inters) {
-                                canvas.drawRoundRect(backRect, indent, indent, labelsBackgroundPaint);
-//                                canvas.drawText(txt, x, y, labelBorderPaint);
-                                canvas.drawText(txt, x, y, labelPaint);
-                                labelTree.insert(lenv, lenv);
-                            }
-                        } else if (geometryType == EGeometryType.POLYGON || geometryType == EGeometryType.MULTIPOLYGON) {
-                            Geometry geometry = f.getDefaultGeometry();
-                            int numGeometries = geometry.getNumGeometries();
-                            for (int i = 0; i < numGeometries; i++) {
-                                Polygon polygon = (Polygon) geometry.getGeometryN(i);
-
-                                Coordinate interiorPoint = new InteriorPointArea(polygon).getInteriorPoint();
-                                prj.toPixels(interiorPoint, drawPoint);
-
-                                int x = drawPoint.x - textWidth / 2;
-                                int y = drawPoint.y;
-
-                                int indent = 10;
-                                RectF backRect = new RectF();
-                                backRect.left = x - indent;
-                                backRect.right = x + textWidth + indent * 2;
-                                backRect.bottom = y + indent * 2;
-                                backRect.top = y - textHeight - indent * 2;
-
-                                Envelope lenv = new Envelope(backRect.left, backRect.right, backRect.bottom, backRect.top);
-                                List<Envelope> res = labelTree.query(lenv);
-                                boolean inters = false;
-                                for (Envelope e : res) {
-                                    if (lenv.intersects(e)) {
-                                        inters = true;
-                                        break;
-                                    }
-                                }
-                                if (!inters) {
-                                    canvas.drawRoundRect(backRect, indent, indent, labelsBackgroundPaint);
-//                                    canvas.drawText(txt, x, y, labelBorderPaint);
-                                    canvas.drawText(txt, x, y, labelPaint);
-                                    labelTree.insert(lenv, lenv);
-                                }
-                            }
-                        } else if (geometryType == EGeometryType.LINESTRING || geometryType == EGeometryType.MULTILINESTRING) {
-                            Geometry geometry = f.getDefaultGeometry();
-                            int numGeometries = geometry.getNumGeometries();
-                            for (int i = 0; i < numGeometries; i++) {
-                                LineString polygon = (LineString) geometry.getGeometryN(i);
-
-                                Coordinate interiorPoint = new InteriorPointLine(polygon).getInteriorPoint();
-                                prj.toPixels(interiorPoint, drawPoint);
-
-                                int x = drawPoint.x - textWidth / 2;
-                                int y = drawPoint.y;
-
-                                int indent = 10;
-                                RectF backRect = new RectF();
-                                backRect.left = x - indent;
-                                backRect.right = x + textWidth + indent * 2;
-                                backRect.bottom = y + indent * 2;
-                                backRect.top = y - textHeight - indent * 2;
-
-                                Envelope lenv = new Envelope(backRect.left, backRect.right, backRect.bottom, backRect.top);
-                                List<Envelope> res = labelTree.query(lenv);
-                                boolean inters = false;
-                                for (Envelope e : res) {
-                                    if (lenv.intersects(e)) {
-                                        inters = true;
-                                        break;
-                                    }
-                                }
-                                if (!inters) {
-                                    canvas.drawRoundRect(backRect, indent, indent, labelsBackgroundPaint);
-//                                    canvas.drawText(txt, x, y, labelBorderPaint);
-                                    canvas.drawText(txt, x, y, labelPaint);
-                                    labelTree.insert(lenv, lenv);
-                                }
-                            }
-
-
-                        }
-
-                    }
-                }
-            }
+    @Override
+    public int getLabelDensity() {
+        return labelEngine.getLabelDensity();
+    }
 
+    @Override
+    public void setLabelDensity(int labelDensity) {
+        labelEngine.setLabelDensity(labelDensity);
+    }
 
+    private List<Feature> getLabelFeatures(Envelope env) throws Exception {
+        if (LibraryConstants.SRID_WGS84_4326 != gCol.srid) {
+            ASpatialDb db = SpatialiteConnectionsHandler.INSTANCE.getDb(getDbPath());
+            env = ReprojectionHandler.INSTANCE.reproject(db, env, LibraryConstants.SRID_WGS84_4326, gCol.srid);
         }
+        return getFeatures(env);
     }
 }
@@ -0,0 +1,527 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.map.layers.utils;
+
+import org.hortonmachine.dbs.compat.ASpatialDb;
+import org.hortonmachine.dbs.compat.EDb;
+import org.hortonmachine.dbs.compat.IHMResultSet;
+import org.hortonmachine.dbs.compat.IHMStatement;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import eu.geopaparazzi.library.database.GPLog;
+
+/**
+ * Thread safe registry of the connections to the vector databases.
+ *
+ * <p>For every database file the registry keeps:</p>
+ * <ul>
+ * <li>a single writer connection, the one returned by {@link #getDb(EDb, String)}, which is
+ * kept open as long as tables of the database are in use. All the edits go through it.</li>
+ * <li>a small pool of read connections, borrowed through {@link #read(EDb, String, DbFunction)},
+ * so that reads of the same database don't wait on each other or on the writer.</li>
+ * </ul>
+ *
+ * <p>Tables are reference counted, a database is closed when its last table is disposed.
+ * Since callers keep the writer returned by {@link #getDb(EDb, String)}, writers are closed
+ * only then. Read connections are closed when idle, and the total number of open connections
+ * is capped by closing the least recently used idle readers. Reads that can't get a
+ * connection wait for one to be returned and eventually fall back to the writer, on which
+ * they run one at a time, synchronized on it like the edit batches.</p>
+ *
+ * <p>Every connection is opened with a busy timeout, so that the readers and the writer of a
+ * database wait for each other's locks instead of failing. The journal mode is left alone,
+ * since it is stored in the file and the databases are the user's data, also read by other
+ * tools.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@SuppressWarnings("nls")
+public enum DbConnectionRegistry {
+    INSTANCE;
+
+    /**
+     * Work to do on a borrowed connection.
+     *
+     * @param <T> the result type.
+     */
+    public interface DbFunction<T> {
+        T apply(ASpatialDb db) throws Exception;
+    }
+
+    /**
+     * The default max number of open connections.
+     */
+    public static final int DEFAULT_MAX_OPEN_CONNECTIONS = 32;
+
+    /**
+     * The max number of read connections per database.
+     */
+    private static final int MAX_READERS_PER_DB = Math.max(1, Math.min(3, Runtime.getRuntime().availableProcessors() - 1));
+
+    /**
+     * Connections not used for this time are closed.
+     */
+    private static final long IDLE_MILLIS = 60000;
+
+    /**
+     * Time a connection waits on the lock of another connection before failing.
+     */
+    private static final int BUSY_TIMEOUT_MILLIS = 10000;
+
+    /**
+     * Min interval between two idle checks.
+     */
+    private static final long EVICTION_INTERVAL_MILLIS = 5000;
+
+    /**
+     * Max time a read waits for a connection before using the writer.
+     */
+    private static final long MAX_READ_WAIT_MILLIS = 2000;
+
+    private final Object lock = new Object();
+    private final Map<String, DbEntry> entries = new HashMap<>();
+    private int maxOpenConnections = DEFAULT_MAX_OPEN_CONNECTIONS;
+    private int openConnections = 0;
+    private long lastEvictionCheck = 0;
+
+    // metrics
+    private int peakOpenConnections = 0;
+    private long readsCount = 0;
+    private long waitsCount = 0;
+    private long totalWaitMillis = 0;
+    private long maxWaitMillis = 0;
+    private long fallbacksCount = 0;
+    private long evictionsCount = 0;
+
+    private static class Reader {
+        final ASpatialDb db;
+        long lastUsed;
+
+        Reader(ASpatialDb db) {
+            this.db = db;
+        }
+    }
+
+    private static class DbEntry {
+        final String dbPath;
+        final EDb type;
+        final Map<String, Integer> tableRefs = new HashMap<>();
+        final ArrayDeque<Reader> idleReaders = new ArrayDeque<>();
+        ASpatialDb writer;
+        boolean writerOpening = false;
+        boolean disposed = false;
+        int busyReaders = 0;
+        int openingReaders = 0;
+        long lastUsed;
+
+        DbEntry(EDb type, String dbPath) {
+            this.type = type;
+            this.dbPath = dbPath;
+        }
+
+        boolean hasTables() {
+            return !tableRefs.isEmpty();
+        }
+
+        boolean canCloseWriter() {
+            return writer != null && !hasTables() && !writerOpening;
+        }
+
+        boolean isEmpty() {
+            return writer == null && !writerOpening && !hasTables() && idleReaders.isEmpty() && busyReaders == 0
+                    && openingReaders == 0;
+        }
+    }
+
+    /**
+     * Snapshot of the registry metrics.
+     */
+    public static class Metrics {
+        public int openDatabases;
+        public int openTables;
+        public int openConnections;
+        public int peakOpenConnections;
+        public int busyReaders;
+        public long readsCount;
+        public long waitsCount;
+        public long totalWaitMillis;
+        public long maxWaitMillis;
+        public long fallbacksCount;
+        public long evictionsCount;
+
+        @Override
+        public String toString() {
+            return "databases=" + openDatabases + ", tables=" + openTables + ", connections=" + openConnections
+                    + " (peak " + peakOpenConnections + "), busy readers=" + busyReaders + ", reads=" + readsCount
+                    + ", waits=" + waitsCount + " (total " + totalWaitMillis + " ms, max " + maxWaitMillis
+                    + " ms), writer fallbacks=" + fallbacksCount + ", evictions=" + evictionsCount;
+        }
+    }
+
+    /**
+     * Set the max number of open connections over all the databases.
+     *
+     * <p>Writers are never closed to make room, so the cap can be exceeded if more databases
+     * than that are in use.</p>
+     *
+     * @param maxOpenConnections the max number of connections.
+     */
+    public void setMaxOpenConnections(int maxOpenConnections) {
+        synchronized (lock) {
+            this.maxOpenConnections = Math.max(1, maxOpenConnections);
+            makeRoom();
+        }
+    }
+
+    /**
+     * Mark a table as in use.
+     *
+     * @param type      the database type.
+     * @param dbPath    the db path.
+     * @param tableName the table to mark as opened.
+     * @throws Exception if the database can't be opened.
+     */
+    public void openTable(EDb type, String dbPath, String tableName) throws Exception {
+        ASpatialDb db = getDb(type, dbPath);
+        if (db.hasTable(tableName)) {
+            synchronized (lock) {
+                DbEntry entry = getEntry(type, dbPath);
+                Integer refs = entry.tableRefs.get(tableName);
+                entry.tableRefs.put(tableName, refs == null ? 1 : refs + 1);
+                entry.disposed = false;
+            }
+        }
+    }
+
+    /**
+     * Dispose a previously opened table.
+     *
+     * <p>If this is the last table in use, then also the connections to the database are closed.</p>
+     *
+     * @param dbPath    the db path.
+     * @param tableName the table to dispose.
+     * @throws Exception if the table was not opened.
+     */
+    public void disposeTable(String dbPath, String tableName) throws Exception {
+        ASpatialDb writer;
+        synchronized (lock) {
+            DbEntry entry = entries.get(dbPath);
+            if (entry == null)
+                return;
+            Integer refs = entry.tableRefs.get(tableName);
+            if (refs != null) {
+                if (refs > 1) {
+                    entry.tableRefs.put(tableName, refs - 1);
+                } else {
+                    entry.tableRefs.remove(tableName);
+                    if (!entry.hasTables()) {
+                        // also close the connections to the db, busy readers when returned
+                        entry.disposed = true;
+                        closeIdleReaders(entry, 0);
+                        if (entry.canCloseWriter())
+                            closeWriter(entry);
+                        removeIfEmpty(entry);
+                        if (GPLog.LOG_HEAVY)
+                            GPLog.addLogEntry(this, "closed " + dbPath + ": " + getMetrics());
+                    }
+                }
+                return;
+            }
+            writer = entry.writer;
+        }
+        if (writer != null && writer.hasTable(tableName)) {
+            throw new IllegalArgumentException("The requested db does not have an open table: " + tableName);
+        }
+    }
+
+    /**
+     * Get the writer connection of a database, opening it if necessary.
+     *
+     * <p>The connection is shared, it must not be closed by the caller.</p>
+     *
+     * @param type   the database type.
+     * @param dbPath the db path.
+     * @return the connection.
+     * @throws Exception if the database can't be opened.
+     */
+    public ASpatialDb getDb(EDb type, String dbPath) throws Exception {
+        DbEntry entry;
+        synchronized (lock) {
+            entry = getEntry(type, dbPath);
+            entry.lastUsed = System.currentTimeMillis();
+            evictIdle(entry.lastUsed);
+            while (entry.writerOpening) {
+                lock.wait();
+            }
+            if (entry.writer != null)
+                return entry.writer;
+            entry.writerOpening = true;
+            if (!makeRoom() && GPLog.LOG_HEAVY)
+                GPLog.addLogEntry(this, "exceeding the max open connections to open " + dbPath);
+            openConnections++;
+            peakOpenConnections = Math.max(peakOpenConnections, openConnections);
+        }
+        ASpatialDb db = null;
+        try {
+            db = open(entry);
+            return db;
+        } finally {
+            synchronized (lock) {
+                entry.writerOpening = false;
+                if (db != null) {
+                    entry.writer = db;
+                } else {
+                    openConnections--;
+                    removeIfEmpty(entry);
+                }
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Run a read on a pooled connection of a database.
+     *
+     * <p>The connection is only valid inside the function. It must be used for reads only,
+     * edits go through the writer returned by {@link #getDb(EDb, String)}.</p>
+     *
+     * @param type     the database type.
+     * @param dbPath   the db path.
+     * @param function the read to run.
+     * @param <T>      the result type.
+     * @return the result of the function.
+     * @throws Exception if the database can't be opened or the read fails.
+     */
+    public <T> T read(EDb type, String dbPath, DbFunction<T> function) throws Exception {
+        long start = System.currentTimeMillis();
+        DbEntry entry;
+        Reader reader = null;
+        boolean openReader = false;
+        synchronized (lock) {
+            entry = getEntry(type, dbPath);
+            entry.lastUsed = start;
+            boolean waited = false;
+            while (true) {
+                reader = entry.idleReaders.pollFirst();
+                if (reader != null)
+                    break;
+                if (entry.busyReaders + entry.openingReaders < MAX_READERS_PER_DB && makeRoom()) {
+                    openReader = true;
+                    entry.openingReaders++;
+                    openConnections++;
+                    peakOpenConnections = Math.max(peakOpenConnections, openConnections);
+                    break;
+                }
+                long waitLeft = MAX_READ_WAIT_MILLIS - (System.currentTimeMillis() - start);
+                if (entry.busyReaders + entry.openingReaders == 0 || waitLeft <= 0)
+                    break;
+                waited = true;
+                lock.wait(waitLeft);
+            }
+            if (reader != null)
+                entry.busyReaders++;
+            readsCount++;
+            if (waited) {
+                long waitMillis = System.currentTimeMillis() - start;
+                waitsCount++;
+                totalWaitMillis += waitMillis;
+                maxWaitMillis = Math.max(maxWaitMillis, waitMillis);
+            }
+            if (reader == null && !openReader)
+                fallbacksCount++;
+        }
+
+        if (openReader) {
+            ASpatialDb db = null;
+            try {
+                db = open(entry);
+            } finally {
+                synchronized (lock) {
+                    entry.openingReaders--;
+                    if (db != null) {
+                        entry.busyReaders++;
+                    } else {
+                        openConnections--;
+                        removeIfEmpty(entry);
+                        lock.notifyAll();
+                    }
+                }
+            }
+            reader = new Reader(db);
+        } else if (reader == null) {
+            // no connection available, share the writer, one read or edit batch at a time
+            ASpatialDb writer = getDb(type, dbPath);
+            synchronized (writer) {
+                return function.apply(writer);
+            }
+        }
+
+        try {
+            return function.apply(reader.db);
+        } finally {
+            synchronized (lock) {
+                entry.busyReaders--;
+                long now = System.currentTimeMillis();
+                reader.lastUsed = now;
+                if (entry.disposed) {
+                    // the database has been disposed in the meanwhile
+                    closeConnection(reader.db);
+                } else {
+                    entry.idleReaders.addFirst(reader);
+                }
+                removeIfEmpty(entry);
+                evictIdle(now);
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @return a snapshot of the registry metrics.
+     */
+    public Metrics getMetrics() {
+        synchronized (lock) {
+            Metrics metrics = new Metrics();
+            metrics.openDatabases = entries.size();
+            for (DbEntry entry : entries.values()) {
+                for (Integer refs : entry.tableRefs.values()) {
+                    metrics.openTables += refs;
+                }
+                metrics.busyReaders += entry.busyReaders;
+            }
+            metrics.openConnections = openConnections;
+            metrics.peakOpenConnections = peakOpenConnections;
+            metrics.readsCount = readsCount;
+            metrics.waitsCount = waitsCount;
+            metrics.totalWaitMillis = totalWaitMillis;
+            metrics.maxWaitMillis = maxWaitMillis;
+            metrics.fallbacksCount = fallbacksCount;
+            metrics.evictionsCount = evictionsCount;
+            return metrics;
+        }
+    }
+
+    private DbEntry getEntry(EDb type, String dbPath) {
+        DbEntry entry = entries.get(dbPath);
+        if (entry == null) {
+            entry = new DbEntry(type, dbPath);
+            entries.put(dbPath, entry);
+        }
+        return entry;
+    }
+
+    private ASpatialDb open(DbEntry entry) throws Exception {
+        ASpatialDb db = entry.type.getSpatialDb();
+        db.open(entry.dbPath);
+        try {
+            db.execOnConnection(connection -> {
+                try (IHMStatement stmt = connection.createStatement();
+                     IHMResultSet rs = stmt.executeQuery("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MILLIS)) {
+                    rs.next();
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            GPLog.error(this, "Unable to set the busy timeout of " + entry.dbPath, e);
+        }
+        return db;
+    }
+
+    /**
+     * Close idle readers until there is room for a new connection.
+     *
+     * <p>Writers are not closed here, since callers keep them.</p>
+     *
+     * @return <code>true</code> if a connection can be opened without exceeding the max.
+     */
+    private boolean makeRoom() {
+        while (openConnections >= maxOpenConnections) {
+            // the least recently used idle reader
+            DbEntry readerVictim = null;
+            long readerLastUsed = Long.MAX_VALUE;
+            for (DbEntry entry : entries.values()) {
+                Reader last = entry.idleReaders.peekLast();
+                if (last != null && last.lastUsed < readerLastUsed) {
+                    readerVictim = entry;
+                    readerLastUsed = last.lastUsed;
+                }
+            }
+            if (readerVictim == null)
+                return false;
+            closeConnection(readerVictim.idleReaders.pollLast().db);
+            removeIfEmpty(readerVictim);
+            evictionsCount++;
+        }
+        return true;
+    }
+
+    private void evictIdle(long now) {
+        if (now - lastEvictionCheck < EVICTION_INTERVAL_MILLIS)
+            return;
+        lastEvictionCheck = now;
+        Iterator<DbEntry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            DbEntry entry = iterator.next();
+            evictionsCount += closeIdleReaders(entry, IDLE_MILLIS);
+            if (entry.isEmpty())
+                iterator.remove();
+        }
+    }
+
+    private int closeIdleReaders(DbEntry entry, long idleMillis) {
+        long now = System.currentTimeMillis();
+        List<Reader> keep = new ArrayList<>();
+        int closed = 0;
+        for (Reader reader : entry.idleReaders) {
+            if (now - reader.lastUsed >= idleMillis) {
+                closeConnection(reader.db);
+                closed++;
+            } else {
+                keep.add(reader);
+            }
+        }
+        entry.idleReaders.clear();
+        entry.idleReaders.addAll(keep);
+        return closed;
+    }
+
+    private void closeWriter(DbEntry entry) {
+        closeConnection(entry.writer);
+        entry.writer = null;
+    }
+
+    private void closeConnection(ASpatialDb db) {
+        openConnections--;
+        try {
+            db.close();
+        } catch (Exception e) {
+            GPLog.error(this, "Error closing " + db.getDatabasePath(), e);
+        }
+    }
+
+    private void removeIfEmpty(DbEntry entry) {
+        if (entry.isEmpty() && entries.get(entry.dbPath) == entry)
+            entries.remove(entry.dbPath);
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.map.layers.utils;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Point;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+
+import org.hortonmachine.dbs.datatypes.EGeometryType;
+import org.locationtech.jts.algorithm.InteriorPointArea;
+import org.locationtech.jts.algorithm.InteriorPointLine;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.map.GPMapPosition;
+import eu.geopaparazzi.map.GPMapView;
+import eu.geopaparazzi.map.features.Feature;
+import eu.geopaparazzi.map.proj.OverlayViewProjection;
+
+/**
+ * Places and draws the labels of a vector layer.
+ *
+ * <p>The label candidates are read for an area larger than the view and kept until the view
+ * leaves it. They are placed once per zoom level, in map pixels, so that panning only moves
+ * them: larger features are placed first and labels overlapping an already placed one are
+ * dropped, using a grid of the placed label boxes. The number of labels in each square of
+ * {@link #DENSITY_CELL_DP} dp can also be limited.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@SuppressWarnings("nls")
+public class LabelEngine {
+
+    /**
+     * The default max number of labels in a density square.
+     */
+    public static final int DEFAULT_LABEL_DENSITY = 8;
+
+    /**
+     * The available label densities, <code>0</code> meaning no limit.
+     */
+    public static final int[] LABEL_DENSITY_LEVELS = {1, 2, 4, 8, 16, 0};
+
+    /**
+     * The side of the squares in which the label density is limited, in dp.
+     */
+    public static final float DENSITY_CELL_DP = 256;
+
+    private static final int COLLISION_CELL_SIZE = 64;
+    private static final int MAX_CACHED_LAYOUTS = 1024;
+    private static final int INDENT = 10;
+
+    /**
+     * The fraction of the view added on each side when reading the label candidates.
+     */
+    private static final double LOAD_BUFFER_FACTOR = 0.5;
+
+    /**
+     * The source of the labeled features.
+     */
+    public interface LabelSource {
+        /**
+         * @param envelope the area to read, in the map projection.
+         * @return the features in the area.
+         * @throws Exception if the read fails.
+         */
+        List<Feature> getLabelFeatures(Envelope envelope) throws Exception;
+    }
+
+    private static class Candidate {
+        final String text;
+        final Coordinate anchor;
+        final double priority;
+
+        Candidate(String text, Coordinate anchor, double priority) {
+            this.text = text;
+            this.anchor = anchor;
+            this.priority = priority;
+        }
+    }
+
+    private static class PlacedLabel {
+        final String text;
+        final int x;
+        final int y;
+        final RectF background;
+
+        PlacedLabel(String text, int x, int y, RectF background) {
+            this.text = text;
+            this.x = x;
+            this.y = y;
+            this.background = background;
+        }
+    }
+
+    private final GPMapView mapView;
+    private final LabelSource source;
+    private final Paint labelPaint = new Paint();
+    private final Paint backgroundPaint = new Paint();
+    private final int densityCellSize;
+
+    private EGeometryType geometryType;
+    private String labelField;
+    private int labelDensity = DEFAULT_LABEL_DENSITY;
+
+    // text bounds by label text, for the current text size and typeface
+    private final Map<String, Rect> layoutCache = new LinkedHashMap<String, Rect>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Rect> eldest) {
+            return size() > MAX_CACHED_LAYOUTS;
+        }
+    };
+
+    private List<Candidate> candidates;
+    private Envelope loadedEnvelope;
+    private List<PlacedLabel> placedLabels;
+    private byte placedZoom = -1;
+    private volatile boolean invalid = false;
+
+    private final Point tmpPoint = new Point();
+    private final RectF drawRect = new RectF();
+
+    /**
+     * Constructor.
+     *
+     * @param mapView the map view.
+     * @param source  the source of the labeled features.
+     */
+    public LabelEngine(GPMapView mapView, LabelSource source) {
+        this.mapView = mapView;
+        this.source = source;
+        densityCellSize = Math.max(1, (int) (DENSITY_CELL_DP * mapView.getContext().getResources().getDisplayMetrics().density));
+
+        labelPaint.setAntiAlias(true);
+        labelPaint.setTypeface(Typeface.defaultFromStyle(Typeface.BOLD));
+
+        backgroundPaint.setAntiAlias(true);
+        backgroundPaint.setColor(Color.WHITE);
+        backgroundPaint.setAlpha(170);
+        backgroundPaint.setStyle(Paint.Style.FILL);
+    }
+
+    /**
+     * Set the labelling of the layer, changes drop the cached labels as needed.
+     *
+     * @param geometryType the geometry type of the layer.
+     * @param labelField   the field holding the labels.
+     * @param textSize     the text size in pixels.
+     * @param color        the text color.
+     */
+    public void setStyle(EGeometryType geometryType, String labelField, float textSize, int color) {
+        if (geometryType != this.geometryType || labelField == null || !labelField.equals(this.labelField)) {
+            this.geometryType = geometryType;
+            this.labelField = labelField;
+            candidates = null;
+            loadedEnvelope = null;
+            placedLabels = null;
+        }
+        if (textSize != labelPaint.getTextSize()) {
+            labelPaint.setTextSize(textSize);
+            layoutCache.clear();
+            placedLabels = null;
+        }
+        labelPaint.setColor(color);
+    }
+
+    /**
+     * @return the max number of labels in a density square, <code>0</code> if not limited.
+     */
+    public int getLabelDensity() {
+        return labelDensity;
+    }
+
+    /**
+     * @param labelDensity the max number of labels in a density square, <code>0</code> to not limit them.
+     */
+    public void setLabelDensity(int labelDensity) {
+        if (labelDensity != this.labelDensity) {
+            this.labelDensity = labelDensity;
+            placedLabels = null;
+        }
+    }
+
+    /**
+     * Drop the label candidates, as needed when the features of the layer changed.
+     *
+     * <p>Can be called from any thread, they are read again on the next draw.</p>
+     */
+    public void invalidate() {
+        invalid = true;
+    }
+
+    /**
+     * Draw the labels on the canvas.
+     *
+     * @param canvas the canvas.
+     * @param prj    the projection of the view.
+     * @throws Exception if the features can't be read.
+     */
+    public void draw(Canvas canvas, OverlayViewProjection prj) throws Exception {
+        if (labelField == null)
+            return;
+        if (invalid) {
+            invalid = false;
+            candidates = null;
+            loadedEnvelope = null;
+            placedLabels = null;
+        }
+
+        byte zoom;
+        Coordinate center;
+        synchronized (mapView) {
+            GPMapPosition mapPosition = mapView.getMapPosition();
+            zoom = (byte) mapPosition.getZoomLevel();
+            center = mapPosition.getCoordinate();
+        }
+        int width = canvas.getWidth();
+        int height = canvas.getHeight();
+
+        Coordinate ul = prj.fromPixels(0, 0);
+        Coordinate lr = prj.fromPixels(width, height);
+        if (ul == null || lr == null)
+            return;
+        Envelope viewEnvelope = new Envelope(ul, lr);
+        if (loadedEnvelope == null || !loadedEnvelope.contains(viewEnvelope)) {
+            Envelope loadEnvelope = new Envelope(viewEnvelope);
+            loadEnvelope.expandBy(viewEnvelope.getWidth() * LOAD_BUFFER_FACTOR, viewEnvelope.getHeight() * LOAD_BUFFER_FACTOR);
+            candidates = readCandidates(loadEnvelope);
+            loadedEnvelope = loadEnvelope;
+            placedLabels = null;
+        }
+        if (placedLabels == null || zoom != placedZoom) {
+            placedLabels = place(prj, zoom);
+            placedZoom = zoom;
+        }
+
+        // the top-left pixel of the view
+        prj.toPoint(center, tmpPoint, zoom);
+        int left = tmpPoint.x - (width >> 1);
+        int top = tmpPoint.y - (height >> 1);
+        for (PlacedLabel label : placedLabels) {
+            RectF background = label.background;
+            if (background.right < left || background.left > left + width
+                    || background.bottom < top || background.top > top + height)
+                continue;
+            drawRect.set(background.left - left, background.top - top, background.right - left, background.bottom - top);
+            canvas.drawRoundRect(drawRect, INDENT, INDENT, backgroundPaint);
+            canvas.drawText(label.text, label.x - left, label.y - top, labelPaint);
+        }
+    }
+
+    private List<Candidate> readCandidates(Envelope envelope) throws Exception {
+        long start = System.currentTimeMillis();
+        boolean isPoint = isPoint();
+        boolean isLine = geometryType == EGeometryType.LINESTRING || geometryType == EGeometryType.MULTILINESTRING;
+        List<Candidate> list = new ArrayList<>();
+        List<Feature> features = source.getLabelFeatures(envelope);
+        for (Feature feature : features) {
+            Object attribute = feature.getAttribute(labelField);
+            if (attribute == null)
+                continue;
+            String text = attribute.toString();
+            if (text.length() == 0)
+                continue;
+            Geometry geometry = feature.getDefaultGeometry();
+            if (geometry == null)
+                continue;
+            if (isPoint) {
+                list.add(new Candidate(text, geometry.getCentroid().getCoordinate(), 0));
+            } else {
+                // one label per part, larger parts first
+                for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                    Geometry part = geometry.getGeometryN(i);
+                    if (isLine) {
+                        list.add(new Candidate(text, new InteriorPointLine(part).getInteriorPoint(), part.getLength()));
+                    } else {
+                        list.add(new Candidate(text, new InteriorPointArea(part).getInteriorPoint(), part.getArea()));
+                    }
+                }
+            }
+        }
+        // stable, points keep the order of the table
+        Collections.sort(list, (c1, c2) -> Double.compare(c2.priority, c1.priority));
+        if (GPLog.LOG_HEAVY)
+            GPLog.addLogEntry(this, "Read " + list.size() + " label candidates in " + (System.currentTimeMillis() - start) + " ms");
+        return list;
+    }
+
+    private List<PlacedLabel> place(OverlayViewProjection prj, byte zoom) {
+        long start = System.currentTimeMillis();
+        boolean isPoint = isPoint();
+        Map<Long, List<RectF>> collisionGrid = new HashMap<>();
+        Map<Long, int[]> densityGrid = new HashMap<>();
+        List<PlacedLabel> placed = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            if (candidate.anchor == null)
+                continue;
+            prj.toPoint(candidate.anchor, tmpPoint, zoom);
+
+            int[] count = null;
+            if (labelDensity > 0) {
+                long densityCell = cellKey(cell(tmpPoint.x, densityCellSize), cell(tmpPoint.y, densityCellSize));
+                count = densityGrid.get(densityCell);
+                if (count == null) {
+                    count = new int[1];
+                    densityGrid.put(densityCell, count);
+                } else if (count[0] >= labelDensity) {
+                    continue;
+                }
+            }
+
+            Rect bounds = getLayout(candidate.text);
+            int textWidth = bounds.width();
+            int textHeight = bounds.height();
+            int x = tmpPoint.x - textWidth / 2;
+            int y = isPoint ? tmpPoint.y - textHeight : tmpPoint.y;
+            RectF background = new RectF(x - INDENT, y - textHeight - INDENT * 2, x + textWidth + INDENT * 2, y + INDENT * 2);
+            if (collides(collisionGrid, background))
+                continue;
+
+            insert(collisionGrid, background);
+            if (count != null)
+                count[0]++;
+            placed.add(new PlacedLabel(candidate.text, x, y, background));
+        }
+        if (GPLog.LOG_HEAVY)
+            GPLog.addLogEntry(this, "Placed " + placed.size() + " of " + candidates.size() + " labels at zoom " + zoom + " in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        return placed;
+    }
+
+    private boolean isPoint() {
+        return geometryType == EGeometryType.POINT || geometryType == EGeometryType.MULTIPOINT;
+    }
+
+    private Rect getLayout(String text) {
+        Rect bounds = layoutCache.get(text);
+        if (bounds == null) {
+            bounds = new Rect();
+            labelPaint.getTextBounds(text, 0, text.length(), bounds);
+            layoutCache.put(text, bounds);
+        }
+        return bounds;
+    }
+
+    private static boolean collides(Map<Long, List<RectF>> grid, RectF rect) {
+        int minX = cell(rect.left, COLLISION_CELL_SIZE);
+        int maxX = cell(rect.right, COLLISION_CELL_SIZE);
+        int minY = cell(rect.top, COLLISION_CELL_SIZE);
+        int maxY = cell(rect.bottom, COLLISION_CELL_SIZE);
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                List<RectF> rects = grid.get(cellKey(x, y));
+                if (rects == null)
+                    continue;
+                for (RectF other : rects) {
+                    if (RectF.intersects(rect, other))
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void insert(Map<Long, List<RectF>> grid, RectF rect) {
+        int minX = cell(rect.left, COLLISION_CELL_SIZE);
+        int maxX = cell(rect.right, COLLISION_CELL_SIZE);
+        int minY = cell(rect.top, COLLISION_CELL_SIZE);
+        int maxY = cell(rect.bottom, COLLISION_CELL_SIZE);
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                long key = cellKey(x, y);
+                List<RectF> rects = grid.get(key);
+                if (rects == null) {
+                    rects = new ArrayList<>(4);
+                    grid.put(key, rects);
+                }
+                rects.add(rect);
+            }
+        }
+    }
+
+    private static int cell(double pixel, int cellSize) {
+        return (int) Math.floor(pixel / cellSize);
+    }
+
+    private static long cellKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+}
@@ -0,0 +1,388 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.map.layers.utils;
+
+import android.content.SharedPreferences;
+
+import androidx.preference.PreferenceManager;
+
+import org.oscim.backend.CanvasAdapter;
+import org.oscim.backend.canvas.Bitmap;
+import org.oscim.backend.canvas.Canvas;
+import org.oscim.backend.canvas.Color;
+import org.oscim.backend.canvas.Paint;
+import org.oscim.core.GeoPoint;
+import org.oscim.core.MercatorProjection;
+import org.oscim.core.Tile;
+import org.oscim.layers.marker.ItemizedLayer;
+import org.oscim.layers.marker.MarkerItem;
+import org.oscim.layers.marker.MarkerSymbol;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.library.util.LibraryConstants;
+import eu.geopaparazzi.map.GPBBox;
+import eu.geopaparazzi.map.GPMapPosition;
+import eu.geopaparazzi.map.GPMapView;
+
+/**
+ * Groups the markers of an itemized layer by zoom level.
+ *
+ * <p>The markers are counted in a grid of {@link #CLUSTER_CELL_DP} dp cells. Cells with up to
+ * the configured density of markers show them, the others show a single marker with the
+ * count. Since a cell at a zoom level covers exactly four cells of the next one, the grid of
+ * a zoom level is merged from the grid of the next one when that is available, and the grids
+ * are kept until the markers change.</p>
+ *
+ * <p>Only the markers around the view are added to the layer, and their symbols are built
+ * when first shown, through the {@link MarkerSymbolCache}.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@SuppressWarnings("nls")
+public class MarkerClusterer implements GPMapView.GPMapUpdateListener {
+
+    /**
+     * The default max number of markers shown in a cell.
+     */
+    public static final int DEFAULT_CLUSTER_DENSITY = 4;
+
+    /**
+     * The side of the grid cells, in dp.
+     */
+    public static final float CLUSTER_CELL_DP = 64;
+
+    /**
+     * Above this zoom level all the markers are shown.
+     */
+    public static final int MAX_CLUSTER_ZOOM = 18;
+
+    private static final float CLUSTER_TEXT_DP = 14;
+
+    /**
+     * The fraction of the view added on each side when choosing the markers to add.
+     */
+    private static final double VIEW_BUFFER_FACTOR = 0.5;
+
+    /**
+     * Builds the symbols of the single markers of a layer.
+     */
+    public interface SymbolFactory {
+        /**
+         * @param item the marker.
+         * @return a key describing everything drawn in the symbol of the marker.
+         */
+        String getSymbolKey(MarkerItem item);
+
+        /**
+         * @param item the marker.
+         * @return the new symbol of the marker.
+         */
+        MarkerSymbol createSymbol(MarkerItem item);
+    }
+
+    private static class Cell {
+        final int x;
+        final int y;
+        double sumX;
+        double sumY;
+        int count;
+        // the indexes of the markers, null if they are more than the density
+        int[] members;
+
+        Cell(int x, int y, int density) {
+            this.x = x;
+            this.y = y;
+            members = new int[density];
+        }
+
+        void add(int index, double markerX, double markerY) {
+            sumX += markerX;
+            sumY += markerY;
+            if (members != null) {
+                if (count < members.length) {
+                    members[count] = index;
+                } else {
+                    members = null;
+                }
+            }
+            count++;
+        }
+
+        void merge(Cell other) {
+            sumX += other.sumX;
+            sumY += other.sumY;
+            if (members != null) {
+                if (other.members != null && count + other.count <= members.length) {
+                    System.arraycopy(other.members, 0, members, count, other.count);
+                } else {
+                    members = null;
+                }
+            }
+            count += other.count;
+        }
+    }
+
+    private final GPMapView mapView;
+    private final ItemizedLayer<MarkerItem> layer;
+    private final SymbolFactory symbolFactory;
+    private final int clusterColor;
+    private final int density;
+    private final double cellSize;
+    private final float clusterTextSize;
+
+    private List<MarkerItem> items = new ArrayList<>();
+    // the mercator coordinates of the markers, in the 0-1 range
+    private double[] markerXs = new double[0];
+    private double[] markerYs = new double[0];
+    private final Map<Integer, Collection<Cell>> levels = new HashMap<>();
+
+    private int shownZoom = -1;
+    private double[] shownArea;
+
+    /**
+     * Constructor.
+     *
+     * @param mapView       the map view.
+     * @param layer         the layer to add the markers to.
+     * @param symbolFactory the factory of the symbols of the single markers.
+     * @param clusterColor  the color of the cluster markers, its alpha is not used.
+     */
+    public MarkerClusterer(GPMapView mapView, ItemizedLayer<MarkerItem> layer, SymbolFactory symbolFactory, int clusterColor) {
+        this.mapView = mapView;
+        this.layer = layer;
+        this.symbolFactory = symbolFactory;
+        // translucent, to show what is under the clusters
+        this.clusterColor = (clusterColor & 0x00FFFFFF) | 0xC0000000;
+
+        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(mapView.getContext());
+        String densityStr = preferences.getString(LibraryConstants.PREFS_KEY_MARKERS_CLUSTER_DENSITY, String.valueOf(DEFAULT_CLUSTER_DENSITY));
+        int density;
+        try {
+            density = Integer.parseInt(densityStr);
+        } catch (NumberFormatException e) {
+            density = DEFAULT_CLUSTER_DENSITY;
+        }
+        this.density = density;
+
+        float screenDensity = mapView.getContext().getResources().getDisplayMetrics().density;
+        cellSize = CLUSTER_CELL_DP * screenDensity;
+        clusterTextSize = CLUSTER_TEXT_DP * screenDensity;
+
+        mapView.addMapUpdateListener(this);
+    }
+
+    /**
+     * Set the markers of the layer, replacing the current ones.
+     *
+     * @param markers the markers, without symbol.
+     */
+    public synchronized void setItems(List<MarkerItem> markers) {
+        items = new ArrayList<>(markers);
+        markerXs = new double[items.size()];
+        markerYs = new double[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            GeoPoint point = items.get(i).getPoint();
+            markerXs[i] = MercatorProjection.longitudeToX(point.getLongitude());
+            markerYs[i] = MercatorProjection.latitudeToY(point.getLatitude());
+        }
+        levels.clear();
+        // the markers can be read in the background, the layer is changed on the map thread
+        mapView.map().post(() -> refresh(mapView.getMapPosition().getZoomLevel(), true));
+    }
+
+    /**
+     * @param item a marker of the layer.
+     * @return <code>true</code> if the marker stands for more markers.
+     */
+    public boolean isCluster(MarkerItem item) {
+        return item.getUid() instanceof Cell;
+    }
+
+    /**
+     * Zoom the map in on a cluster marker.
+     *
+     * @param item the cluster marker.
+     */
+    public void zoomTo(MarkerItem item) {
+        GeoPoint point = item.getPoint();
+        GPMapPosition mapPosition = mapView.getMapPosition();
+        mapPosition.setPosition(point.getLatitude(), point.getLongitude());
+        mapPosition.setZoomLevel(Math.min(mapPosition.getZoomLevel() + 2, MAX_CLUSTER_ZOOM + 1));
+        mapView.setMapPosition(mapPosition);
+    }
+
+    /**
+     * Stop following the map, as needed when the layer is disposed.
+     */
+    public void dispose() {
+        mapView.removeMapUpdateListener(this);
+    }
+
+    @Override
+    public void onUpdate(GPMapPosition mapPosition) {
+        refresh(mapPosition.getZoomLevel(), false);
+    }
+
+    private synchronized void refresh(int zoom, boolean force) {
+        GPBBox bbox = mapView.getBoundingBox();
+        double minX = MercatorProjection.longitudeToX(bbox.getMinLongitude());
+        double maxX = MercatorProjection.longitudeToX(bbox.getMaxLongitude());
+        double minY = MercatorProjection.latitudeToY(bbox.getMaxLatitude());
+        double maxY = MercatorProjection.latitudeToY(bbox.getMinLatitude());
+        if (!force && zoom == shownZoom && shownArea != null && shownArea[0] <= minX && shownArea[1] >= maxX
+                && shownArea[2] <= minY && shownArea[3] >= maxY)
+            return;
+
+        long start = System.currentTimeMillis();
+        double bufferX = (maxX - minX) * VIEW_BUFFER_FACTOR;
+        double bufferY = (maxY - minY) * VIEW_BUFFER_FACTOR;
+        double[] area = {minX - bufferX, maxX + bufferX, minY - bufferY, maxY + bufferY};
+
+        List<MarkerItem> shown = new ArrayList<>();
+        int clusterCount = 0;
+        if (density <= 0 || zoom > MAX_CLUSTER_ZOOM) {
+            for (int i = 0; i < items.size(); i++) {
+                if (contains(area, markerXs[i], markerYs[i]))
+                    shown.add(withSymbol(items.get(i)));
+            }
+        } else {
+            for (Cell cell : getLevel(zoom)) {
+                double x = cell.sumX / cell.count;
+                double y = cell.sumY / cell.count;
+                if (!contains(area, x, y))
+                    continue;
+                if (cell.members != null) {
+                    for (int i = 0; i < cell.count; i++) {
+                        shown.add(withSymbol(items.get(cell.members[i])));
+                    }
+                } else {
+                    MarkerItem cluster = new MarkerItem(cell, String.valueOf(cell.count), "",
+                            new GeoPoint(MercatorProjection.toLatitude(y), MercatorProjection.toLongitude(x)));
+                    cluster.setMarker(getClusterSymbol(cell.count));
+                    shown.add(cluster);
+                    clusterCount++;
+                }
+            }
+        }
+
+        layer.removeAllItems(false);
+        layer.addItems(shown);
+        layer.update();
+        shownZoom = zoom;
+        shownArea = area;
+        if (GPLog.LOG_HEAVY)
+            GPLog.addLogEntry(this, "Showing " + shown.size() + " markers, " + clusterCount + " clusters, of " + items.size()
+                    + " at zoom " + zoom + " in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private Collection<Cell> getLevel(int zoom) {
+        Collection<Cell> level = levels.get(zoom);
+        if (level != null)
+            return level;
+
+        Map<Long, Cell> cells = new HashMap<>();
+        Collection<Cell> finerLevel = levels.get(zoom + 1);
+        if (finerLevel != null) {
+            for (Cell finerCell : finerLevel) {
+                int x = finerCell.x >> 1;
+                int y = finerCell.y >> 1;
+                long key = cellKey(x, y);
+                Cell cell = cells.get(key);
+                if (cell == null) {
+                    cell = new Cell(x, y, density);
+                    cells.put(key, cell);
+                }
+                cell.merge(finerCell);
+            }
+        } else {
+            double cellsPerUnit = Tile.SIZE * (double) (1L << zoom) / cellSize;
+            for (int i = 0; i < items.size(); i++) {
+                int x = (int) Math.floor(markerXs[i] * cellsPerUnit);
+                int y = (int) Math.floor(markerYs[i] * cellsPerUnit);
+                long key = cellKey(x, y);
+                Cell cell = cells.get(key);
+                if (cell == null) {
+                    cell = new Cell(x, y, density);
+                    cells.put(key, cell);
+                }
+                cell.add(i, markerXs[i], markerYs[i]);
+            }
+        }
+        level = cells.values();
+        levels.put(zoom, level);
+        return level;
+    }
+
+    private MarkerItem withSymbol(MarkerItem item) {
+        if (item.getMarker() == null) {
+            String key = symbolFactory.getSymbolKey(item);
+            MarkerSymbol symbol = MarkerSymbolCache.INSTANCE.get(key);
+            if (symbol == null) {
+                symbol = symbolFactory.createSymbol(item);
+                MarkerSymbolCache.INSTANCE.put(key, symbol);
+            }
+            item.setMarker(symbol);
+        }
+        return item;
+    }
+
+    private MarkerSymbol getClusterSymbol(int count) {
+        String text = String.valueOf(count);
+        String key = "cluster#" + clusterColor + "#" + clusterTextSize + "#" + text;
+        MarkerSymbol symbol = MarkerSymbolCache.INSTANCE.get(key);
+        if (symbol == null) {
+            Paint textPaint = CanvasAdapter.newPaint();
+            textPaint.setStyle(Paint.Style.FILL);
+            textPaint.setColor(Color.WHITE);
+            textPaint.setTextSize(clusterTextSize);
+            textPaint.setTypeface(Paint.FontFamily.DEFAULT, Paint.FontStyle.BOLD);
+
+            Paint fillPaint = CanvasAdapter.newPaint();
+            fillPaint.setStyle(Paint.Style.FILL);
+            fillPaint.setColor(clusterColor);
+
+            float textWidth = textPaint.getTextWidth(text);
+            float textHeight = textPaint.getTextHeight(text);
+            int size = (int) (Math.max(textWidth, textHeight) + clusterTextSize * 1.5f);
+
+            Bitmap bitmap = CanvasAdapter.newBitmap(size, size, 0);
+            Canvas canvas = CanvasAdapter.newCanvas();
+            canvas.setBitmap(bitmap);
+            canvas.drawCircle(size * 0.5f, size * 0.5f, size * 0.5f, fillPaint);
+            canvas.drawText(text, (size - textWidth) * 0.5f, (size + textHeight) * 0.5f, textPaint);
+
+            symbol = new MarkerSymbol(bitmap, MarkerSymbol.HotspotPlace.CENTER, true);
+            MarkerSymbolCache.INSTANCE.put(key, symbol);
+        }
+        return symbol;
+    }
+
+    private static boolean contains(double[] area, double x, double y) {
+        return x >= area[0] && x <= area[1] && y >= area[2] && y <= area[3];
+    }
+
+    private static long cellKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.map.layers.utils;
+
+import org.oscim.layers.marker.MarkerSymbol;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The rendered marker symbols of the system layers, shared between the layers.
+ *
+ * <p>Symbols are kept by a key that describes everything drawn in them, so that markers
+ * with the same text and style, and the same markers after a reload, share a bitmap.
+ * Evicted symbols are not recycled, since they can still be used by a marker on the map.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public enum MarkerSymbolCache {
+    INSTANCE;
+
+    /**
+     * The max number of symbols kept.
+     */
+    public static final int MAX_CACHED_SYMBOLS = 512;
+
+    private final Map<String, MarkerSymbol> symbols = new LinkedHashMap<String, MarkerSymbol>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, MarkerSymbol> eldest) {
+            return size() > MAX_CACHED_SYMBOLS;
+        }
+    };
+
+    /**
+     * @param key the key of the symbol.
+     * @return the cached symbol or <code>null</code>.
+     */
+    public synchronized MarkerSymbol get(String key) {
+        return symbols.get(key);
+    }
+
+    /**
+     * @param key    the key of the symbol.
+     * @param symbol the symbol to cache.
+     */
+    public synchronized void put(String key, MarkerSymbol symbol) {
+        symbols.put(key, symbol);
+    }
+
+    /**
+     * Drop the cached symbols, for example when the marker style changed.
+     */
+    public synchronized void clear() {
+        symbols.clear();
+    }
+}
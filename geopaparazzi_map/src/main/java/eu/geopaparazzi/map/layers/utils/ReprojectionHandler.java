@@ -0,0 +1,430 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.map.layers.utils;
+
+import org.hortonmachine.dbs.compat.ASpatialDb;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.CoordinateSequenceFilter;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import eu.geopaparazzi.library.database.GPLog;
+import eu.geopaparazzi.library.util.LibraryConstants;
+
+/**
+ * Reprojection of envelopes and geometries between the map and the vector db layers.
+ *
+ * <p>The common projections of field data, web mercator and UTM on WGS84 or ETRS89, are
+ * transformed in process, with one cached transformation per source and destination srid
+ * and batch transforms of the coordinate arrays. Other srids are reprojected by the
+ * database, with the last envelopes of each srid pair cached, since the same view envelope
+ * is usually asked for by more layers and tools.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+@SuppressWarnings("nls")
+public enum ReprojectionHandler {
+    INSTANCE;
+
+    /**
+     * A transformation of coordinates between two srids.
+     */
+    public interface CoordinateTransformation {
+        /**
+         * Transform coordinates in place.
+         *
+         * @param xy    the interleaved x and y values.
+         * @param count the number of coordinates to transform.
+         */
+        void transform(double[] xy, int count);
+    }
+
+    /**
+     * The points per side used to transform envelopes, since the sides of a projected
+     * envelope are curves in the other srid.
+     */
+    private static final int ENVELOPE_POINTS_PER_SIDE = 8;
+    private static final int ENVELOPE_CACHE_SIZE = 16;
+
+    private static final double WGS84_A = 6378137.0;
+    private static final double WGS84_F = 1.0 / 298.257223563;
+    private static final double GRS80_F = 1.0 / 298.257222101;
+
+    private static final CoordinateTransformation IDENTITY = (xy, count) -> {
+        // nothing to do
+    };
+
+    private final Map<Long, CoordinateTransformation> transformations = new ConcurrentHashMap<>();
+    private final Map<Long, Map<Envelope, Envelope>> envelopeCaches = new ConcurrentHashMap<>();
+    private final Map<Long, Boolean> verifiedPairs = new ConcurrentHashMap<>();
+
+    /**
+     * Get the in process transformation between two srids.
+     *
+     * @param srcSrid the source srid.
+     * @param dstSrid the destination srid.
+     * @return the transformation or <code>null</code> if the srids are not supported.
+     */
+    public CoordinateTransformation getTransformation(int srcSrid, int dstSrid) {
+        long key = key(srcSrid, dstSrid);
+        CoordinateTransformation transformation = transformations.get(key);
+        if (transformation == null) {
+            transformation = createTransformation(srcSrid, dstSrid);
+            if (transformation == null) return null;
+            transformations.put(key, transformation);
+        }
+        return transformation;
+    }
+
+    /**
+     * @param srcSrid the source srid.
+     * @param dstSrid the destination srid.
+     * @return <code>true</code> if the srids are transformed in process.
+     */
+    public boolean isSupported(int srcSrid, int dstSrid) {
+        return getTransformation(srcSrid, dstSrid) != null;
+    }
+
+    /**
+     * Reproject an envelope.
+     *
+     * @param db      the db to use if the srids are not supported in process.
+     * @param env     the envelope to reproject.
+     * @param srcSrid the source srid.
+     * @param dstSrid the destination srid.
+     * @return the reprojected envelope.
+     * @throws Exception if the database reprojection fails.
+     */
+    public Envelope reproject(ASpatialDb db, Envelope env, int srcSrid, int dstSrid) throws Exception {
+        if (srcSrid == dstSrid) return new Envelope(env);
+        CoordinateTransformation transformation = getTransformation(srcSrid, dstSrid);
+        if (transformation != null) {
+            verify(db, transformation, env, srcSrid, dstSrid);
+            return transformEnvelope(transformation, env);
+        }
+
+        Map<Envelope, Envelope> cache = envelopeCaches.get(key(srcSrid, dstSrid));
+        if (cache == null) {
+            cache = new LinkedHashMap<Envelope, Envelope>(ENVELOPE_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Envelope, Envelope> eldest) {
+                    return size() > ENVELOPE_CACHE_SIZE;
+                }
+            };
+            envelopeCaches.put(key(srcSrid, dstSrid), cache);
+        }
+        synchronized (cache) {
+            Envelope reprojected = cache.get(env);
+            if (reprojected == null) {
+                reprojected = db.reproject(env, srcSrid, dstSrid);
+                cache.put(new Envelope(env), reprojected);
+            }
+            return new Envelope(reprojected);
+        }
+    }
+
+    /**
+     * Reproject a geometry.
+     *
+     * @param db       the db to use if the srids are not supported in process.
+     * @param geometry the geometry to reproject, which is not modified.
+     * @param srcSrid  the source srid.
+     * @param dstSrid  the destination srid.
+     * @return the reprojected geometry.
+     * @throws Exception if the database reprojection fails.
+     */
+    public Geometry reproject(ASpatialDb db, Geometry geometry, int srcSrid, int dstSrid) throws Exception {
+        if (srcSrid == dstSrid) return geometry.copy();
+        CoordinateTransformation transformation = getTransformation(srcSrid, dstSrid);
+        if (transformation != null) {
+            Geometry copy = geometry.copy();
+            transformInPlace(transformation, copy);
+            return copy;
+        }
+        return db.reproject(geometry, srcSrid, dstSrid);
+    }
+
+    /**
+     * Transform the coordinates of a geometry in place, one batch per coordinate sequence.
+     *
+     * @param transformation the transformation to use.
+     * @param geometry       the geometry to modify.
+     */
+    public void transformInPlace(CoordinateTransformation transformation, Geometry geometry) {
+        if (transformation == IDENTITY) return;
+        geometry.apply(new CoordinateSequenceFilter() {
+            private double[] xy = new double[64];
+
+            @Override
+            public void filter(CoordinateSequence seq, int i) {
+                if (i != 0) return;
+                int size = seq.size();
+                if (xy.length < size * 2) xy = new double[size * 2];
+                for (int j = 0; j < size; j++) {
+                    xy[j * 2] = seq.getX(j);
+                    xy[j * 2 + 1] = seq.getY(j);
+                }
+                transformation.transform(xy, size);
+                for (int j = 0; j < size; j++) {
+                    seq.setOrdinate(j, CoordinateSequence.X, xy[j * 2]);
+                    seq.setOrdinate(j, CoordinateSequence.Y, xy[j * 2 + 1]);
+                }
+            }
+
+            @Override
+            public boolean isDone() {
+                return false;
+            }
+
+            @Override
+            public boolean isGeometryChanged() {
+                return true;
+            }
+        });
+    }
+
+    private static Envelope transformEnvelope(CoordinateTransformation transformation, Envelope env) {
+        int n = ENVELOPE_POINTS_PER_SIDE;
+        double[] xy = new double[n * 4 * 2];
+        double w = env.getWidth();
+        double h = env.getHeight();
+        int index = 0;
+        for (int i = 0; i < n; i++) {
+            double t = (double) i / n;
+            xy[index++] = env.getMinX() + t * w;
+            xy[index++] = env.getMinY();
+            xy[index++] = env.getMaxX();
+            xy[index++] = env.getMinY() + t * h;
+            xy[index++] = env.getMaxX() - t * w;
+            xy[index++] = env.getMaxY();
+            xy[index++] = env.getMinX();
+            xy[index++] = env.getMaxY() - t * h;
+        }
+        transformation.transform(xy, n * 4);
+        Envelope result = new Envelope();
+        for (int i = 0; i < xy.length; i += 2) {
+            result.expandToInclude(xy[i], xy[i + 1]);
+        }
+        return result;
+    }
+
+    /**
+     * Log the difference between the in process and the database reprojection of the first
+     * envelope of each srid pair.
+     */
+    private void verify(ASpatialDb db, CoordinateTransformation transformation, Envelope env, int srcSrid, int dstSrid) {
+        if (!GPLog.LOG_HEAVY || db == null || verifiedPairs.put(key(srcSrid, dstSrid), Boolean.TRUE) != null)
+            return;
+        try {
+            // the database transforms the corners
+            double[] xy = {env.getMinX(), env.getMinY(), env.getMaxX(), env.getMaxY()};
+            transformation.transform(xy, 2);
+            Envelope dbEnv = db.reproject(env, srcSrid, dstSrid);
+            double maxDelta = Math.max(Math.max(Math.abs(xy[0] - dbEnv.getMinX()), Math.abs(xy[1] - dbEnv.getMinY())),
+                    Math.max(Math.abs(xy[2] - dbEnv.getMaxX()), Math.abs(xy[3] - dbEnv.getMaxY())));
+            GPLog.addLogEntry(this, "reprojection " + srcSrid + " -> " + dstSrid + " differs from the database by " + maxDelta);
+        } catch (Exception e) {
+            GPLog.error(this, null, e);
+        }
+    }
+
+    private static long key(int srcSrid, int dstSrid) {
+        return ((long) srcSrid << 32) | (dstSrid & 0xffffffffL);
+    }
+
+    private static CoordinateTransformation createTransformation(int srcSrid, int dstSrid) {
+        if (srcSrid == dstSrid) return IDENTITY;
+        Projection src = getProjection(srcSrid);
+        Projection dst = getProjection(dstSrid);
+        if (src == null || dst == null) return null;
+        return (xy, count) -> {
+            src.inverse(xy, count);
+            dst.forward(xy, count);
+        };
+    }
+
+    /**
+     * @return the projection to and from lat/long WGS84 of the srid, or <code>null</code>.
+     */
+    private static Projection getProjection(int srid) {
+        if (srid == LibraryConstants.SRID_WGS84_4326) {
+            return GEOGRAPHIC;
+        } else if (srid == 3857 || srid == 900913 || srid == 3785) {
+            return WEB_MERCATOR;
+        } else if (srid > 32600 && srid <= 32660) {
+            return new TransverseMercator(WGS84_A, WGS84_F, srid - 32600, false);
+        } else if (srid > 32700 && srid <= 32760) {
+            return new TransverseMercator(WGS84_A, WGS84_F, srid - 32700, true);
+        } else if (srid >= 25828 && srid <= 25838) {
+            // GRS80 ellipsoid, with the ETRS89 datum taken as WGS84 without shift, as the database does
+            return new TransverseMercator(WGS84_A, GRS80_F, srid - 25800, false);
+        }
+        return null;
+    }
+
+    private interface Projection {
+        /**
+         * From lon/lat degrees to the projection.
+         */
+        void forward(double[] xy, int count);
+
+        /**
+         * From the projection to lon/lat degrees.
+         */
+        void inverse(double[] xy, int count);
+    }
+
+    private static final Projection GEOGRAPHIC = new Projection() {
+        @Override
+        public void forward(double[] xy, int count) {
+            // nothing to do
+        }
+
+        @Override
+        public void inverse(double[] xy, int count) {
+            // nothing to do
+        }
+    };
+
+    private static final Projection WEB_MERCATOR = new Projection() {
+        private static final double MAX_LAT = 85.0511287798066;
+
+        @Override
+        public void forward(double[] xy, int count) {
+            for (int i = 0; i < count * 2; i += 2) {
+                double lat = Math.max(-MAX_LAT, Math.min(MAX_LAT, xy[i + 1]));
+                xy[i] = WGS84_A * Math.toRadians(xy[i]);
+                xy[i + 1] = WGS84_A * Math.log(Math.tan(Math.PI / 4.0 + Math.toRadians(lat) / 2.0));
+            }
+        }
+
+        @Override
+        public void inverse(double[] xy, int count) {
+            for (int i = 0; i < count * 2; i += 2) {
+                xy[i] = Math.toDegrees(xy[i] / WGS84_A);
+                xy[i + 1] = Math.toDegrees(2.0 * Math.atan(Math.exp(xy[i + 1] / WGS84_A)) - Math.PI / 2.0);
+            }
+        }
+    };
+
+    /**
+     * Transverse mercator with the 6th order series of Krueger, as in the UTM zones.
+     */
+    private static class TransverseMercator implements Projection {
+        private static final double K0 = 0.9996;
+        private static final double FALSE_EASTING = 500000.0;
+        private static final double FALSE_NORTHING_SOUTH = 10000000.0;
+
+        private final double e;
+        private final double kA;
+        private final double lon0;
+        private final double falseNorthing;
+        private final double[] alpha = new double[7];
+        private final double[] beta = new double[7];
+
+        TransverseMercator(double a, double f, int zone, boolean south) {
+            e = Math.sqrt(f * (2 - f));
+            double n = f / (2 - f);
+            double n2 = n * n, n3 = n2 * n, n4 = n3 * n, n5 = n4 * n, n6 = n5 * n;
+            kA = K0 * a / (1 + n) * (1 + n2 / 4 + n4 / 64 + n6 / 256);
+            lon0 = Math.toRadians(zone * 6 - 183);
+            falseNorthing = south ? FALSE_NORTHING_SOUTH : 0;
+
+            alpha[1] = n / 2 - 2 * n2 / 3 + 5 * n3 / 16 + 41 * n4 / 180 - 127 * n5 / 288 + 7891 * n6 / 37800;
+            alpha[2] = 13 * n2 / 48 - 3 * n3 / 5 + 557 * n4 / 1440 + 281 * n5 / 630 - 1983433 * n6 / 1935360;
+            alpha[3] = 61 * n3 / 240 - 103 * n4 / 140 + 15061 * n5 / 26880 + 167603 * n6 / 181440;
+            alpha[4] = 49561 * n4 / 161280 - 179 * n5 / 168 + 6601661 * n6 / 7257600;
+            alpha[5] = 34729 * n5 / 80640 - 3418889 * n6 / 1995840;
+            alpha[6] = 212378941 * n6 / 319334400;
+
+            beta[1] = n / 2 - 2 * n2 / 3 + 37 * n3 / 96 - n4 / 360 - 81 * n5 / 512 + 96199 * n6 / 604800;
+            beta[2] = n2 / 48 + n3 / 15 - 437 * n4 / 1440 + 46 * n5 / 105 - 1118711 * n6 / 3870720;
+            beta[3] = 17 * n3 / 480 - 37 * n4 / 840 - 209 * n5 / 4480 + 5569 * n6 / 90720;
+            beta[4] = 4397 * n4 / 161280 - 11 * n5 / 504 - 830251 * n6 / 7257600;
+            beta[5] = 4583 * n5 / 161280 - 108847 * n6 / 3991680;
+            beta[6] = 20648693 * n6 / 638668800;
+        }
+
+        @Override
+        public void forward(double[] xy, int count) {
+            for (int i = 0; i < count * 2; i += 2) {
+                double lambda = Math.toRadians(xy[i]) - lon0;
+                double tau = Math.tan(Math.toRadians(xy[i + 1]));
+                double sigma = Math.sinh(e * atanh(e * tau / Math.sqrt(1 + tau * tau)));
+                double tauPrime = tau * Math.sqrt(1 + sigma * sigma) - sigma * Math.sqrt(1 + tau * tau);
+                double cosLambda = Math.cos(lambda);
+                double xiPrime = Math.atan2(tauPrime, cosLambda);
+                double etaPrime = asinh(Math.sin(lambda) / Math.sqrt(tauPrime * tauPrime + cosLambda * cosLambda));
+
+                double xi = xiPrime;
+                double eta = etaPrime;
+                for (int j = 1; j <= 6; j++) {
+                    xi += alpha[j] * Math.sin(2 * j * xiPrime) * Math.cosh(2 * j * etaPrime);
+                    eta += alpha[j] * Math.cos(2 * j * xiPrime) * Math.sinh(2 * j * etaPrime);
+                }
+                xy[i] = kA * eta + FALSE_EASTING;
+                xy[i + 1] = kA * xi + falseNorthing;
+            }
+        }
+
+        @Override
+        public void inverse(double[] xy, int count) {
+            double e2 = e * e;
+            for (int i = 0; i < count * 2; i += 2) {
+                double eta = (xy[i] - FALSE_EASTING) / kA;
+                double xi = (xy[i + 1] - falseNorthing) / kA;
+
+                double xiPrime = xi;
+                double etaPrime = eta;
+                for (int j = 1; j <= 6; j++) {
+                    xiPrime -= beta[j] * Math.sin(2 * j * xi) * Math.cosh(2 * j * eta);
+                    etaPrime -= beta[j] * Math.cos(2 * j * xi) * Math.sinh(2 * j * eta);
+                }
+                double sinhEtaPrime = Math.sinh(etaPrime);
+                double sinXiPrime = Math.sin(xiPrime);
+                double cosXiPrime = Math.cos(xiPrime);
+                double tauPrime = sinXiPrime / Math.sqrt(sinhEtaPrime * sinhEtaPrime + cosXiPrime * cosXiPrime);
+
+                // newton iteration from the conformal to the geodetic latitude
+                double tau = tauPrime;
+                for (int iteration = 0; iteration < 10; iteration++) {
+                    double sigma = Math.sinh(e * atanh(e * tau / Math.sqrt(1 + tau * tau)));
+                    double tauI = tau * Math.sqrt(1 + sigma * sigma) - sigma * Math.sqrt(1 + tau * tau);
+                    double delta = (tauPrime - tauI) / Math.sqrt(1 + tauI * tauI)
+                            * (1 + (1 - e2) * tau * tau) / ((1 - e2) * Math.sqrt(1 + tau * tau));
+                    tau += delta;
+                    if (Math.abs(delta) < 1e-12) break;
+                }
+                xy[i] = Math.toDegrees(Math.atan2(sinhEtaPrime, cosXiPrime) + lon0);
+                xy[i + 1] = Math.toDegrees(Math.atan(tau));
+            }
+        }
+
+        private static double atanh(double x) {
+            return 0.5 * Math.log((1 + x) / (1 - x));
+        }
+
+        private static double asinh(double x) {
+            return Math.log(x + Math.sqrt(x * x + 1));
+        }
+    }
+}
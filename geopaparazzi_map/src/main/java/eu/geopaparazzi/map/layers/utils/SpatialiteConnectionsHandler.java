@@ -10,7 +10,6 @@ import org.hortonmachine.dbs.datatypes.EGeometryType;
 import org.locationtech.jts.geom.Geometry;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 import eu.geopaparazzi.library.style.Style;
@@ -18,69 +17,33 @@ import eu.geopaparazzi.library.style.Style;
 public enum SpatialiteConnectionsHandler {
     INSTANCE;
 
-    HashMap<String, List<String>> connection2TablesMap = new HashMap<>();
-    HashMap<String, ASpatialDb> connection2DbsMap = new HashMap<>();
-
     /**
      * Call this to mark a table as in use.
      *
-     * <p>This helps keeping trak of layers of a same database. Spatialite is singlethread, so one connection should be used
-     * in order to not mess in write mode.</p>
+     * <p>Tables are reference counted in the {@link DbConnectionRegistry}, the connections to
+     * the database stay open as long as a table is in use.</p>
      *
      * @param dbPath    the db path.
      * @param tableName the table to mark as opened.
      * @throws Exception
      */
     public void openTable(String dbPath, String tableName) throws Exception {
-        ASpatialDb db = getDb(dbPath);
-        if (db.hasTable(tableName)) {
-            List<String> openTables = connection2TablesMap.get(dbPath);
-            if (openTables == null) {
-                openTables = new ArrayList<>();
-                connection2TablesMap.put(dbPath, openTables);
-            }
-            if (!openTables.contains(tableName))
-                openTables.add(tableName);
-        }
+        DbConnectionRegistry.INSTANCE.openTable(EDb.SPATIALITE4ANDROID, dbPath, tableName);
     }
 
     /**
      * Dispose a previously opened table.
      *
-     * <p>If this is the last table in use, then also the db connection is closed.</p>
+     * <p>If this is the last table in use, then also the db connections are closed.</p>
      *
      * @param dbPath    the db path.
      * @param tableName the table to dispose.
      * @throws Exception
      */
     public void disposeTable(String dbPath, String tableName) throws Exception {
-        ASpatialDb db = connection2DbsMap.get(dbPath);
-        if (db == null)
-            return;
-        if (db.hasTable(tableName)) {
-            List<String> openTables = connection2TablesMap.get(dbPath);
-            if (openTables == null) {
-                // this should not happen
-                throw new IllegalArgumentException("The requested db has no open tables.");
-            }
-            if (!openTables.contains(tableName)) {
-                throw new IllegalArgumentException("The requested db does not have an open table: " + tableName);
-            }
-
-            openTables.remove(tableName);
-
-            if (openTables.size() == 0) {
-                // also close the connection to the db and remove it
-                connection2TablesMap.remove(dbPath);
-                ASpatialDb removed = connection2DbsMap.remove(dbPath);
-                if (removed != null) {
-                    removed.close();
-                }
-            }
-        }
+        DbConnectionRegistry.INSTANCE.disposeTable(dbPath, tableName);
     }
 
-
     /**
      * .
      * Get the geometry type of a table in a db.
@@ -102,51 +65,75 @@ public enum SpatialiteConnectionsHandler {
     }
 
     public List<Geometry> getGeometries(String dbPath, String tableName, Style gpStyle) throws Exception {
-        ASpatialDb db = getDb(dbPath);
-        GeometryColumn gCol = db.getGeometryColumnsForTable(tableName);
-        String query = SpatialiteUtilities.buildGeometriesInBoundsQuery(db, tableName, gCol, gpStyle, 4326, null);
-
-        IGeometryParser gp = db.getType().getGeometryParser();
-        return db.execOnConnection(connection -> {
-            List<Geometry> tmp = new ArrayList<>();
-            try (IHMStatement stmt = connection.createStatement(); IHMResultSet rs = stmt.executeQuery(query)) {
-                while (rs.next()) {
-                    Geometry geometry = gp.fromResultSet(rs, 1);
-                    if (geometry != null) {
-                        String label = rs.getString(2);
-                        String theme = rs.getString(3);
-                        geometry.setUserData(label + SpatialiteUtilities.LABEL_THEME_SEPARATOR + theme);
-                        tmp.add(geometry);
+        return read(dbPath, db -> {
+            GeometryColumn gCol = db.getGeometryColumnsForTable(tableName);
+            // if possible the geometries are reprojected in process, not by the database
+            ReprojectionHandler.CoordinateTransformation transformation = ReprojectionHandler.INSTANCE.getTransformation(gCol.srid, 4326);
+            int querySrid = transformation != null ? gCol.srid : 4326;
+            String query = SpatialiteUtilities.buildGeometriesInBoundsQuery(db, tableName, gCol, gpStyle, querySrid, null);
+
+            IGeometryParser gp = db.getType().getGeometryParser();
+            return db.execOnConnection(connection -> {
+                List<Geometry> tmp = new ArrayList<>();
+                try (IHMStatement stmt = connection.createStatement(); IHMResultSet rs = stmt.executeQuery(query)) {
+                    while (rs.next()) {
+                        Geometry geometry = gp.fromResultSet(rs, 1);
+                        if (geometry != null) {
+                            if (transformation != null)
+                                ReprojectionHandler.INSTANCE.transformInPlace(transformation, geometry);
+                            String label = rs.getString(2);
+                            String theme = rs.getString(3);
+                            geometry.setUserData(label + SpatialiteUtilities.LABEL_THEME_SEPARATOR + theme);
+                            tmp.add(geometry);
+                        }
                     }
                 }
-            }
-            return tmp;
+                return tmp;
+            });
         });
     }
 
     public Geometry getFirstGeometry(String dbPath, String tableName) throws Exception {
-        ASpatialDb db = getDb(dbPath);
-        GeometryColumn gCol = db.getGeometryColumnsForTable(tableName);
-        String query = SpatialiteUtilities.buildGetFirstGeometry(db, tableName, gCol, 4326);
-
-        IGeometryParser gp = db.getType().getGeometryParser();
-        return db.execOnConnection(connection -> {
-            try (IHMStatement stmt = connection.createStatement(); IHMResultSet rs = stmt.executeQuery(query)) {
-                if (rs.next()) {
-                    return gp.fromResultSet(rs, 1);
+        return read(dbPath, db -> {
+            GeometryColumn gCol = db.getGeometryColumnsForTable(tableName);
+            String query = SpatialiteUtilities.buildGetFirstGeometry(db, tableName, gCol, 4326);
+
+            IGeometryParser gp = db.getType().getGeometryParser();
+            return db.execOnConnection(connection -> {
+                try (IHMStatement stmt = connection.createStatement(); IHMResultSet rs = stmt.executeQuery(query)) {
+                    if (rs.next()) {
+                        return gp.fromResultSet(rs, 1);
+                    }
                 }
-            }
-            return null;
+                return null;
+            });
         });
     }
 
+    /**
+     * Get the writer connection of a database.
+     *
+     * <p>The connection is shared and must not be closed. For reads prefer
+     * {@link #read(String, DbConnectionRegistry.DbFunction)}.</p>
+     *
+     * @param dbPath the db path.
+     * @return the connection.
+     * @throws Exception
+     */
     public ASpatialDb getDb(String dbPath) throws Exception {
-        ASpatialDb spatialDb = connection2DbsMap.get(dbPath);
-        if (spatialDb == null) {
-            spatialDb = EDb.SPATIALITE4ANDROID.getSpatialDb();
-            spatialDb.open(dbPath);
-            connection2DbsMap.put(dbPath, spatialDb);
-        }
-        return spatialDb;
+        return DbConnectionRegistry.INSTANCE.getDb(EDb.SPATIALITE4ANDROID, dbPath);
+    }
+
+    /**
+     * Run a read on a pooled connection of a database.
+     *
+     * @param dbPath   the db path.
+     * @param function the read, the connection is only valid inside it.
+     * @param <T>      the result type.
+     * @return the result of the read.
+     * @throws Exception
+     */
+    public <T> T read(String dbPath, DbConnectionRegistry.DbFunction<T> function) throws Exception {
+        return DbConnectionRegistry.INSTANCE.read(EDb.SPATIALITE4ANDROID, dbPath, function);
     }
 }
@@ -22,7 +22,6 @@ import org.hortonmachine.dbs.compat.ASpatialDb;
 import org.hortonmachine.dbs.compat.GeometryColumn;
 import org.hortonmachine.dbs.compat.IHMResultSet;
 import org.hortonmachine.dbs.compat.IHMStatement;
-import org.hortonmachine.dbs.datatypes.EDataType;
 import org.hortonmachine.dbs.utils.DbsUtilities;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -37,6 +36,7 @@ import java.util.List;
 import eu.geopaparazzi.library.database.GPLog;
 import eu.geopaparazzi.library.style.Style;
 import eu.geopaparazzi.map.features.Feature;
+import eu.geopaparazzi.map.features.editing.EditBatch;
 
 /**
  * geopaparazzi related database utilities.
@@ -547,10 +547,6 @@ public class SpatialiteUtilities implements ISpatialiteTableAndFieldsNames {
         return false;
     }
 
-    private static String escapeString(String value) {
-        return value.replaceAll("'", "''");
-    }
-
     /**
      * Updates the alphanumeric values of a feature in the given database.
      *
@@ -559,56 +555,7 @@ public class SpatialiteUtilities implements ISpatialiteTableAndFieldsNames {
      * @throws Exception if something goes wrong.
      */
     public static void updateFeatureAlphanumericAttributes(ASpatialDb database, Feature feature) throws Exception {
-        String tableName = feature.getTableName();
-        List<String> attributeNames = feature.getAttributeNames();
-        List<Object> attributeValues = feature.getAttributeValues();
-        List<String> attributeTypes = feature.getAttributeTypes();
-
-        int geometryIndex = feature.getGeometryIndex();
-        int idIndex = feature.getIdIndex();
-
-        StringBuilder sbIn = new StringBuilder();
-        sbIn.append("update \"").append(tableName);
-        sbIn.append("\" set ");
-
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < attributeNames.size(); i++) {
-            if (i == idIndex || i == geometryIndex) {
-                continue;
-            }
-
-            String fieldName = attributeNames.get(i);
-            Object value = attributeValues.get(i);
-            String type = attributeTypes.get(i);
-            boolean ignore = doIgnoreField(fieldName);
-            if (!ignore) {
-                EDataType dataType = EDataType.getType4Name(type);
-                String valueStr = "";
-                if (value != null)
-                    valueStr = value.toString();
-                if (dataType == EDataType.TEXT || dataType == EDataType.DATE) {
-                    valueStr = escapeString(valueStr);
-                    sb.append(" , ").append(fieldName).append("='").append(valueStr).append("'");
-                } else if ("".equals(valueStr)) {
-                    sb.append(" , ").append(fieldName).append("=NULL");
-                } else {
-                    sb.append(" , ").append(fieldName).append("=").append(valueStr);
-                }
-            }
-        }
-        String valuesPart = sb.substring(3);
-
-        String pkName = feature.getAttributeNames().get(idIndex);
-        String pkValue = feature.getAttributeValues().get(idIndex).toString();
-        sbIn.append(" ");
-        sbIn.append(valuesPart);
-        sbIn.append(" where ");
-        sbIn.append(pkName);
-        sbIn.append("=");
-        sbIn.append(pkValue);
-
-        String updateQuery = sbIn.toString();
-        database.executeInsertUpdateDeleteSql(updateQuery);
+        new EditBatch(database, null).updateAttributes(feature).commit();
 
         //SpatialVectorTable table = SpatialiteSourcesManager.INSTANCE.getTableFromFeature(feature);
         //createImageField(table);
@@ -0,0 +1,138 @@
+/*
+ * Geopaparazzi - Digital field mapping on Android based devices
+ * Copyright (C) 2016  HydroloGIS (www.hydrologis.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.geopaparazzi.map.layers.utils;
+
+import org.hortonmachine.dbs.datatypes.EGeometryType;
+import org.oscim.backend.canvas.Paint;
+import org.oscim.layers.vector.geometries.Style;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import eu.geopaparazzi.library.style.ColorUtilities;
+
+/**
+ * The vtm styles of a vector db layer, compiled from its table style.
+ *
+ * <p>Each value of the theme field is resolved once to a vtm {@link Style}, which is then
+ * shared by all the features having that value. Values without a theme entry get the
+ * default style of the table.</p>
+ *
+ * @author Andrea Antonello (www.hydrologis.com)
+ */
+public class ThemeStyleTable {
+
+    private final eu.geopaparazzi.library.style.Style gpStyle;
+    private final EGeometryType geometryType;
+    private final Style defaultStyle;
+
+    // resolved styles by the typed value of the theme field
+    private final Map<Object, Style> stylesByValue = new HashMap<>();
+    // built styles by the theme key, shared between values with the same key
+    private final Map<String, Style> stylesByKey = new HashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param gpStyle      the style of the table.
+     * @param geometryType the geometry type of the table.
+     */
+    public ThemeStyleTable(eu.geopaparazzi.library.style.Style gpStyle, EGeometryType geometryType) {
+        this.gpStyle = gpStyle;
+        this.geometryType = geometryType;
+        defaultStyle = buildStyle(gpStyle, geometryType);
+    }
+
+    /**
+     * @return the name of the theme field or <code>null</code>, if the table is not themed.
+     */
+    public String getThemeField() {
+        return gpStyle.themeMap != null ? gpStyle.themeField : null;
+    }
+
+    /**
+     * @return the style of the features that are not themed, <code>null</code> for geometry types that are not drawn.
+     */
+    public Style getDefaultStyle() {
+        return defaultStyle;
+    }
+
+    /**
+     * Get the style for a value of the theme field.
+     *
+     * @param themeValue the value of the theme field of a feature, as read from the table.
+     * @return the shared style.
+     */
+    public Style getStyle(Object themeValue) {
+        if (themeValue == null || getThemeField() == null)
+            return defaultStyle;
+        Style style = stylesByValue.get(themeValue);
+        if (style == null) {
+            String key = themeValue.toString();
+            style = stylesByKey.get(key);
+            if (style == null) {
+                eu.geopaparazzi.library.style.Style themeStyle = gpStyle.themeMap.get(key);
+                style = themeStyle != null ? buildStyle(themeStyle, geometryType) : defaultStyle;
+                stylesByKey.put(key, style);
+            }
+            stylesByValue.put(themeValue, style);
+        }
+        return style;
+    }
+
+    /**
+     * @return the number of distinct styles resolved so far, including the default one.
+     */
+    public int getDistinctStyleCount() {
+        int count = 1;
+        for (Style style : stylesByKey.values()) {
+            if (style != defaultStyle)
+                count++;
+        }
+        return count;
+    }
+
+    private static Style buildStyle(eu.geopaparazzi.library.style.Style style, EGeometryType geometryType) {
+        if (geometryType == EGeometryType.POINT || geometryType == EGeometryType.MULTIPOINT) {
+            return Style.builder()
+                    .buffer(style.size)
+                    .strokeWidth(style.width)
+                    .strokeColor(ColorUtilities.toColor(style.strokecolor))
+                    .fillColor(ColorUtilities.toColor(style.fillcolor))
+                    .fillAlpha(style.fillalpha)
+                    .scaleZoomLevel(19)
+                    .build();
+        } else if (geometryType == EGeometryType.LINESTRING || geometryType == EGeometryType.MULTILINESTRING) {
+            return Style.builder()
+                    .strokeColor(ColorUtilities.toColor(style.strokecolor))
+                    .strokeWidth(style.width)
+                    .cap(Paint.Cap.ROUND)
+                    .build();
+        } else if (geometryType == EGeometryType.POLYGON || geometryType == EGeometryType.MULTIPOLYGON) {
+            return Style.builder()
+                    .strokeColor(ColorUtilities.toColor(style.strokecolor))
+                    .strokeWidth(style.width)
+                    .fillColor(ColorUtilities.toColor(style.fillcolor))
+                    .fillAlpha(style.fillalpha)
+                    .cap(Paint.Cap.ROUND)
+                    .build();
+        }
+        // not drawn
+        return null;
+    }
+}
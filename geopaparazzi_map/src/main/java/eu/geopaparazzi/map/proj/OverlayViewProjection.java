@@ -4,6 +4,7 @@ import android.graphics.Point;
 import android.view.View;
 
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
 import org.oscim.core.MercatorProjection;
 
 import eu.geopaparazzi.map.GPMapPosition;
@@ -117,4 +118,20 @@ public class OverlayViewProjection {
         out.y = (int) MercatorProjection.latitudeToPixelY(in.y, zoom);
         return out;
     }
+
+    /**
+     * Batch version of {@link #toPoint(Coordinate, Point, byte)}, relative to an origin pixel.
+     *
+     * @param in      the coordinates.
+     * @param zoom    the zoom level.
+     * @param originX the x pixel to subtract.
+     * @param originY the y pixel to subtract.
+     * @param out     the array to fill with x and y of each coordinate, of at least twice the size of the sequence.
+     */
+    public void toPoints(CoordinateSequence in, byte zoom, int originX, int originY, float[] out) {
+        for (int i = 0, j = 0, n = in.size(); i < n; i++) {
+            out[j++] = (int) MercatorProjection.longitudeToPixelX(in.getX(i), zoom) - originX;
+            out[j++] = (int) MercatorProjection.latitudeToPixelY(in.getY(i), zoom) - originY;
+        }
+    }
 }
\ No newline at end of file
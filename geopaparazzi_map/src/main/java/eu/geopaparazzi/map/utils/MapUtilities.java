@@ -13,12 +13,12 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import eu.geopaparazzi.library.database.GpsLogArchive;
 import eu.geopaparazzi.library.database.TableDescriptions;
 import eu.geopaparazzi.map.features.Feature;
 import eu.geopaparazzi.map.layers.utils.GpsLog;
 
 import static eu.geopaparazzi.library.database.TableDescriptions.TABLE_GPSLOGS;
-import static eu.geopaparazzi.library.database.TableDescriptions.TABLE_GPSLOG_DATA;
 import static eu.geopaparazzi.library.database.TableDescriptions.TABLE_GPSLOG_PROPERTIES;
 
 @SuppressWarnings("ALL")
@@ -30,42 +30,20 @@ public class MapUtilities {
 
     public static List<Coordinate> getGpslogGeoPoints(SQLiteDatabase sqliteDatabase, long logId, int pointsNum)
             throws IOException {
-
-        String asColumnsToReturn[] = {TableDescriptions.GpsLogsDataTableFields.COLUMN_DATA_LON.getFieldName(), TableDescriptions.GpsLogsDataTableFields.COLUMN_DATA_LAT.getFieldName()};
-        String strSortOrder = TableDescriptions.GpsLogsDataTableFields.COLUMN_DATA_TS.getFieldName() + " ASC";
-        String strWhere = TableDescriptions.GpsLogsDataTableFields.COLUMN_LOGID.getFieldName() + "=" + logId;
-        Cursor c = null;
-        try {
-            c = sqliteDatabase.query(TABLE_GPSLOG_DATA, asColumnsToReturn, strWhere, null, null, null, strSortOrder);
-            int count = c.getCount();
-            int jump = 0;
-            if (pointsNum != -1 && count > pointsNum) {
-                jump = (int) Math.ceil((double) count / pointsNum);
-            }
-
-            c.moveToFirst();
-            List<Coordinate> line = new ArrayList<>();
-            while (!c.isAfterLast()) {
-                double lon = c.getDouble(0);
-                double lat = c.getDouble(1);
-                try {
-                    line.add(new Coordinate(lon, lat));
-                } catch (Exception e) {
-                    // ignore invalid coordinates
-                }
-                c.moveToNext();
-                for (int i = 1; i < jump; i++) {
-                    c.moveToNext();
-                    if (c.isAfterLast()) {
-                        break;
-                    }
-                }
-            }
-            return line;
-        } finally {
-            if (c != null)
-                c.close();
+        int count = GpsLogArchive.countPoints(sqliteDatabase, logId);
+        int jump = 1;
+        if (pointsNum != -1 && count > pointsNum) {
+            jump = (int) Math.ceil((double) count / pointsNum);
         }
+        final int step = jump;
+        final int[] index = {0};
+        final List<Coordinate> line = new ArrayList<>(count / step + 1);
+        GpsLogArchive.streamLog(sqliteDatabase, logId, (id, lon, lat, elev, ts) -> {
+            if (index[0]++ % step == 0) {
+                line.add(new Coordinate(lon, lat));
+            }
+        });
+        return line;
     }
 
 
@@ -0,0 +1,95 @@
+package eu.geopaparazzi.map.layers.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the in process reprojections against the values of PROJ.
+ *
+ * <p>The projected references are given to the centimeter, so the projected coordinates are
+ * compared within 1 cm and the geographic ones within about the same distance.</p>
+ */
+public class ReprojectionHandlerTest {
+    private static final double METERS_DELTA = 0.01;
+    private static final double DEGREES_DELTA = 2E-7;
+
+    private static double[] transform(int srcSrid, int dstSrid, double... xy) {
+        ReprojectionHandler.CoordinateTransformation transformation = ReprojectionHandler.INSTANCE.getTransformation(srcSrid, dstSrid);
+        assertNotNull(transformation);
+        double[] result = xy.clone();
+        transformation.transform(result, result.length / 2);
+        return result;
+    }
+
+    private static void assertCoordinates(double[] expected, double[] actual, double delta) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("ordinate " + i, expected[i], actual[i], delta);
+        }
+    }
+
+    @Test
+    public void webMercator() throws Exception {
+        // echo 10 45 | cs2cs EPSG:4326 EPSG:3857 (lon/lat order)
+        double[] lonLat = {10, 45, 180, 85.0511287798066};
+        double[] mercator = {1113194.91, 5621521.49, 20037508.34, 20037508.34};
+
+        assertCoordinates(mercator, transform(4326, 3857, lonLat), METERS_DELTA);
+        assertCoordinates(lonLat, transform(3857, 4326, mercator), DEGREES_DELTA);
+        // the aliases of web mercator
+        assertCoordinates(mercator, transform(4326, 900913, lonLat), METERS_DELTA);
+        assertCoordinates(mercator, transform(4326, 3785, lonLat), METERS_DELTA);
+    }
+
+    @Test
+    public void utmNorthWgs84() throws Exception {
+        // on the central meridian, off the central meridian, and Baghdad in zone 38
+        double[] lonLat32 = {9, 45, 12, 55};
+        double[] utm32 = {500000.00, 4982950.40, 691875.63, 6098907.83};
+        assertCoordinates(utm32, transform(4326, 32632, lonLat32), METERS_DELTA);
+        assertCoordinates(lonLat32, transform(32632, 4326, utm32), DEGREES_DELTA);
+
+        double[] lonLat38 = {44.4, 33.3};
+        double[] utm38 = {444140.54, 3684706.36};
+        assertCoordinates(utm38, transform(4326, 32638, lonLat38), METERS_DELTA);
+        assertCoordinates(lonLat38, transform(32638, 4326, utm38), DEGREES_DELTA);
+    }
+
+    @Test
+    public void utmSouthWgs84() throws Exception {
+        double[] lonLat = {44.4, -33.3};
+        double[] utm = {444140.54, 6315293.64};
+        assertCoordinates(utm, transform(4326, 32738, lonLat), METERS_DELTA);
+        assertCoordinates(lonLat, transform(32738, 4326, utm), DEGREES_DELTA);
+    }
+
+    @Test
+    public void utmEtrs89() throws Exception {
+        // echo 12 55 | proj +proj=utm +zone=32 +ellps=GRS80
+        double[] lonLat = {12, 55};
+        double[] utm32 = {691875.63, 6098907.83};
+        assertCoordinates(utm32, transform(4326, 25832, lonLat), METERS_DELTA);
+        assertCoordinates(lonLat, transform(25832, 4326, utm32), DEGREES_DELTA);
+
+        double[] utm33 = {308124.37, 6098907.83};
+        assertCoordinates(utm33, transform(4326, 25833, lonLat), METERS_DELTA);
+        assertCoordinates(lonLat, transform(25833, 4326, utm33), DEGREES_DELTA);
+    }
+
+    @Test
+    public void betweenProjections() throws Exception {
+        // through lon/lat, as the map asks for the layers in utm
+        double[] mercator = {1335833.89, 7361866.11};
+        double[] utm32 = transform(3857, 32632, mercator);
+        assertCoordinates(transform(3857, 4326, mercator), transform(32632, 4326, utm32), DEGREES_DELTA);
+        assertCoordinates(mercator, transform(32632, 3857, utm32), METERS_DELTA);
+    }
+
+    @Test
+    public void unsupportedSrids() throws Exception {
+        assertNull(ReprojectionHandler.INSTANCE.getTransformation(4326, 3003));
+        assertFalse(ReprojectionHandler.INSTANCE.isSupported(32661, 4326));
+        assertTrue(ReprojectionHandler.INSTANCE.isSupported(4326, 4326));
+    }
+}